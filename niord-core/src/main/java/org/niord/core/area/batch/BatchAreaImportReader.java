@@ -15,15 +15,13 @@
  */
 package org.niord.core.area.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import org.niord.core.area.vo.SystemAreaVo;
-import org.niord.core.batch.AbstractItemHandler;
-import org.niord.core.util.JsonUtils;
+import org.niord.core.batch.AbstractJsonItemReader;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -69,51 +67,25 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchAreaImportReader extends AbstractItemHandler {
-
-    List<SystemAreaVo> areas;
-    int areasNo = 0;
+public class BatchAreaImportReader extends AbstractJsonItemReader<SystemAreaVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the charts from the file
-        List<SystemAreaVo> areasRoots = JsonUtils.readJson(
-                new TypeReference<List<SystemAreaVo>>(){},
-                path);
-
-        // Serialize the list of areas
-        areas = new ArrayList<>();
-        serializeAreas(null, areasRoots, areas);
-
-        // Remove all non-leaf areas, since leaf areas will generate their parent areas as well
-        areas.removeIf(a -> a.getChildren() != null && a.getChildren().size() > 0);
-
-        if (prevCheckpointInfo != null) {
-            areasNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + areas.size() + " areas from index " + areasNo);
+    protected Class<SystemAreaVo> getElementType() {
+        return SystemAreaVo.class;
     }
 
     /** {@inheritDoc} **/
     @Override
-    public Object readItem() throws Exception {
-        if (areasNo < areas.size()) {
-            getLog().info("Reading area no " + areasNo);
-            return areas.get(areasNo++);
-        }
-        return null;
-    }
+    protected Collection<?> toItems(SystemAreaVo root) throws Exception {
 
-    /** {@inheritDoc} **/
-    @Override
-    public Serializable checkpointInfo() throws Exception {
-        return areasNo;
+        // Serialize the root area hierarchy
+        List<SystemAreaVo> areas = new ArrayList<>();
+        serializeAreas(null, Collections.singletonList(root), areas);
+
+        // Remove all non-leaf areas, since leaf areas will generate their parent areas as well
+        areas.removeIf(a -> a.getChildren() != null && a.getChildren().size() > 0);
+        return areas;
     }
 
 
@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-package org.niord.web.aton;
+package org.niord.core.aton;
 
 import org.infinispan.configuration.cache.CacheMode;
 import org.infinispan.configuration.cache.Configuration;
@@ -18,9 +18,9 @@ package org.niord.core.aton;
 
 import org.niord.core.aton.vo.AtonNodeVo;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import jdk.nashorn.api.scripting.JSObject;
+import org.niord.core.script.JsFunctionPool;
+
 import javax.script.ScriptException;
 import java.util.List;
 
@@ -29,12 +29,12 @@ import java.util.List;
  */
 public class AtonFilter {
 
-    private ScriptEngine jsEngine = new ScriptEngineManager()
-            .getEngineByName("Nashorn");
+    private final JsFunctionPool filterFunction;
 
 
     /** Private access constructor **/
-    private AtonFilter() {
+    private AtonFilter(JsFunctionPool filterFunction) {
+        this.filterFunction = filterFunction;
     }
 
 
@@ -49,12 +49,11 @@ public class AtonFilter {
         // Considerations: Various documentation suggests that the ScriptEngine is indeed threadsafe.
         // However, shared state is not isolated, so, setting the parameters (msg) as
         // script engine state and evaluating the filter directly would not work correctly.
-        // Instead, we wrap the filter in a function and call that function.
+        // Instead, we wrap the filter in an anonymous function and call that function.
+        // The filter is compiled and instantiated up-front, in order to fail early for invalid filters.
 
-        String jsFilter = "function matchesAton(aton) { return " + atonFilter + "; }";
-        AtonFilter filter = new AtonFilter();
-        filter.jsEngine.eval(jsFilter);
-        return filter;
+        String jsFilter = "(function(aton) { return " + atonFilter + "; })";
+        return new AtonFilter(new JsFunctionPool(jsFilter));
     }
 
 
@@ -65,8 +64,7 @@ public class AtonFilter {
      */
     public boolean matches(AtonNodeVo aton) {
         try {
-            Invocable filterFunction = (Invocable)jsEngine;
-            return  (Boolean) filterFunction.invokeFunction("matchesAton", aton);
+            return Boolean.TRUE.equals(filterFunction.call(aton));
         } catch (Exception e) {
             return false;
         }
@@ -79,7 +77,26 @@ public class AtonFilter {
      * @return if all AtoNs match the AtoN filter
      */
     public boolean matches(List<AtonNodeVo> atons) {
-        return atons.stream()
-                .allMatch(this::matches);
+        try {
+            JSObject function = filterFunction.acquire();
+            try {
+                return atons.stream()
+                        .allMatch(aton -> matches(function, aton));
+            } finally {
+                filterFunction.release(function);
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+
+    /** Calls the filter function for the given AtoN **/
+    private boolean matches(JSObject filterFunction, AtonNodeVo aton) {
+        try {
+            return Boolean.TRUE.equals(filterFunction.call(null, aton));
+        } catch (Exception e) {
+            return false;
+        }
     }
 }
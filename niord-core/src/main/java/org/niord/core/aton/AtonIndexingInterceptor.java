@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton;
+
+import org.hibernate.search.indexes.interceptor.EntityIndexingInterceptor;
+import org.hibernate.search.indexes.interceptor.IndexingOverride;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Allows for suspending the Hibernate Search indexing of AtoNs in the current thread.
+ * <p>
+ * Used by bulk imports, where indexing each flushed AtoN is expensive. Instead, the AtoN
+ * index should be rebuilt in one go when the import is complete.
+ * Deletions are always applied, so that the index never refers to deleted AtoNs.
+ */
+public class AtonIndexingInterceptor implements EntityIndexingInterceptor<AtonNode> {
+
+    private static final ThreadLocal<Boolean> SUSPENDED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * Calls the given function with AtoN indexing suspended in the current thread
+     * @param function the function to call
+     * @return the result of the function
+     */
+    public static <T> T callWithoutIndexing(Callable<T> function) throws Exception {
+        boolean suspended = SUSPENDED.get();
+        SUSPENDED.set(Boolean.TRUE);
+        try {
+            return function.call();
+        } finally {
+            SUSPENDED.set(suspended);
+        }
+    }
+
+
+    /** Returns the indexing override for added or updated AtoNs **/
+    private IndexingOverride addOrUpdate() {
+        return SUSPENDED.get() ? IndexingOverride.SKIP : IndexingOverride.APPLY_DEFAULT;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public IndexingOverride onAdd(AtonNode entity) {
+        return addOrUpdate();
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public IndexingOverride onUpdate(AtonNode entity) {
+        return addOrUpdate();
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public IndexingOverride onDelete(AtonNode entity) {
+        return IndexingOverride.APPLY_DEFAULT;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public IndexingOverride onCollectionUpdate(AtonNode entity) {
+        return addOrUpdate();
+    }
+}
@@ -51,7 +51,7 @@ import java.util.stream.Collectors;
  * http://wiki.openstreetmap.org/wiki/Elements
  */
 @Entity
-@Indexed
+@Indexed(interceptor = AtonIndexingInterceptor.class)
 @NamedQueries({
         @NamedQuery(name  = "AtonNode.deleteAll",
                 query = "delete from AtonNode"),
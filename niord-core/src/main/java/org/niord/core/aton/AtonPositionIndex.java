@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable, packed spatial index of AtoN positions and IDs.
+ * <p>
+ * The positions are sorted along a Hilbert curve and stored in primitive arrays. Consecutive runs of
+ * {@code NODE_SIZE} positions form the leaf nodes of a one-level packed R-tree, so an extent search
+ * only needs to test the positions of the leaf nodes whose bounding box intersects the extent.
+ */
+public class AtonPositionIndex {
+
+    static final int NODE_SIZE = 64;
+    static final int HILBERT_ORDER = 15; // Hilbert values must fit in an int
+
+    final int[] ids;
+    final double[] lons;
+    final double[] lats;
+
+    // Bounding boxes of the leaf nodes, stored as [minLon, minLat, maxLon, maxLat] per node
+    final double[] nodeBoxes;
+
+
+    /**
+     * Constructor
+     * @param ids the AtoN IDs
+     * @param lons the AtoN longitudes
+     * @param lats the AtoN latitudes
+     */
+    public AtonPositionIndex(int[] ids, double[] lons, double[] lats) {
+        int n = ids.length;
+        if (lons.length != n || lats.length != n) {
+            throw new IllegalArgumentException("ids, lons and lats must have the same length");
+        }
+
+        // Compute the Hilbert value of each position within the extent of all positions
+        double minLon = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minLon = Math.min(minLon, lons[i]);
+            minLat = Math.min(minLat, lats[i]);
+            maxLon = Math.max(maxLon, lons[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+        }
+        int maxCoord = (1 << HILBERT_ORDER) - 1;
+        double lonScale = maxLon > minLon ? maxCoord / (maxLon - minLon) : 0;
+        double latScale = maxLat > minLat ? maxCoord / (maxLat - minLat) : 0;
+
+        // Sort the positions by Hilbert value. Pack the Hilbert value and the position index into a long
+        long[] sortKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int x = (int) ((lons[i] - minLon) * lonScale);
+            int y = (int) ((lats[i] - minLat) * latScale);
+            sortKeys[i] = ((long) hilbert(x, y) << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+
+        this.ids = new int[n];
+        this.lons = new double[n];
+        this.lats = new double[n];
+        for (int i = 0; i < n; i++) {
+            int index = (int) sortKeys[i];
+            this.ids[i] = ids[index];
+            this.lons[i] = lons[index];
+            this.lats[i] = lats[index];
+        }
+
+        // Compute the bounding boxes of the leaf nodes
+        int nodes = (n + NODE_SIZE - 1) / NODE_SIZE;
+        nodeBoxes = new double[4 * nodes];
+        for (int node = 0; node < nodes; node++) {
+            double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                             Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+            for (int i = node * NODE_SIZE; i < Math.min(n, (node + 1) * NODE_SIZE); i++) {
+                box[0] = Math.min(box[0], this.lons[i]);
+                box[1] = Math.min(box[1], this.lats[i]);
+                box[2] = Math.max(box[2], this.lons[i]);
+                box[3] = Math.max(box[3], this.lats[i]);
+            }
+            System.arraycopy(box, 0, nodeBoxes, 4 * node, 4);
+        }
+    }
+
+
+    /**
+     * Returns the number of indexed positions
+     * @return the number of indexed positions
+     */
+    public int size() {
+        return ids.length;
+    }
+
+
+    /**
+     * Visits the indexed positions within the given extent.
+     * <p>
+     * The visitor is called with the internal index of each position, which can be resolved using
+     * {@linkplain #getId(int)}, {@linkplain #getLon(int)} and {@linkplain #getLat(int)}.
+     * The search stops when the visitor returns false.
+     *
+     * @param minLon the minimum longitude
+     * @param minLat the minimum latitude
+     * @param maxLon the maximum longitude
+     * @param maxLat the maximum latitude
+     * @param visitor the visitor
+     */
+    public void search(double minLon, double minLat, double maxLon, double maxLat, IntPredicate visitor) {
+        for (int node = 0; node < nodeBoxes.length / 4; node++) {
+            int b = 4 * node;
+            if (nodeBoxes[b] > maxLon || nodeBoxes[b + 1] > maxLat || nodeBoxes[b + 2] < minLon || nodeBoxes[b + 3] < minLat) {
+                continue;
+            }
+            for (int i = node * NODE_SIZE; i < Math.min(ids.length, (node + 1) * NODE_SIZE); i++) {
+                if (lons[i] >= minLon && lons[i] <= maxLon && lats[i] >= minLat && lats[i] <= maxLat) {
+                    if (!visitor.test(i)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /** Returns the AtoN ID of the position with the given internal index **/
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /** Returns the longitude of the position with the given internal index **/
+    public double getLon(int index) {
+        return lons[index];
+    }
+
+    /** Returns the latitude of the position with the given internal index **/
+    public double getLat(int index) {
+        return lats[index];
+    }
+
+
+    /**
+     * Computes the distance along the Hilbert curve of the given grid coordinates
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the distance along the Hilbert curve
+     */
+    static int hilbert(int x, int y) {
+        int n = 1 << HILBERT_ORDER;
+        int d = 0;
+        for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+
+            // Rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
@@ -34,6 +34,8 @@ import org.niord.model.search.PagedSearchResultVo;
 import org.slf4j.Logger;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -54,6 +56,12 @@ public class AtonService extends BaseService {
     @Inject
     private Logger log;
 
+    @Inject
+    AtonTileService atonTileService;
+
+    @Inject
+    AtonSpatialIndex atonSpatialIndex;
+
     /*************************/
     /** NEW Aton Model      **/
     /*************************/
@@ -114,7 +122,42 @@ public class AtonService extends BaseService {
 
 
     /**
-     * Replaces the AtoN DB
+     * Returns the AtoNs with the given IDs, including their tags
+     * @param ids the AtoN IDs
+     * @return the AtoNs with the given IDs
+     */
+    public List<AtonNode> findByIds(List<Integer> ids) {
+        List<AtonNode> result = new ArrayList<>();
+        for (List<Integer> idBatch : partition(ids, MAX_IN_CLAUSE_SIZE)) {
+            result.addAll(em.createNamedQuery("AtonNode.findByIds", AtonNode.class)
+                    .setParameter("ids", idBatch)
+                    .getResultList());
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns a lookup map from AtoN UID to AtoN ID for all AtoNs.
+     * Used by the AtoN import for resolving existing AtoNs in a single query.
+     *
+     * @return a lookup map from AtoN UID to AtoN ID for all AtoNs
+     */
+    public Map<String, Integer> findAllAtonUidIds() {
+        Map<String, Integer> result = new HashMap<>();
+        em.createQuery("select t.v, t.atonNode.id from AtonTag t where t.k = :key", Object[].class)
+                .setParameter("key", AtonTag.TAG_ATON_UID)
+                .getResultList()
+                .forEach(row -> result.putIfAbsent((String) row[0], (Integer) row[1]));
+        return result;
+    }
+
+
+    /**
+     * Replaces the AtoN DB.
+     * <p>
+     * The AtoN tiles containing the original and new positions of created or updated AtoNs are invalidated.
+     *
      * @param atons the new AtoNs
      */
     public void updateAtons(List<AtonNode> atons) {
@@ -122,14 +165,18 @@ public class AtonService extends BaseService {
         // Persist new list of AtoNs
         long t0 = System.currentTimeMillis();
         int created = 0, updated = 0, unchanged = 0;
+        List<double[]> dirtyPositions = new ArrayList<>();
         for (AtonNode aton : atons) {
 
             AtonNode orig = findByAtonUid(aton.getAtonUid());
             if (orig == null) {
                 em.persist(aton);
+                dirtyPositions.add(new double[] { aton.getLon(), aton.getLat() });
                 created++;
 
             } else if (orig.hasChanged(aton)) {
+                dirtyPositions.add(new double[] { orig.getLon(), orig.getLat() });
+                dirtyPositions.add(new double[] { aton.getLon(), aton.getLat() });
                 orig.updateNode(aton);
                 em.persist(orig);
                 updated++;
@@ -144,6 +191,109 @@ public class AtonService extends BaseService {
         }
         log.info(String.format("Updated %s AtoNs (created %d, updated %d, ignored %d) in %d ms",
                 atons.size(), created, updated, unchanged, System.currentTimeMillis() - t0));
+
+        // Invalidate the affected AtoN tiles and the spatial index
+        atonsChanged(dirtyPositions);
+    }
+
+
+    /**
+     * Should be called when AtoNs have been created or updated.
+     * <p>
+     * Invalidates the AtoN tiles containing the given positions and flags the AtoN spatial index for rebuild.
+     *
+     * @param lonLats the original and new lon-lat positions of the created or updated AtoNs
+     */
+    public void atonsChanged(Collection<double[]> lonLats) {
+        if (!lonLats.isEmpty()) {
+            atonTileService.invalidateTiles(lonLats);
+            atonSpatialIndex.invalidate();
+        }
+    }
+
+
+    /**
+     * Flushes and clears the persistence context without updating the Hibernate Search index
+     * for the flushed AtoNs.
+     * <p>
+     * Used by bulk imports, which should call {@linkplain #reindexAtons()} when complete.
+     */
+    public void flushWithoutIndexing() throws Exception {
+        AtonIndexingInterceptor.callWithoutIndexing(() -> {
+            em.flush();
+            em.clear();
+            return null;
+        });
+    }
+
+
+    /**
+     * Rebuilds the Hibernate Search index of all AtoNs.
+     * <p>
+     * The mass indexer manages its own transactions, so this method should not be called within a transaction.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void reindexAtons() throws InterruptedException {
+        long t0 = System.currentTimeMillis();
+        Search.getFullTextEntityManager(em)
+                .createIndexer(AtonNode.class)
+                .startAndWait();
+        log.info("Re-indexed AtoNs in " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+
+    /**
+     * Returns the ID and lon-lat position of all AtoNs.
+     * Used for building the AtoN spatial index.
+     *
+     * @return the ID and lon-lat position of all AtoNs
+     */
+    public List<Object[]> findAllPositions() {
+        return em.createQuery("select a.id, a.lon, a.lat from AtonNode a", Object[].class)
+                .getResultList();
+    }
+
+
+    /**
+     * Returns the AtoN ID, key and value of all "seamark:" AtoN tags.
+     * Used for computing the most common tag combinations, e.g. when pre-warming the AtoN icon cache.
+     *
+     * @return the AtoN ID, key and value of all "seamark:" AtoN tags
+     */
+    public List<Object[]> findAllSeamarkTags() {
+        return em.createQuery("select t.atonNode.id, t.k, t.v from AtonTag t where t.k like 'seamark:%'", Object[].class)
+                .getResultList();
+    }
+
+
+    /**
+     * Returns if the search parameters only filter by extent, in which case the search can be
+     * performed using the AtoN spatial index rather than the database
+     *
+     * @param param the search parameters
+     * @return if the search can be performed using the AtoN spatial index
+     */
+    private boolean useSpatialIndex(AtonSearchParams param) {
+        return param.getExtent() != null
+                && StringUtils.isBlank(param.getName())
+                && param.getChartNumbers().isEmpty()
+                && param.getAreaIds().isEmpty();
+    }
+
+
+    /**
+     * Computes the extent of all AtoNs
+     *
+     * @return the extent of all AtoNs as [minLon, minLat, maxLon, maxLat], or null if there are no AtoNs
+     */
+    public double[] computeExtent() {
+        Object[] extent = em.createQuery(
+                "select min(a.lon), min(a.lat), max(a.lon), max(a.lat) from AtonNode a", Object[].class)
+                .getSingleResult();
+        if (extent == null || extent[0] == null) {
+            return null;
+        }
+        return new double[] { (Double)extent[0], (Double)extent[1], (Double)extent[2], (Double)extent[3] };
     }
 
 
@@ -159,21 +309,27 @@ public class AtonService extends BaseService {
             PagedSearchResultVo<AtonNode> result = new PagedSearchResultVo<>();
 
             // First fetch the ID's of the of all matching AtoNs
-            CriteriaHelper<Tuple> criteriaHelper = CriteriaHelper.initWithTupleQuery(em);
+            List<Integer> atonIds;
+            if (useSpatialIndex(param)) {
+                atonIds = atonSpatialIndex.searchIds(param.getExtent());
 
-            Root<AtonNode> atonRoot = buildSearchCriteria(criteriaHelper, param);
+            } else {
+                CriteriaHelper<Tuple> criteriaHelper = CriteriaHelper.initWithTupleQuery(em);
 
-            criteriaHelper.getCriteriaQuery()
-                    .multiselect(atonRoot.get("id"))
-                    .distinct(true)
-                    .where(criteriaHelper.where());
+                Root<AtonNode> atonRoot = buildSearchCriteria(criteriaHelper, param);
 
-            List<Integer> atonIds = em
-                    .createQuery(criteriaHelper.getCriteriaQuery())
-                    .getResultList()
-                    .stream()
-                    .map(t -> (Integer)t.get(0))
-                    .collect(Collectors.toList());
+                criteriaHelper.getCriteriaQuery()
+                        .multiselect(atonRoot.get("id"))
+                        .distinct(true)
+                        .where(criteriaHelper.where());
+
+                atonIds = em
+                        .createQuery(criteriaHelper.getCriteriaQuery())
+                        .getResultList()
+                        .stream()
+                        .map(t -> (Integer) t.get(0))
+                        .collect(Collectors.toList());
+            }
 
             result.setTotal(atonIds.size());
 
@@ -208,11 +364,16 @@ public class AtonService extends BaseService {
 
     /**
      * Computes the list of AtoN lon-lat positions that matches the search parameters.<br>
+     * If the search parameters only filter by extent, the AtoN spatial index is used.
      *
      * @return the AtoN lon-lat positions
      */
     public List<double[]> searchPositions(AtonSearchParams param) {
         try {
+            if (useSpatialIndex(param)) {
+                return atonSpatialIndex.searchPositions(param.getExtent(), param.getMaxSize());
+            }
+
             CriteriaHelper<Tuple> criteriaHelper = CriteriaHelper.initWithTupleQuery(em);
 
             Root<AtonNode> atonRoot = buildSearchCriteria(criteriaHelper, param);
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import org.niord.core.geojson.JtsConverter;
+import org.slf4j.Logger;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Maintains an in-memory spatial index of all AtoN positions and IDs.
+ * <p>
+ * The index is built lazily upon the first search, and is rebuilt upon the first search after
+ * AtoNs have been created or updated, as signalled via {@linkplain #invalidate()}.
+ */
+@ApplicationScoped
+public class AtonSpatialIndex {
+
+    @Inject
+    Logger log;
+
+    @Inject
+    AtonService atonService;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private volatile AtonPositionIndex index;
+    private volatile boolean dirty = true;
+
+
+    /**
+     * Flags that the index must be rebuilt.
+     * <p>
+     * If called within a transaction, the index is flagged once the transaction has been committed,
+     * since an index rebuilt before then would not include the changes of the transaction.
+     */
+    public void invalidate() {
+        if (transactionRegistry.getTransactionKey() != null) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        dirty = true;
+                    }
+                }
+            });
+        } else {
+            dirty = true;
+        }
+    }
+
+
+    /**
+     * Returns the current index, and rebuilds it first if it has been invalidated
+     * @return the current index
+     */
+    private AtonPositionIndex getIndex() {
+        if (dirty) {
+            synchronized (this) {
+                if (dirty) {
+                    // Reset the flag before loading, so that concurrent invalidations trigger a new rebuild
+                    dirty = false;
+                    try {
+                        index = buildIndex();
+                    } catch (RuntimeException e) {
+                        dirty = true;
+                        throw e;
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+
+    /** Loads all AtoN positions from the database and builds a new index **/
+    private AtonPositionIndex buildIndex() {
+        long t0 = System.currentTimeMillis();
+        List<Object[]> positions = atonService.findAllPositions();
+
+        int n = positions.size();
+        int[] ids = new int[n];
+        double[] lons = new double[n];
+        double[] lats = new double[n];
+        for (int i = 0; i < n; i++) {
+            Object[] position = positions.get(i);
+            ids[i] = (Integer) position[0];
+            lons[i] = (Double) position[1];
+            lats[i] = (Double) position[2];
+        }
+
+        AtonPositionIndex index = new AtonPositionIndex(ids, lons, lats);
+        log.info("Built AtoN spatial index with " + n + " positions in " + (System.currentTimeMillis() - t0) + " ms");
+        return index;
+    }
+
+
+    /**
+     * Returns the IDs of the AtoNs within the given extent
+     *
+     * @param extent the extent
+     * @return the IDs of the AtoNs within the given extent
+     */
+    public List<Integer> searchIds(Geometry extent) {
+        AtonPositionIndex index = getIndex();
+        List<Integer> ids = new ArrayList<>();
+        search(index, extent, i -> ids.add(index.getId(i)));
+        return ids;
+    }
+
+
+    /**
+     * Returns the distinct lon-lat positions of the AtoNs within the given extent
+     *
+     * @param extent the extent
+     * @param maxSize the maximum number of positions to return
+     * @return the distinct lon-lat positions of the AtoNs within the given extent
+     */
+    public List<double[]> searchPositions(Geometry extent, int maxSize) {
+        AtonPositionIndex index = getIndex();
+        List<double[]> positions = new ArrayList<>();
+        Set<Point2D.Double> distinctPositions = new HashSet<>();
+        search(index, extent, i -> {
+            if (distinctPositions.add(new Point2D.Double(index.getLon(i), index.getLat(i)))) {
+                positions.add(new double[] { index.getLon(i), index.getLat(i) });
+            }
+            return positions.size() < maxSize;
+        });
+        return positions;
+    }
+
+
+    /**
+     * Visits the AtoN positions of the index within the given extent.
+     * The search stops when the visitor returns false.
+     *
+     * @param index the index to search
+     * @param extent the extent
+     * @param visitor the visitor
+     */
+    private void search(AtonPositionIndex index, Geometry extent, IntPredicate visitor) {
+        Envelope bbox = extent.getEnvelopeInternal();
+
+        IntPredicate filter = visitor;
+        if (!extent.isRectangle()) {
+            // Exact test for non-rectangular extents
+            PreparedGeometry preparedExtent = PreparedGeometryFactory.prepare(extent);
+            filter = i -> !preparedExtent.contains(JtsConverter.toJtsPoint(index.getLat(i), index.getLon(i)))
+                    || visitor.test(i);
+        }
+
+        index.search(bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(), bbox.getMaxY(), filter);
+    }
+}
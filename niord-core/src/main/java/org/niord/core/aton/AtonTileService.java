@@ -0,0 +1,403 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton;
+
+import com.vividsolutions.jts.geom.Envelope;
+import org.apache.commons.io.IOUtils;
+import org.niord.core.area.Area;
+import org.niord.core.domain.Domain;
+import org.niord.core.domain.DomainService;
+import org.niord.core.repo.RepositoryService;
+import org.niord.core.service.BaseService;
+import org.niord.core.settings.annotation.Setting;
+import org.niord.core.util.GlobalMercator;
+import org.niord.core.util.GraphicsUtils;
+import org.slf4j.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.imageio.ImageIO;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.niord.core.settings.Setting.Type.Integer;
+
+/**
+ * Renders and manages the AtoN tiles stored in the repository.
+ * <p>
+ * Tiles are rendered either lazily, upon the first request, or in bulk by the "aton-tile-seeder" batch job.
+ * A rendered tile remains valid until an AtoN within the tile is created, updated or moved, at which
+ * point the affected tiles are invalidated by {@linkplain #invalidateTiles(Collection)}.
+ * <p>
+ * As a fallback, tiles also expire after {@code TILE_MAX_AGE_HOURS}. A tile rendered lazily while an AtoN
+ * change is being committed may be written after the invalidation, and would otherwise remain stale.
+ * <p>
+ * Tiles are addressed using the XYZ ("Google") tile scheme.
+ */
+@Stateless
+@SuppressWarnings("unused")
+public class AtonTileService extends BaseService {
+
+    public static final int     TILE_SIZE           = 256;
+    public static final String  TILE_REPO_FOLDER    = "aton_tiles";
+    static final Color          ATON_COLOR          = new Color(200, 0, 0);
+    static final int            MAX_ATON_RADIUS     = 1;
+    static final int            MAX_ZOOM            = 22;
+    static final int            TILE_MAX_AGE_HOURS  = 24; // Tiles are re-rendered after 24 hours at the latest
+
+    @Inject
+    @Setting(value = "atonTileSeedMinZoom", defaultValue = "4", type = Integer,
+            description = "The minimum zoom level of AtoN tiles pre-rendered by the AtoN tile seeder")
+    Integer seedMinZoom;
+
+    @Inject
+    @Setting(value = "atonTileSeedMaxZoom", defaultValue = "10", type = Integer,
+            description = "The maximum zoom level of AtoN tiles pre-rendered by the AtoN tile seeder")
+    Integer seedMaxZoom;
+
+    @Inject
+    Logger log;
+
+    @Inject
+    AtonService atonService;
+
+    @Inject
+    AtonBlankTileCache blankTileCache;
+
+    @Inject
+    RepositoryService repositoryService;
+
+    @Inject
+    DomainService domainService;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+
+    /**
+     * Returns the repository path of the given tile
+     * @param z the zoom level
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the repository path of the given tile
+     */
+    public Path getTilePath(int z, int x, int y) {
+        return getTilePath(repositoryService.getRepoRoot().resolve(TILE_REPO_FOLDER), z, x, y);
+    }
+
+
+    /** Returns the path of the given tile within the tile root folder **/
+    private Path getTilePath(Path tileRoot, int z, int x, int y) {
+        return tileRoot
+                .resolve(String.valueOf(z))
+                .resolve(String.valueOf(x))
+                .resolve(String.valueOf(y) + ".png");
+    }
+
+
+    /**
+     * Returns if the given tile file exists and has not expired.
+     * <p>
+     * Invalidated tiles are deleted, so this only expires tiles that have been rendered
+     * concurrently with an AtoN change, and thus missed the invalidation.
+     *
+     * @param file the tile file
+     * @return if the given tile file exists and has not expired
+     */
+    public boolean isValidTile(Path file) throws IOException {
+        long maxAgeMs = 1000L * 60L * 60L * TILE_MAX_AGE_HOURS;
+        return Files.exists(file) &&
+                System.currentTimeMillis() < Files.getLastModifiedTime(file).toMillis() + maxAgeMs;
+    }
+
+
+    /**
+     * Returns if the given tile is a known blank tile
+     * @param file the tile file
+     * @return if the given tile is a known blank tile
+     */
+    public boolean isBlankTile(Path file) {
+        return blankTileCache.getCache().containsKey(file.toString());
+    }
+
+
+    /**
+     * Returns the path of the blank tile, and ensures that it is present in the repository
+     * @return the path of the blank tile
+     */
+    public Path getBlankTilePath() throws IOException {
+        Path file = repositoryService.getRepoRoot()
+                .resolve(TILE_REPO_FOLDER)
+                .resolve("blank_256.png");
+
+        // Make sure the blank file is present in the repository
+        if (Files.notExists(file)) {
+            checkCreateParentDirs(file);
+            try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+                IOUtils.copy(getClass().getResourceAsStream("/blank_256.png"), out);
+            }
+        }
+        return file;
+    }
+
+
+    /**
+     * Renders the given tile and writes it to the repository.
+     * <p>
+     * If the tile contains no AtoNs, no file is written, but the tile is registered as a blank tile.
+     *
+     * @param z the zoom level
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the tile file, or null if the tile is blank
+     */
+    public Path renderTile(int z, int x, int y) throws IOException {
+
+        long t0 = System.currentTimeMillis();
+        Path file = getTilePath(z, x, y);
+
+        // Search all AtoNs in the bounds of the tile
+        GlobalMercator mercator = new GlobalMercator();
+        double[] bounds = mercator.TileLatLonBounds(x, y, z);
+
+        // Convert to mapExtents search parameters
+        AtonSearchParams param = new AtonSearchParams()
+                .extent(-bounds[2], bounds[1], -bounds[0], bounds[3]);
+
+        // Compute the atons of the tile extent
+        List<double[]> atonLonLats = atonService.searchPositions(param);
+
+        // If the search result is empty, register the tile as blank
+        if (atonLonLats.isEmpty()) {
+            blankTileCache.getCache().put(file.toString(), file.toString());
+            return null;
+        }
+
+        // Generate an image
+        BufferedImage image = generateAtonTile(z, bounds, mercator, atonLonLats);
+
+        // Write the image to the repository. Use a temporary file and an atomic move,
+        // so that concurrent requests never stream a partially written tile
+        checkCreateParentDirs(file);
+        Path tmpFile = Files.createTempFile(file.getParent(), "tile", ".tmp");
+        try {
+            ImageIO.write(image, "png", tmpFile.toFile());
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        log.debug("Generated " + file + " in " + (System.currentTimeMillis() - t0) + " ms");
+
+        return file;
+    }
+
+
+    /**
+     * Generates an AtoN tile
+     * @param z the zoom level
+     * @param bounds the tile bounds
+     * @param mercator the mercator calculator
+     * @param atonLonLats the aton positions
+     * @return the resulting image
+     */
+    private BufferedImage generateAtonTile(int z, double[] bounds, GlobalMercator mercator, List<double[]> atonLonLats) {
+
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        GraphicsUtils.antialias(g2);
+
+        int xy0[] =  mercator.LatLonToPixels(-bounds[0], bounds[1], z);
+
+        atonLonLats.forEach(lonLat -> {
+
+            int xy[] = mercator.LatLonToPixels(lonLat[1], lonLat[0], z);
+            double px = xy[0] - xy0[0];
+            double py = -(xy[1] - xy0[1]);
+            double radius = (z < 6) ? 0.5 : MAX_ATON_RADIUS;
+
+            Shape theCircle = new Ellipse2D.Double(px - radius, py - radius, 2.0 * radius, 2.0 * radius);
+            g2.setColor(ATON_COLOR);
+            g2.fill(theCircle);
+        });
+
+        g2.dispose();
+        return image;
+    }
+
+
+    /**
+     * Invalidates all tiles, at all zoom levels, containing the given AtoN positions.
+     * <p>
+     * The rendered tile files are deleted and any blank tile registrations are evicted,
+     * so that the tiles will be re-rendered upon the next request or seeding.
+     * <p>
+     * If called within a transaction, the tiles are invalidated once the transaction has been committed,
+     * since tiles rendered before then would still reflect the original AtoN positions.
+     *
+     * @param lonLats the AtoN lon-lat positions
+     */
+    public void invalidateTiles(Collection<double[]> lonLats) {
+        if (lonLats.isEmpty()) {
+            return;
+        }
+
+        // Resolve the tile paths up-front, since the transaction completion callback
+        // should not call other EJBs, such as the repository service
+        Set<Path> dirtyTiles = computeDirtyTiles(lonLats);
+
+        if (transactionRegistry.getTransactionKey() != null) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        deleteTiles(dirtyTiles);
+                    }
+                }
+            });
+        } else {
+            deleteTiles(dirtyTiles);
+        }
+    }
+
+
+    /**
+     * Computes the paths of all tiles, at all zoom levels, containing the given AtoN positions
+     *
+     * @param lonLats the AtoN lon-lat positions
+     * @return the paths of the dirty tiles
+     */
+    private Set<Path> computeDirtyTiles(Collection<double[]> lonLats) {
+        GlobalMercator mercator = new GlobalMercator();
+        Path tileRoot = repositoryService.getRepoRoot().resolve(TILE_REPO_FOLDER);
+        Set<Path> dirtyTiles = new LinkedHashSet<>();
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            int maxTile = (1 << z) - 1;
+            for (double[] lonLat : lonLats) {
+                // An AtoN is drawn as a circle, which may overlap neighbouring tiles
+                int[] xy = mercator.LatLonToPixels(lonLat[1], lonLat[0], z);
+                for (int px = xy[0] - MAX_ATON_RADIUS; px <= xy[0] + MAX_ATON_RADIUS; px += MAX_ATON_RADIUS) {
+                    for (int py = xy[1] - MAX_ATON_RADIUS; py <= xy[1] + MAX_ATON_RADIUS; py += MAX_ATON_RADIUS) {
+                        int x = px / TILE_SIZE;
+                        int y = maxTile - py / TILE_SIZE; // TMS to XYZ tile scheme
+                        if (x >= 0 && x <= maxTile && y >= 0 && y <= maxTile) {
+                            dirtyTiles.add(getTilePath(tileRoot, z, x, y));
+                        }
+                    }
+                }
+            }
+        }
+        return dirtyTiles;
+    }
+
+
+    /**
+     * Deletes the given dirty tiles and evicts them from the blank tile cache
+     *
+     * @param dirtyTiles the dirty tiles
+     */
+    private void deleteTiles(Set<Path> dirtyTiles) {
+        long t0 = System.currentTimeMillis();
+        for (Path file : dirtyTiles) {
+            blankTileCache.getCache().remove(file.toString());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed deleting dirty AtoN tile " + file + ": " + e);
+            }
+        }
+
+        log.debug("Invalidated " + dirtyTiles.size() + " AtoN tiles in " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+
+    /**
+     * Computes the tiles to pre-render for the given domain.
+     * <p>
+     * The tiles cover the extent of the domain areas, or if no domain area defines a geometry,
+     * the extent of all AtoNs, within the configured seed zoom levels.
+     *
+     * @param domainId the domain ID
+     * @return the list of [z, x, y] tiles to pre-render
+     */
+    public List<int[]> computeSeedTiles(String domainId) {
+        Envelope extent = new Envelope();
+
+        Domain domain = domainId != null ? domainService.findByDomainId(domainId) : null;
+        if (domain != null) {
+            domain.getAreas().stream()
+                    .map(Area::getGeometry)
+                    .filter(g -> g != null)
+                    .forEach(g -> extent.expandToInclude(g.getEnvelopeInternal()));
+        }
+
+        if (extent.isNull()) {
+            double[] atonExtent = atonService.computeExtent();
+            if (atonExtent != null) {
+                extent.expandToInclude(atonExtent[0], atonExtent[1]);
+                extent.expandToInclude(atonExtent[2], atonExtent[3]);
+            }
+        }
+
+        List<int[]> tiles = new ArrayList<>();
+        if (extent.isNull()) {
+            return tiles;
+        }
+
+        GlobalMercator mercator = new GlobalMercator();
+        int minZoom = Math.max(0, seedMinZoom);
+        int maxZoom = Math.min(MAX_ZOOM, seedMaxZoom);
+        for (int z = minZoom; z <= maxZoom; z++) {
+            int[] minTile = mercator.GoogleTile(extent.getMaxY(), extent.getMinX(), z);
+            int[] maxTile = mercator.GoogleTile(extent.getMinY(), extent.getMaxX(), z);
+            for (int x = minTile[0]; x <= maxTile[0]; x++) {
+                for (int y = minTile[1]; y <= maxTile[1]; y++) {
+                    tiles.add(new int[] { z, x, y });
+                }
+            }
+        }
+        return tiles;
+    }
+
+
+    /**
+     * Ensures that parent directories are created
+     * @param file the file whose parent directories will be created
+     */
+    private void checkCreateParentDirs(Path file) throws IOException {
+        if (!Files.exists(file.getParent())) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton.batch;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.niord.core.aton.vo.AtonNodeVo;
+import org.niord.core.aton.vo.AtonTagVo;
+import org.niord.core.aton.vo.Iso8601DateXmlAdapter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the AtoN nodes of an OSM xml file one at a time using StAX.
+ * <p>
+ * As opposed to unmarshalling the entire file with JAXB, only a single node is held in memory,
+ * which allows for importing very large OSM files.
+ * All "node" elements are returned, regardless of their nesting level, so the reader can
+ * also be used for a stand-alone node document.
+ */
+public class AtonOsmStreamReader implements Closeable {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // Guard against XXE attacks
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final CountingInputStream in;
+    private final XMLStreamReader reader;
+    private final Iso8601DateXmlAdapter dateAdapter = new Iso8601DateXmlAdapter();
+
+
+    /**
+     * Constructor
+     * @param in the OSM xml input stream
+     */
+    public AtonOsmStreamReader(InputStream in) throws XMLStreamException {
+        this.in = new CountingInputStream(new BufferedInputStream(in));
+        this.reader = XML_INPUT_FACTORY.createXMLStreamReader(this.in);
+    }
+
+
+    /**
+     * Returns the next AtoN node, or null if there are no more nodes
+     * @return the next AtoN node, or null if there are no more nodes
+     */
+    public AtonNodeVo readNode() throws Exception {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && "node".equals(reader.getLocalName())) {
+                return parseNode();
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Skips the given number of AtoN nodes
+     * @param count the number of AtoN nodes to skip
+     * @return the number of AtoN nodes actually skipped
+     */
+    public int skipNodes(int count) throws XMLStreamException {
+        int skipped = 0;
+        while (skipped < count && reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && "node".equals(reader.getLocalName())) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+
+    /**
+     * Returns the number of bytes read from the underlying input stream.
+     * Due to buffering, this is only an approximation of the current position in the stream.
+     * @return the number of bytes read from the underlying input stream
+     */
+    public long getBytesRead() {
+        return in.getByteCount();
+    }
+
+
+    /** Parses the node at the current start element, including its tags **/
+    private AtonNodeVo parseNode() throws Exception {
+        AtonNodeVo node = new AtonNodeVo();
+        node.setId(intAttr("id"));
+        node.setLat(doubleAttr("lat"));
+        node.setLon(doubleAttr("lon"));
+        node.setUser(reader.getAttributeValue(null, "user"));
+        node.setUid(intAttr("uid"));
+        node.setVisible(Boolean.parseBoolean(reader.getAttributeValue(null, "visible")));
+        node.setVersion(intAttr("version"));
+        node.setChangeset(intAttr("changeset"));
+        node.setTimestamp(dateAdapter.unmarshal(reader.getAttributeValue(null, "timestamp")));
+
+        List<AtonTagVo> tags = new ArrayList<>();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == 2 && "tag".equals(reader.getLocalName())) {
+                    tags.add(new AtonTagVo(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v")));
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        node.setTags(tags.toArray(new AtonTagVo[tags.size()]));
+        return node;
+    }
+
+
+    /** Returns the value of the given int attribute, or 0 if undefined **/
+    private int intAttr(String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? 0 : Integer.parseInt(value.trim());
+    }
+
+
+    /** Returns the value of the given double attribute, or 0 if undefined **/
+    private double doubleAttr(String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? 0 : Double.parseDouble(value.trim());
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+        }
+        in.close();
+    }
+}
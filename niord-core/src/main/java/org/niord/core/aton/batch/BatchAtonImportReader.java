@@ -17,14 +17,12 @@
 package org.niord.core.aton.batch;
 
 import org.niord.core.aton.vo.AtonNodeVo;
-import org.niord.core.aton.vo.AtonOsmVo;
 import org.niord.core.batch.AbstractItemHandler;
 
 import javax.inject.Named;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 import java.io.Serializable;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.logging.Level;
 
@@ -40,6 +38,9 @@ import java.util.logging.Level;
  * http://wiki.openstreetmap.org/wiki/Key:seamark
  * and sub-pages.
  * <p>
+ * The file is streamed using {@linkplain AtonOsmStreamReader}, so only the AtoNs of the current chunk are held in memory.
+ * The chunk size defaults to 200 AtoNs, but may be specified using the "chunkSize" batch job property.
+ * <p>
  * XML Example:
  * <pre>
  *   &lt;osm version='0.6' generator='JOSM'&gt;
@@ -65,7 +66,8 @@ import java.util.logging.Level;
 @Named
 public class BatchAtonImportReader extends AbstractItemHandler {
 
-    private AtonNodeVo[] atons;
+    private AtonOsmStreamReader reader;
+    private long fileSize;
     private int atonNo = 0;
 
     /** {@inheritDoc} **/
@@ -75,20 +77,18 @@ public class BatchAtonImportReader extends AbstractItemHandler {
         try {
             // Get hold of the data file
             Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
+            fileSize = Files.size(path);
 
-            JAXBContext jaxbContext = JAXBContext.newInstance(AtonOsmVo.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            AtonOsmVo osmVo = (AtonOsmVo) unmarshaller.unmarshal(path.toFile());
-
-            atons = osmVo.getNodes();
+            // Stream the AtoNs of the file rather than unmarshalling all of them up-front
+            reader = new AtonOsmStreamReader(Files.newInputStream(path));
 
             if (prevCheckpointInfo != null) {
-                atonNo = (Integer) prevCheckpointInfo;
+                atonNo = reader.skipNodes((Integer) prevCheckpointInfo);
             }
 
-            getLog().info("Start processing " + atons.length + " AtoNs from index " + atonNo);
+            getLog().info("Start processing AtoNs from index " + atonNo);
 
-        } catch (JAXBException e) {
+        } catch (XMLStreamException e) {
             getLog().log(Level.SEVERE, "Error opening aton-import data file", e);
             throw e;
         }
@@ -97,17 +97,17 @@ public class BatchAtonImportReader extends AbstractItemHandler {
     /** {@inheritDoc} **/
     @Override
     public Object readItem() throws Exception {
-        if (atonNo < atons.length) {
+        AtonNodeVo aton = reader.readNode();
+        if (aton != null) {
 
             // Every now and then, update the progress
-            if (atonNo % 10 == 0) {
-                updateProgress((int)(100.0 * atonNo / atons.length));
+            if (atonNo % 100 == 0) {
+                updateProgress((int)(100.0 * reader.getBytesRead() / Math.max(1L, fileSize)));
             }
 
-            getLog().info("Reading AtoN no " + atonNo);
-            return atons[atonNo++];
+            atonNo++;
         }
-        return null;
+        return aton;
     }
 
     /** {@inheritDoc} **/
@@ -115,4 +115,13 @@ public class BatchAtonImportReader extends AbstractItemHandler {
     public Serializable checkpointInfo() throws Exception {
         return atonNo;
     }
+
+    /** {@inheritDoc} **/
+    @Override
+    public void close() throws Exception {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
 }
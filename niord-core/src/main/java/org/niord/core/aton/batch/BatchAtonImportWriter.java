@@ -21,10 +21,21 @@ import org.niord.core.batch.AbstractItemHandler;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * Persists the AtoNs to the database
+ * Persists the AtoNs to the database.
+ * <p>
+ * The AtoN UIDs of all existing AtoNs are loaded once, and the existing AtoNs of a chunk are
+ * then loaded with a single query. New and updated AtoNs are flushed once per chunk, allowing
+ * Hibernate to batch the JDBC inserts and updates.<br>
+ * Indexing the AtoNs in Hibernate Search is deferred to the "reindexAtonsStep" of the batch job.
  */
 @Named
 public class BatchAtonImportWriter extends AbstractItemHandler {
@@ -32,14 +43,83 @@ public class BatchAtonImportWriter extends AbstractItemHandler {
     @Inject
     AtonService atonService;
 
+    // Lookup map from AtoN UID to AtoN ID
+    private Map<String, Integer> atonUidIds;
+
     /** {@inheritDoc} **/
     @Override
     public void writeItems(List<Object> items) throws Exception {
         long t0 = System.currentTimeMillis();
+
+        if (atonUidIds == null) {
+            atonUidIds = atonService.findAllAtonUidIds();
+            getLog().info("Loaded " + atonUidIds.size() + " existing AtoN UIDs");
+        }
+
+        // Load all existing AtoNs of the chunk in one go
+        List<Integer> origIds = items.stream()
+                .map(i -> atonUidIds.get(((AtonNode) i).getAtonUid()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Integer, AtonNode> origAtons = atonService.findByIds(origIds).stream()
+                .collect(Collectors.toMap(AtonNode::getId, Function.identity()));
+
+        // New AtoNs of the chunk, used for handling duplicate AtoN UIDs within the chunk
+        Map<String, AtonNode> newAtons = new HashMap<>();
+
+        int updated = 0, unchanged = 0;
+        List<double[]> dirtyPositions = new ArrayList<>();
         for (Object i : items) {
             AtonNode aton = (AtonNode) i;
-            atonService.saveEntity(aton);
+            String atonUid = aton.getAtonUid();
+            Integer origId = atonUidIds.get(atonUid);
+            AtonNode orig = origId != null ? origAtons.get(origId) : newAtons.get(atonUid);
+
+            if (orig == null) {
+                // Persist new AtoN. The ID is the OSM node ID, so reset it to have a new one assigned
+                aton.setId(null);
+                atonService.saveEntity(aton);
+                newAtons.put(atonUid, aton);
+                dirtyPositions.add(new double[] { aton.getLon(), aton.getLat() });
+
+            } else if (orig.hasChanged(aton)) {
+                // Update original
+                dirtyPositions.add(new double[] { orig.getLon(), orig.getLat() });
+                mergeAtonNodes(orig, aton);
+                dirtyPositions.add(new double[] { orig.getLon(), orig.getLat() });
+                updated++;
+
+            } else {
+                // No change, ignore...
+                unchanged++;
+            }
         }
-        getLog().info(String.format("Persisted %d AtoNs in %d s", items.size(), (System.currentTimeMillis() - t0) / 1000L));
+
+        // Flush the chunk in JDBC batches, and defer indexing to the end of the job
+        atonService.flushWithoutIndexing();
+        newAtons.forEach((atonUid, aton) -> atonUidIds.put(atonUid, aton.getId()));
+
+        // Invalidate the affected AtoN tiles and the spatial index
+        atonService.atonsChanged(dirtyPositions);
+
+        getLog().info(String.format("Persisted %d AtoNs (created %d, updated %d, ignored %d) in %d ms",
+                items.size(), newAtons.size(), updated, unchanged, System.currentTimeMillis() - t0));
+    }
+
+
+    /**
+     * Called when the newly parsed AtoN is an update to an existing AtoN.
+     * Merges the AtoN template into the original AtoN.
+     *
+     * Sub-classes can override to provide customized behaviour.
+     *
+     * @param original the original AtoN that should be updated
+     * @param aton the new AtoN template
+     */
+    protected void mergeAtonNodes(AtonNode original, AtonNode aton) {
+
+        // Default behaviour - just update the original from the new AtoN
+        original.updateNode(aton);
     }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton.batch;
+
+import org.niord.core.aton.AtonService;
+
+import javax.batch.api.AbstractBatchlet;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Rebuilds the Hibernate Search index of the AtoNs once an AtoN import is complete.
+ * <p>
+ * The {@linkplain BatchAtonImportWriter} does not index the AtoNs as they are persisted,
+ * since re-indexing all AtoNs in one go is a lot faster.
+ */
+@Named
+public class BatchAtonReindexBatchlet extends AbstractBatchlet {
+
+    @Inject
+    AtonService atonService;
+
+    /** {@inheritDoc} **/
+    @Override
+    public String process() throws Exception {
+        atonService.reindexAtons();
+        return "COMPLETED";
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton.batch;
+
+import org.niord.core.aton.AtonTileService;
+import org.niord.core.batch.AbstractItemHandler;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.nio.file.Path;
+
+/**
+ * Filters out AtoN tiles that are already rendered, and not expired, or known to be blank.
+ * <p>
+ * Tiles are deleted when invalidated by AtoN changes, so re-running the seeder
+ * will only render the dirty and expired tiles.
+ */
+@Named
+public class BatchAtonTileSeederProcessor extends AbstractItemHandler {
+
+    @Inject
+    AtonTileService atonTileService;
+
+    /** {@inheritDoc} **/
+    @Override
+    public Object processItem(Object item) throws Exception {
+        int[] tile = (int[]) item;
+        Path file = atonTileService.getTilePath(tile[0], tile[1], tile[2]);
+
+        if (atonTileService.isValidTile(file) || atonTileService.isBlankTile(file)) {
+            return null;
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton.batch;
+
+import org.niord.core.aton.AtonTileService;
+import org.niord.core.batch.AbstractItemHandler;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Reads the AtoN tiles to pre-render for the domain of the batch job.
+ * <p>
+ * Please note, the actual aton-tile-seeder.xml job file is not placed in the META-INF/batch-jobs of this project,
+ * but rather, in the META-INF/batch-jobs folder of the niord-web project.<br>
+ * This is because of a class-loading bug in the Wildfly implementation. See e.g.
+ * https://issues.jboss.org/browse/WFLY-4988
+ * <p>
+ * The tiles cover the extent of the domain areas within the zoom levels defined by the
+ * "atonTileSeedMinZoom" and "atonTileSeedMaxZoom" settings.
+ */
+@Named
+public class BatchAtonTileSeederReader extends AbstractItemHandler {
+
+    @Inject
+    AtonTileService atonTileService;
+
+    private List<int[]> tiles;
+    private int tileNo = 0;
+
+    /** {@inheritDoc} **/
+    @Override
+    public void open(Serializable prevCheckpointInfo) throws Exception {
+
+        String domainId = job.getDomain() != null ? job.getDomain().getDomainId() : null;
+        tiles = atonTileService.computeSeedTiles(domainId);
+
+        if (prevCheckpointInfo != null) {
+            tileNo = (Integer) prevCheckpointInfo;
+        }
+
+        getLog().info("Start seeding " + tiles.size() + " AtoN tiles from index " + tileNo);
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public Object readItem() throws Exception {
+        if (tileNo < tiles.size()) {
+
+            // Every now and then, update the progress
+            if (tileNo % 100 == 0) {
+                updateProgress((int)(100.0 * tileNo / tiles.size()));
+            }
+
+            return tiles.get(tileNo++);
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public Serializable checkpointInfo() throws Exception {
+        return tileNo;
+    }
+}
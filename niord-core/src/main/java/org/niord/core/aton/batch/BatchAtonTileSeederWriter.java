@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.aton.batch;
+
+import org.niord.core.aton.AtonTileService;
+import org.niord.core.batch.AbstractItemHandler;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Renders the AtoN tiles of the chunk in parallel
+ */
+@Named
+public class BatchAtonTileSeederWriter extends AbstractItemHandler {
+
+    @Inject
+    AtonTileService atonTileService;
+
+    @Resource
+    ManagedExecutorService managedExecutorService;
+
+    /** {@inheritDoc} **/
+    @Override
+    public void writeItems(List<Object> items) throws Exception {
+        long t0 = System.currentTimeMillis();
+
+        List<Future<?>> results = new ArrayList<>();
+        for (Object i : items) {
+            int[] tile = (int[]) i;
+            results.add(managedExecutorService.submit(() -> {
+                try {
+                    atonTileService.renderTile(tile[0], tile[1], tile[2]);
+                } catch (Exception e) {
+                    getLog().log(Level.WARNING, String.format("Error rendering tile z=%d, x=%d, y=%d", tile[0], tile[1], tile[2]), e);
+                }
+            }));
+        }
+
+        // Wait for all tiles to be rendered
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        getLog().info(String.format("Rendered %d AtoN tiles in %d ms", items.size(), System.currentTimeMillis() - t0));
+    }
+}
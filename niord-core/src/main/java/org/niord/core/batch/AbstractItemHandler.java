@@ -42,6 +42,9 @@ public abstract class AbstractItemHandler implements ItemReader, ItemProcessor,
     @Inject
     protected BatchService batchService;
 
+    @Inject
+    protected BatchProgressService batchProgressService;
+
     @Inject
     protected org.slf4j.Logger systemLog;
 
@@ -105,8 +108,11 @@ public abstract class AbstractItemHandler implements ItemReader, ItemProcessor,
      * @param progress the progress
      */
     protected void updateProgress(Integer progress) {
-        // Note to self: We don't bother updating the local "job" batch data
-        batchService.updateBatchJobProgress(jobContext.getInstanceId(), progress);
+        // Note to self: We don't bother updating the local "job" batch data.
+        // The progress is only kept in memory, and flushed to the database at a bounded rate
+        if (progress != null) {
+            batchProgressService.updateProgress(jobContext.getInstanceId(), progress);
+        }
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.batch;
+
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+
+/**
+ * Base class for item readers that read the items from a JSON array in the batch job data file.
+ * <p>
+ * The JSON file is streamed using a {@linkplain JsonArrayStreamReader}, so memory use is independent of the file size.
+ * The checkpoint is the number of items read, and the progress is based on the number of bytes consumed.
+ * <p>
+ * Sub-classes may override {@linkplain #toItems(Object)} to turn each JSON array element into
+ * zero or more items, e.g. to flatten a hierarchy.
+ */
+public abstract class AbstractJsonItemReader<T> extends AbstractItemHandler {
+
+    private JsonArrayStreamReader<T> reader;
+    private long fileSize;
+    private final Deque<Object> pendingItems = new ArrayDeque<>();
+    protected int itemNo = 0;
+
+
+    /**
+     * Returns the class of the JSON array elements
+     * @return the class of the JSON array elements
+     */
+    protected abstract Class<T> getElementType();
+
+
+    /**
+     * Returns the name of the root object field containing the JSON array,
+     * or null if the JSON array is the root of the document.
+     * @return the name of the root object field containing the JSON array
+     */
+    protected String getArrayField() {
+        return null;
+    }
+
+
+    /**
+     * Returns the JSON file to read. Defaults to the batch job data file.
+     * @return the JSON file to read
+     */
+    protected Path getJsonFile() throws Exception {
+        return batchService.getBatchJobDataFile(jobContext.getInstanceId());
+    }
+
+
+    /**
+     * Converts a JSON array element to the items to return from {@linkplain #readItem()}.
+     * Default implementation returns the element itself.
+     *
+     * @param element the JSON array element
+     * @return the items to return
+     */
+    protected Collection<?> toItems(T element) throws Exception {
+        return Collections.singletonList(element);
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public void open(Serializable prevCheckpointInfo) throws Exception {
+
+        // Get hold of the data file
+        Path path = getJsonFile();
+        fileSize = Files.size(path);
+        reader = new JsonArrayStreamReader<>(Files.newInputStream(path), getElementType(), getArrayField());
+
+        // Skip the items processed before the checkpoint
+        int checkpoint = prevCheckpointInfo != null ? (Integer) prevCheckpointInfo : 0;
+        while (itemNo < checkpoint && nextItem() != null) {
+            itemNo++;
+        }
+
+        getLog().info("Start processing " + getElementType().getSimpleName() + " items from index " + itemNo);
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public Object readItem() throws Exception {
+        Object item = nextItem();
+        if (item != null) {
+
+            // Every now and then, update the progress
+            if (itemNo % 10 == 0) {
+                updateProgress((int)(100.0 * reader.getBytesRead() / Math.max(1L, fileSize)));
+            }
+
+            itemNo++;
+        } else {
+            getLog().info("Read " + itemNo + " " + getElementType().getSimpleName() + " items");
+        }
+        return item;
+    }
+
+
+    /** Returns the next item, or null if there are no more items **/
+    private Object nextItem() throws Exception {
+        while (pendingItems.isEmpty()) {
+            T element = reader.read();
+            if (element == null) {
+                return null;
+            }
+            pendingItems.addAll(toItems(element));
+        }
+        return pendingItems.poll();
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public Serializable checkpointInfo() throws Exception {
+        return itemNo;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public void close() throws Exception {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+}
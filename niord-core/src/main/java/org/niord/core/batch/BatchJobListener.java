@@ -29,7 +29,7 @@ import java.util.Properties;
 import java.util.logging.Handler;
 
 /**
- * A listener used for setting up and removing batch job log files.
+ * A listener used for setting up and removing batch job log files, and for flushing the batch job progress.
  * The listener should be added to all Niord batch jobs.
  * <p>
  * Configure using:
@@ -51,6 +51,9 @@ public class BatchJobListener extends AbstractJobListener {
     @Inject
     BatchService batchService;
 
+    @Inject
+    BatchProgressService batchProgressService;
+
 
     /**
      * Fetch the BatchData from the job operator properties, if they exist
@@ -93,6 +96,9 @@ public class BatchJobListener extends AbstractJobListener {
     @Override
     public void afterJob() throws Exception {
 
+        // Flush the progress of the batch job
+        batchProgressService.jobCompleted(jobContext.getInstanceId());
+
         // Close all the batch logs - otherwise the will keep a lock on the log files.
         @SuppressWarnings("unchecked")
         Map<String, java.util.logging.Logger> logs = (Map<String, java.util.logging.Logger>)jobContext.getTransientUserData();
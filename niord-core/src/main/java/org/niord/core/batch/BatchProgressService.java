@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.batch;
+
+import org.slf4j.Logger;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps track of the progress of running batch jobs in memory.
+ * <p>
+ * Updating the progress of a batch job only updates an in-memory counter, so item handlers
+ * may report progress as often as they like. The progress is flushed to the {@linkplain BatchData}
+ * entities at most once per second, and when the batch job completes.
+ * <p>
+ * The progress of each batch job is written in a separate transaction by the {@linkplain BatchProgressWriter}.
+ * If the write fails, the progress is flagged as pending again, and retried upon the next flush.
+ */
+@Singleton
+@Lock(LockType.READ)
+@SuppressWarnings("unused")
+public class BatchProgressService {
+
+    @Inject
+    Logger log;
+
+    @Inject
+    BatchProgressWriter batchProgressWriter;
+
+    private final Map<Long, JobProgress> jobProgress = new ConcurrentHashMap<>();
+
+
+    /**
+     * Updates progress (0-100) for the given batch job.
+     *
+     * @param instanceId the batch job instance id
+     * @param progress the progress
+     */
+    public void updateProgress(Long instanceId, int progress) {
+        JobProgress p = jobProgress.get(instanceId);
+        if (p == null) {
+            p = new JobProgress();
+            JobProgress existing = jobProgress.putIfAbsent(instanceId, p);
+            if (existing != null) {
+                p = existing;
+            }
+        }
+        p.setProgress(progress);
+    }
+
+
+    /**
+     * Returns the live progress of the given batch job, or null if the batch job is not running
+     *
+     * @param instanceId the batch job instance id
+     * @return the live progress of the given batch job
+     */
+    public Integer getProgress(Long instanceId) {
+        JobProgress p = jobProgress.get(instanceId);
+        return p != null ? p.progress : null;
+    }
+
+
+    /**
+     * Should be called when a batch job completes.
+     * Flushes any pending progress of the batch job and stops tracking it.
+     *
+     * @param instanceId the batch job instance id
+     */
+    public void jobCompleted(Long instanceId) {
+        JobProgress p = jobProgress.remove(instanceId);
+        if (p != null && p.dirty.compareAndSet(true, false)) {
+            writeProgress(instanceId, p);
+        }
+    }
+
+
+    /**
+     * Flushes the pending progress of all running batch jobs to the database
+     */
+    @Schedule(persistent = false, second = "*", minute = "*", hour = "*")
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flushProgress() {
+        jobProgress.forEach((instanceId, p) -> {
+            if (p.dirty.compareAndSet(true, false)) {
+                writeProgress(instanceId, p);
+            }
+        });
+    }
+
+
+    /**
+     * Writes the progress of the batch job to its batch data entity in a separate transaction.
+     * If the write fails, the progress is flagged as pending again.
+     */
+    private void writeProgress(Long instanceId, JobProgress p) {
+        try {
+            batchProgressWriter.writeProgress(instanceId, p.progress);
+        } catch (Exception e) {
+            p.dirty.set(true);
+            log.warn("Failed updating progress for batch job " + instanceId + ": " + e);
+        }
+    }
+
+
+    /** The in-memory progress of a batch job **/
+    private static class JobProgress {
+        volatile int progress;
+        final AtomicBoolean dirty = new AtomicBoolean();
+
+        void setProgress(int progress) {
+            if (this.progress != progress) {
+                this.progress = progress;
+                dirty.set(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.batch;
+package org.niord.core.batch;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+/**
+ * Writes the progress of batch jobs to their {@linkplain BatchData} entities.
+ * <p>
+ * Used by the {@linkplain BatchProgressService}, so that the progress of each batch job is
+ * written in a separate transaction, and a failure only affects that batch job.
+ */
+@Stateless
+@SuppressWarnings("unused")
+public class BatchProgressWriter {
+
+    @Inject
+    EntityManager em;
+
+
+    /**
+     * Writes the progress of the batch job to its batch data entity in a new transaction
+     *
+     * @param instanceId the batch job instance id
+     * @param progress the progress
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void writeProgress(Long instanceId, int progress) {
+        em.createNamedQuery("BatchData.updateProgress")
+                .setParameter("instanceId", instanceId)
+                .setParameter("progress", progress)
+                .executeUpdate();
+    }
+}
@@ -21,6 +21,7 @@ import org.apache.commons.lang.StringUtils;
 import org.niord.core.batch.vo.BatchExecutionVo;
 import org.niord.core.batch.vo.BatchInstanceVo;
 import org.niord.core.batch.vo.BatchStatusVo;
+import org.niord.core.batch.vo.BatchStepExecutionVo;
 import org.niord.core.batch.vo.BatchTypeVo;
 import org.niord.core.domain.DomainService;
 import org.niord.core.sequence.DefaultSequence;
@@ -36,6 +37,8 @@ import org.slf4j.Logger;
 
 import javax.batch.operations.JobOperator;
 import javax.batch.operations.NoSuchJobException;
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.StepExecution;
 import javax.ejb.Schedule;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -101,6 +104,9 @@ public class BatchService extends BaseService {
     @Inject
     SequenceService sequenceService;
 
+    @Inject
+    BatchProgressService batchProgressService;
+
     @Inject
     @Setting(value="batchJobRootPath", defaultValue="${niord.home}/batch-jobs", description="The root directory of the Niord batch jobs")
     private Path batchJobRoot;
@@ -117,7 +123,10 @@ public class BatchService extends BaseService {
 
 
     /**
-     * Starts a new batch job
+     * Starts a new batch job.
+     * <p>
+     * Simple (string, number and boolean) properties of the batch job are also passed on as job parameters,
+     * and may thus be referenced in the job XML, e.g. as "#{jobParameters['chunkSize']}".
      *
      * @param job the batch job name
      */
@@ -129,6 +138,13 @@ public class BatchService extends BaseService {
 
         // Launch the batch job
         Properties props = new Properties();
+        if (job.getProperties() != null) {
+            job.getProperties().forEach((key, value) -> {
+                if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                    props.setProperty(key, value.toString());
+                }
+            });
+        }
         props.put(BATCH_JOB_ENTITY, job);
         long executionId = jobOperator.start(job.getJobName(), props);
 
@@ -464,22 +480,6 @@ public class BatchService extends BaseService {
     }
 
 
-    /**
-     * Updates progress (0-100) for the given batch job.
-     *
-     * @param instanceIds the batch job id
-     * @param progress the progress
-     */
-    public void updateBatchJobProgress(Long instanceIds, Integer progress) {
-
-        BatchData job = findByInstanceId(instanceIds);
-        if (job != null) {
-            job.setProgress(progress);
-            saveEntity(job);
-        }
-    }
-
-
     /****************************/
     /** Managing batch jobs    **/
     /****************************/
@@ -563,6 +563,8 @@ public class BatchService extends BaseService {
                 execution.setBatchStatus(e.getBatchStatus());
                 execution.setStartTime(e.getStartTime());
                 execution.setEndTime(e.getEndTime());
+                jobOperator.getStepExecutions(e.getExecutionId()).forEach(se ->
+                        execution.getSteps().add(toStepExecutionVo(se)));
                 instance.getExecutions().add(execution);
             });
             instance.updateExecutions();
@@ -585,6 +587,12 @@ public class BatchService extends BaseService {
                 i.setProperties(data.getProperties());
                 i.setProgress(data.getProgress());
             }
+
+            // Use the live progress of running batch jobs
+            Integer progress = batchProgressService.getProgress(i.getInstanceId());
+            if (progress != null) {
+                i.setProgress(progress);
+            }
         }
 
         result.updateSize();
@@ -592,6 +600,33 @@ public class BatchService extends BaseService {
     }
 
 
+    /** Converts the step execution to a value object including its throughput metrics **/
+    private BatchStepExecutionVo toStepExecutionVo(StepExecution stepExecution) {
+        BatchStepExecutionVo step = new BatchStepExecutionVo();
+        step.setStepName(stepExecution.getStepName());
+        step.setBatchStatus(stepExecution.getBatchStatus());
+        step.setStartTime(stepExecution.getStartTime());
+        step.setEndTime(stepExecution.getEndTime());
+        if (stepExecution.getMetrics() != null) {
+            for (Metric metric : stepExecution.getMetrics()) {
+                switch (metric.getType()) {
+                    case READ_COUNT:
+                        step.setReadCount(metric.getValue());
+                        break;
+                    case WRITE_COUNT:
+                        step.setWriteCount(metric.getValue());
+                        break;
+                    case COMMIT_COUNT:
+                        step.setCommitCount(metric.getValue());
+                        break;
+                }
+            }
+        }
+        step.updateMetrics();
+        return step;
+    }
+
+
     /**
      * Returns the status of the batch job system
      *
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.batch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams the elements of a JSON array one at a time using a Jackson {@code JsonParser}.
+ * <p>
+ * The array may either be the root of the JSON document, or the value of a named field
+ * of the root object, such as the "data" field of a serialized {@code PagedSearchResultVo}.
+ * Only the current element is held in memory, regardless of the size of the JSON document.
+ */
+public class JsonArrayStreamReader<T> implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+    private final Class<T> elementType;
+    private boolean inArray;
+
+
+    /**
+     * Constructor
+     * @param in the JSON input stream
+     * @param elementType the class of the array elements
+     * @param arrayField the root object field containing the array, or null if the array is the root
+     */
+    public JsonArrayStreamReader(InputStream in, Class<T> elementType, String arrayField) throws IOException {
+        this.parser = MAPPER.getFactory().createParser(in);
+        this.elementType = elementType;
+        try {
+            this.inArray = startArray(arrayField);
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+
+    /** Positions the parser at the start of the array. Returns if the array was found **/
+    private boolean startArray(String arrayField) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return false;
+        }
+
+        if (arrayField == null) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array but found " + token);
+            }
+            return true;
+        }
+
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object but found " + token);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if (arrayField.equals(field)) {
+                if (token == JsonToken.START_ARRAY) {
+                    return true;
+                } else if (token == JsonToken.VALUE_NULL) {
+                    return false;
+                }
+                throw new IOException("Expected a JSON array in field " + arrayField + " but found " + token);
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+
+    /**
+     * Returns the next element of the array, or null if there are no more elements.
+     * Null elements of the array are skipped.
+     * @return the next element of the array, or null if there are no more elements
+     */
+    public T read() throws IOException {
+        while (inArray) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                inArray = false;
+            } else if (token != JsonToken.VALUE_NULL) {
+                return MAPPER.readValue(parser, elementType);
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Returns the number of bytes consumed from the input stream
+     * @return the number of bytes consumed from the input stream
+     */
+    public long getBytesRead() {
+        return Math.max(0L, parser.getCurrentLocation().getByteOffset());
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
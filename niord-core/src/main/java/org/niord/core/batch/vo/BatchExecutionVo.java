@@ -18,7 +18,9 @@ package org.niord.core.batch.vo;
 import org.niord.model.IJsonSerializable;
 
 import javax.batch.runtime.BatchStatus;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Encapsulates a batch job execution
@@ -33,6 +35,7 @@ public class BatchExecutionVo implements IJsonSerializable {
     boolean restartable;
     boolean stoppable;
     boolean abandonable;
+    List<BatchStepExecutionVo> steps = new ArrayList<>();
 
     /** Update flags **/
     public void updateFlags() {
@@ -100,4 +103,12 @@ public class BatchExecutionVo implements IJsonSerializable {
     public void setAbandonable(boolean abandonable) {
         this.abandonable = abandonable;
     }
-}
\ No newline at end of file
+
+    public List<BatchStepExecutionVo> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<BatchStepExecutionVo> steps) {
+        this.steps = steps;
+    }
+}
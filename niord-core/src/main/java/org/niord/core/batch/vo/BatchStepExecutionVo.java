@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.batch.vo;
+
+import org.niord.model.IJsonSerializable;
+
+import javax.batch.runtime.BatchStatus;
+import java.util.Date;
+
+/**
+ * Encapsulates a batch job step execution along with its throughput metrics
+ **/
+@SuppressWarnings("unused")
+public class BatchStepExecutionVo implements IJsonSerializable {
+
+    String stepName;
+    BatchStatus batchStatus;
+    Date startTime;
+    Date endTime;
+    long readCount;
+    long writeCount;
+    long commitCount;
+    long durationMs;
+    Double itemsPerSecond;
+    Long avgChunkMs;
+
+    /**
+     * Computes the duration and throughput metrics from the start and end time and the item counts.
+     * The duration of a running step is computed up until now.
+     **/
+    public void updateMetrics() {
+        if (startTime == null) {
+            return;
+        }
+        long end = endTime != null ? endTime.getTime() : System.currentTimeMillis();
+        durationMs = Math.max(0L, end - startTime.getTime());
+        if (durationMs > 0) {
+            itemsPerSecond = 1000.0 * readCount / durationMs;
+        }
+        if (commitCount > 0) {
+            avgChunkMs = durationMs / commitCount;
+        }
+    }
+
+    /*************************/
+    /** Getters and Setters **/
+    /*************************/
+
+    public String getStepName() {
+        return stepName;
+    }
+
+    public void setStepName(String stepName) {
+        this.stepName = stepName;
+    }
+
+    public BatchStatus getBatchStatus() {
+        return batchStatus;
+    }
+
+    public void setBatchStatus(BatchStatus batchStatus) {
+        this.batchStatus = batchStatus;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Date endTime) {
+        this.endTime = endTime;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public void setReadCount(long readCount) {
+        this.readCount = readCount;
+    }
+
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    public void setWriteCount(long writeCount) {
+        this.writeCount = writeCount;
+    }
+
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    public void setCommitCount(long commitCount) {
+        this.commitCount = commitCount;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    public void setItemsPerSecond(Double itemsPerSecond) {
+        this.itemsPerSecond = itemsPerSecond;
+    }
+
+    public Long getAvgChunkMs() {
+        return avgChunkMs;
+    }
+
+    public void setAvgChunkMs(Long avgChunkMs) {
+        this.avgChunkMs = avgChunkMs;
+    }
+}
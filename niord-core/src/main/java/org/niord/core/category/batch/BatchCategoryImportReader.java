@@ -15,15 +15,13 @@
  */
 package org.niord.core.category.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.category.vo.SystemCategoryVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -67,51 +65,25 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchCategoryImportReader extends AbstractItemHandler {
-
-    List<SystemCategoryVo> categories;
-    int categoriesNo = 0;
+public class BatchCategoryImportReader extends AbstractJsonItemReader<SystemCategoryVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the charts from the file
-        List<SystemCategoryVo> categoriesRoots = JsonUtils.readJson(
-                new TypeReference<List<SystemCategoryVo>>(){},
-                path);
-
-        // Serialize the list of categories
-        categories = new ArrayList<>();
-        serializeCategories(null, categoriesRoots, categories);
-
-        // Remove all non-leaf categories, since leaf categories will generate their parent categories as well
-        categories.removeIf(c -> c.getChildren() != null && c.getChildren().size() > 0);
-
-        if (prevCheckpointInfo != null) {
-            categoriesNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + categories.size() + " categories from index " + categoriesNo);
+    protected Class<SystemCategoryVo> getElementType() {
+        return SystemCategoryVo.class;
     }
 
     /** {@inheritDoc} **/
     @Override
-    public Object readItem() throws Exception {
-        if (categoriesNo < categories.size()) {
-            getLog().info("Reading category no " + categoriesNo);
-            return categories.get(categoriesNo++);
-        }
-        return null;
-    }
+    protected Collection<?> toItems(SystemCategoryVo root) throws Exception {
 
-    /** {@inheritDoc} **/
-    @Override
-    public Serializable checkpointInfo() throws Exception {
-        return categoriesNo;
+        // Serialize the root category hierarchy
+        List<SystemCategoryVo> categories = new ArrayList<>();
+        serializeCategories(null, Collections.singletonList(root), categories);
+
+        // Remove all non-leaf categories, since leaf categories will generate their parent categories as well
+        categories.removeIf(c -> c.getChildren() != null && c.getChildren().size() > 0);
+        return categories;
     }
 
 
@@ -15,15 +15,10 @@
  */
 package org.niord.core.category.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.category.vo.ParamTypeVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads parameter types from a param-types.json file.
@@ -52,45 +47,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchParamTypeImportReader extends AbstractItemHandler {
-
-    List<ParamTypeVo> paramTypes;
-    int paramNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the template parameters from the file
-        paramTypes = JsonUtils.readJson(
-                new TypeReference<List<ParamTypeVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            paramNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + paramTypes.size() + " parameter type from index " + paramNo);
-    }
-
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (paramNo < paramTypes.size()) {
-            getLog().info("Reading parameter type no " + paramNo);
-            return paramTypes.get(paramNo++);
-        }
-        return null;
-    }
-
+public class BatchParamTypeImportReader extends AbstractJsonItemReader<ParamTypeVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return paramNo;
+    protected Class<ParamTypeVo> getElementType() {
+        return ParamTypeVo.class;
     }
 }
@@ -15,15 +15,10 @@
  */
 package org.niord.core.chart.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.chart.vo.SystemChartVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads charts from a charts.json file.
@@ -61,43 +56,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchChartImportReader extends AbstractItemHandler {
-
-    List<SystemChartVo> charts;
-    int chartNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the charts from the file
-        charts = JsonUtils.readJson(
-                new TypeReference<List<SystemChartVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            chartNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + charts.size() + " charts from index " + chartNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (chartNo < charts.size()) {
-            getLog().info("Reading chart no " + chartNo);
-            return charts.get(chartNo++);
-        }
-        return null;
-    }
+public class BatchChartImportReader extends AbstractJsonItemReader<SystemChartVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return chartNo;
+    protected Class<SystemChartVo> getElementType() {
+        return SystemChartVo.class;
     }
 }
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static org.niord.core.service.BaseService.partition;
+
 /**
  * Helps initializing the criteria builders and queries and
  * helps building the list of "where" predicates
@@ -169,6 +171,26 @@ public class CriteriaHelper<T> {
         return this;
     }
 
+    /**
+     * If values is defined, matches the attribute with any of the values.
+     * If values is undefined (null or empty) this predicate yields false.
+     * <p>
+     * The values are split into "in" clauses of at most the given size, joined by "or".
+     *
+     * @param attr the attribute
+     * @param values the values to match
+     * @param maxInClauseSize the max number of values in each "in" clause
+     */
+    public <V> CriteriaHelper<T> in(Expression<V> attr, List<V> values, int maxInClauseSize) {
+        if (values != null && values.size() > maxInClauseSize) {
+            where.add(cb.or(partition(values, maxInClauseSize).stream()
+                    .map(attr::in)
+                    .toArray(Predicate[]::new)));
+            return this;
+        }
+        return in(attr, values);
+    }
+
     /**
      * If value1 is defined the attribute must be greater than or equal to this value.
      * If value2 is defined the attribute must be less than or equal to this value.
@@ -15,16 +15,11 @@
  */
 package org.niord.core.dictionary.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.chart.vo.SystemChartVo;
 import org.niord.core.dictionary.vo.ExportedDictionaryVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads dictionaries from a dictionaries.json file.
@@ -54,43 +49,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchDictionaryImportReader extends AbstractItemHandler {
-
-    List<ExportedDictionaryVo> dictionaries;
-    int dictNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the dictionaries from the file
-        dictionaries = JsonUtils.readJson(
-                new TypeReference<List<ExportedDictionaryVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            dictNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + dictionaries.size() + " dictionaries from index " + dictNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (dictNo < dictionaries.size()) {
-            getLog().info("Reading dictionary no " + dictNo);
-            return dictionaries.get(dictNo++);
-        }
-        return null;
-    }
+public class BatchDictionaryImportReader extends AbstractJsonItemReader<ExportedDictionaryVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return dictNo;
+    protected Class<ExportedDictionaryVo> getElementType() {
+        return ExportedDictionaryVo.class;
     }
 }
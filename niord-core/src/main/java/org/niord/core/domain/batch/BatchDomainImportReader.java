@@ -15,15 +15,10 @@
  */
 package org.niord.core.domain.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
-import org.niord.core.util.JsonUtils;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.domain.vo.DomainVo;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads domains from a domains.json file. Only new domains are created, existing domains are ignored.
@@ -39,43 +34,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchDomainImportReader extends AbstractItemHandler {
-
-    List<DomainVo> domains;
-    int domainNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the domains from the file
-        domains = JsonUtils.readJson(
-                new TypeReference<List<DomainVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            domainNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + domains.size() + " domains from index " + domainNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (domainNo < domains.size()) {
-            getLog().info("Reading domain no " + domainNo);
-            return domains.get(domainNo++);
-        }
-        return null;
-    }
+public class BatchDomainImportReader extends AbstractJsonItemReader<DomainVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return domainNo;
+    protected Class<DomainVo> getElementType() {
+        return DomainVo.class;
     }
 }
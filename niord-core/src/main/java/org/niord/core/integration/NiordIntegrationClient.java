@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.integration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContextBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.niord.core.integration.vo.NiordIntegrationVo;
+import org.niord.core.util.WebUtils;
+import org.niord.model.message.MessageVo;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches published messages from other Niord servers.
+ * <p>
+ * A single, connection-pooled HTTP client is shared by all Niord integration points, and connections
+ * are kept alive between requests to the same server.
+ * <p>
+ * The ETag of the last successfully synchronized message list of each integration point is recorded,
+ * and used for conditional requests, so that unchanged message lists are neither downloaded nor processed.
+ * A full synchronization, which ignores the recorded ETag, is performed at least every
+ * {@code FULL_SYNC_INTERVAL_HOURS} hours.
+ */
+@ApplicationScoped
+public class NiordIntegrationClient {
+
+    public static final int TIMEOUT                     = 5;    // 5 seconds
+    public static final int IDLE_TIMEOUT                = 30;   // 30 seconds
+    public static final int MAX_CONNECTIONS             = 20;
+    public static final int MAX_CONNECTIONS_PER_ROUTE   = 2;
+    public static final int FULL_SYNC_INTERVAL_HOURS    = 24;
+
+    @Inject
+    private Logger log;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient client;
+
+    // The synchronization state of each Niord integration point, keyed by ID
+    private final Map<Integer, SyncState> syncStates = new ConcurrentHashMap<>();
+
+
+    /** Creates the shared HTTP client **/
+    @PostConstruct
+    private void init() {
+        try {
+            // See https://stackoverflow.com/questions/19517538/ignoring-ssl-certificate-in-apache-httpclient-4-3
+            SSLContextBuilder builder = new SSLContextBuilder();
+            builder.loadTrustMaterial(null, (chain, authType) -> true);
+
+            SSLConnectionSocketFactory sslSF = new SSLConnectionSocketFactory(builder.build(),
+                    SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+
+            Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", sslSF)
+                    .build();
+
+            connectionManager = new PoolingHttpClientConnectionManager(registry);
+            connectionManager.setMaxTotal(MAX_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+            RequestConfig config = RequestConfig.custom()
+                    .setConnectTimeout(TIMEOUT * 1000)
+                    .setConnectionRequestTimeout(TIMEOUT * 1000)
+                    .setSocketTimeout(TIMEOUT * 1000).build();
+
+            client = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(config)
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed creating Niord integration HTTP client", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /** Closes the shared HTTP client **/
+    @PreDestroy
+    private void destroy() {
+        try {
+            if (client != null) {
+                client.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed closing Niord integration HTTP client: " + e);
+        }
+    }
+
+
+    /**
+     * Fetches the messages defined by the Niord integration point.
+     * <p>
+     * Unless a full synchronization is due, a conditional request is made, and if the message list is
+     * unchanged since the last successful synchronization, the returned message list is null.
+     *
+     * @param integration the Niord integration point to fetch message from
+     * @return the messages fetched from the Niord integration point
+     */
+    public MessageList fetchMessages(NiordIntegrationVo integration) throws Exception {
+
+        long t0 = System.currentTimeMillis();
+
+        // Construct the URL to fetch messages from
+        String url = getMessagesUrl(integration);
+
+        // Unless a full synchronization is due, only fetch the messages if they have changed
+        SyncState state = syncStates.get(integration.getId());
+        boolean fullSync = state == null || !url.equals(state.url)
+                || t0 - state.lastFullSync > TimeUnit.HOURS.toMillis(FULL_SYNC_INTERVAL_HOURS);
+
+        HttpGet get = new HttpGet(url);
+        if (!fullSync && state.etag != null) {
+            get.setHeader("If-None-Match", state.etag);
+        }
+
+        // Keep-alive connections may have been closed by the server in the meantime
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(IDLE_TIMEOUT, TimeUnit.SECONDS);
+
+        try (CloseableHttpResponse response = client.execute(get)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_MODIFIED) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                log.debug("Messages unchanged at URL " + url);
+                return new MessageList(url, state.etag, false, null);
+            } else if (status < 200 || status > 299) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                throw new Exception("Unable to execute request " + url + ", status = " + status);
+            }
+
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new Exception("No response received from URL " + url);
+            }
+
+            Header etag = response.getFirstHeader("ETag");
+            try (InputStream is = entity.getContent()) {
+                List<MessageVo> result = new ObjectMapper().readValue(is, new TypeReference<List<MessageVo>>(){});
+                log.debug("Fetching " + result.size() + " messages from URL " + url + " in " +
+                        (System.currentTimeMillis() - t0) + " ms");
+                return new MessageList(url, etag != null ? etag.getValue() : null, fullSync, result);
+            }
+        }
+    }
+
+
+    /**
+     * Records that the given message list has been successfully synchronized, so that
+     * subsequent requests can be made conditional on the message list having changed.
+     * <p>
+     * If called within a transaction, the message list is only recorded once the transaction has been
+     * committed, since the next request would otherwise skip changes that were rolled back.
+     *
+     * @param integration the Niord integration point
+     * @param messageList the synchronized message list
+     */
+    public void syncCompleted(NiordIntegrationVo integration, MessageList messageList) {
+        if (transactionRegistry.getTransactionKey() != null) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        recordSyncState(integration, messageList);
+                    }
+                }
+            });
+        } else {
+            recordSyncState(integration, messageList);
+        }
+    }
+
+
+    /** Records the synchronization state of the given message list **/
+    private void recordSyncState(NiordIntegrationVo integration, MessageList messageList) {
+        SyncState state = syncStates.get(integration.getId());
+        long lastFullSync = messageList.isFullSync() || state == null ? System.currentTimeMillis() : state.lastFullSync;
+        syncStates.put(integration.getId(), new SyncState(messageList.url, messageList.etag, lastFullSync));
+    }
+
+
+    /** Returns the URL for fetching the published messages of the Niord integration point **/
+    private String getMessagesUrl(NiordIntegrationVo integration) {
+        String params = integration.getMessageSeriesMappings().stream()
+                .map(m -> "messageSeries=" + WebUtils.encodeURIComponent(m.getSourceSeriesId()))
+                .collect(Collectors.joining("&"));
+
+        return integration.getUrl() + "/rest/public/v1/messages?" + params;
+    }
+
+
+    /**
+     * The synchronization state of a Niord integration point
+     */
+    private static class SyncState {
+        final String url;
+        final String etag;
+        final long lastFullSync;
+
+        SyncState(String url, String etag, long lastFullSync) {
+            this.url = url;
+            this.etag = etag;
+            this.lastFullSync = lastFullSync;
+        }
+    }
+
+
+    /**
+     * A message list fetched from a Niord integration point
+     */
+    public static class MessageList {
+        final String url;
+        final String etag;
+        final boolean fullSync;
+        final List<MessageVo> messages;
+
+        MessageList(String url, String etag, boolean fullSync, List<MessageVo> messages) {
+            this.url = url;
+            this.etag = etag;
+            this.fullSync = fullSync;
+            this.messages = messages;
+        }
+
+        /** Returns if the message list has been modified since the last synchronization **/
+        public boolean isModified() {
+            return messages != null;
+        }
+
+        public boolean isFullSync() {
+            return fullSync;
+        }
+
+        public List<MessageVo> getMessages() {
+            return messages;
+        }
+    }
+}
@@ -16,18 +16,7 @@
 
 package org.niord.core.integration;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang.StringUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.conn.ssl.AllowAllHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLContextBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.niord.core.area.Area;
 import org.niord.core.area.AreaService;
 import org.niord.core.category.Category;
@@ -38,12 +27,10 @@ import org.niord.core.geojson.FeatureService;
 import org.niord.core.integration.vo.MessageSeriesMappingVo;
 import org.niord.core.integration.vo.NiordIntegrationVo;
 import org.niord.core.message.Message;
-import org.niord.core.message.MessageSearchParams;
 import org.niord.core.message.MessageSeries;
 import org.niord.core.message.MessageSeriesService;
 import org.niord.core.message.MessageService;
 import org.niord.core.service.BaseService;
-import org.niord.core.util.WebUtils;
 import org.niord.model.message.MessageVo;
 import org.niord.model.message.Status;
 import org.slf4j.Logger;
@@ -53,8 +40,6 @@ import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
-import java.io.InputStream;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -70,8 +55,6 @@ import java.util.stream.Collectors;
 @SuppressWarnings("unused")
 public class NiordIntegrationExecutionService extends BaseService {
 
-    public static final int TIMEOUT = 5; // 5 seconds
-
     @Inject
     private Logger log;
 
@@ -93,6 +76,9 @@ public class NiordIntegrationExecutionService extends BaseService {
     @Inject
     FeatureService featureService;
 
+    @Inject
+    NiordIntegrationClient integrationClient;
+
     /**
      * Processes the given Niord Integration
      */
@@ -106,8 +92,12 @@ public class NiordIntegrationExecutionService extends BaseService {
         }
 
         try {
-            // Fetch message for all source message series
-            List<MessageVo> messages = fetchMessages(integration);
+            // Fetch message for all source message series, unless unchanged since the last synchronization
+            NiordIntegrationClient.MessageList messageList = integrationClient.fetchMessages(integration);
+            if (!messageList.isModified()) {
+                return;
+            }
+            List<MessageVo> messages = messageList.getMessages();
 
             Set<String> targetSeriesIds = integration.getMessageSeriesMappings().stream()
                     .map(MessageSeriesMappingVo::getTargetSeriesId)
@@ -170,6 +160,8 @@ public class NiordIntegrationExecutionService extends BaseService {
                 }
             }
 
+            integrationClient.syncCompleted(integration, messageList);
+
         } catch (Exception e) {
             log.error("Error fetching messages from integration " + integration.getId(), e);
         }
@@ -184,13 +176,10 @@ public class NiordIntegrationExecutionService extends BaseService {
      * @return published messages from this Niord server for the given message series
      */
     List<Message> fetchOwnMessages(String seriesId) {
-        MessageSearchParams params = new MessageSearchParams()
-                .seriesIds(Collections.singleton(seriesId))
-                .statuses(Status.PUBLISHED);
-        params.maxSize(10000);
-
-        return messageService.search(params)
-                .getData().stream()
+        return em.createNamedQuery("Message.findPublishedLegacyMessagesBySeries", Message.class)
+                .setParameter("seriesId", seriesId)
+                .setParameter("status", Status.PUBLISHED)
+                .getResultList().stream()
                 .filter(m -> StringUtils.isNotBlank(m.getLegacyId()))
                 .collect(Collectors.toList());
     }
@@ -267,65 +256,4 @@ public class NiordIntegrationExecutionService extends BaseService {
         }
     }
 
-
-    /**
-     * Fetches the messages defined by the Niord integration point
-     * @param integration the Niord integration point to fetch message from
-     * @return the messages fetched from the Niord integration point
-     */
-    public List<MessageVo> fetchMessages(NiordIntegrationVo integration) throws Exception {
-
-        long t0 = System.currentTimeMillis();
-
-        // Construct the URL to fetch messages from
-        String params = integration.getMessageSeriesMappings().stream()
-                .map(m -> "messageSeries=" + WebUtils.encodeURIComponent(m.getSourceSeriesId()))
-                .collect(Collectors.joining("&"));
-
-        String url = integration.getUrl() + "/rest/public/v1/messages?" + params;
-
-        // See https://stackoverflow.com/questions/19517538/ignoring-ssl-certificate-in-apache-httpclient-4-3
-        SSLContextBuilder builder = new SSLContextBuilder();
-        builder.loadTrustMaterial(null, (chain, authType) -> true);
-
-        SSLConnectionSocketFactory sslSF = new SSLConnectionSocketFactory(builder.build(),
-                SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
-
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT * 1000)
-                .setConnectionRequestTimeout(TIMEOUT * 1000)
-                .setSocketTimeout(TIMEOUT * 1000).build();
-
-        CloseableHttpClient client = HttpClients.custom()
-                .setDefaultRequestConfig(config)
-                .setSSLSocketFactory(sslSF)
-                .setHostnameVerifier(new AllowAllHostnameVerifier())
-                .build();
-
-
-        try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
-            int status = response.getStatusLine().getStatusCode();
-            if (status < 200 || status > 299) {
-                try {
-                    response.getEntity().getContent().close();
-                } catch (Exception ignored) {
-                }
-                throw new Exception("Unable to execute request " + url + ", status = " + status);
-            }
-
-            HttpEntity entity = response.getEntity();
-            if (entity == null) {
-                throw new Exception("No response received from URL " + url);
-            }
-
-
-            try (InputStream is = entity.getContent()) {
-                List<MessageVo> result = new ObjectMapper().readValue(is, new TypeReference<List<MessageVo>>(){});
-                log.debug("Fetching " + result.size() + " messages from URL " + url + " in " +
-                        (System.currentTimeMillis() - t0) + " ms");
-                return result;
-            }
-        }
-    }
-
 }
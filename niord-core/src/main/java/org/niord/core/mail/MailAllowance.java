@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.mail;
+
+/**
+ * Limits the rate at which scheduled mails are sent.
+ * <p>
+ * The mail queue is processed a fixed number of times per minute. Each time, the allowance is replenished
+ * by the corresponding fraction of the max number of mails per minute, but never beyond a minute's worth
+ * of mails, and the mails actually sent are deducted from the allowance.
+ */
+public class MailAllowance {
+
+    private final int ticksPerMinute;
+    private double allowance;
+
+
+    /**
+     * Constructor
+     * @param ticksPerMinute the number of times per minute that the mail queue is processed
+     */
+    public MailAllowance(int ticksPerMinute) {
+        this.ticksPerMinute = Math.max(1, ticksPerMinute);
+    }
+
+
+    /**
+     * Replenishes the allowance and returns the number of mails that may currently be sent
+     * @param maxMailsPerMinute the max number of mails to send per minute
+     * @return the number of mails that may currently be sent
+     */
+    public synchronized int replenish(int maxMailsPerMinute) {
+        allowance = Math.min(maxMailsPerMinute, allowance + maxMailsPerMinute / (double) ticksPerMinute);
+        return Math.max(0, (int) allowance);
+    }
+
+
+    /**
+     * Deducts the mails that have been sent from the allowance
+     * @param mails the number of mails sent
+     */
+    public synchronized void consume(int mails) {
+        allowance -= mails;
+    }
+}
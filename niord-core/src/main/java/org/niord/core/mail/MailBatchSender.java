@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Sends a batch of scheduled mails over a single pooled SMTP transport.
+ * <p>
+ * Each mail is sent, and its status committed, separately by the {@code ScheduledMailSender}, typically
+ * {@code MailService.sendScheduledMail()}. Only the transport is shared by the mails of the batch.
+ * The transport is replaced when it has failed or has been used for the max number of mails.
+ */
+public class MailBatchSender implements Callable<List<ScheduledMail>> {
+
+    private final Logger log = LoggerFactory.getLogger(MailBatchSender.class);
+
+    private final List<Integer> scheduledMailIds;
+    private final MailTransportPool transportPool;
+    private final boolean connect;
+    private final ScheduledMailSender mailSender;
+
+
+    /**
+     * Constructor
+     * @param scheduledMailIds the IDs of the scheduled mails to send
+     * @param transportPool the SMTP transport pool
+     * @param connect whether to borrow an SMTP transport or not, e.g. not when only simulating
+     * @param mailSender sends a single scheduled mail
+     */
+    public MailBatchSender(List<Integer> scheduledMailIds, MailTransportPool transportPool,
+                           boolean connect, ScheduledMailSender mailSender) {
+        this.scheduledMailIds = scheduledMailIds;
+        this.transportPool = transportPool;
+        this.connect = connect;
+        this.mailSender = mailSender;
+    }
+
+
+    /**
+     * Splits the scheduled mail IDs into at most the given number of batches of similar size
+     * @param scheduledMailIds the IDs of the scheduled mails
+     * @param maxBatches the max number of batches, i.e. of concurrent SMTP connections
+     * @return the batches
+     */
+    public static List<List<Integer>> splitIntoBatches(List<Integer> scheduledMailIds, int maxBatches) {
+        List<List<Integer>> batches = new ArrayList<>();
+        if (scheduledMailIds.isEmpty()) {
+            return batches;
+        }
+        int batchCount = Math.max(1, Math.min(maxBatches, scheduledMailIds.size()));
+        int batchSize = (scheduledMailIds.size() + batchCount - 1) / batchCount;
+        for (int x = 0; x < scheduledMailIds.size(); x += batchSize) {
+            batches.add(new ArrayList<>(scheduledMailIds.subList(x, Math.min(x + batchSize, scheduledMailIds.size()))));
+        }
+        return batches;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    public List<ScheduledMail> call() {
+        List<ScheduledMail> result = new ArrayList<>();
+        MailTransportPool.PooledTransport transport = null;
+        try {
+            for (Integer scheduledMailId : scheduledMailIds) {
+
+                // Replace the transport if it has failed or has been used for the max number of mails
+                if (transport != null && (transport.isBroken() || transport.isUsedUp())) {
+                    transportPool.returnTransport(transport, false);
+                    transport = null;
+                }
+                if (transport == null && connect) {
+                    try {
+                        transport = transportPool.borrowTransport();
+                    } catch (MessagingException e) {
+                        // The mail sender will attempt to open its own SMTP connection, and register any error
+                        log.warn("Failed opening pooled SMTP connection: " + e);
+                    }
+                }
+
+                ScheduledMail scheduledMail = mailSender.sendScheduledMail(scheduledMailId, transport);
+                if (scheduledMail != null) {
+                    result.add(scheduledMail);
+                }
+            }
+        } finally {
+            transportPool.returnTransport(transport, true);
+        }
+        return result;
+    }
+
+
+    /**
+     * Sends a single scheduled mail and commits its status
+     */
+    @FunctionalInterface
+    public interface ScheduledMailSender {
+        ScheduledMail sendScheduledMail(Integer scheduledMailId, MailTransportPool.PooledTransport transport);
+    }
+}
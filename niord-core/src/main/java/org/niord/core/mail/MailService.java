@@ -27,6 +27,7 @@ import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
@@ -96,6 +97,18 @@ public class MailService extends BaseService {
      * @param mail the mail to send
      */
     public void sendMail(Mail mail) throws MessagingException {
+        sendMail(mail, null);
+    }
+
+
+    /**
+     * Sends the given mail synchronously over the given pooled transport.
+     * If the transport is null, a new SMTP connection is opened for the mail.
+     *
+     * @param mail the mail to send
+     * @param transport the pooled transport to use, or null
+     */
+    private void sendMail(Mail mail, MailTransportPool.PooledTransport transport) throws MessagingException {
         try {
             long t0 = System.currentTimeMillis();
 
@@ -129,7 +142,11 @@ public class MailService extends BaseService {
                 log.debug("Composing mail");
                 Message message = mail.compose(mailSession, mailAttachmentCache.getCache());
                 log.debug("Sending...");
-                Transport.send(message);
+                if (transport != null) {
+                    transport.sendMessage(message);
+                } else {
+                    Transport.send(message);
+                }
 
             }
 
@@ -147,12 +164,28 @@ public class MailService extends BaseService {
 
 
     /**
-     * Sends the scheduled mail with the given ID and updates the status of the scheduled mail entity
+     * Returns if the sending of mails is only simulated, as defined by the "mailValidRecipients" setting
+     * @return if the sending of mails is only simulated
+     */
+    public boolean isSimulatingMails() {
+        return new ValidMailRecipients(validRecipients).simulate();
+    }
+
+
+    /**
+     * Sends the scheduled mail with the given ID and updates the status of the scheduled mail entity.
+     * <p>
+     * The mail is sent over the given pooled SMTP transport, if specified. The status of each mail is committed
+     * in its own transaction, so that a failure to update the status of one mail does not cause other mails,
+     * which have already been sent, to be sent again. If the transport fails for other reasons than invalid
+     * recipients, it is flagged as broken and should not be re-used.
+     *
      * @param scheduledMailId the ID of the scheduled mail to send
+     * @param transport the pooled transport to use, or null to open a new SMTP connection
      * @return the updated mail entity
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    public ScheduledMail sendScheduledMail(Integer scheduledMailId) {
+    public ScheduledMail sendScheduledMail(Integer scheduledMailId, MailTransportPool.PooledTransport transport) {
         try {
             ScheduledMail scheduledMail = em.find(ScheduledMail.class, scheduledMailId);
 
@@ -160,18 +193,8 @@ public class MailService extends BaseService {
             if (scheduledMail != null && scheduledMail.getStatus() == ScheduledMail.Status.PENDING) {
 
                 try {
-                    Mail mail = scheduledMail.toMail(app.getBaseUri(), HtmlMail.StyleHandling.INLINE_STYLES, false);
-
-                    // If undefined, set reply-to to the first to-recipient
-                    if (mail.getReplyTo().isEmpty()) {
-                        mail.getRecipients().stream()
-                                .filter(r -> r.getType() == Message.RecipientType.TO)
-                                .limit(1)
-                                .forEach(r -> mail.replyTo(r.getAddress()));
-                    }
-
                     // Send the mail
-                    sendMail(mail);
+                    sendMail(toMail(scheduledMail), transport);
 
                     // Register that the mail has successfully been sent
                     scheduledMail.registerMailSent();
@@ -181,6 +204,11 @@ public class MailService extends BaseService {
                     // Register that the mail failed being sent
                     scheduledMail.registerMailErrorAttempt(e.getMessage());
                     log.error("Error sending mail " + scheduledMailId + ", attempt " + scheduledMail.getAttempts(), e);
+
+                    // Recipient errors leave the connection intact. Otherwise, discard the connection
+                    if (transport != null && !(e instanceof SendFailedException)) {
+                        transport.markBroken();
+                    }
                 }
                 saveEntity(scheduledMail);
             }
@@ -193,4 +221,23 @@ public class MailService extends BaseService {
         }
     }
 
+
+    /**
+     * Converts the scheduled mail to a mail that can be sent
+     * @param scheduledMail the scheduled mail
+     * @return the mail
+     */
+    private Mail toMail(ScheduledMail scheduledMail) throws Exception {
+        Mail mail = scheduledMail.toMail(app.getBaseUri(), HtmlMail.StyleHandling.INLINE_STYLES, false);
+
+        // If undefined, set reply-to to the first to-recipient
+        if (mail.getReplyTo().isEmpty()) {
+            mail.getRecipients().stream()
+                    .filter(r -> r.getType() == Message.RecipientType.TO)
+                    .limit(1)
+                    .forEach(r -> mail.replyTo(r.getAddress()));
+        }
+        return mail;
+    }
+
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Maintains a pool of open SMTP transports, so that many mails can be sent over a single SMTP connection.
+ * <p>
+ * A transport is borrowed from the pool, used for sending a batch of mails, and then returned to the pool.
+ * Transports that have been idle for more than {@code IDLE_TIMEOUT} ms, or that have been used for sending
+ * {@code MAX_MAILS_PER_TRANSPORT} mails, are closed rather than re-used.
+ */
+@ApplicationScoped
+public class MailTransportPool {
+
+    static final long IDLE_TIMEOUT              = 60 * 1000L;  // 1 minute
+    static final int MAX_MAILS_PER_TRANSPORT    = 100;
+    static final int MAX_IDLE_TRANSPORTS        = 5;
+
+    private final Logger log = LoggerFactory.getLogger(MailTransportPool.class);
+
+    @Resource(name = "java:jboss/mail/Niord")
+    Session mailSession;
+
+    private TransportFactory transportFactory;
+
+    // The idle transports, most recently used first
+    private final Deque<PooledTransport> idleTransports = new ArrayDeque<>();
+
+
+    /** Constructor **/
+    public MailTransportPool() {
+    }
+
+
+    /**
+     * Constructor
+     * @param transportFactory the factory used for opening new transports
+     */
+    public MailTransportPool(TransportFactory transportFactory) {
+        this.transportFactory = transportFactory;
+    }
+
+
+    /** Initializes the transport factory from the mail session **/
+    @PostConstruct
+    private void init() {
+        if (transportFactory == null) {
+            transportFactory = () -> {
+                Transport transport = mailSession.getTransport();
+                transport.connect();
+                return transport;
+            };
+        }
+    }
+
+
+    /** Closes all idle transports **/
+    @PreDestroy
+    public void closeAll() {
+        List<PooledTransport> transports;
+        synchronized (idleTransports) {
+            transports = new ArrayList<>(idleTransports);
+            idleTransports.clear();
+        }
+        transports.forEach(this::close);
+    }
+
+
+    /**
+     * Borrows a connected transport from the pool, or opens a new transport if no idle transport is available.
+     * The transport must be returned using {@linkplain #returnTransport(PooledTransport, boolean)}.
+     *
+     * @return a connected transport
+     */
+    public PooledTransport borrowTransport() throws MessagingException {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledTransport transport;
+            synchronized (idleTransports) {
+                transport = idleTransports.pollFirst();
+            }
+            if (transport == null) {
+                break;
+            }
+
+            // NB: For SMTP, isConnected() checks the connection by issuing a NOOP command
+            if (now - transport.lastUsed < IDLE_TIMEOUT && transport.transport.isConnected()) {
+                return transport;
+            }
+            close(transport);
+        }
+
+        return new PooledTransport(transportFactory.connect());
+    }
+
+
+    /**
+     * Returns a transport to the pool.
+     * Transports that are flagged as broken or used up are closed.
+     *
+     * @param transport the transport to return
+     * @param healthy whether the transport can be re-used or not
+     */
+    public void returnTransport(PooledTransport transport, boolean healthy) {
+        if (transport == null) {
+            return;
+        }
+        if (healthy && !transport.isBroken() && !transport.isUsedUp()) {
+            transport.lastUsed = System.currentTimeMillis();
+            synchronized (idleTransports) {
+                if (idleTransports.size() < MAX_IDLE_TRANSPORTS) {
+                    idleTransports.offerFirst(transport);
+                    return;
+                }
+            }
+        }
+        close(transport);
+    }
+
+
+    /** Closes the transport **/
+    private void close(PooledTransport transport) {
+        try {
+            transport.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed closing mail transport: " + e);
+        }
+    }
+
+
+    /** Returns the number of idle transports **/
+    public int getIdleTransportCount() {
+        synchronized (idleTransports) {
+            return idleTransports.size();
+        }
+    }
+
+
+    /**
+     * Opens new connected transports
+     */
+    @FunctionalInterface
+    public interface TransportFactory {
+        Transport connect() throws MessagingException;
+    }
+
+
+    /**
+     * A transport managed by the pool
+     */
+    public static class PooledTransport {
+        final Transport transport;
+        long lastUsed;
+        int mailsSent;
+        volatile boolean broken;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Sends the message over the transport
+         * @param message the message to send
+         */
+        public void sendMessage(Message message) throws MessagingException {
+            message.saveChanges();
+            mailsSent++;
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+
+        /** Returns if the transport has been used for sending the max number of mails **/
+        public boolean isUsedUp() {
+            return mailsSent >= MAX_MAILS_PER_TRANSPORT;
+        }
+
+        /** Flags that the transport has failed and should not be re-used **/
+        public void markBroken() {
+            broken = true;
+        }
+
+        /** Returns if the transport has failed and should not be re-used **/
+        public boolean isBroken() {
+            return broken;
+        }
+    }
+}
@@ -67,6 +67,9 @@ import java.util.stream.Collectors;
         @NamedQuery(name = "ScheduledMail.findPendingMails",
                 query = "SELECT m FROM ScheduledMail m where m.status = 'PENDING' and m.sendDate <= :date " +
                         " order by m.sendDate asc"),
+        @NamedQuery(name = "ScheduledMail.findPendingMailIds",
+                query = "SELECT m.id FROM ScheduledMail m where m.status = 'PENDING' and m.sendDate <= :date " +
+                        " order by m.sendDate asc"),
         @NamedQuery(name = "ScheduledMail.findExpiredMails",
                 query = "SELECT m.id FROM ScheduledMail m where m.created <= :expiryDate ")
 })
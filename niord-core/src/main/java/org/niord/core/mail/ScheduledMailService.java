@@ -18,7 +18,6 @@ package org.niord.core.mail;
 
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.db.CriteriaHelper;
-import org.niord.core.model.BaseEntity;
 import org.niord.core.service.BaseService;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.util.TimeUtils;
@@ -41,11 +40,10 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.stream.Collectors;
 
 import static org.niord.core.settings.Setting.Type.Integer;
 
@@ -64,11 +62,19 @@ public class ScheduledMailService extends BaseService {
     @Inject
     MailService mailService;
 
+    @Inject
+    MailTransportPool mailTransportPool;
+
     @Inject
     @Setting(value = "mailMaxPerMinute", defaultValue = "10", type = Integer,
             description = "The max number of mails to send per minute")
     Integer maxMailsPerMinute;
 
+    @Inject
+    @Setting(value = "mailMaxConnections", defaultValue = "3", type = Integer,
+            description = "The max number of concurrent SMTP connections used for sending scheduled mails")
+    Integer maxConnections;
+
 
     @Inject
     @Setting(value = "mailDeleteAfterDays", defaultValue = "30", type = Integer,
@@ -83,6 +89,9 @@ public class ScheduledMailService extends BaseService {
     @Resource(lookup = "java:jboss/ee/concurrency/executor/MailExecutorService")
     ManagedExecutorService managedExecutorService;
 
+    // The number of mails that may currently be sent, as replenished every time the queue is processed
+    private final MailAllowance mailAllowance = new MailAllowance(6);
+
 
     /**
      * Searches the filtered set of scheduled mails
@@ -179,25 +188,50 @@ public class ScheduledMailService extends BaseService {
 
 
     /**
-     * Called every minute to process scheduled mails
+     * Returns the IDs of at most "maxResults" pending scheduled mails
+     * @param maxResults the max number of IDs to return
+     * @return the IDs of the pending scheduled mails
      */
-    @Schedule(persistent=false, second="24", minute="*", hour = "*")
+    public List<Integer> getPendingMailIds(int maxResults) {
+        return em.createNamedQuery("ScheduledMail.findPendingMailIds", Integer.class)
+                .setParameter("date", new Date())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+
+    /**
+     * Called every 10 seconds to process scheduled mails.
+     * <p>
+     * The mail queue is drained continuously, limited to "maxMailsPerMinute" mails per minute.
+     * The pending mails are split into batches, each of which is sent over a single pooled SMTP connection.
+     * The status of each mail is committed separately.
+     */
+    @Schedule(persistent=false, second="*/10", minute="*", hour = "*")
     @Lock(LockType.WRITE)
     public void sendPendingMails() {
 
-        // Send at most "maxMailsPerMinute" mails at a time
-        List<Integer> scheduledMailIds = getPendingMails().stream()
-                .limit(maxMailsPerMinute)
-                .map(BaseEntity::getId)
-                .collect(Collectors.toList());
+        // Replenish the allowance by a sixth of the max mails per minute, but allow no more than a minute's worth
+        int maxMails = mailAllowance.replenish(maxMailsPerMinute);
+        if (maxMails <= 0) {
+            return;
+        }
+
+        List<Integer> scheduledMailIds = getPendingMailIds(maxMails);
 
         if (!scheduledMailIds.isEmpty()) {
 
-            log.info("Processing " + scheduledMailIds.size() + " pending scheduled mails");
+            mailAllowance.consume(scheduledMailIds.size());
 
-            List<MailSenderTask> tasks = scheduledMailIds.stream()
-                    .map(id -> new MailSenderTask(mailService, id))
-                    .collect(Collectors.toList());
+            // Split the mails into a batch per SMTP connection. When simulating, no SMTP connections are opened
+            boolean connect = !mailService.isSimulatingMails();
+            List<MailBatchSender> tasks = new ArrayList<>();
+            for (List<Integer> batch : MailBatchSender.splitIntoBatches(scheduledMailIds, maxConnections)) {
+                tasks.add(new MailBatchSender(batch, mailTransportPool, connect, mailService::sendScheduledMail));
+            }
+
+            log.info("Processing " + scheduledMailIds.size() + " pending scheduled mails in "
+                    + tasks.size() + " batches");
 
             try {
                 managedExecutorService.invokeAll(tasks);
@@ -252,32 +286,4 @@ public class ScheduledMailService extends BaseService {
             }
         }
     }
-
-
-    /**
-     * The task that actually sends the e-mail
-     */
-    final static class MailSenderTask implements Callable<ScheduledMail> {
-
-        final Integer scheduledMailId;
-        final MailService mailService;
-
-        /** Constructor **/
-        public MailSenderTask(MailService mailService, Integer scheduledMailId) {
-            this.mailService = mailService;
-            this.scheduledMailId = scheduledMailId;
-        }
-
-        /** {@inheritDoc} **/
-        @Override
-        public ScheduledMail call() {
-            try {
-                //MailService mailService = CdiUtils.getBean(MailService.class);
-                return  mailService.sendScheduledMail(scheduledMailId);
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
-            }
-        }
-    }
 }
@@ -36,6 +36,7 @@ import java.util.stream.Collectors;
         activationConfig = {
                 @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
                 @ActivationConfigProperty(propertyName = "destination", propertyValue = "java:/jms/topic/MessageStatusTopic"),
+                @ActivationConfigProperty(propertyName = "messageSelector", propertyValue = "EVENT_TYPE = 'STATUS'"),
                 @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge")
         })
 @SuppressWarnings("unused")
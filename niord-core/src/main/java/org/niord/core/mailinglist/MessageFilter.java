@@ -17,10 +17,8 @@
 package org.niord.core.mailinglist;
 
 import org.niord.core.message.Message;
+import org.niord.core.script.JsFunctionPool;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 /**
@@ -31,12 +29,12 @@ import javax.script.ScriptException;
  */
 public class MessageFilter {
 
-    private ScriptEngine jsEngine = new ScriptEngineManager()
-            .getEngineByName("Nashorn");
+    private final JsFunctionPool filterFunction;
 
 
     /** Private access constructor **/
-    private MessageFilter() {
+    private MessageFilter(JsFunctionPool filterFunction) {
+        this.filterFunction = filterFunction;
     }
 
 
@@ -50,12 +48,11 @@ public class MessageFilter {
         // Considerations: Various documentation suggests that the ScriptEngine is indeed threadsafe.
         // However, shared state is not isolated, so, setting the parameters (msg) as
         // script engine state and evaluating the filter directly would not work correctly.
-        // Instead, we wrap the filter in a function and call that function.
+        // Instead, we wrap the filter in an anonymous function and call that function.
+        // The filter is compiled and instantiated up-front, in order to fail early for invalid filters.
 
-        String jsFilter = "function matchesMessage(msg) { return " + messageFilter + "; }";
-        MessageFilter filter = new MessageFilter();
-        filter.jsEngine.eval(jsFilter);
-        return filter;
+        String jsFilter = "(function(msg) { return " + messageFilter + "; })";
+        return new MessageFilter(new JsFunctionPool(jsFilter));
     }
 
 
@@ -66,8 +63,7 @@ public class MessageFilter {
      */
     public boolean matches(Message message) {
         try {
-            Invocable filterFunction = (Invocable)jsEngine;
-            return  (Boolean) filterFunction.invokeFunction("matchesMessage", message);
+            return Boolean.TRUE.equals(filterFunction.call(message));
         } catch (Exception e) {
             return false;
         }
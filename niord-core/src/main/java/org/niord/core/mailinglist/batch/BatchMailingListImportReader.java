@@ -16,15 +16,10 @@
 
 package org.niord.core.mailinglist.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.mailinglist.vo.MailingListVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads mailing lists from a mailing-lists.json file.
@@ -65,46 +60,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchMailingListImportReader extends AbstractItemHandler {
-
-    List<MailingListVo> mailingLists;
-    int mailingListNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the templates from the file
-        mailingLists = JsonUtils.readJson(
-                new TypeReference<List<MailingListVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            mailingListNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + mailingLists.size()
-                + " mailing lists from index " + mailingListNo);
-    }
-
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (mailingListNo < mailingLists.size()) {
-            getLog().info("Reading mailing list no " + mailingListNo);
-            return mailingLists.get(mailingListNo++);
-        }
-        return null;
-    }
-
+public class BatchMailingListImportReader extends AbstractJsonItemReader<MailingListVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return mailingListNo;
+    protected Class<MailingListVo> getElementType() {
+        return MailingListVo.class;
     }
 }
@@ -16,6 +16,7 @@
 package org.niord.core.message;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.annotations.BatchSize;
 import org.niord.core.area.Area;
 import org.niord.core.category.Category;
 import org.niord.core.chart.Chart;
@@ -90,6 +91,9 @@ import java.util.stream.Stream;
                 query="SELECT msg FROM Message msg where msg.id in (:ids)"),
         @NamedQuery(name="Message.findByLegacyId",
                 query="SELECT msg FROM Message msg where msg.legacyId = :legacyId"),
+        @NamedQuery(name="Message.findPublishedLegacyMessagesBySeries",
+                query="SELECT msg FROM Message msg where msg.messageSeries.seriesId = :seriesId "
+                        + " and msg.status = :status and msg.legacyId is not null"),
         @NamedQuery(name="Message.findByShortId",
                 query="SELECT msg FROM Message msg where msg.shortId = :shortId"),
         @NamedQuery(name="Message.findByMessageId",
@@ -160,6 +164,7 @@ public class Message extends VersionedEntity<Integer> implements ILocalizable<Me
 
     @ManyToMany
     @OrderColumn
+    @BatchSize(size = 100)
     List<Area> areas = new ArrayList<>();
 
     // This area should be the first area of the "areas" list.
@@ -173,10 +178,12 @@ public class Message extends VersionedEntity<Integer> implements ILocalizable<Me
     double areaSortOrder;
 
     @ManyToMany
+    @BatchSize(size = 100)
     List<Category> categories = new ArrayList<>();
 
     @ManyToMany
     @OrderColumn
+    @BatchSize(size = 100)
     List<Chart> charts = new ArrayList<>();
 
     String horizontalDatum;
@@ -200,6 +207,7 @@ public class Message extends VersionedEntity<Integer> implements ILocalizable<Me
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "message", orphanRemoval = true)
     @OrderColumn(name = "indexNo")
+    @BatchSize(size = 100)
     List<Reference> references = new ArrayList<>();
 
     @ManyToMany(mappedBy = "messages")
@@ -211,10 +219,12 @@ public class Message extends VersionedEntity<Integer> implements ILocalizable<Me
     Boolean originalInformation;
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "entity", orphanRemoval = true)
+    @BatchSize(size = 100)
     List<MessageDesc> descs = new ArrayList<>();
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "message", orphanRemoval = true)
     @OrderColumn(name = "indexNo")
+    @BatchSize(size = 100)
     List<MessagePart> parts = new ArrayList<>();
 
     // Indicates if the title should automatically be updated from the message area, subject and vicinity fields.
@@ -225,15 +235,18 @@ public class Message extends VersionedEntity<Integer> implements ILocalizable<Me
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "message", orphanRemoval = true)
     @OrderColumn(name = "indexNo")
+    @BatchSize(size = 100)
     List<Attachment> attachments = new ArrayList<>();
 
     @OneToMany(mappedBy = "message")
+    @BatchSize(size = 100)
     List<Comment> comments = new ArrayList<>();
 
     // Whether to start the message on a new PDF page (for large messages)
     Boolean separatePage;
 
     @OneToMany(mappedBy = "message", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     List<BaseMessagePromulgation> promulgations = new ArrayList<>();
 
 
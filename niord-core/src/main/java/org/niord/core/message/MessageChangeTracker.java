@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains a monotonically increasing version, which is bumped whenever a message is saved or changes status.
+ * <p>
+ * The version can be used as part of the key of caches of data derived from messages.
+ * It is initialized from the current time, so that versions are not re-used after a restart.
+ */
+@ApplicationScoped
+public class MessageChangeTracker {
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+
+    /**
+     * Returns the current version
+     * @return the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+
+    /**
+     * Bumps the version.
+     * <p>
+     * If called within a transaction, the version is bumped once the transaction has been committed,
+     * since data cached before then would not include the changes of the transaction.
+     */
+    public void messageChanged() {
+        if (transactionRegistry.getTransactionKey() != null) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        version.incrementAndGet();
+                    }
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -15,10 +15,12 @@
  */
 package org.niord.core.message;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.niord.core.conf.TextResource;
@@ -28,31 +30,60 @@ import org.niord.model.message.AttachmentVo;
 import org.niord.model.search.PagedSearchResultVo;
 import org.slf4j.Logger;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
 import java.io.BufferedOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
- * Exports a message search result as a Zip archive including attachments
+ * Exports a message search result as a Zip archive including attachments.
+ * <p>
+ * The messages are serialized as JSON directly into the Zip archive, and attachment files
+ * are read ahead in parallel while the Zip entries are written sequentially.
  */
 @Stateless
 public class MessageExportService {
 
+    static final String MESSAGES_JSON_PLACEHOLDER = "<<MESSAGES-JSON>>";
+    static final int READ_AHEAD_FILES = 8;
+    static final long MAX_READ_AHEAD_FILE_SIZE = 8L * 1024L * 1024L; // 8 MB
+
+    // File types that are already compressed, and thus stored rather than deflated in the Zip archive
+    static final Set<String> COMPRESSED_FILE_TYPES = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "zip", "gz", "bz2", "xz", "7z",
+            "mp3", "mp4", "m4v", "mov", "webm", "docx", "xlsx", "pptx", "odt", "ods", "odp", "pdf"));
+
     @Inject
     Logger log;
 
     @Inject
     RepositoryService repositoryService;
 
+    @Resource
+    ManagedExecutorService managedExecutorService;
+
     // The SQL for finding expired, published message is just too cumbersome for JPQL :-(
     @Inject
     @TextResource("/export-messages.html")
@@ -72,33 +103,33 @@ public class MessageExportService {
             // Rewrite links in message description to remove "/rest/repo/file/" prefix
             result.getData().forEach(m -> m.rewriteRepoPath("\"/rest/repo/file/" + m.getRepoPath(), "\"" + m.getRepoPath()));
 
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
             // Write the messages file to the Zip file
             log.debug("Adding messages.json to zip archive");
             out.putNextEntry(new ZipEntry("messages.json"));
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
-            String messages = mapper.writeValueAsString(result);
-            IOUtils.write(messages, out, "utf-8");
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                mapper.writeValue(generator, result);
+            }
             out.closeEntry();
 
             // Write the messages-preview.html file into the archive.
             // Can be used to preview the messages by someone unzipping the archive
-            String html = messagesPreviewHtmlFile.replace("<<MESSAGES-JSON>>", StringEscapeUtils.escapeJavaScript(messages));
             log.debug("Adding messages-preview.html to zip archive");
             out.putNextEntry(new ZipEntry("messages-preview.html"));
-            IOUtils.write(html, out, "utf-8");
+            writeMessagesPreview(result, mapper, out);
             out.closeEntry();
 
-
             // Write the message attachments and thumbnail files to the Zip file
-            Set<String> folderCache = new HashSet<>();
+            List<ExportFile> files = new ArrayList<>();
             result.getData().stream()
                     .filter(m -> m.getAttachments() != null && !m.getAttachments().isEmpty())
                     .forEach(m -> {
-                        exportAttachments(m, out, folderCache);
-                        exportThumbnail(m, out, folderCache);
+                        collectAttachments(m, files);
+                        collectThumbnail(m, files);
                     });
-
+            exportFiles(files, out);
 
             out.flush();
             out.close();
@@ -110,12 +141,33 @@ public class MessageExportService {
 
 
     /**
-     * Copies all attachment files associated with the message to the zip output stream.
-     * Ignores all attachments that causes errors, so the result may be incomplete.
+     * Writes the messages preview HTML file, with the messages JSON injected as a JavaScript string
+     * @param result the search result
+     * @param mapper the object mapper
+     * @param out the output stream
+     */
+    private void writeMessagesPreview(PagedSearchResultVo<SystemMessageVo> result, ObjectMapper mapper, OutputStream out) throws IOException {
+        int index = messagesPreviewHtmlFile.indexOf(MESSAGES_JSON_PLACEHOLDER);
+
+        Writer writer = new OutputStreamWriter(new CloseShieldOutputStream(out), StandardCharsets.UTF_8);
+        if (index == -1) {
+            writer.write(messagesPreviewHtmlFile);
+        } else {
+            writer.write(messagesPreviewHtmlFile.substring(0, index));
+            mapper.writeValue(new JavaScriptEscapingWriter(writer), result);
+            writer.write(messagesPreviewHtmlFile.substring(index + MESSAGES_JSON_PLACEHOLDER.length()));
+        }
+        writer.flush();
+    }
+
+
+    /**
+     * Collects all attachment files associated with the message.
+     * Ignores all invalid attachments, so the result may be incomplete.
      * @param message the message
-     * @param out the zip output stream
+     * @param files the files to export
      */
-    private void exportAttachments(SystemMessageVo message, ZipOutputStream out, Set<String> folderCache) {
+    private void collectAttachments(SystemMessageVo message, List<ExportFile> files) {
 
         // Attachment files are nested within revision folders in the message repo folder
         for (AttachmentVo att : message.getAttachments()) {
@@ -135,17 +187,11 @@ public class MessageExportService {
                 log.warn("Skipping non-existing attachments for message " + message.getId() + ": " + att.getPath());
                 continue;
             }
-            addParentFolders(out, folderCache, folderPath);
 
             // E.g. "Buoy_seal.jpg"
             Path file = folder.resolve(att.getFileName());
             if (Files.exists(file)) {
-                String attachmentPath = folderPath + "/" + att.getFileName();
-                try {
-                    addFile(out, attachmentPath, file);
-                } catch (IOException e) {
-                    log.warn("Skipping attachments for message " + message.getId() + ": " + e);
-                }
+                files.add(new ExportFile(message, folderPath, folderPath + "/" + att.getFileName(), file));
             } else {
                 log.warn("Skipping attachment with no file " + att.getFileName() + " for message " + message.getId());
             }
@@ -154,11 +200,11 @@ public class MessageExportService {
 
 
     /**
-     * Exports any custom thumbnail file associated with the message
+     * Collects any custom thumbnail file associated with the message
      * @param message the message
-     * @param out the zip output stream
+     * @param files the files to export
      */
-    private void exportThumbnail(SystemMessageVo message, ZipOutputStream out, Set<String> folderCache) {
+    private void collectThumbnail(SystemMessageVo message, List<ExportFile> files) {
 
         // Custom thumbnail files are nested within revision folders in the message repo folder
         String thumbnailPath = message.getThumbnailPath();
@@ -174,33 +220,116 @@ public class MessageExportService {
                 log.warn("Skipping non-existing thumbnail file for message " + message.getId() + ": " + thumbnailPath);
                 return;
             }
-            addParentFolders(out, folderCache, folderPath);
 
             // E.g. "custom_thumb_256.png"
             String fileName = thumbnailPath.substring(folderPath.length() + 1);
             Path file = folder.resolve(fileName);
             if (Files.exists(file)) {
+                files.add(new ExportFile(message, folderPath, thumbnailPath, file));
+            } else {
+                log.warn("Skipping non-existing thumbnail file " + thumbnailPath + " for message " + message.getId());
+            }
+        }
+    }
+
+
+    /**
+     * Adds the files to the zip archive.
+     * <p>
+     * Up to {@code READ_AHEAD_FILES} files are read ahead in parallel, whereas the Zip entries are
+     * written sequentially. Files larger than {@code MAX_READ_AHEAD_FILE_SIZE} are streamed
+     * directly into the Zip archive instead.
+     * <p>
+     * Already compressed file types are stored rather than deflated, regardless of their size.
+     *
+     * @param files the files to export
+     * @param out the zip output stream
+     */
+    private void exportFiles(List<ExportFile> files, ZipOutputStream out) {
+        Set<String> folderCache = new HashSet<>();
+        try {
+            for (int x = 0; x < files.size(); x++) {
+                // Keep the read-ahead window filled
+                for (int y = x; y < Math.min(files.size(), x + READ_AHEAD_FILES); y++) {
+                    files.get(y).readAhead();
+                }
+
+                ExportFile file = files.get(x);
+                addParentFolders(out, folderCache, file.folderPath);
                 try {
-                    addFile(out, thumbnailPath, file);
+                    addFile(out, file);
                 } catch (IOException e) {
-                    log.warn("Skipping attachments for message " + message.getId() + ": " + e);
+                    log.warn("Skipping attachments for message " + file.message.getId() + ": " + e);
                 }
-            } else {
-                log.warn("Skipping non-existing thumbnail file " + thumbnailPath + " for message " + message.getId());
+                file.data = null;
             }
+        } finally {
+            // Cancel any pending reads if the export fails
+            files.stream()
+                    .filter(f -> f.data != null)
+                    .forEach(f -> f.data.cancel(true));
         }
     }
 
 
     /** Adds the file to the zip archive **/
-    private void addFile(ZipOutputStream out, String path, Path file) throws IOException {
-        log.debug("Adding file " + path + " to zip archive");
-        out.putNextEntry(new ZipEntry(path));
-        FileUtils.copyFile(file.toFile(), out);
+    private void addFile(ZipOutputStream out, ExportFile file) throws IOException {
+        log.debug("Adding file " + file.path + " to zip archive");
+
+        // No point in deflating already compressed files
+        boolean store = COMPRESSED_FILE_TYPES.contains(StringUtils.lowerCase(StringUtils.substringAfterLast(file.path, ".")));
+
+        if (file.data == null) {
+            // Stream large files directly into the Zip archive
+            ZipEntry entry = new ZipEntry(file.path);
+            if (store) {
+                // Stored entries require the size and CRC up-front, so compute these in a separate pass
+                CRC32 crc = new CRC32();
+                long size;
+                try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(file.file), crc)) {
+                    size = IOUtils.copyLarge(in, NullOutputStream.NULL_OUTPUT_STREAM);
+                }
+                setStored(entry, size, crc.getValue());
+            }
+            out.putNextEntry(entry);
+            try (InputStream in = Files.newInputStream(file.file)) {
+                IOUtils.copyLarge(in, out);
+            }
+            out.closeEntry();
+            return;
+        }
+
+        byte[] data;
+        try {
+            data = file.data.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted reading " + file.file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed reading " + file.file, e.getCause());
+        }
+
+        ZipEntry entry = new ZipEntry(file.path);
+        if (store) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            setStored(entry, data.length, crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(data);
         out.closeEntry();
     }
 
 
+    /** Flags that the Zip entry should be stored rather than deflated **/
+    private void setStored(ZipEntry entry, long size, long crc) {
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc);
+    }
+
+
     /** Adds folders to the zip archive that have not already been added **/
     private void addParentFolders(ZipOutputStream out, Set<String> folderCache, String folder) {
         StringBuilder parentFolder = new StringBuilder();
@@ -218,4 +347,71 @@ public class MessageExportService {
             }
         }
     }
+
+
+    /** A repository file to add to the Zip archive **/
+    private class ExportFile {
+        final SystemMessageVo message;
+        final String folderPath;
+        final String path;
+        final Path file;
+        Future<byte[]> data;
+        boolean readAhead;
+
+        ExportFile(SystemMessageVo message, String folderPath, String path, Path file) {
+            this.message = message;
+            this.folderPath = folderPath;
+            this.path = path;
+            this.file = file;
+        }
+
+        /** Starts reading the file in the background, unless it is too large **/
+        void readAhead() {
+            if (!readAhead) {
+                readAhead = true;
+                try {
+                    if (Files.size(file) <= MAX_READ_AHEAD_FILE_SIZE) {
+                        data = managedExecutorService.submit(() -> Files.readAllBytes(file));
+                    }
+                } catch (IOException e) {
+                    log.debug("Failed reading size of " + file + ": " + e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Escapes everything written to the underlying writer as JavaScript string content
+     */
+    static class JavaScriptEscapingWriter extends FilterWriter {
+
+        JavaScriptEscapingWriter(Writer out) {
+            super(out);
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public void write(int c) throws IOException {
+            StringEscapeUtils.escapeJavaScript(out, String.valueOf((char) c));
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            StringEscapeUtils.escapeJavaScript(out, new String(cbuf, off, len));
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            StringEscapeUtils.escapeJavaScript(out, str.substring(off, off + len));
+        }
+
+        /** Does not close the underlying writer **/
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
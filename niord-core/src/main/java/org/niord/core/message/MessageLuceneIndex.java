@@ -15,34 +15,52 @@
  */
 package org.niord.core.message;
 
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.ClassicAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.queryparser.complexPhrase.ComplexPhraseQueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.niord.core.NiordApp;
 import org.niord.core.area.Area;
 import org.niord.core.area.AreaDesc;
 import org.niord.core.category.Category;
 import org.niord.core.category.CategoryDesc;
+import org.niord.core.geojson.Feature;
 import org.niord.core.service.BaseService;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.util.LuceneUtils;
@@ -67,11 +85,12 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -80,8 +99,15 @@ import static org.niord.core.settings.Setting.Type.Boolean;
 /**
  * A Lucene index used for free-text searching all messages.
  * <p>
- * The index will initially index all messages, and subsequently check every minute
- * for changed message to add or update in the index.
+ * The index will initially index all messages. Subsequently, messages are re-indexed in near-real-time
+ * whenever the {@code MessageService} broadcasts a message update or status change, and the
+ * changes are visible to searches as soon as the searcher has been refreshed.
+ * <p>
+ * As a safety net, the index is still reconciled every minute with messages changed since the last commit.
+ * <p>
+ * The geometry of the message parts is indexed as well, as a bounding box for fast filtering along with the
+ * WKB of the geometry for the exact intersection test. Hence, combined free-text and extent searches can be
+ * answered entirely by the index.
  * <p>
  * Note to self: Using "Hibernate Search" for message (as for AtoNs), was ruled out because it would
  * be too complex to index all related entities by language.
@@ -95,6 +121,12 @@ public class MessageLuceneIndex extends BaseService {
     final static String LUCENE_ID_FIELD             = "id";
     final static String LUCENE_SEARCH_FIELD         = "message";
     final static String LUCENE_LAST_UPDATE          = "lastUpdate";
+    final static String LUCENE_HAS_GEOMETRY_FIELD   = "hasGeometry";
+    final static String LUCENE_GEOMETRY_FIELD       = "geometry";
+    final static String LUCENE_MIN_LAT_FIELD        = "minLat";
+    final static String LUCENE_MIN_LON_FIELD        = "minLon";
+    final static String LUCENE_MAX_LAT_FIELD        = "maxLat";
+    final static String LUCENE_MAX_LON_FIELD        = "maxLon";
     final static int LUCENE_MAX_INDEX_COUNT         = 5000;
     final static int LUCENE_OPTIMIZE_INDEX_COUNT    = 5000;
     final static int LUCENE_MAX_NUM_SEGMENTS        = 4;
@@ -127,7 +159,8 @@ public class MessageLuceneIndex extends BaseService {
     NiordApp app;
 
 
-    DirectoryReader reader;
+    IndexWriter writer;
+    SearcherManager searcherManager;
     int optimizeIndexCount = 0;
     boolean allMessagesIndexed;
     private final ReentrantLock lock = new ReentrantLock();
@@ -147,8 +180,16 @@ public class MessageLuceneIndex extends BaseService {
             }
         }
 
-        // Check if we need to delete the old index on start-up
-        if (deleteOnStartup) {
+        // Open the long-lived index writer and the searcher manager
+        try {
+            openIndex();
+        } catch (IOException e) {
+            log.error("Failed opening the message index", e);
+        }
+
+        // Check if we need to delete the old index on start-up. Indexes created before
+        // the message ID was indexed as a DocValue are also deleted, and thus re-created
+        if (deleteOnStartup || !idDocValuesIndexed()) {
             try {
                 deleteIndex();
             } catch (IOException e) {
@@ -160,17 +201,41 @@ public class MessageLuceneIndex extends BaseService {
         timerService.createSingleActionTimer(5000, new TimerConfig());
     }
 
+    /**
+     * Returns if the message IDs of all indexed documents are indexed as DocValues
+     * @return if the message IDs of all indexed documents are indexed as DocValues
+     */
+    private boolean idDocValuesIndexed() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                    if (leaf.reader().numDocs() > 0 && leaf.reader().getNumericDocValues(LUCENE_ID_FIELD) == null) {
+                        return false;
+                    }
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (Exception e) {
+            log.error("Failed checking the message index", e);
+        }
+        return true;
+    }
+
     /**
      * Clean up Lucene index
      */
     @PreDestroy
     private void closeIndex() {
-        closeReader();
+        closeSearcherManager();
+        closeWriter();
     }
 
 
     /**
-     * Called when the service starts up and then every minute to update the Lucene index
+     * Called when the service starts up and then every minute to reconcile the Lucene index with
+     * messages changed since the last commit.
      * <p>
      * Note to self: It's tempting to use @Lock(WRITE) here. However, that would lock search access
      * to the index while it is being updated, and we really do not want that.
@@ -326,13 +391,44 @@ public class MessageLuceneIndex extends BaseService {
                     addPhraseSearchField(doc, searchField, desc.getCaption());
                 }
             });
+        }
+    }
 
 
-            // TODO
-            // Add geometry
-            //if (message.getGeometry() != null) {
-            //}
+    /**
+     * Adds the geometry of the message parts to the document.
+     * <p>
+     * The bounding box of the geometry is indexed as numeric fields, used for filtering messages by extent,
+     * and the geometry itself is stored as WKB in a DocValue, used for the exact intersection test.
+     *
+     * @param doc the document to add the geometry fields to
+     * @param message the message to add the geometry for
+     */
+    private void addGeometryToDocument(Document doc, Message message) {
+
+        Geometry[] geometries = message.getParts().stream()
+                .filter(p -> p.getGeometry() != null)
+                .flatMap(p -> p.getGeometry().getFeatures().stream())
+                .map(Feature::getGeometry)
+                .filter(Objects::nonNull)
+                .toArray(Geometry[]::new);
+
+        if (geometries.length == 0) {
+            doc.add(new StringField(LUCENE_HAS_GEOMETRY_FIELD, "false", Field.Store.NO));
+            return;
         }
+
+        Geometry geometry = geometries.length == 1
+                ? geometries[0]
+                : new GeometryFactory().createGeometryCollection(geometries);
+        Envelope bbox = geometry.getEnvelopeInternal();
+
+        doc.add(new StringField(LUCENE_HAS_GEOMETRY_FIELD, "true", Field.Store.NO));
+        doc.add(new DoubleField(LUCENE_MIN_LAT_FIELD, bbox.getMinY(), Field.Store.NO));
+        doc.add(new DoubleField(LUCENE_MIN_LON_FIELD, bbox.getMinX(), Field.Store.NO));
+        doc.add(new DoubleField(LUCENE_MAX_LAT_FIELD, bbox.getMaxY(), Field.Store.NO));
+        doc.add(new DoubleField(LUCENE_MAX_LON_FIELD, bbox.getMaxX(), Field.Store.NO));
+        doc.add(new BinaryDocValuesField(LUCENE_GEOMETRY_FIELD, new BytesRef(new WKBWriter().write(geometry))));
     }
 
 
@@ -356,60 +452,49 @@ public class MessageLuceneIndex extends BaseService {
 
 
     /**
-     * Returns the cached index reader, or creates one if none is defined
-     * @return the shared index reader
+     * Opens the long-lived index writer and the near-real-time searcher manager
      */
-    private DirectoryReader getIndexReader() throws IOException {
-        if (reader == null) {
-           try {
-                reader = DirectoryReader.open(FSDirectory.open(indexFolder));
-            } catch (IOException ex) {
-                log.error("Failed to open Lucene Index in folder " + indexFolder);
-                throw ex;
-            }
-        }
-        return reader;
+    private void openIndex() throws IOException {
+        writer = getNewWriter();
+        searcherManager = new SearcherManager(writer, true, null);
     }
 
 
     /**
-     * Closes the given writer
-     * @param writer the writer to close
+     * Closes the index writer
      */
-    private void closeWriter(IndexWriter writer) {
+    private void closeWriter() {
         if (writer != null) {
             try {
                 writer.close();
             } catch (IOException e) {
                 log.warn("Error closing writer");
             }
+            writer = null;
         }
     }
 
 
     /**
-     * Closes the current reader
+     * Closes the searcher manager
      */
-    private void closeReader() {
-        if (reader != null) {
+    private void closeSearcherManager() {
+        if (searcherManager != null) {
             try {
-                reader.close();
+                searcherManager.close();
             } catch (IOException e) {
-                log.warn("Error closing reader");
+                log.warn("Error closing searcher manager");
             }
-            reader = null;
+            searcherManager = null;
         }
     }
 
 
     /**
-     * Refreshes the current reader from the given writer
-     *
-     * @param writer the index writer
+     * Refreshes the searcher manager, so that index changes become visible to searches
      */
-    private void refreshReader(IndexWriter writer) throws IOException {
-        closeReader();
-        reader = DirectoryReader.open(writer, true);
+    private void refreshSearcher() throws IOException {
+        searcherManager.maybeRefresh();
     }
 
 
@@ -446,15 +531,10 @@ public class MessageLuceneIndex extends BaseService {
      */
     private void deleteIndex() throws IOException {
         // Delete the index
-        IndexWriter writer = null;
-        try {
-            writer = getNewWriter();
-            writer.deleteAll();
-            writer.setCommitData(new HashMap<>());
-            writer.commit();
-        } finally {
-            closeWriter(writer);
-        }
+        writer.deleteAll();
+        writer.setCommitData(new HashMap<>());
+        writer.commit();
+        refreshSearcher();
     }
 
 
@@ -464,12 +544,12 @@ public class MessageLuceneIndex extends BaseService {
      */
     private Date getLastUpdated() {
         try {
-            DirectoryReader reader = getIndexReader();
-            if (reader.getIndexCommit().getUserData().containsKey(LUCENE_LAST_UPDATE)) {
-                return new Date(Long.valueOf(reader.getIndexCommit().getUserData().get(LUCENE_LAST_UPDATE)));
+            Map<String, String> commitData = writer.getCommitData();
+            if (commitData.containsKey(LUCENE_LAST_UPDATE)) {
+                return new Date(Long.valueOf(commitData.get(LUCENE_LAST_UPDATE)));
             }
         } catch (Exception e) {
-            log.debug("Could not get last-updated flag from index reader");
+            log.debug("Could not get last-updated flag from index writer");
         }
         return new Date(0);
     }
@@ -499,7 +579,6 @@ public class MessageLuceneIndex extends BaseService {
         long t0 = System.currentTimeMillis();
         log.debug(String.format("Indexing at most %d changed messages since %s", maxIndexCount, lastUpdated));
 
-        IndexWriter writer = null;
         try {
             // Find all messages changed since the lastUpdated time stamp
             List<Message> updatedMessages = findUpdatedMessages(lastUpdated, maxIndexCount);
@@ -507,10 +586,6 @@ public class MessageLuceneIndex extends BaseService {
                 return 0;
             }
 
-
-            // Create a new index writer
-            writer = getNewWriter();
-
             // Update the index with the changes
             for (Message message : updatedMessages) {
                 indexMessage(writer, message);
@@ -525,8 +600,8 @@ public class MessageLuceneIndex extends BaseService {
             // Commit the changes
             writer.commit();
 
-            // Re-open the reader from the writer
-            refreshReader(writer);
+            // Make the changes visible to searches
+            refreshSearcher();
 
             // Check if we need to optimize the index
             optimizeIndexCount += updatedMessages.size();
@@ -542,8 +617,36 @@ public class MessageLuceneIndex extends BaseService {
         } catch (Exception ex) {
             log.error("Error updating Lucene index: " + ex.getMessage(), ex);
             return 0;
+        }
+    }
+
+
+    /**
+     * Re-indexes the message with the given ID in near-real-time.
+     * Called by the {@code MessageLuceneIndexListener} when a message has been updated or changed status.
+     * <p>
+     * The change is not committed, but becomes visible to searches when the searcher is refreshed.
+     * The periodic reconciliation will subsequently commit the change along with the last-updated flag.
+     *
+     * @param messageId the ID of the message to re-index
+     */
+    public void updateMessageInIndex(Integer messageId) {
+        lock.lock();
+        try {
+            long t0 = System.currentTimeMillis();
+            Message message = getByPrimaryKey(Message.class, messageId);
+            if (message == null) {
+                return;
+            }
+
+            indexMessage(writer, message);
+            refreshSearcher();
+
+            log.debug("Re-indexed message " + message.getUid() + " in " + (System.currentTimeMillis() - t0) + " ms");
+        } catch (Exception ex) {
+            log.error("Error re-indexing message " + messageId + ": " + ex.getMessage(), ex);
         } finally {
-            closeWriter(writer);
+            lock.unlock();
         }
     }
 
@@ -600,12 +703,16 @@ public class MessageLuceneIndex extends BaseService {
     private void addMessageToIndex(IndexWriter writer, Message message) {
         Document doc = new Document();
 
-        // ID field
-        doc.add(new StringField(LUCENE_ID_FIELD, message.getId().toString(), Field.Store.YES));
+        // ID field. Indexed for deleting the document, and stored as a DocValue for reading the ID of search hits
+        doc.add(new StringField(LUCENE_ID_FIELD, message.getId().toString(), Field.Store.NO));
+        doc.add(new NumericDocValuesField(LUCENE_ID_FIELD, message.getId()));
 
         // Add the message specific fields
         addMessageToDocument(doc, message);
 
+        // Add the message geometry
+        addGeometryToDocument(doc, message);
+
         // Add the document to the index
         try {
             writer.addDocument(doc);
@@ -646,16 +753,13 @@ public class MessageLuceneIndex extends BaseService {
     }
 
     /**
-     * Performs a search in the index and returns the ids of matching messages
+     * Creates a Lucene query for the given free-text search
      *
      * @param freeTextSearch the search string
      * @param language the language to search
-     * @param maxHits the max number of hits to return
-     * @return the matching ids
+     * @return the Lucene query
      */
-    public List<Long> searchIndex(String freeTextSearch, String language, int maxHits) throws IOException, ParseException {
-
-        Query query;
+    private Query createQuery(String freeTextSearch, String language) throws ParseException {
         if (StringUtils.isNotBlank(freeTextSearch)) {
             // Normalize query text
             freeTextSearch = LuceneUtils.normalizeQuery(freeTextSearch);
@@ -667,22 +771,156 @@ public class MessageLuceneIndex extends BaseService {
                     getAnalyzer());
             parser.setDefaultOperator(QueryParser.OR_OPERATOR);
             parser.setAllowLeadingWildcard(true); // NB: Expensive!
-            query = parser.parse(freeTextSearch);
+            return parser.parse(freeTextSearch);
 
         } else {
-            query = new MatchAllDocsQuery();
+            return new MatchAllDocsQuery();
+        }
+    }
+
+
+    /**
+     * Performs a search in the index and returns the ids of all matching messages as a bit set.
+     * <p>
+     * No scoring or sorting is performed.
+     *
+     * @param freeTextSearch the search string
+     * @param language the language to search
+     * @return the matching ids
+     */
+    public BitSet searchIndexIds(String freeTextSearch, String language) throws IOException, ParseException {
+        return searchIndexIds(freeTextSearch, language, null, false);
+    }
+
+
+    /**
+     * Performs a search in the index and returns the ids of all matching messages as a bit set.
+     * <p>
+     * If an extent is specified, only messages whose geometry intersects the extent are matched,
+     * along with messages without any geometry if {@code includeNoPos} is set.
+     *
+     * @param freeTextSearch the search string
+     * @param language the language to search
+     * @param extent the optional extent that the message geometry must intersect
+     * @param includeNoPos whether to include messages without geometry when an extent is specified
+     * @return the matching ids
+     */
+    public BitSet searchIndexIds(String freeTextSearch, String language, Geometry extent, boolean includeNoPos)
+            throws IOException, ParseException {
+
+        Query query = createQuery(freeTextSearch, language);
+
+        if (extent != null) {
+            query = new BooleanQuery.Builder()
+                    .add(query, Occur.MUST)
+                    .add(createExtentQuery(extent, includeNoPos), Occur.FILTER)
+                    .build();
         }
 
         // Perform the search and collect the ids
-        IndexSearcher searcher = new IndexSearcher(getIndexReader());
-        TopDocs results = searcher.search(query, maxHits);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            MessageIdCollector collector = new MessageIdCollector(extent);
+            searcher.search(query, collector);
+            return collector.getIds();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+
+    /**
+     * Creates a Lucene query that matches messages whose geometry bounding box intersects the extent,
+     * and optionally, messages with no geometry.
+     * <p>
+     * The exact intersection test is subsequently performed by the {@linkplain MessageIdCollector}.
+     *
+     * @param extent the extent that the message geometry must intersect
+     * @param includeNoPos whether to include messages without geometry
+     * @return the Lucene query
+     */
+    private Query createExtentQuery(Geometry extent, boolean includeNoPos) {
+        Envelope bbox = extent.getEnvelopeInternal();
+
+        Query bboxQuery = new BooleanQuery.Builder()
+                .add(NumericRangeQuery.newDoubleRange(LUCENE_MIN_LAT_FIELD, null, bbox.getMaxY(), true, true), Occur.FILTER)
+                .add(NumericRangeQuery.newDoubleRange(LUCENE_MAX_LAT_FIELD, bbox.getMinY(), null, true, true), Occur.FILTER)
+                .add(NumericRangeQuery.newDoubleRange(LUCENE_MIN_LON_FIELD, null, bbox.getMaxX(), true, true), Occur.FILTER)
+                .add(NumericRangeQuery.newDoubleRange(LUCENE_MAX_LON_FIELD, bbox.getMinX(), null, true, true), Occur.FILTER)
+                .build();
+
+        if (!includeNoPos) {
+            return bboxQuery;
+        }
+
+        return new BooleanQuery.Builder()
+                .add(bboxQuery, Occur.SHOULD)
+                .add(new TermQuery(new Term(LUCENE_HAS_GEOMETRY_FIELD, "false")), Occur.SHOULD)
+                .setMinimumNumberShouldMatch(1)
+                .build();
+    }
+
+
+    /**
+     * A Lucene collector that collects the message IDs of all matching documents in a bit set,
+     * without scoring the documents.
+     * <p>
+     * If an extent is specified, documents with a geometry are only collected if the geometry
+     * intersects the extent.
+     */
+    private static class MessageIdCollector extends SimpleCollector {
+
+        final BitSet ids = new BitSet();
+        final PreparedGeometry extent;
+        final WKBReader wkbReader = new WKBReader();
+        NumericDocValues idValues;
+        BinaryDocValues geometryValues;
+
+        /** Constructor **/
+        public MessageIdCollector(Geometry extent) {
+            this.extent = extent == null ? null : PreparedGeometryFactory.prepare(extent);
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            idValues = context.reader().getNumericDocValues(LUCENE_ID_FIELD);
+            geometryValues = context.reader().getBinaryDocValues(LUCENE_GEOMETRY_FIELD);
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public void collect(int doc) throws IOException {
+            if (idValues == null || (extent != null && !intersectsExtent(doc))) {
+                return;
+            }
+            ids.set((int) idValues.get(doc));
+        }
+
+        /** Returns if the geometry of the document intersects the extent. Documents without geometry are accepted **/
+        private boolean intersectsExtent(int doc) throws IOException {
+            BytesRef wkb = geometryValues != null ? geometryValues.get(doc) : null;
+            if (wkb == null || wkb.length == 0) {
+                return true;
+            }
+            try {
+                byte[] bytes = new byte[wkb.length];
+                System.arraycopy(wkb.bytes, wkb.offset, bytes, 0, wkb.length);
+                return extent.intersects(wkbReader.read(bytes));
+            } catch (com.vividsolutions.jts.io.ParseException e) {
+                throw new IOException("Invalid geometry for document " + doc, e);
+            }
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public boolean needsScores() {
+            return false;
+        }
 
-        List<Long> ids = new ArrayList<>();
-        for (ScoreDoc hit : results.scoreDocs) {
-            Document d = searcher.doc(hit.doc);
-            ids.add(Long.valueOf(d.get(LUCENE_ID_FIELD)));
+        public BitSet getIds() {
+            return ids;
         }
-        return ids;
     }
 
 
@@ -16,14 +16,17 @@
 
 package org.niord.core.message;
 
+import jdk.nashorn.api.scripting.JSObject;
+import org.niord.core.script.JsFunctionPool;
 import org.niord.model.message.MainType;
 import org.niord.model.message.Status;
 import org.niord.model.message.Type;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +34,9 @@ import java.util.stream.Collectors;
  * <p>
  * Message filter example:
  * "(msg.type == Type.TEMPORARY_NOTICE || msg.type == Type.PRELIMINARY_NOTICE) && msg.status == Status.PUBLISHED"
+ * <p>
+ * The filter is compiled once by the shared {@code JsScriptEngine}, and concurrent evaluations
+ * of the filter use separate pooled instances of the filter function.
  */
 @SuppressWarnings("unused")
 public class MessageScriptFilterEvaluator {
@@ -43,10 +49,15 @@ public class MessageScriptFilterEvaluator {
         public boolean includeMessage(Message message, Object data) {
             return false;
         }
+
+        @Override
+        public List<Message> filterMessages(List<Message> messages, Function<Message, Object> data) {
+            return new ArrayList<>();
+        }
     };
 
     private final String filter;
-    private Invocable filterFunction = null;
+    private JsFunctionPool filterFunction = null;
 
     /** Non-public constructor **/
     private MessageScriptFilterEvaluator() {
@@ -69,17 +80,18 @@ public class MessageScriptFilterEvaluator {
                 // See https://bugs.openjdk.java.net/browse/JDK-8072426
                 // So, we play it safe and import the Enums using the official Nashorn mechanism:
 
-                String jsFilter = getNashornImports()
-                                + "function includeMessage(msg, data) { return " + filter + "; }";
-
                 // Considerations: Various documentation suggests that the ScriptEngine is indeed threadsafe.
                 // However, shared state is not isolated, so, setting the parameters (msg) as
                 // script engine state and evaluating the filter directly would not work correctly.
-                // Instead, we wrap the filter in a function and call that function.
-                ScriptEngine jsEngine = new ScriptEngineManager()
-                        .getEngineByName("Nashorn");
-                jsEngine.eval(jsFilter);
-                filterFunction = (Invocable)jsEngine;
+                // Instead, we wrap the filter in an anonymous function, of which pooled instances are
+                // called. The imports are local to the function closure.
+                String filterScript = "(function() {\n"
+                        + getNashornImports()
+                        + "return function(msg, data) { return " + filter + "; };\n"
+                        + "})()";
+
+                // Compile and instantiate the filter function up-front, in order to fail early for invalid filters
+                filterFunction = new JsFunctionPool(filterScript);
             } catch (Exception e) {
                 e.printStackTrace();
                 throw new Exception("Invalid message script: " + filter);
@@ -98,6 +110,7 @@ public class MessageScriptFilterEvaluator {
                 .collect(Collectors.joining());
     }
 
+
     /**
      * Check if the message is included in the filter or not
      * @param message the message to check
@@ -108,7 +121,7 @@ public class MessageScriptFilterEvaluator {
         // Check if a message filter has been defined
         if (filterFunction != null) {
             try {
-                return  (Boolean)filterFunction.invokeFunction("includeMessage", message, data);
+                return Boolean.TRUE.equals(filterFunction.call(message, data));
             } catch (Exception ignored) {
                 // Do not include
             }
@@ -117,6 +130,49 @@ public class MessageScriptFilterEvaluator {
     }
 
 
+    /**
+     * Returns the messages of the list that are included in the filter.
+     * A single instance of the filter function is used for the entire list.
+     *
+     * @param messages the messages to filter
+     * @param data optionally, returns the data object to pass on to the filter function for a message
+     * @return the messages included in the filter
+     */
+    public List<Message> filterMessages(List<Message> messages, Function<Message, Object> data) {
+        List<Message> result = new ArrayList<>();
+        if (filterFunction == null || messages == null || messages.isEmpty()) {
+            return result;
+        }
+
+        JSObject function = null;
+        try {
+            function = filterFunction.acquire();
+            for (Message message : messages) {
+                if (includeMessage(function, message, data != null ? data.apply(message) : null)) {
+                    result.add(message);
+                }
+            }
+        } catch (ScriptException e) {
+            // Should never happen, since the filter has already been instantiated in the constructor
+            throw new RuntimeException("Invalid message script: " + filter, e);
+        } finally {
+            filterFunction.release(function);
+        }
+        return result;
+    }
+
+
+    /** Calls the filter function for the given message **/
+    private boolean includeMessage(JSObject function, Message message, Object data) {
+        try {
+            return Boolean.TRUE.equals(function.call(null, message, data));
+        } catch (Exception ignored) {
+            // Do not include
+            return false;
+        }
+    }
+
+
     public String getFilter() {
         return filter;
     }
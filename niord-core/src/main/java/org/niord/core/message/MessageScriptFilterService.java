@@ -24,8 +24,10 @@ import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Maintains and caches a list of MessageScriptFilterEvaluator used for evaluating message inclusion
@@ -53,6 +55,28 @@ public class MessageScriptFilterService extends BaseService {
      * @return if the message is included in the filter or not
      */
     public boolean includeMessage(String filter, Message message, Object data) {
+        return getEvaluator(filter).includeMessage(message, data);
+    }
+
+
+    /**
+     * Returns the messages of the list that are included in the filter
+     * @param filter the filter
+     * @param messages the messages to filter
+     * @param data optionally, returns the data object to pass on to the filter function for a message
+     * @return the messages included in the filter
+     */
+    public List<Message> filterMessages(String filter, List<Message> messages, Function<Message, Object> data) {
+        return getEvaluator(filter).filterMessages(messages, data);
+    }
+
+
+    /**
+     * Looks up or creates the evaluator for the filter
+     * @param filter the filter
+     * @return the evaluator for the filter
+     */
+    private MessageScriptFilterEvaluator getEvaluator(String filter) {
 
         filter = StringUtils.defaultIfBlank(filter, "");
 
@@ -73,8 +97,7 @@ public class MessageScriptFilterService extends BaseService {
                 }
             }
         }
-
-        return evaluator.includeMessage(message, data);
+        return evaluator;
     }
 
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.niord.core.cache.BaseCache;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Caches the total result count of message searches with a default timeout of 1 minute.
+ * <p>
+ * The cache is keyed by {@linkplain MessageSearchParams#getCountKey()}, which only includes
+ * the filter criteria of the search, so paging through a search result will only
+ * compute the total result count once.
+ * <p>
+ * The key is prefixed by the {@linkplain MessageChangeTracker} version, which is bumped once
+ * a transaction saving a message has been committed, so stale counts are never returned.
+ */
+@ApplicationScoped
+public class MessageSearchCountCache extends BaseCache<String, Long> {
+
+    final static long LIFESPAN      = 60 * 1000;    // 1 minute
+    final static String CACHE_ID    = "messageSearchCountCache";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCacheId() {
+        return CACHE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Configuration createCacheConfiguration() {
+        return new ConfigurationBuilder()
+                .clustering().cacheMode(CacheMode.LOCAL)
+                .locking().isolationLevel(IsolationLevel.REPEATABLE_READ)
+                .expiration().lifespan(LIFESPAN)
+                .build();
+    }
+
+}
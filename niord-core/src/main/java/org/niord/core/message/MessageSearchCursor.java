@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.message;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.model.search.PagedSearchParamsVo.SortOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Defines an opaque continuation token used for keyset (cursor) pagination of message searches.
+ * <p>
+ * The cursor encodes the sort key values and the ID of the last message of a page, along with the
+ * sort criteria. The next page is then fetched by selecting the messages that sort after these values,
+ * rather than by skipping a number of rows.
+ */
+public class MessageSearchCursor {
+
+    private static final String SEPARATOR = "|";
+
+    final String sortBy;
+    final SortOrder sortOrder;
+    final List<Object> values;
+
+
+    /**
+     * Constructor
+     * @param sortBy the sort by field of the search
+     * @param sortOrder the sort order of the search
+     * @param values the sort key values of the last message of the page, with the message ID as the last value
+     */
+    public MessageSearchCursor(String sortBy, SortOrder sortOrder, List<Object> values) {
+        this.sortBy = StringUtils.defaultString(sortBy).toLowerCase();
+        this.sortOrder = sortOrder == null ? SortOrder.ASC : sortOrder;
+        this.values = values == null ? Collections.emptyList() : values;
+    }
+
+
+    /**
+     * Returns whether the cursor is valid for the sort criteria of the given search parameters
+     * @param params the search parameters
+     * @return whether the cursor is valid for the sort criteria of the given search parameters
+     */
+    public boolean matches(MessageSearchParams params) {
+        SortOrder paramSortOrder = params.getSortOrder() == null ? SortOrder.ASC : params.getSortOrder();
+        return sortBy.equalsIgnoreCase(StringUtils.defaultString(params.getSortBy()))
+                && sortOrder == paramSortOrder
+                && !values.isEmpty();
+    }
+
+
+    /**
+     * Encodes the cursor as an opaque URL-safe token
+     * @return the encoded cursor
+     */
+    public String encode() {
+        List<String> tokens = new ArrayList<>();
+        tokens.add(sortBy);
+        tokens.add(sortOrder.name());
+        values.forEach(v -> tokens.add(encodeValue(v)));
+        String cursor = tokens.stream().collect(Collectors.joining(SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Decodes the cursor from an opaque token produced by {@linkplain #encode()}
+     * @param cursor the encoded cursor
+     * @return the decoded cursor
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public static MessageSearchCursor decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            throw new InvalidCursorException("Undefined cursor");
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] tokens = StringUtils.splitPreserveAllTokens(decoded, SEPARATOR);
+            if (tokens.length < 3) {
+                throw new InvalidCursorException("Invalid cursor " + cursor);
+            }
+            List<Object> values = new ArrayList<>();
+            for (int x = 2; x < tokens.length; x++) {
+                values.add(decodeValue(tokens[x]));
+            }
+            return new MessageSearchCursor(tokens[0], SortOrder.valueOf(tokens[1]), values);
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidCursorException("Invalid cursor " + cursor, e);
+        }
+    }
+
+
+    /** Encodes a sort key value with a type prefix **/
+    private static String encodeValue(Object value) {
+        if (value == null) {
+            return "n";
+        } else if (value instanceof Date) {
+            return "d" + ((Date) value).getTime();
+        } else if (value instanceof Integer) {
+            return "i" + value;
+        } else if (value instanceof Long) {
+            return "l" + value;
+        } else if (value instanceof Number) {
+            return "f" + ((Number) value).doubleValue();
+        }
+        throw new IllegalArgumentException("Unsupported cursor value " + value);
+    }
+
+
+    /** Decodes a sort key value with a type prefix **/
+    private static Object decodeValue(String value) {
+        String v = value.substring(1);
+        switch (value.charAt(0)) {
+            case 'n': return null;
+            case 'd': return new Date(Long.valueOf(v));
+            case 'i': return Integer.valueOf(v);
+            case 'l': return Long.valueOf(v);
+            case 'f': return Double.valueOf(v);
+        }
+        throw new IllegalArgumentException("Unsupported cursor value " + value);
+    }
+
+
+    /*************************/
+    /** Getters and Setters **/
+    /*************************/
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+}
@@ -104,6 +104,10 @@ public class MessageSearchParams extends PagedSearchParamsVo {
     // If an extent is specified, use this to fetch messages with no geometry
     Boolean includeNoPos;
 
+    // Keyset (cursor) pagination, used instead of page-based pagination
+    boolean cursorPaging;
+    String cursor;
+
 
     /**
      * Returns a MessageSearchParams initialized with parameter values from a URL using "default" parameter names
@@ -214,6 +218,11 @@ public class MessageSearchParams extends PagedSearchParamsVo {
         return isNotBlank(query);
     }
 
+    /** Returns whether to use keyset (cursor) pagination rather than page-based pagination */
+    public boolean requiresCursorPaging() {
+        return cursorPaging || isNotBlank(cursor);
+    }
+
     /** Returns whether to sort by ID or not */
     public boolean sortById() {
         return "id".equalsIgnoreCase(sortBy);
@@ -301,6 +310,57 @@ public class MessageSearchParams extends PagedSearchParamsVo {
         return desc.stream().collect(Collectors.joining(", "));
     }
 
+    /**
+     * Returns a key that uniquely identifies the filter criteria of the search, i.e. excluding
+     * the paging and sorting parameters. Used for caching the total result count of the search.
+     * <p>
+     * Returns null if the result count depends on the current user, and thus cannot be cached.
+     *
+     * @return a key that uniquely identifies the filter criteria of the search
+     */
+    public String getCountKey() {
+        if (commentsType == CommentsType.OWN || commentsType == CommentsType.OWN_UNACK) {
+            return null;
+        }
+        List<String> key = new ArrayList<>();
+        key.add(language);
+        key.add(query);
+        key.add(messageId);
+        key.add(String.valueOf(referenceLevels));
+        key.add(from == null ? null : String.valueOf(from.getTime()));
+        key.add(to == null ? null : String.valueOf(to.getTime()));
+        key.add(String.valueOf(dateType));
+        key.add(updatedFrom == null ? null : String.valueOf(updatedFrom.getTime()));
+        key.add(updatedTo == null ? null : String.valueOf(updatedTo.getTime()));
+        key.add(username);
+        key.add(String.valueOf(userType));
+        key.add(String.valueOf(commentsType));
+        key.add(sortedValues(statuses));
+        key.add(sortedValues(types));
+        key.add(sortedValues(mainTypes));
+        key.add(sortedValues(seriesIds));
+        key.add(sortedValues(areaIds));
+        key.add(sortedValues(categoryIds));
+        key.add(sortedValues(chartNumbers));
+        key.add(sortedValues(tags));
+        key.add(sortedValues(promulgationTypes));
+        key.add(extent == null ? null : extent.toText());
+        key.add(String.valueOf(includeNoPos));
+        return key.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining("|"));
+    }
+
+
+    /** Returns a sorted string representation of the values **/
+    private static String sortedValues(Set<?> values) {
+        return values == null ? "" : values.stream()
+                .map(String::valueOf)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+
     /*******************************************/
     /** Method chaining Getters and Setters   **/
     /*******************************************/
@@ -554,4 +614,22 @@ public class MessageSearchParams extends PagedSearchParamsVo {
         this.viewMode = viewMode;
         return this;
     }
+
+    public boolean isCursorPaging() {
+        return cursorPaging;
+    }
+
+    public MessageSearchParams cursorPaging(boolean cursorPaging) {
+        this.cursorPaging = cursorPaging;
+        return this;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public MessageSearchParams cursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
 }
@@ -57,6 +57,7 @@ import org.niord.model.search.PagedSearchResultVo;
 import org.slf4j.Logger;
 
 import javax.annotation.Resource;
+import javax.ejb.EJBException;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
@@ -77,7 +78,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -160,6 +160,12 @@ public class MessageService extends BaseService {
     @Inject
     PromulgationManager promulgationManager;
 
+    @Inject
+    MessageSearchCountCache messageSearchCountCache;
+
+    @Inject
+    MessageChangeTracker messageChangeTracker;
+
 
     /***************************************/
     /** Message Look-up                   **/
@@ -353,6 +359,9 @@ public class MessageService extends BaseService {
         // Save the message
         message = saveEntity(message);
 
+        // Invalidate the cached message search result counts, once the transaction has been committed
+        messageChangeTracker.messageChanged();
+
         // Save a MessageHistory entity for the message
         saveHistory(message);
 
@@ -422,6 +431,10 @@ public class MessageService extends BaseService {
         log.info("Saved message " + message.getUid());
 
         em.flush();
+
+        // Broadcast the change to any listener
+        sendMessageUpdate(message);
+
         return message;
     }
 
@@ -544,6 +557,10 @@ public class MessageService extends BaseService {
         log.info("Updated message " + original);
 
         em.flush();
+
+        // Broadcast the change to any listener
+        sendMessageUpdate(original);
+
         return original;
     }
 
@@ -623,6 +640,40 @@ public class MessageService extends BaseService {
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     public Message updateStatus(String uid, Status status) throws Exception {
+        return doUpdateStatus(uid, status);
+    }
+
+
+    /**
+     * Updates the status of the given messages in a single transaction.
+     * <p>
+     * If the status of any of the messages cannot be updated, the entire transaction is rolled back.
+     *
+     * @param uids the UIDs of the messages
+     * @param status    the status
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public List<Message> updateStatus(List<String> uids, Status status) {
+        List<Message> messages = new ArrayList<>();
+        for (String uid : uids) {
+            try {
+                messages.add(doUpdateStatus(uid, status));
+            } catch (Exception e) {
+                // Throw a system exception, in order to roll back the transaction
+                throw new EJBException("Failed updating status of message " + uid + " to " + status, e);
+            }
+        }
+        return messages;
+    }
+
+
+    /**
+     * Updates the status of the given message within the current transaction
+     *
+     * @param uid the UID of the message
+     * @param status    the status
+     */
+    private Message doUpdateStatus(String uid, Status status) throws Exception {
         Date now = new Date();
         Message message = findByUid(uid);
         Status prevStatus = message.getStatus();
@@ -699,18 +750,52 @@ public class MessageService extends BaseService {
 
 
     /**
-     * Broadcasts a JMS message to indicate that the message status has changed
+     * Broadcasts a JMS message to indicate that the message status has changed,
+     * and bumps the message change version.
+     * <p>
+     * The JMS message has the "EVENT_TYPE" property set to "STATUS".
+     *
      * @param message the message
      * @param prevStatus the previous status
      */
     private void sendStatusUpdate(Message message, Status prevStatus) {
+        messageChangeTracker.messageChanged();
+
         Map<String, Object> body = new HashMap<>();
         body.put("ID", message.getId());
         body.put("UID", message.getUid());
         body.put("STATUS", message.getStatus().name());
         body.put("PREV_STATUS", prevStatus.name());
         try {
-            jmsContext.createProducer().send(messageStatusTopic, body);
+            jmsContext.createProducer()
+                    .setProperty("EVENT_TYPE", "STATUS")
+                    .send(messageStatusTopic, body);
+        } catch (Exception e) {
+            log.error("Failed sending JMS: " + e, e);
+        }
+    }
+
+
+    /**
+     * Broadcasts a JMS message to indicate that the message has been created or updated,
+     * and bumps the message change version.
+     * <p>
+     * The JMS message has the "EVENT_TYPE" property set to "UPDATE", so that listeners only
+     * interested in status changes can filter out these messages using a message selector.
+     *
+     * @param message the message
+     */
+    private void sendMessageUpdate(Message message) {
+        messageChangeTracker.messageChanged();
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("ID", message.getId());
+        body.put("UID", message.getUid());
+        body.put("STATUS", message.getStatus().name());
+        try {
+            jmsContext.createProducer()
+                    .setProperty("EVENT_TYPE", "UPDATE")
+                    .send(messageStatusTopic, body);
         } catch (Exception e) {
             log.error("Failed sending JMS: " + e, e);
         }
@@ -918,6 +1003,7 @@ public class MessageService extends BaseService {
      * Main message search function
      * @param params the search parameters
      * @return the search result
+     * @throws InvalidCursorException if the search cursor is invalid or does not match the sort order
      */
     public PagedSearchResultVo<Message> search(MessageSearchParams params) {
 
@@ -932,6 +1018,9 @@ public class MessageService extends BaseService {
             result.setData(messages);
             result.updateSize();
 
+        } catch (InvalidCursorException e) {
+            // Reported to the client, e.g. as a "400 Bad Request" response
+            throw e;
         } catch (Exception e) {
             log.error("Error performing search " + params + ": " + e, e);
         }
@@ -941,7 +1030,12 @@ public class MessageService extends BaseService {
 
 
     /**
-     * Returns the message with the given IDs
+     * Returns the message with the given IDs, sorted in the same order as the IDs.
+     * <p>
+     * The messages are loaded in chunks, to limit the size of the SQL "in" clauses.
+     * Also, the lazy message collections are batch-fetched (see the {@code @BatchSize}
+     * annotations of {@code Message}), so converting the messages to value objects
+     * only requires a fixed number of SQL queries.
      *
      * @param ids the message IDs
      * @return the message with the given IDs
@@ -952,20 +1046,33 @@ public class MessageService extends BaseService {
             return Collections.emptyList();
         }
 
-        List<Message> messages = em.createNamedQuery("Message.findByIds", Message.class)
-                .setParameter("ids", ids)
-                .getResultList();
+        // Register the position of each message ID, used for sorting the result
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int x = 0; x < ids.size(); x++) {
+            positions.putIfAbsent(ids.get(x), x);
+        }
 
-        // Sort the result according to the order of the messages in the ID list
-        messages.sort(Comparator.comparingInt(m -> ids.indexOf(m.getId())));
+        // Load the messages in chunks and place them according to the order of the messages in the ID list
+        Message[] messages = new Message[ids.size()];
+        for (List<Integer> chunk : partition(ids, MAX_IN_CLAUSE_SIZE)) {
+            em.createNamedQuery("Message.findByIds", Message.class)
+                    .setParameter("ids", chunk)
+                    .getResultList()
+                    .forEach(m -> messages[positions.get(m.getId())] = m);
+        }
 
-        return messages;
+        return Arrays.stream(messages)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
 
     /**
      * Searches out the ID's of the paged result set of messages defined by the search parameters.
      * Also fills out the total result count of the message search result.
+     * <p>
+     * The paging is performed by the database, and the total result count is computed
+     * using a separate count query, which is cached in the {@code MessageSearchCountCache}.
      *
      * @param param the search parameters
      * @param result the search result to update with the total result count
@@ -974,6 +1081,10 @@ public class MessageService extends BaseService {
     @SuppressWarnings("all")
     List<Integer> searchPagedMessageIds(MessageSearchParams param, PagedSearchResultVo<Message> result) throws Exception {
 
+        // Resolve the message ID filters once, since they are used for both the ID and count queries
+        List<Integer> luceneIds = param.requiresLuceneSearch() ? searchLuceneIds(param) : null;
+        Set<Integer> referencedIds = StringUtils.isNotBlank(param.getMessageId()) ? findReferencedIds(param) : null;
+
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<Tuple> tupleQuery = builder.createTupleQuery();
 
@@ -981,7 +1092,241 @@ public class MessageService extends BaseService {
         Root<Message> msgRoot = tupleQuery.from(Message.class);
 
         // Build the predicates based on the search parameters
-        CriteriaHelper<Tuple> criteriaHelper = CriteriaHelper.initWithTupleQuery(em)
+        Predicate[] where = buildSearchPredicates(builder, tupleQuery, msgRoot, param, luceneIds, referencedIds);
+
+        // Determine the fields to sort by. The message ID is always added as the final sort field
+        List<Expression<?>> sortFields = new ArrayList<>();
+        if (param.sortByEventDate()) {
+            sortFields.add(msgRoot.get("eventDateFrom"));
+            sortFields.add(msgRoot.get("eventDateTo"));
+        } else if (param.sortByPublishDate()) {
+            sortFields.add(msgRoot.get("publishDateFrom"));
+            sortFields.add(msgRoot.get("publishDateTo"));
+        } else if (param.sortByFollowUpDate()) {
+            sortFields.add(msgRoot.get("followUpDate"));
+        } else if (param.sortById()) {
+            sortFields.add(msgRoot.get("year"));
+            sortFields.add(msgRoot.get("number"));
+            sortFields.add(msgRoot.get("publishDateFrom"));
+        } else if (param.sortByArea()) {
+            Join<Message, Area> areaRoot = msgRoot.join("area", JoinType.LEFT);
+            // General messages (without an associated area) should be sorted last
+            Expression<?> treeSortOrder = builder.selectCase()
+                    .when(builder.isNull(areaRoot.get("treeSortOrder")), 999999)
+                    .otherwise(areaRoot.get("treeSortOrder"));
+            sortFields.add(treeSortOrder);
+            sortFields.add(msgRoot.get("areaSortOrder"));
+            sortFields.add(msgRoot.get("year"));
+            sortFields.add(msgRoot.get("number"));
+        }
+        sortFields.add(msgRoot.get("id"));
+        boolean ascending = param.getSortOrder() == SortOrder.ASC;
+
+        // When using keyset pagination, only fetch messages that sort after the cursor
+        boolean cursorPaging = param.requiresCursorPaging();
+        if (cursorPaging && StringUtils.isNotBlank(param.getCursor())) {
+            MessageSearchCursor cursor = MessageSearchCursor.decode(param.getCursor());
+            if (!cursor.matches(param) || cursor.getValues().size() != sortFields.size()) {
+                throw new InvalidCursorException("Cursor does not match the search sort order " + param.getCursor());
+            }
+            Predicate[] cursorWhere = Arrays.copyOf(where, where.length + 1);
+            cursorWhere[where.length] = keysetPredicate(builder, sortFields, cursor.getValues(), ascending);
+            where = cursorWhere;
+        }
+
+        // Fetch the message id (first field) and fields used for sorting
+        List<Selection<?>> fields = new ArrayList<>();
+        fields.add(msgRoot.get("id"));
+        fields.addAll(sortFields.subList(0, sortFields.size() - 1));
+        Selection[] f = fields.toArray(new Selection<?>[fields.size()]);
+
+        // Complete the query and fetch the message id's (and fields used for sorting)
+        tupleQuery.multiselect(f)
+                .distinct(true)
+                .where(where);
+
+        // Sort the query
+        tupleQuery.orderBy(sortFields.stream()
+                .map(e -> ascending ? builder.asc(e) : builder.desc(e))
+                .collect(Collectors.toList()));
+
+        // Execute the paged query
+        int maxSize = Math.max(0, param.getMaxSize());
+        int startIndex = cursorPaging ? 0 : (int) Math.min(Integer.MAX_VALUE, (long) param.getPage() * (long) maxSize);
+        int fetchSize = cursorPaging && maxSize < Integer.MAX_VALUE ? maxSize + 1 : maxSize;
+        List<Tuple> tuples = em
+                .createQuery(tupleQuery)
+                .setFirstResult(startIndex)
+                .setMaxResults(fetchSize)
+                .getResultList();
+
+        // With keyset pagination, the total result count is not computed.
+        // Instead, if there are more messages, return a cursor pointing to the last message of the page
+        if (cursorPaging) {
+            if (tuples.size() > maxSize) {
+                tuples = tuples.subList(0, maxSize);
+                Tuple last = tuples.get(maxSize - 1);
+                List<Object> values = new ArrayList<>();
+                for (int x = 1; x < fields.size(); x++) {
+                    values.add(last.get(x));
+                }
+                values.add(last.get(0));
+                result.setNextCursor(new MessageSearchCursor(param.getSortBy(), param.getSortOrder(), values).encode());
+            }
+            result.setTotal(tuples.size());
+            return tuples.stream()
+                    .map(t -> (Integer) t.get(0))
+                    .collect(Collectors.toList());
+        }
+
+        List<Integer> msgIds = tuples.stream()
+                .map(t -> (Integer) t.get(0))
+                .collect(Collectors.toList());
+
+        // Register the total result. If the first page is not full, the page defines the total result
+        if (startIndex == 0 && msgIds.size() < maxSize) {
+            result.setTotal(msgIds.size());
+        } else {
+            result.setTotal(countMessages(param, luceneIds, referencedIds));
+        }
+
+        return msgIds;
+    }
+
+
+    /**
+     * Returns a keyset predicate that selects the rows sorting after the given values of the sort fields.
+     * <p>
+     * For sort fields (f1, f2, ..., id) and values (v1, v2, ..., vid), the predicate is:
+     * f1 after v1 or (f1 = v1 and (f2 after v2 or (f2 = v2 and ... id after vid)))
+     * <p>
+     * NB: Null values are treated as in MySQL, i.e. they sort first in ascending order and last in descending order.
+     *
+     * @param builder the criteria builder
+     * @param sortFields the sort fields
+     * @param values the values of the sort fields of the last row of the previous page
+     * @param ascending whether the sort order is ascending or not
+     * @return the keyset predicate
+     */
+    @SuppressWarnings("unchecked")
+    private Predicate keysetPredicate(CriteriaBuilder builder, List<Expression<?>> sortFields, List<Object> values, boolean ascending) {
+        Predicate predicate = null;
+        for (int x = sortFields.size() - 1; x >= 0; x--) {
+            Expression<Comparable> field = (Expression<Comparable>) sortFields.get(x);
+            Comparable value = (Comparable) values.get(x);
+
+            Predicate after;
+            Predicate equal;
+            if (value == null) {
+                after = ascending ? builder.isNotNull(field) : builder.disjunction();
+                equal = builder.isNull(field);
+            } else {
+                after = ascending
+                        ? builder.greaterThan(field, value)
+                        : builder.or(builder.lessThan(field, value), builder.isNull(field));
+                equal = builder.equal(field, value);
+            }
+
+            predicate = predicate == null
+                    ? after
+                    : builder.or(after, builder.and(equal, predicate));
+        }
+        return predicate;
+    }
+
+
+    /**
+     * Computes the total number of messages matching the search parameters.
+     * The result is cached in the {@code MessageSearchCountCache}, keyed by the current message change
+     * version, so that counts computed before a message change has been committed are never re-used.
+     *
+     * @param param the search parameters
+     * @param luceneIds if defined, the IDs of messages matching the Lucene free-text search
+     * @param referencedIds if defined, the IDs of messages referenced by the message ID filter
+     * @return the total number of messages matching the search parameters
+     */
+    private long countMessages(MessageSearchParams param, List<Integer> luceneIds, Set<Integer> referencedIds) {
+
+        String countKey = param.getCountKey() == null
+                ? null
+                : messageChangeTracker.getVersion() + ":" + param.getCountKey();
+        Long count = countKey == null ? null : messageSearchCountCache.getCache().get(countKey);
+        if (count != null) {
+            return count;
+        }
+
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+        Root<Message> msgRoot = countQuery.from(Message.class);
+
+        countQuery.select(builder.countDistinct(msgRoot))
+                .where(buildSearchPredicates(builder, countQuery, msgRoot, param, luceneIds, referencedIds));
+
+        count = em.createQuery(countQuery).getSingleResult();
+
+        if (countKey != null) {
+            messageSearchCountCache.getCache().put(countKey, count);
+        }
+        return count;
+    }
+
+
+    /**
+     * Returns the IDs of the messages matching the Lucene free-text search of the search parameters.
+     * <p>
+     * If an extent is specified, the extent is also matched by the Lucene index.
+     *
+     * @param param the search parameters
+     * @return the IDs of the messages matching the Lucene free-text search
+     */
+    private List<Integer> searchLuceneIds(MessageSearchParams param) {
+        try {
+            boolean includeNoPos = param.getIncludeNoPos() != null && param.getIncludeNoPos();
+            return messageLuceneIndex.searchIndexIds(param.getQuery(), param.getLanguage(), param.getExtent(), includeNoPos)
+                    .stream()
+                    .boxed()
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.warn("Error searching lucene index for query " + param.getQuery());
+            return Collections.emptyList();
+        }
+    }
+
+
+    /**
+     * Returns the IDs of the messages referenced by, or referencing, the message ID of the search parameters
+     * @param param the search parameters
+     * @return the IDs of the messages referenced by, or referencing, the message ID
+     */
+    private Set<Integer> findReferencedIds(MessageSearchParams param) {
+        int levels = param.getReferenceLevels() == null ? 1 : param.getReferenceLevels();
+        // NB: This is expensive queries - limit the levels
+        levels = Math.max(0, Math.min(5, levels));
+        // First, find messages referenced by the message ID
+        Set<Integer> referencedIds = findReferencedMessageIds(new HashSet<>(), param.getMessageId(), levels);
+        // Next, add messages referencing the message ID
+        findReferencingMessageIds(referencedIds, param.getMessageId(), levels);
+        return referencedIds;
+    }
+
+
+    /**
+     * Builds the list of predicates used for filtering messages based on the search parameters.
+     * Used for both the message ID query and the message count query.
+     *
+     * @param builder the criteria builder
+     * @param query the criteria query
+     * @param msgRoot the message root of the query
+     * @param param the search parameters
+     * @param luceneIds if defined, the IDs of messages matching the Lucene free-text search
+     * @param referencedIds if defined, the IDs of messages referenced by the message ID filter
+     * @return the list of predicates
+     */
+    @SuppressWarnings("all")
+    private <T> Predicate[] buildSearchPredicates(CriteriaBuilder builder, CriteriaQuery<T> query, Root<Message> msgRoot,
+                                                  MessageSearchParams param, List<Integer> luceneIds, Set<Integer> referencedIds) {
+
+        CriteriaHelper<T> criteriaHelper = new CriteriaHelper<>(builder, query)
                 .between(msgRoot.get("updated"), param.getUpdatedFrom(), param.getUpdatedTo());
 
 
@@ -1030,15 +1375,8 @@ public class MessageService extends BaseService {
 
 
         // Search the Lucene index for free text search
-        if (param.requiresLuceneSearch()) {
-            List<Long> ids = null;
-            try {
-                ids = messageLuceneIndex.searchIndex(param.getQuery(), param.getLanguage(), Integer.MAX_VALUE);
-            } catch (Exception e) {
-                log.warn("Error searching lucene index for query " + param.getQuery());
-                ids = Collections.emptyList();
-            }
-            criteriaHelper.in(msgRoot.get("id"), ids);
+        if (luceneIds != null) {
+            criteriaHelper.in(msgRoot.get("id"), luceneIds, MAX_IN_CLAUSE_SIZE);
         }
 
 
@@ -1084,8 +1422,8 @@ public class MessageService extends BaseService {
         }
 
 
-        // Geometry
-        if (param.getExtent() != null) {
+        // Geometry. When combined with a free-text search, the extent has already been matched by the Lucene index
+        if (param.getExtent() != null && luceneIds == null) {
             param.getExtent().setSRID(WGS84_SRID);
             Join<Message, MessagePart> partRoot = msgRoot.join("parts", JoinType.LEFT);
             Join<Message, FeatureCollection> fcRoot = partRoot.join("geometry", JoinType.LEFT);
@@ -1152,14 +1490,7 @@ public class MessageService extends BaseService {
 
 
         // Refenced messages
-        if (StringUtils.isNotBlank(param.getMessageId())) {
-            int levels = param.getReferenceLevels() == null ? 1 : param.getReferenceLevels();
-            // NB: This is expensive queries - limit the levels
-            levels = Math.max(0, Math.min(5, levels));
-            // First, find messages referenced by the message ID
-            Set<Integer> referencedIds = findReferencedMessageIds(new HashSet<>(), param.getMessageId(), levels);
-            // Next, add messages referencing the message ID
-            findReferencingMessageIds(referencedIds, param.getMessageId(), levels);
+        if (referencedIds != null) {
             criteriaHelper.in(msgRoot.get("id"), referencedIds);
         }
 
@@ -1172,125 +1503,7 @@ public class MessageService extends BaseService {
             criteriaHelper.in(promulgationTypeJoin.get("typeId"), param.getPromulgationTypes());
         }
 
-
-        // Determine the fields to fetch
-        Join<Message, Area> areaRoot = null;
-        Expression<?> treeSortOrder = null;
-        List<Selection<?>> fields = new ArrayList<>();
-        fields.add(msgRoot.get("id"));
-        if (param.sortByEventDate()) {
-            fields.add(msgRoot.get("eventDateFrom"));
-            fields.add(msgRoot.get("eventDateTo"));
-        } else if (param.sortByPublishDate()) {
-            fields.add(msgRoot.get("publishDateFrom"));
-            fields.add(msgRoot.get("publishDateTo"));
-        } else if (param.sortByFollowUpDate()) {
-            fields.add(msgRoot.get("followUpDate"));
-        } else if (param.sortById()) {
-            fields.add(msgRoot.get("year"));
-            fields.add(msgRoot.get("number"));
-            fields.add(msgRoot.get("publishDateFrom"));
-        } else if (param.sortByArea()) {
-            areaRoot = msgRoot.join("area", JoinType.LEFT);
-            // General messages (without an associated area) should be sorted last
-            treeSortOrder = builder.selectCase()
-                    .when(builder.isNull(areaRoot.get("treeSortOrder")), 999999)
-                    .otherwise(areaRoot.get("treeSortOrder"));
-            fields.add(treeSortOrder);
-            fields.add(msgRoot.get("areaSortOrder"));
-            fields.add(msgRoot.get("year"));
-            fields.add(msgRoot.get("number"));
-        }
-        Selection[] f = fields.toArray(new Selection<?>[fields.size()]);
-
-        // Complete the query and fetch the message id's (and fields used for sorting)
-        tupleQuery.multiselect(f)
-                .distinct(true)
-                .where(criteriaHelper.where());
-
-        // Sort the query
-        if (param.sortByEventDate()) {
-            if (param.getSortOrder() == SortOrder.ASC) {
-                tupleQuery.orderBy(
-                        builder.asc(msgRoot.get("eventDateFrom")),
-                        builder.asc(msgRoot.get("eventDateTo")),
-                        builder.asc(msgRoot.get("id")));
-            } else {
-                tupleQuery.orderBy(
-                        builder.desc(msgRoot.get("eventDateFrom")),
-                        builder.desc(msgRoot.get("eventDateTo")),
-                        builder.desc(msgRoot.get("id")));
-            }
-        } else if (param.sortByPublishDate()) {
-            if (param.getSortOrder() == SortOrder.ASC) {
-                tupleQuery.orderBy(
-                        builder.asc(msgRoot.get("publishDateFrom")),
-                        builder.asc(msgRoot.get("publishDateTo")),
-                        builder.asc(msgRoot.get("id")));
-            } else {
-                tupleQuery.orderBy(
-                        builder.desc(msgRoot.get("publishDateFrom")),
-                        builder.desc(msgRoot.get("publishDateTo")),
-                        builder.desc(msgRoot.get("id")));
-            }
-        } else if (param.sortByFollowUpDate()) {
-            if (param.getSortOrder() == SortOrder.ASC) {
-                tupleQuery.orderBy(
-                        builder.asc(msgRoot.get("followUpDate")),
-                        builder.asc(msgRoot.get("id")));
-            } else {
-                tupleQuery.orderBy(
-                        builder.desc(msgRoot.get("followUpDate")),
-                        builder.desc(msgRoot.get("id")));
-            }
-        } else if (param.sortById()) {
-            if (param.getSortOrder() == SortOrder.ASC) {
-                tupleQuery.orderBy(
-                        builder.asc(msgRoot.get("year")),
-                        builder.asc(msgRoot.get("number")),
-                        builder.asc(msgRoot.get("publishDateFrom")),
-                        builder.asc(msgRoot.get("id")));
-            } else {
-                tupleQuery.orderBy(
-                        builder.desc(msgRoot.get("year")),
-                        builder.desc(msgRoot.get("number")),
-                        builder.desc(msgRoot.get("publishDateFrom")),
-                        builder.desc(msgRoot.get("id")));
-            }
-        } else if (param.sortByArea()) {
-            if (param.getSortOrder() == SortOrder.ASC) {
-                tupleQuery.orderBy(
-                        builder.asc(treeSortOrder),
-                        builder.asc(msgRoot.get("areaSortOrder")),
-                        builder.asc(msgRoot.get("year")),
-                        builder.asc(msgRoot.get("number")),
-                        builder.asc(msgRoot.get("id")));
-            } else {
-                tupleQuery.orderBy(
-                        builder.desc(treeSortOrder),
-                        builder.desc(msgRoot.get("areaSortOrder")),
-                        builder.desc(msgRoot.get("year")),
-                        builder.desc(msgRoot.get("number")),
-                        builder.desc(msgRoot.get("id")));
-            }
-        }
-
-        // Execute the query
-        List<Tuple> totalResult = em
-                .createQuery(tupleQuery)
-                .getResultList();
-
-        // Register the total result
-        result.setTotal(totalResult.size());
-
-        List<Integer> msgIds = totalResult.stream()
-                .map(t -> (Integer) t.get(0))
-                .collect(Collectors.toList());
-
-        // Extract and return the paged sub-list
-        int startIndex = Math.min(msgIds.size(), param.getPage() * param.getMaxSize());
-        int endIndex = Math.min(msgIds.size(), startIndex + param.getMaxSize());
-        return msgIds.subList(startIndex, endIndex);
+        return criteriaHelper.where();
     }
 
 
@@ -1340,20 +1553,30 @@ public class MessageService extends BaseService {
     private Set<Integer> findReferencingMessageIds(Set<Integer> result, Message message, int levels) {
         result.add(message.getId());
         if (levels > 0) {
-            Set<String> messageIds = new HashSet<>();
-            messageIds.add(message.getUid());
-            if (message.getShortId() != null) {
-                messageIds.add(message.getShortId().toLowerCase());
-            }
-            em.createNamedQuery("Message.findByReference", Message.class)
-                    .setParameter("messageIds", messageIds)
-                    .getResultList()
+            findReferencingMessages(message)
                     .forEach(msg -> findReferencingMessageIds(result, msg, levels - 1));
         }
         return result;
     }
 
 
+    /**
+     * Returns the messages that reference the given message, either by UID or by short ID
+     * @param message the message to find referencing messages for
+     * @return the messages that reference the given message
+     */
+    public List<Message> findReferencingMessages(Message message) {
+        Set<String> messageIds = new HashSet<>();
+        messageIds.add(message.getUid());
+        if (message.getShortId() != null) {
+            messageIds.add(message.getShortId().toLowerCase());
+        }
+        return em.createNamedQuery("Message.findByReference", Message.class)
+                .setParameter("messageIds", messageIds)
+                .getResultList();
+    }
+
+
     /**
      * From the given list of Message UIDs, return the UIDs of the message with the separatePage flag set.
      * Used when printing messages (generating PDFs)
@@ -22,13 +22,25 @@ import org.niord.core.util.TimeUtils;
 import org.niord.model.message.Status;
 import org.slf4j.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.AccessTimeout;
 import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
 import javax.inject.Inject;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.niord.core.message.MessageSearchParams.DateType.PUBLISH_FROM_DATE;
@@ -37,32 +49,214 @@ import static org.niord.model.message.Status.PUBLISHED;
 import static org.niord.model.message.Status.VERIFIED;
 
 /**
- * This service sets up timers to perform regular message status checks:
+ * This service performs scheduled message status changes:
  * <ul>
- *     <li>Checks for published messages that have passed the publishDateTo and expires these.</li>
- *     <li>Checks for verified messages with a publishDateFrom in the past and publishes these.</li>
+ *     <li>Expires published messages that have passed the publishDateTo.</li>
+ *     <li>Publishes verified messages with a publishDateFrom in the past.</li>
  * </ul>
+ * <p>
+ * Rather than polling for due messages every minute, the service maintains a queue of the instants where
+ * verified messages are due to be published and published messages are due to expire. The queue is
+ * loaded from the database upon start-up, and updated via the {@code ScheduledMessageListener}
+ * whenever a message is created or updated, or changes status. A single-action timer is set up
+ * to fire at the first due instant of the queue.
+ * <p>
+ * As a safety net, the queue is reloaded from the database every hour.
+ * <p>
+ * All methods use the default write lock. Message change notifications may arrive while due messages
+ * are being processed, hence the generous access timeout.
  */
 @Singleton
 @Startup
+@AccessTimeout(value = 5, unit = TimeUnit.MINUTES)
 @SuppressWarnings("unused")
 public class ScheduledMessageService extends BaseService {
 
+    static final long MINUTE_MS = 60L * 1000L;
+
     @Inject
     private Logger log;
 
+    @Resource
+    TimerService timerService;
+
     @Inject
     DomainService domainService;
 
     @Inject
     MessageService messageService;
 
+    // The IDs of the messages due for publishing or expiry, keyed by the due instant
+    final TreeMap<Long, Set<Integer>> dueMessages = new TreeMap<>();
+
+    // The due instant of each message in the queue
+    final Map<Integer, Long> messageDueTimes = new HashMap<>();
+
+
+    /**
+     * Loads the queue of due messages upon start-up
+     */
+    @PostConstruct
+    private void init() {
+        reloadDueMessages();
+    }
+
+
+    /************************************/
+    /** Queue of due messages          **/
+    /************************************/
+
+
+    /**
+     * Reloads the queue of due messages from the database.
+     * Called upon start-up and then every hour.
+     */
+    @Schedule(persistent = false, second = "47", minute = "0", hour = "*")
+    public void reloadDueMessages() {
+        List<Object[]> messages = em.createQuery(
+                "select m.id, m.status, m.publishDateFrom, m.publishDateTo from Message m " +
+                " where (m.status = :verified and m.publishDateFrom is not null) " +
+                " or (m.status = :published and m.publishDateTo is not null)",
+                Object[].class)
+                .setParameter("verified", VERIFIED)
+                .setParameter("published", PUBLISHED)
+                .getResultList();
+
+        dueMessages.clear();
+        messageDueTimes.clear();
+        messages.forEach(m -> scheduleMessage((Integer) m[0], (Status) m[1], (Date) m[2], (Date) m[3]));
+
+        log.debug("Loaded " + messageDueTimes.size() + " messages due for publishing or expiry");
+        updateTimer();
+    }
+
+
+    /**
+     * Called when a message has been created or updated, or has changed status.
+     * Updates the queue of due messages from the current state of the message.
+     *
+     * @param messageId the ID of the message
+     */
+    public void messageChanged(Integer messageId) {
+        Message message = messageService.getByPrimaryKey(Message.class, messageId);
+
+        unscheduleMessage(messageId);
+        if (message != null) {
+            scheduleMessage(messageId, message.getStatus(), message.getPublishDateFrom(), message.getPublishDateTo());
+        }
+        updateTimer();
+    }
+
+
+    /** Adds the message to the queue of due messages, if it is due for publishing or expiry **/
+    private void scheduleMessage(Integer messageId, Status status, Date publishDateFrom, Date publishDateTo) {
+        Date dueDate = null;
+        if (status == VERIFIED) {
+            dueDate = publishDateFrom;
+        } else if (status == PUBLISHED) {
+            dueDate = publishDateTo;
+        }
+
+        if (dueDate != null) {
+            long dueTime = getDueTime(dueDate);
+            dueMessages.computeIfAbsent(dueTime, t -> new HashSet<>()).add(messageId);
+            messageDueTimes.put(messageId, dueTime);
+        }
+    }
+
+
+    /** Removes the message from the queue of due messages **/
+    private void unscheduleMessage(Integer messageId) {
+        Long dueTime = messageDueTimes.remove(messageId);
+        if (dueTime != null) {
+            Set<Integer> messageIds = dueMessages.get(dueTime);
+            if (messageIds != null) {
+                messageIds.remove(messageId);
+                if (messageIds.isEmpty()) {
+                    dueMessages.remove(dueTime);
+                }
+            }
+        }
+    }
+
 
     /**
-     * Called every minute to update expire published messages where publishDateTo is in the past
+     * Returns the instant where a message with the given publish date is due.
+     * <p>
+     * Messages are searched for with a minute resolution, so a date is due at the start of
+     * the first minute that is not before the date.
+     *
+     * @param date the publish date
+     * @return the due time
      */
-    @Schedule(persistent = false, second = "27", minute = "*", hour = "*")
-    public void checkForExpirablePublishedMessages() {
+    static long getDueTime(Date date) {
+        long time = date.getTime();
+        return time % MINUTE_MS == 0
+                ? time
+                : (Math.floorDiv(time, MINUTE_MS) + 1) * MINUTE_MS;
+    }
+
+
+    /**
+     * Sets up a single-action timer to fire at the first due instant of the queue,
+     * and cancels any timer that was previously set up
+     */
+    private void updateTimer() {
+        Long nextDueTime = dueMessages.isEmpty() ? null : dueMessages.firstKey();
+
+        for (Timer timer : timerService.getTimers()) {
+            try {
+                if (!timer.isCalendarTimer()) {
+                    if (nextDueTime != null && timer.getNextTimeout().getTime() == nextDueTime) {
+                        // The current timer already fires at the next due instant
+                        return;
+                    }
+                    timer.cancel();
+                }
+            } catch (Exception ignored) {
+                // The timer has expired or been cancelled concurrently
+            }
+        }
+
+        if (nextDueTime != null) {
+            Date expiration = new Date(Math.max(nextDueTime, System.currentTimeMillis()));
+            timerService.createSingleActionTimer(expiration, new TimerConfig(null, false));
+        }
+    }
+
+
+    /************************************/
+    /** Status changes                 **/
+    /************************************/
+
+
+    /**
+     * Called when the first due instant of the queue has been reached.
+     * Expires and publishes all due messages, and sets up the timer for the next due instant.
+     */
+    @Timeout
+    private void processDueMessages() {
+
+        // Remove the due messages from the queue. Messages that fail to change status
+        // are re-queued by the hourly reload and processed again then
+        long now = System.currentTimeMillis();
+        while (!dueMessages.isEmpty() && dueMessages.firstKey() <= now) {
+            dueMessages.remove(dueMessages.firstKey()).forEach(messageDueTimes::remove);
+        }
+
+        try {
+            expirePublishedMessages();
+            publishVerifiedMessages();
+        } finally {
+            updateTimer();
+        }
+    }
+
+
+    /**
+     * Expires published messages where publishDateTo is in the past
+     */
+    private void expirePublishedMessages() {
 
         // We want to treat messages with timestamps within the same minute equally, so, reset the seconds
         Date now = TimeUtils.resetSeconds(new Date());
@@ -70,24 +264,29 @@ public class ScheduledMessageService extends BaseService {
         // We make the search for expired messages domain by domain, in order to use domain sort order
         domainService.getDomains().stream()
             .filter(domain ->  !domain.getMessageSeries().isEmpty())
-            .forEach(domain -> searchMessages(domain, PUBLISHED, PUBLISH_TO_DATE, null, now)
-                   .forEach(m -> {
-                       try {
-                           log.info("System expiring message " + m.getUid());
-                           messageService.updateStatus(m.getUid(), Status.EXPIRED);
-                       } catch (Exception ex) {
-                           log.error("Failed expiring message " + m.getUid(), ex);
-                       }
-                   }));
-    }
+            .forEach(domain -> {
+                List<String> uids = searchMessageUids(domain, PUBLISHED, PUBLISH_TO_DATE, null, now);
+                if (uids.isEmpty() || updateStatus(uids, Status.EXPIRED)) {
+                    return;
+                }
 
+                // Fall back to expiring the messages one by one
+                uids.forEach(uid -> {
+                    try {
+                        log.info("System expiring message " + uid);
+                        messageService.updateStatus(uid, Status.EXPIRED);
+                    } catch (Exception ex) {
+                        log.error("Failed expiring message " + uid, ex);
+                    }
+                });
+            });
+    }
 
 
     /**
-     * Called every minute to publish messages with a VERIFIED status and a defined publishDateFrom in the past
+     * Publishes messages with a VERIFIED status and a defined publishDateFrom in the past
      */
-    @Schedule(persistent = false, second = "37", minute = "*", hour = "*")
-    public void checkForPublishableMessages() {
+    private void publishVerifiedMessages() {
 
         // We want to treat messages with timestamps within the same minute equally, so, reset the seconds
         Date now = TimeUtils.resetSeconds(new Date());
@@ -95,23 +294,48 @@ public class ScheduledMessageService extends BaseService {
         // We make the search for expired messages domain by domain, in order to use domain sort order
         domainService.getDomains().stream()
                 .filter(domain ->  !domain.getMessageSeries().isEmpty())
-                .forEach(domain -> searchMessages(domain, VERIFIED, PUBLISH_FROM_DATE, null, now)
-                        .forEach(m -> {
+                .forEach(domain -> {
+                    List<String> uids = searchMessageUids(domain, VERIFIED, PUBLISH_FROM_DATE, null, now);
+                    if (uids.isEmpty() || updateStatus(uids, PUBLISHED)) {
+                        return;
+                    }
+
+                    // Fall back to publishing the messages one by one
+                    uids.forEach(uid -> {
+                        try {
+                            log.info("System publishing message " + uid);
+                            messageService.updateStatus(uid, PUBLISHED);
+                        } catch (Exception ex) {
+                            log.error("Failed publishing message " + uid, ex);
+
+                            // Change status to DRAFT so we do not fail on the same message again
                             try {
-                                log.info("System publishing message " + m.getUid());
-                                messageService.updateStatus(m.getUid(), PUBLISHED);
-                            } catch (Exception ex) {
-                                log.error("Failed publishing message " + m.getUid(), ex);
-
-                                // Change status to DRAFT so we do not fail on the same message every minute
-                                try {
-                                    log.warn("System changing status to draft of message " + m.getUid());
-                                    messageService.updateStatus(m.getUid(), Status.DRAFT);
-                                } catch (Exception e) {
-                                    log.error("Failed changing status to DRAFT of message " + m.getUid(), e);
-                                }
+                                log.warn("System changing status to draft of message " + uid);
+                                messageService.updateStatus(uid, Status.DRAFT);
+                            } catch (Exception e) {
+                                log.error("Failed changing status to DRAFT of message " + uid, e);
                             }
-                        }));
+                        }
+                    });
+                });
+    }
+
+
+    /**
+     * Updates the status of the messages in a single transaction
+     * @param uids the UIDs of the messages to update
+     * @param status the new status
+     * @return if the status of the messages was successfully updated
+     */
+    private boolean updateStatus(List<String> uids, Status status) {
+        try {
+            log.info("System changing status to " + status + " of messages " + uids);
+            messageService.updateStatus(uids, status);
+            return true;
+        } catch (Exception ex) {
+            log.warn("Failed changing status to " + status + " of messages " + uids + " in one transaction: " + ex);
+            return false;
+        }
     }
 
 
@@ -124,9 +348,9 @@ public class ScheduledMessageService extends BaseService {
      * @param dateType the type of date interval to search by
      * @param from the publish-from date
      * @param to the publish-to date
-     * @return the messages matching the search criteria
+     * @return the UIDs of the messages matching the search criteria
      */
-    private List<Message> searchMessages(Domain domain, Status status, MessageSearchParams.DateType dateType, Date from, Date to) {
+    private List<String> searchMessageUids(Domain domain, Status status, MessageSearchParams.DateType dateType, Date from, Date to) {
         Set<String> seriesIds = domain.getMessageSeries().stream()
                 .map(MessageSeries::getSeriesId)
                 .collect(Collectors.toSet());
@@ -139,8 +363,9 @@ public class ScheduledMessageService extends BaseService {
                 .to(to)
                 .checkSortByDomain(domain);
 
-        return messageService.search(params).getData();
+        return messageService.search(params).getData().stream()
+                .map(Message::getUid)
+                .collect(Collectors.toList());
     }
 
 }
-
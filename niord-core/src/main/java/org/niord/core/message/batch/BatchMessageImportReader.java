@@ -15,16 +15,12 @@
  */
 package org.niord.core.message.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import org.apache.commons.lang.StringUtils;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.message.vo.SystemMessageVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
 import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Imports a list of messages from the messages.json file.
@@ -108,11 +104,7 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchMessageImportReader extends AbstractItemHandler {
-
-    List<SystemMessageVo> messages;
-    int messageNo = 0;
-
+public class BatchMessageImportReader extends AbstractJsonItemReader<SystemMessageVo> {
 
     /** {@inheritDoc} **/
     @Override
@@ -124,50 +116,13 @@ public class BatchMessageImportReader extends AbstractItemHandler {
             throw new Exception("Missing seriesId batch property");
         }
 
-        messages = readMessages();
-
-        if (prevCheckpointInfo != null) {
-            messageNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + messages.size() + " messages from index " + messageNo);
-    }
-
-
-    /** Reads in the batch import messages */
-    protected List<SystemMessageVo> readMessages() throws Exception {
-
-        // Default implementation reads the messages from a message.json batch file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the charts from the file
-        return JsonUtils.readJson(
-                new TypeReference<List<SystemMessageVo>>(){},
-                path);
+        super.open(prevCheckpointInfo);
     }
 
 
     /** {@inheritDoc} **/
     @Override
-    public Object readItem() throws Exception {
-        if (messageNo < messages.size()) {
-
-            // Every now and then, update the progress
-            if (messageNo % 10 == 0) {
-                updateProgress((int)(100.0 * messageNo / messages.size()));
-            }
-
-            getLog().info("Reading message no " + messageNo);
-            return messages.get(messageNo++);
-        }
-        return null;
+    protected Class<SystemMessageVo> getElementType() {
+        return SystemMessageVo.class;
     }
-
-
-    /** {@inheritDoc} **/
-    @Override
-    public Serializable checkpointInfo() throws Exception {
-        return messageNo;
-    }
-
 }
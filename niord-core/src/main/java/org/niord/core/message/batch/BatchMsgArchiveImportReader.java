@@ -15,14 +15,11 @@
  */
 package org.niord.core.message.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.message.vo.SystemMessageVo;
 import org.niord.core.repo.RepositoryService;
-import org.niord.model.search.PagedSearchResultVo;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,10 +31,10 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.List;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -73,14 +70,13 @@ import java.util.zip.ZipFile;
  * </pre>
  */
 @Named
-public class BatchMsgArchiveImportReader extends AbstractItemHandler {
-
-    List<ExtractedArchiveMessageVo> messages;
-    int messageNo = 0;
+public class BatchMsgArchiveImportReader extends AbstractJsonItemReader<SystemMessageVo> {
 
     @Inject
     RepositoryService repositoryService;
 
+    String tempArchiveRepoPath;
+
 
     /** {@inheritDoc} **/
     @Override
@@ -92,25 +88,33 @@ public class BatchMsgArchiveImportReader extends AbstractItemHandler {
             throw new Exception("Missing seriesId batch property");
         }
 
-        // Extract the zip archive and get hold of the messages
-        messages = extractMessageArchive();
+        super.open(prevCheckpointInfo);
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected Class<SystemMessageVo> getElementType() {
+        return SystemMessageVo.class;
+    }
 
-        if (prevCheckpointInfo != null) {
-            messageNo = (Integer) prevCheckpointInfo;
-        }
 
-        getLog().info("Start processing " + messages.size() + " messages from index " + messageNo);
+    /** The messages.json file contains a paged search result with the messages in the "data" field **/
+    @Override
+    protected String getArrayField() {
+        return "data";
     }
 
 
-    /** Extracts the message archive and reads in the batch import messages */
-    protected List<ExtractedArchiveMessageVo> extractMessageArchive() throws Exception {
+    /** Extracts the message archive and returns the messages.json file of the archive */
+    @Override
+    protected Path getJsonFile() throws Exception {
 
-        // Default implementation reads the messages from a message.json batch file
+        // Get hold of the message archive batch file
         Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
 
         // Extract the archive into a temporary repository path
-        String tempArchiveRepoPath = repositoryService.getNewTempDir().getPath();
+        tempArchiveRepoPath = repositoryService.getNewTempDir().getPath();
         Path dest = repositoryService.getRepoRoot().resolve(tempArchiveRepoPath);
         extractMessageArchive(path, dest);
         getLog().info("Extracted message archive to " + dest);
@@ -121,47 +125,15 @@ public class BatchMsgArchiveImportReader extends AbstractItemHandler {
             getLog().log(Level.SEVERE, "No valid messages.json file found in the archive");
             throw new Exception("No valid messages.json file found in the archive");
         }
-
-        // Read the messages.json file
-        PagedSearchResultVo<SystemMessageVo> messages;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            messages = mapper.readValue(
-                    messageFilePath.toFile(),
-                    new TypeReference<PagedSearchResultVo<SystemMessageVo>>() {});
-        } catch (IOException e) {
-            getLog().log(Level.SEVERE, "Invalid messages.json file");
-            throw new Exception("Invalid messages.json file");
-        }
-
-        // Wrap the messages as ExtractedArchiveMessageVo with the "editRepoPath" pointing to the extracted archive
-        return messages.getData().stream()
-                .map(m -> new ExtractedArchiveMessageVo(m, tempArchiveRepoPath + "/" + m.getRepoPath()))
-                .collect(Collectors.toList());
-    }
-
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (messageNo < messages.size()) {
-
-            // For every 5 read messages, update the progress
-            if (messageNo % 5 == 0) {
-                updateProgress((int)(100.0 * messageNo / messages.size()));
-            }
-
-            getLog().info("Reading message no " + messageNo);
-            return messages.get(messageNo++);
-        }
-        return null;
+        return messageFilePath;
     }
 
 
-    /** {@inheritDoc} **/
+    /** Wraps the message as an ExtractedArchiveMessageVo with the "editRepoPath" pointing to the extracted archive */
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return messageNo;
+    protected Collection<?> toItems(SystemMessageVo message) throws Exception {
+        return Collections.singletonList(
+                new ExtractedArchiveMessageVo(message, tempArchiveRepoPath + "/" + message.getRepoPath()));
     }
 
 
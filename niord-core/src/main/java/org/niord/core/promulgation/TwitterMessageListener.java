@@ -33,6 +33,7 @@ import javax.jms.MessageListener;
         activationConfig = {
                 @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
                 @ActivationConfigProperty(propertyName = "destination", propertyValue = "java:/jms/topic/MessageStatusTopic"),
+                @ActivationConfigProperty(propertyName = "messageSelector", propertyValue = "EVENT_TYPE = 'STATUS'"),
                 @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge")
         })
 @SuppressWarnings("unused")
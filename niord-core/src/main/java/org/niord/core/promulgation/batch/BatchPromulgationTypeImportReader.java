@@ -16,15 +16,10 @@
 
 package org.niord.core.promulgation.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.promulgation.vo.PromulgationTypeVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads promulgation types from a promulgation-types.json file.
@@ -55,46 +50,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchPromulgationTypeImportReader extends AbstractItemHandler {
-
-    List<PromulgationTypeVo> promulgationTypes;
-    int promulgationTypeNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the templates from the file
-        promulgationTypes = JsonUtils.readJson(
-                new TypeReference<List<PromulgationTypeVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            promulgationTypeNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + promulgationTypes.size()
-                + " promulgation types from index " + promulgationTypeNo);
-    }
-
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (promulgationTypeNo < promulgationTypes.size()) {
-            getLog().info("Reading promulgation type no " + promulgationTypeNo);
-            return promulgationTypes.get(promulgationTypeNo++);
-        }
-        return null;
-    }
-
+public class BatchPromulgationTypeImportReader extends AbstractJsonItemReader<PromulgationTypeVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return promulgationTypeNo;
+    protected Class<PromulgationTypeVo> getElementType() {
+        return PromulgationTypeVo.class;
     }
 }
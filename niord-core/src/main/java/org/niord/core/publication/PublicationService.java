@@ -21,6 +21,7 @@ import org.niord.core.db.CriteriaHelper;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
 import org.niord.core.message.Message;
+import org.niord.core.message.MessageChangeTracker;
 import org.niord.core.message.MessageScriptFilterService;
 import org.niord.core.message.MessageSearchParams;
 import org.niord.core.message.MessageSeries;
@@ -111,6 +112,9 @@ public class PublicationService extends BaseService {
     @Inject
     MessageScriptFilterService messageScriptFilterService;
 
+    @Inject
+    MessageChangeTracker messageChangeTracker;
+
 
     /**
      * Returns the publication with the given publication ID
@@ -388,6 +392,9 @@ public class PublicationService extends BaseService {
         // Update the publication ID and repoPath
         publication.checkPublicationId();
 
+        // Publications are served along with message data, so flag the change
+        messageChangeTracker.messageChanged();
+
         return saveEntity(publication);
     }
 
@@ -487,6 +494,7 @@ public class PublicationService extends BaseService {
         Publication publication = findByPublicationId(publicationId);
         if (publication != null) {
             remove(publication);
+            messageChangeTracker.messageChanged();
             return true;
         }
         return false;
@@ -572,43 +580,52 @@ public class PublicationService extends BaseService {
                 .statuses(PUBLISHED);
         List<Message> messages = messageService.search(params).getData();
 
-        // For each message, check if it should be included in the associated message tag
-        messages.forEach(m -> checkMessageForRecordingPublication(publication, m, PHASE_START_RECORDING));
+        // Check which of the messages should be included in the associated message tag
+        checkMessagesForRecordingPublication(publication, messages, PHASE_START_RECORDING);
     }
 
 
     /**
-     * Check if the message should be assigned to the associated message tag of the recording publication
+     * Check if the messages should be assigned to the associated message tag of the recording publication
      * @param publication the publication
-     * @param message the message
+     * @param messages the messages
      * @param phase the phase
      */
-    private void checkMessageForRecordingPublication(Publication publication, Message message, String phase) {
+    private void checkMessagesForRecordingPublication(Publication publication, List<Message> messages, String phase) {
 
         MessageTag tag = publication.getMessageTag();
-        boolean isIncluded = tag.getMessages().contains(message);
-
-        // "data" parameter for the message tag filter function
-        Map<String, Object> data = new HashMap<>();
-        data.put("phase", phase);
-        data.put("isIncluded", isIncluded);
+        Set<Message> tagMessages = new HashSet<>(tag.getMessages());
 
         // Determine the message tag filter to test
         String messageTagFilter = StringUtils.defaultIfBlank(
                 publication.getMessageTagFilter(),
                 DEFAULT_MESSAGE_TAG_FILTER);
 
-        // Check if the message should be included in the associated message tag
-        boolean includeMessage = messageScriptFilterService.includeMessage(messageTagFilter, message, data);
-
-        if (includeMessage && !isIncluded) {
-            tag.getMessages().add(message);
-            tag.updateMessageCount();
-            log.info("Added message " + message.getUid() + " to tag: " + tag.getName());
-        } else if (!includeMessage && isIncluded) {
-            tag.getMessages().remove(message);
-            tag.updateMessageCount();
-            log.info("Removed message " + message.getUid() + " from tag: " + tag.getName());
+        // Check which messages should be included in the associated message tag.
+        // The "data" parameter for the message tag filter function is computed per message
+        Set<Message> includedMessages = new HashSet<>(messageScriptFilterService.filterMessages(
+                messageTagFilter,
+                messages,
+                message -> {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("phase", phase);
+                    data.put("isIncluded", tagMessages.contains(message));
+                    return data;
+                }));
+
+        for (Message message : messages) {
+            boolean isIncluded = tagMessages.contains(message);
+            boolean includeMessage = includedMessages.contains(message);
+
+            if (includeMessage && !isIncluded) {
+                tag.getMessages().add(message);
+                tag.updateMessageCount();
+                log.info("Added message " + message.getUid() + " to tag: " + tag.getName());
+            } else if (!includeMessage && isIncluded) {
+                tag.getMessages().remove(message);
+                tag.updateMessageCount();
+                log.info("Removed message " + message.getUid() + " from tag: " + tag.getName());
+            }
         }
     }
 
@@ -627,7 +644,7 @@ public class PublicationService extends BaseService {
 
         // Find publications that are recording messages, and check them against their filter
         for (Publication publication : findRecordingPublications(message.getMessageSeries())) {
-            checkMessageForRecordingPublication(publication, message, PHASE_MESSAGE_STATUS_CHANGE);
+            checkMessagesForRecordingPublication(publication, Collections.singletonList(message), PHASE_MESSAGE_STATUS_CHANGE);
         }
     }
 
@@ -16,15 +16,10 @@
 
 package org.niord.core.publication.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.model.publication.PublicationCategoryVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads publications from a publication-category.json file.
@@ -59,43 +54,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchPublicationCategoryImportReader extends AbstractItemHandler {
-
-    List<PublicationCategoryVo> publicationCategories;
-    int publicationCategoryNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the publications from the file
-        publicationCategories = JsonUtils.readJson(
-                new TypeReference<List<PublicationCategoryVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            publicationCategoryNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + publicationCategories.size() + " publication  categories from index " + publicationCategoryNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (publicationCategoryNo < publicationCategories.size()) {
-            getLog().info("Reading publication category no " + publicationCategoryNo);
-            return publicationCategories.get(publicationCategoryNo++);
-        }
-        return null;
-    }
+public class BatchPublicationCategoryImportReader extends AbstractJsonItemReader<PublicationCategoryVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return publicationCategoryNo;
+    protected Class<PublicationCategoryVo> getElementType() {
+        return PublicationCategoryVo.class;
     }
 }
@@ -16,15 +16,10 @@
 
 package org.niord.core.publication.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.publication.vo.SystemPublicationVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads publications from a publication.json file.
@@ -58,43 +53,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchPublicationImportReader extends AbstractItemHandler {
-
-    List<SystemPublicationVo> publications;
-    int publicationNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the publications from the file
-        publications = JsonUtils.readJson(
-                new TypeReference<List<SystemPublicationVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            publicationNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + publications.size() + " publications from index " + publicationNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (publicationNo < publications.size()) {
-            getLog().info("Reading publication no " + publicationNo);
-            return publications.get(publicationNo++);
-        }
-        return null;
-    }
+public class BatchPublicationImportReader extends AbstractJsonItemReader<SystemPublicationVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return publicationNo;
+    protected Class<SystemPublicationVo> getElementType() {
+        return SystemPublicationVo.class;
     }
 }
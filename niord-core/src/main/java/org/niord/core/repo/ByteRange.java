@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.repo;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a single byte range of an HTTP "Range" request header, as defined in RFC 7233.
+ * <p>
+ * Only single byte ranges are supported. Requests for multiple ranges should be served
+ * with the full content, which is permitted by the RFC.
+ */
+public class ByteRange {
+
+    /** Returned for syntactically valid ranges that cannot be satisfied, i.e. start beyond the content length **/
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private final long start;
+    private final long end;
+
+
+    /**
+     * Constructor
+     * @param start the first byte position
+     * @param end the last byte position, inclusive
+     */
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+
+    /**
+     * Parses the value of a "Range" request header for content of the given length.
+     * <p>
+     * Returns null if the header is undefined, invalid or specifies multiple ranges, in which case
+     * the full content should be returned. Returns {@linkplain #UNSATISFIABLE} if the range cannot be satisfied.
+     *
+     * @param header the value of the "Range" header
+     * @param length the length of the content
+     * @return the byte range, null or {@linkplain #UNSATISFIABLE}
+     */
+    public static ByteRange parse(String header, long length) {
+        if (StringUtils.isBlank(header)) {
+            return null;
+        }
+
+        Matcher m = RANGE_PATTERN.matcher(header.trim());
+        if (!m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+            return null;
+        }
+
+        try {
+            long start, end;
+            if (m.group(1).isEmpty()) {
+                // Suffix range, e.g. "bytes=-500" for the last 500 bytes
+                long suffixLength = Long.parseLong(m.group(2));
+                if (suffixLength == 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffixLength);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(m.group(1));
+                end = m.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(m.group(2)), length - 1);
+                if (end < start && start < length) {
+                    // Invalid range, e.g. "bytes=500-100"
+                    return null;
+                }
+            }
+
+            return start < length ? new ByteRange(start, end) : UNSATISFIABLE;
+
+        } catch (NumberFormatException e) {
+            // Values too large for a long
+            return null;
+        }
+    }
+
+
+    /** Returns the value of the "Content-Range" header for this range of content with the given length **/
+    public String toContentRange(long length) {
+        return this == UNSATISFIABLE
+                ? "bytes */" + length
+                : String.format("bytes %d-%d/%d", start, end, length);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.repo;
+
+import javax.ws.rs.core.EntityTag;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A small LRU cache of the metadata of streamed repository files.
+ * <p>
+ * The file attributes are read with a single {@code readAttributes} call per look-up, and the cached
+ * ETag and content type are re-used as long as the last-modified time and size of the file are unchanged.
+ */
+public class RepoFileMetadataCache {
+
+    private final Map<Path, RepoFileMetadata> cache;
+    private final Function<Path, String> contentTypeResolver;
+
+
+    /**
+     * Constructor
+     * @param maxEntries the max number of cached entries
+     * @param contentTypeResolver resolves the content type of a file
+     */
+    public RepoFileMetadataCache(final int maxEntries, Function<Path, String> contentTypeResolver) {
+        this.contentTypeResolver = contentTypeResolver;
+        this.cache = new LinkedHashMap<Path, RepoFileMetadata>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, RepoFileMetadata> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the metadata of the given file, or null if the file does not exist or is not a regular file
+     * @param file the file
+     * @return the metadata of the file
+     */
+    public RepoFileMetadata getMetadata(Path file) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            synchronized (cache) {
+                cache.remove(file);
+            }
+            return null;
+        }
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        long size = attrs.size();
+
+        RepoFileMetadata metadata;
+        synchronized (cache) {
+            metadata = cache.get(file);
+        }
+        if (metadata == null || metadata.getLastModified() != lastModified || metadata.getSize() != size) {
+            metadata = new RepoFileMetadata(lastModified, size, contentTypeResolver.apply(file));
+            synchronized (cache) {
+                cache.put(file, metadata);
+            }
+        }
+        return metadata;
+    }
+
+
+    /**
+     * The metadata of a repository file
+     */
+    public static class RepoFileMetadata {
+        final long lastModified;
+        final long size;
+        final String contentType;
+        final EntityTag etag;
+
+        RepoFileMetadata(long lastModified, long size, String contentType) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.contentType = contentType;
+            this.etag = new EntityTag(lastModified + "_" + size);
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public EntityTag getEtag() {
+            return etag;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.jboss.security.annotation.SecurityDomain;
+import org.niord.core.repo.RepoFileMetadataCache.RepoFileMetadata;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.user.Roles;
 import org.niord.core.util.WebUtils;
@@ -47,16 +48,19 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -65,18 +69,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.niord.core.settings.Setting.Type;
 
@@ -101,6 +113,9 @@ import static org.niord.core.settings.Setting.Type;
 @SuppressWarnings("unused")
 public class RepositoryService {
 
+    static final int THUMBNAIL_RETRY_AFTER_SECONDS = 1;
+    static final int FILE_METADATA_CACHE_SIZE = 1000;
+
     @Context
     ServletContext servletContext;
 
@@ -122,6 +137,8 @@ public class RepositoryService {
     @Inject
     FileTypes fileTypes;
 
+    RepoFileMetadataCache fileMetadataCache;
+
     @Inject
     ThumbnailService thumbnailService;
 
@@ -131,6 +148,8 @@ public class RepositoryService {
     @PostConstruct
     public void init() {
 
+        fileMetadataCache = new RepoFileMetadataCache(FILE_METADATA_CACHE_SIZE, fileTypes::getContentType);
+
         // Create the repo root directory
         if (!Files.exists(getRepoRoot())) {
             try {
@@ -240,19 +259,28 @@ public class RepositoryService {
 
 
     /**
-     * Streams the file specified by the path
+     * Streams the file specified by the path.
+     * <p>
+     * Supports single byte range requests via the "Range" and "If-Range" headers, which allows
+     * clients to resume or partially fetch large files.
+     *
      * @param path the path
+     * @param range the optional "Range" request header
+     * @param ifRange the optional "If-Range" request header
      * @param request the servlet request
      * @return the response
      */
     @GET
     @javax.ws.rs.Path("/file/{file:.+}")
     public Response streamFile(@PathParam("file") String path,
+                               @HeaderParam("Range") String range,
+                               @HeaderParam("If-Range") String ifRange,
                                @Context Request request) throws IOException {
 
         Path f = repoRoot.resolve(path);
 
-        if (Files.notExists(f) || Files.isDirectory(f)) {
+        RepoFileMetadata metadata = fileMetadataCache.getMetadata(f);
+        if (metadata == null) {
             log.warn("Failed streaming file: " + f);
             return Response
                     .status(HttpServletResponse.SC_NOT_FOUND)
@@ -263,10 +291,8 @@ public class RepositoryService {
         // Set expiry to cacheTimeout minutes
         Date expirationDate = new Date(System.currentTimeMillis() + 1000L * 60L * cacheTimeout);
 
-        String mt = fileTypes.getContentType(f);
-
         // Check for an ETag match
-        EntityTag etag = new EntityTag("" + Files.getLastModifiedTime(f).toMillis() + "_" + Files.size(f), true);
+        EntityTag etag = metadata.getEtag();
         Response.ResponseBuilder responseBuilder = request.evaluatePreconditions(etag);
         if (responseBuilder != null) {
             // Etag match
@@ -276,14 +302,103 @@ public class RepositoryService {
                     .build();
         }
 
+        // Check for a byte range request. If an "If-Range" header does not match the file, return the full file
+        long size = metadata.getSize();
+        ByteRange byteRange = ifRangeMatches(ifRange, metadata)
+                ? ByteRange.parse(range, size)
+                : null;
+
+        if (byteRange == ByteRange.UNSATISFIABLE) {
+            return Response
+                    .status(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", byteRange.toContentRange(size))
+                    .build();
+        }
+
+        if (byteRange != null) {
+            log.trace("Streaming file range " + byteRange.toContentRange(size) + ": " + f);
+            return Response
+                    .status(HttpServletResponse.SC_PARTIAL_CONTENT)
+                    .entity(streamFileRange(f, byteRange.getStart(), byteRange.getLength()))
+                    .type(metadata.getContentType())
+                    .header("Content-Range", byteRange.toContentRange(size))
+                    .header("Content-Length", byteRange.getLength())
+                    .header("Accept-Ranges", "bytes")
+                    .lastModified(new Date(metadata.getLastModified()))
+                    .expires(expirationDate)
+                    .tag(etag)
+                    .build();
+        }
+
         log.trace("Streaming file: " + f);
         return Response
-                .ok(f.toFile(), mt)
+                .ok(streamFileRange(f, 0, size), metadata.getContentType())
+                .header("Content-Length", size)
+                .header("Accept-Ranges", "bytes")
+                .lastModified(new Date(metadata.getLastModified()))
                 .expires(expirationDate)
                 .tag(etag)
                 .build();
     }
 
+
+    /**
+     * Returns if the "If-Range" header, which is either an entity tag or an HTTP date, matches the file.
+     * Returns true if the header is undefined.
+     *
+     * @param ifRange the "If-Range" header
+     * @param metadata the file metadata
+     * @return if the "If-Range" header matches the file
+     */
+    private boolean ifRangeMatches(String ifRange, RepoFileMetadata metadata) {
+        if (StringUtils.isBlank(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Entity tags must use strong comparison, so weak tags never match
+            return ifRange.equals("\"" + metadata.getEtag().getValue() + "\"");
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            // The date must exactly match the last-modified time, at the one-second resolution of HTTP dates
+            return metadata.getLastModified() / 1000L == date / 1000L;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Returns a streaming output that writes the given byte range of the file to the response.
+     * <p>
+     * The range is streamed in chunks, so the file is never loaded into memory as a whole. Since the
+     * response is a plain output stream, {@code FileChannel.transferTo} still copies the data through
+     * an intermediate buffer, i.e. this is not a zero-copy transfer.
+     *
+     * @param file the file to stream
+     * @param position the first byte position
+     * @param length the number of bytes to stream
+     * @return the streaming output
+     */
+    private StreamingOutput streamFileRange(Path file, long position, long length) {
+        return out -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long pos = position;
+                long remaining = length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(pos, remaining, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    pos += transferred;
+                    remaining -= transferred;
+                }
+            }
+        };
+    }
+
     /**
      * Deletes the file specified by the path
      * @param path the path
@@ -337,7 +452,19 @@ public class RepositoryService {
 
         // Check if we can generate a thumbnail for image files
         String thumbUri;
-        Path thumbFile = thumbnailService.getThumbnail(f, iconSize);
+        CompletableFuture<Path> thumbnail = thumbnailService.getThumbnail(f, iconSize);
+        if (thumbnail != null && !thumbnail.isDone()) {
+            // The thumbnail is being created. Return the file type icon as a placeholder for now
+            thumbUri = "../" + fileTypes.getIcon(f, iconSize);
+            log.trace("Thumbnail pending. Redirecting to placeholder: " + thumbUri);
+            return Response
+                    .temporaryRedirect(new URI(thumbUri))
+                    .header("Retry-After", THUMBNAIL_RETRY_AFTER_SECONDS)
+                    .cacheControl(noCacheControl())
+                    .build();
+        }
+
+        Path thumbFile = thumbnail != null ? thumbnail.getNow(null) : null;
         if (thumbFile != null) {
             thumbUri = "../" + getRepoUri(thumbFile);
         } else {
@@ -351,6 +478,14 @@ public class RepositoryService {
                 .build();
     }
 
+    /** Returns a cache control that prevents caching **/
+    private CacheControl noCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        cacheControl.setNoStore(true);
+        return cacheControl;
+    }
+
     /**
      * Returns a list of files in the folder specified by the path
      * @param path the path
@@ -441,6 +576,9 @@ public class RepositoryService {
                     out.flush();
                 }
 
+                // Pre-generate the thumbnails of uploaded images
+                thumbnailService.createThumbnailsAsync(destFile.toPath());
+
                 // Return the repo-relative path as a result
                 result.add(Paths.get(path, destFile.getName()).toString());
             }
@@ -39,15 +39,20 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Creates thumbnails
  * <p>
- *     An ExecutorService is used to limit load on the system
+ *     An ExecutorService is used to limit load on the system, and thumbnails are created asynchronously,
+ *     so that requesting threads never wait for image scaling.
+ *     Concurrent requests for the same thumbnail share the same pending thumbnail creation.
  * </p>
  */
 @Singleton
@@ -70,6 +75,9 @@ public class ThumbnailService {
 
     private ExecutorService processPool;
 
+    // Pending thumbnail creations, keyed by thumbnail file
+    private final Map<Path, CompletableFuture<Path>> pendingThumbnails = new ConcurrentHashMap<>();
+
     @PostConstruct
     private void init() {
         processPool = Executors.newFixedThreadPool(EXECUTOR_POOL_SIZE);
@@ -93,14 +101,17 @@ public class ThumbnailService {
 
 
     /**
-     * Returns or creates the a thumbnail for the given file if it is an image.
-     * Otherwise, null is returned
+     * Returns the thumbnail for the given file if it is an image.
+     * Otherwise, null is returned.
+     * <p>
+     * If the thumbnail does not exist or is outdated, the thumbnail creation is scheduled, and a
+     * pending future is returned. The returned future completes with null if the thumbnail could not be created.
      *
      * @param file the file to create a thumbnail for
      * @param size the size of the thumbnail
-     * @return the thumbnail file or null if none was found or created
+     * @return the future thumbnail file or null if the file is not an image
      */
-    public Path getThumbnail(final Path file, final IconSize size) {
+    public CompletableFuture<Path> getThumbnail(final Path file, final IconSize size) {
 
         // Check that the file exists
         if (!Files.isRegularFile(file)) {
@@ -114,18 +125,100 @@ public class ThumbnailService {
             return null;
         }
 
-        // Submit the thumbnail creation job to the process pool.
-        // Please note, this is used as a way of restricting load on the system,
-        // not per se as a way of executing the task asynchronously.
+        Path thumbFile = getThumbnailPath(file, size);
+
+        // Check if the thumbnail is currently being created
+        CompletableFuture<Path> pendingThumbnail = pendingThumbnails.get(thumbFile);
+        if (pendingThumbnail != null) {
+            return pendingThumbnail;
+        }
+
+        // Check if the thumbnail already exists
+        if (isThumbnailUpToDate(file, thumbFile)) {
+            return CompletableFuture.completedFuture(thumbFile);
+        }
+
+        return scheduleThumbnail(file, thumbFile, type, size);
+    }
+
+
+    /**
+     * Schedules the creation of all thumbnail sizes for the given file, if it is an image.
+     * Should be called when an image file is uploaded or updated.
+     *
+     * @param file the file to create thumbnails for
+     */
+    public void createThumbnailsAsync(Path file) {
+        for (IconSize size : IconSize.values()) {
+            getThumbnail(file, size);
+        }
+    }
+
+
+    /**
+     * Schedules the creation of a thumbnail via the process pool.
+     * If the creation of the thumbnail is already pending, the pending future is returned.
+     *
+     * @param file the file to create a thumbnail for
+     * @param thumbFile the thumbnail file
+     * @param type the type of image
+     * @param size the size of the thumbnail
+     * @return the future thumbnail file
+     */
+    private CompletableFuture<Path> scheduleThumbnail(Path file, Path thumbFile, String type, IconSize size) {
+
+        CompletableFuture<Path> thumbnail = new CompletableFuture<>();
+        CompletableFuture<Path> pendingThumbnail = pendingThumbnails.putIfAbsent(thumbFile, thumbnail);
+        if (pendingThumbnail != null) {
+            return pendingThumbnail;
+        }
+
         try {
-            return processPool.submit(() -> createThumbnail(file, type, size)).get();
-        } catch (InterruptedException | ExecutionException e) {
-            log.debug("Error creating thumbnail");
+            processPool.execute(() -> {
+                try {
+                    thumbnail.complete(createThumbnail(file, type, size));
+                } catch (Throwable e) {
+                    log.debug("Error creating thumbnail " + thumbFile, e);
+                    thumbnail.complete(null);
+                } finally {
+                    pendingThumbnails.remove(thumbFile, thumbnail);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Error scheduling thumbnail " + thumbFile);
+            pendingThumbnails.remove(thumbFile, thumbnail);
+            thumbnail.complete(null);
         }
+        return thumbnail;
+    }
+
+
+    /**
+     * Returns the path of the thumbnail of the given file, constructed by appending "_thumb_size" to the file name
+     * @param file the file
+     * @param size the size of the thumbnail
+     * @return the path of the thumbnail
+     */
+    private Path getThumbnailPath(Path file, IconSize size) {
+        String thumbName = String.format("%s_thumb_%d.%s",
+                FilenameUtils.removeExtension(file.getFileName().toString()),
+                size.getSize(),
+                FilenameUtils.getExtension(file.getFileName().toString()));
+        return file.getParent().resolve(thumbName);
+    }
+
 
-        return null;
+    /** Returns if the thumbnail file exists and is not older than the file **/
+    private boolean isThumbnailUpToDate(Path file, Path thumbFile) {
+        try {
+            return Files.isRegularFile(thumbFile) &&
+                    Files.getLastModifiedTime(thumbFile).toMillis() >= Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
     }
 
+
     /**
      * Returns or creates the a thumbnail for the given file if it is an image.
      * Otherwise, null is returned
@@ -138,16 +231,9 @@ public class ThumbnailService {
     public Path createThumbnail(Path file, String type, IconSize size) {
 
         try {
-            // Construct the thumbnail name by appending "_thumb_size" to the file name
-            String thumbName = String.format("%s_thumb_%d.%s",
-                    FilenameUtils.removeExtension(file.getFileName().toString()),
-                    size.getSize(),
-                    FilenameUtils.getExtension(file.getFileName().toString()));
-
             // Check if the thumbnail already exists
-            Path thumbFile = file.getParent().resolve(thumbName);
-            if (Files.isRegularFile(thumbFile) &&
-                    Files.getLastModifiedTime(thumbFile).toMillis() >= Files.getLastModifiedTime(file).toMillis()) {
+            Path thumbFile = getThumbnailPath(file, size);
+            if (isThumbnailUpToDate(file, thumbFile)) {
                 return thumbFile;
             }
 
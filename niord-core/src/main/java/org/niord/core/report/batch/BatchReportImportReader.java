@@ -16,15 +16,10 @@
 
 package org.niord.core.report.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.report.vo.FmReportVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads reports from a reports.json file.
@@ -53,43 +48,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchReportImportReader extends AbstractItemHandler {
-
-    List<FmReportVo> reports;
-    int reportNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the reports from the file
-        reports = JsonUtils.readJson(
-                new TypeReference<List<FmReportVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            reportNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + reports.size() + " reports from index " + reportNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (reportNo < reports.size()) {
-            getLog().info("Reading report no " + reportNo);
-            return reports.get(reportNo++);
-        }
-        return null;
-    }
+public class BatchReportImportReader extends AbstractJsonItemReader<FmReportVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return reportNo;
+    protected Class<FmReportVo> getElementType() {
+        return FmReportVo.class;
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core.script;
+
+import freemarker.template.Configuration;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Provides the Freemarker configuration shared by all DB-backed Freemarker template executions.
+ * <p>
+ * The Freemarker template cache of the configuration caches the parsed templates by path and locale.
+ * Cached templates are re-validated against the version of the underlying script resource at most once
+ * every {@code TEMPLATE_UPDATE_DELAY_MS}, and the cache is cleared whenever a script resource
+ * is changed via the {@code ScriptResourceService}.
+ */
+@ApplicationScoped
+public class FmConfiguration {
+
+    static final long TEMPLATE_UPDATE_DELAY_MS = 60L * 1000L; // 1 minute
+
+    @Inject
+    ScriptResourceService resourceService;
+
+    @Inject
+    Logger log;
+
+    Configuration cfg;
+
+
+    /** Creates the shared Freemarker configuration **/
+    @PostConstruct
+    private void init() {
+        cfg = new Configuration(Configuration.getVersion());
+        cfg.setLocalizedLookup(true);
+        cfg.setTemplateLoader(new FmTemplateLoader(resourceService, true));
+        cfg.setTemplateUpdateDelayMilliseconds(TEMPLATE_UPDATE_DELAY_MS);
+        cfg.setObjectWrapper(new NiordAppObjectWrapper(cfg.getIncompatibleImprovements()));
+    }
+
+
+    /**
+     * Returns the shared Freemarker configuration
+     * @return the shared Freemarker configuration
+     */
+    public Configuration getConfiguration() {
+        return cfg;
+    }
+
+
+    /**
+     * Clears the Freemarker template cache.
+     * Should be called whenever a script resource is created, updated or deleted.
+     */
+    public void clearTemplateCache() {
+        log.debug("Clearing Freemarker template cache");
+        cfg.clearTemplateCache();
+    }
+}
@@ -21,25 +21,18 @@ import org.niord.core.util.CdiUtils;
 
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
 /**
  * A version of the Freemarker StringTemplateLoader that loads templates lazily from the ScriptResource database table.
+ * <p>
+ * The template loader is shared by all template executions, and relies on the Freemarker template cache
+ * for caching loaded templates, as well as paths that do not exist in the ScriptResource table.
+ * The template sources are identified by path, ID and version (last-updated time), so that Freemarker only
+ * re-parses a cached template when the script resource has actually changed.
  */
 public class FmTemplateLoader implements TemplateLoader {
 
-    // All templates that have actually been loaded during execution
-    private final Map<String, ScriptResource> templates = new HashMap<>();
-
-    // All existing paths in the ScriptResource table
-    private final Set<String> existingTemplatePaths;
-
-    // All checked paths that do not exist in the ScriptResource table - used when loading from class-path
-    private final Set<String> nonExistingTemplatePaths = new HashSet<>();
-
     private final ScriptResourceService resourceService;
     private boolean loadFromClassPath;
 
@@ -47,7 +40,6 @@ public class FmTemplateLoader implements TemplateLoader {
     /** Constructor **/
     public FmTemplateLoader(ScriptResourceService resourceService, boolean loadFromClassPath) {
         this.resourceService = resourceService;
-        this.existingTemplatePaths = resourceService.findAllScriptResourcePaths();
         this.loadFromClassPath = loadFromClassPath;
     }
 
@@ -60,24 +52,22 @@ public class FmTemplateLoader implements TemplateLoader {
 
     /** {@inheritDoc} **/
     @Override
-    public ScriptResource findTemplateSource(String path) {
+    public TemplateSource findTemplateSource(String path) {
 
-        if (existingTemplatePaths.contains(path)) {
-            if (!templates.containsKey(path)) {
-                templates.put(path, resourceService.findByPath(path));
-            }
-        } else if (loadFromClassPath && !nonExistingTemplatePaths.contains(path)) {
-            checkLoadTemplateFromClassPath(path);
+        ScriptResource template = resourceService.findByPath(path);
+        if (template == null && loadFromClassPath) {
+            template = checkLoadTemplateFromClassPath(path);
         }
-        return templates.get(path);
+        return template != null ? new TemplateSource(template) : null;
     }
 
 
     /**
      * Checks if the template exists in the class-path and loads it if it does
      * @param path the path to check
+     * @return the template loaded from the class-path, or null if not found
      */
-    private void checkLoadTemplateFromClassPath(String path) {
+    private ScriptResource checkLoadTemplateFromClassPath(String path) {
 
         ScriptResource scriptResource = resourceService.readScriptResourceFromClassPath(path);
         if (scriptResource != null) {
@@ -85,27 +75,59 @@ public class FmTemplateLoader implements TemplateLoader {
                 // NB: we cannot use resourceService.createScriptResource() since this method may be
                 // called outside the transaction where the template loader was instantiated
                 ScriptResourceService rs = CdiUtils.getBean(ScriptResourceService.class);
-                rs.createScriptResource(scriptResource);
-                templates.put(path, scriptResource);
-                existingTemplatePaths.add(path);
+                return rs.createScriptResource(scriptResource);
             } catch (Exception ignored) {
             }
-        } else {
-            nonExistingTemplatePaths.add(path);
         }
+        return scriptResource;
     }
 
 
     /** {@inheritDoc} **/
     @Override
     public long getLastModified(Object template) {
-        return ((ScriptResource)template).getUpdated().getTime();
+        return ((TemplateSource)template).lastModified;
     }
 
 
     /** {@inheritDoc} **/
     @Override
     public Reader getReader(Object template, String encoding) {
-        return new StringReader(((ScriptResource)template).getContent());
+        return new StringReader(((TemplateSource)template).content);
+    }
+
+
+    /**
+     * Identifies a specific version of a script resource
+     */
+    static final class TemplateSource {
+
+        final String path;
+        final Integer id;
+        final long lastModified;
+        final String content;
+
+        /** Constructor **/
+        TemplateSource(ScriptResource resource) {
+            this.path = resource.getPath();
+            this.id = resource.getId();
+            this.lastModified = resource.getUpdated() != null ? resource.getUpdated().getTime() : -1;
+            this.content = resource.getContent();
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TemplateSource that = (TemplateSource) o;
+            return lastModified == that.lastModified && Objects.equals(path, that.path) && Objects.equals(id, that.id);
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, id, lastModified);
+        }
     }
 }
@@ -83,7 +83,7 @@ public class FmTemplateService extends BaseService {
     DomainService domainService;
 
     @Inject
-    ScriptResourceService resourceService;
+    FmConfiguration fmConfiguration;
 
     @Inject
     NiordApp app;
@@ -177,14 +177,9 @@ public class FmTemplateService extends BaseService {
 
         Locale locale = app.getLocale(templateBuilder.getLanguage());
 
-        // Create the Freemarker template loader and configuration
-        FmTemplateLoader templateLoader = new FmTemplateLoader(resourceService, true);
-        Configuration cfg = new Configuration(Configuration.getVersion());
-        cfg.setLocalizedLookup(true);
-        cfg.setTemplateLoader(templateLoader);
-        cfg.setObjectWrapper(new NiordAppObjectWrapper(cfg.getIncompatibleImprovements()));
-
-        return cfg.getTemplate(templateBuilder.getTemplatePath(), locale, "UTF-8");
+        // Look up the template via the shared Freemarker configuration, which caches the parsed templates
+        return fmConfiguration.getConfiguration()
+                .getTemplate(templateBuilder.getTemplatePath(), locale, "UTF-8");
     }
 
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.script;
+
+import jdk.nashorn.api.scripting.JSObject;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A pool of instances of the function defined by a function script, such as
+ * <pre>
+ *     (function(msg) { return msg.status == 'PUBLISHED'; })
+ * </pre>
+ * <p>
+ * The script is compiled once by the shared {@code JsScriptEngine}. Each function instance is evaluated
+ * in its own global scope and is only used by one thread at a time, i.e. between calls to
+ * {@linkplain #acquire()} and {@linkplain #release(JSObject)}. Hence, the pool only grows to the number of
+ * concurrent callers, and the function instances are released along with the pool itself.
+ */
+public class JsFunctionPool {
+
+    private final String functionScript;
+    private final CompiledScript compiledScript;
+    private final Queue<JSObject> functions = new ConcurrentLinkedQueue<>();
+
+
+    /**
+     * Constructor.
+     * Compiles and instantiates the function up-front, in order to fail early for invalid function scripts.
+     *
+     * @param functionScript the function script
+     */
+    public JsFunctionPool(String functionScript) throws ScriptException {
+        this.functionScript = functionScript;
+        this.compiledScript = JsScriptEngine.compile(functionScript);
+        functions.add(newFunction());
+    }
+
+
+    /** Evaluates the function script in a new global scope and returns the resulting function **/
+    private JSObject newFunction() throws ScriptException {
+        Object function = compiledScript.eval(JsScriptEngine.getEngine().createBindings());
+        if (!(function instanceof JSObject) || !((JSObject) function).isFunction()) {
+            throw new ScriptException("Script does not define a function: " + functionScript);
+        }
+        return (JSObject) function;
+    }
+
+
+    /**
+     * Returns an idle function instance, or a new one if none are idle.
+     * The function instance must be returned to the pool using {@linkplain #release(JSObject)}.
+     *
+     * @return a function instance
+     */
+    public JSObject acquire() throws ScriptException {
+        JSObject function = functions.poll();
+        return function != null ? function : newFunction();
+    }
+
+
+    /**
+     * Returns the function instance to the pool
+     * @param function the function instance to return to the pool
+     */
+    public void release(JSObject function) {
+        if (function != null) {
+            functions.offer(function);
+        }
+    }
+
+
+    /**
+     * Calls a pooled instance of the function with the given arguments
+     * @param args the function arguments
+     * @return the result of the function call
+     */
+    public Object call(Object... args) throws ScriptException {
+        JSObject function = acquire();
+        try {
+            return function.call(null, args);
+        } finally {
+            release(function);
+        }
+    }
+}
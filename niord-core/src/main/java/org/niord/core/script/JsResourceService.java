@@ -34,8 +34,6 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.script.Bindings;
 import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.SimpleBindings;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -145,13 +143,13 @@ public class JsResourceService extends BaseService {
         }
 
 
-        // Construct and configure a Nashorn JavaScript Engine.
+        // Configure a new script context for the shared Nashorn JavaScript Engine.
         // The JavaScripts will support loading of other JavaScripts using the "load()" command
         // and prefixing the path with the "niord" scheme. Example: load('niord:templates/tmpl/common.js')
         // Inspiration from https://bugs.openjdk.java.net/secure/attachment/54881/LoaderTest.java
         try {
-            ScriptEngine jsEngine = new ScriptEngineManager()
-                    .getEngineByName("Nashorn");
+            ScriptContext context = JsScriptEngine.newScriptContext();
+            Bindings engineBindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
 
             // Make the entity manager available to the script as "em"
             Bindings bindings = new SimpleBindings();
@@ -160,13 +158,13 @@ public class JsResourceService extends BaseService {
 
             // Add other bindings from the builder data map
             resourceBuilder.getData().entrySet().forEach(e -> bindings.put(e.getKey(), e.getValue()));
-            jsEngine.setBindings(bindings, ScriptContext.GLOBAL_SCOPE); // NB: Custom load only works with global scope!
+            context.setBindings(bindings, ScriptContext.GLOBAL_SCOPE); // NB: Custom load only works with global scope!
 
             // Get original load function
-            final JSObject origLoadFn = (JSObject)jsEngine.get("load");
+            final JSObject origLoadFn = (JSObject)engineBindings.get("load");
 
             // Get global. Not really necessary as we could use null too, just for completeness.
-            final JSObject thisRef = (JSObject)jsEngine.eval("(function() { return this; })()");
+            final JSObject thisRef = (JSObject)JsScriptEngine.compile("(function() { return this; })()").eval(context);
 
             // Define a new "load" function
             final Function<Object, Object> newLoadFn = (source) -> {
@@ -187,11 +185,11 @@ public class JsResourceService extends BaseService {
             };
 
             // Replace built-in load with our load
-            jsEngine.put("load", newLoadFn);
+            engineBindings.put("load", newLoadFn);
 
-            // Evaluate the JavaScript
+            // Evaluate the JavaScript. The compiled script is cached by the shared engine
             String javaScript = updateScript(script.getContent());
-            return jsEngine.eval(javaScript);
+            return JsScriptEngine.compile(javaScript).eval(context);
 
         } catch (Exception e) {
             log.error("Error executing script:\n" + resourceBuilder.getResourcePath(), e);
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core.script;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides a single Nashorn script engine shared by all server-side JavaScript evaluations,
+ * along with a cache of compiled scripts keyed by the script source.
+ * <p>
+ * A Nashorn engine is expensive to instantiate and a script is expensive to compile, whereas a
+ * compiled script may be evaluated concurrently, as long as each evaluation uses its own global scope.
+ * Hence, scripts should be evaluated in a new script context, as returned by
+ * {@linkplain #newScriptContext()}, or, for function scripts that are called repeatedly,
+ * via a {@linkplain JsFunctionPool}.
+ * <p>
+ * No global scope is confined to, or cached by, the container threads, since a global scope
+ * references deployment classes and would prevent the deployment from being unloaded.
+ */
+public class JsScriptEngine {
+
+    static final int MAX_CACHE_SIZE = 1000;
+
+    private static final ScriptEngine JS_ENGINE = new ScriptEngineManager()
+            .getEngineByName("Nashorn");
+
+    private static final Map<String, CompiledScript> COMPILED_SCRIPTS = new ConcurrentHashMap<>();
+
+
+    /** Private access constructor **/
+    private JsScriptEngine() {
+    }
+
+
+    /**
+     * Returns the shared Nashorn script engine
+     * @return the shared Nashorn script engine
+     */
+    public static ScriptEngine getEngine() {
+        return JS_ENGINE;
+    }
+
+
+    /**
+     * Returns the compiled version of the given script.
+     * The compiled scripts are cached by the script source.
+     *
+     * @param script the script to compile
+     * @return the compiled script
+     */
+    public static CompiledScript compile(String script) throws ScriptException {
+        CompiledScript compiledScript = COMPILED_SCRIPTS.get(script);
+        if (compiledScript == null) {
+            compiledScript = ((Compilable) JS_ENGINE).compile(script);
+
+            // Simple protection against unbounded growth, e.g. from frequently edited script resources
+            if (COMPILED_SCRIPTS.size() >= MAX_CACHE_SIZE) {
+                COMPILED_SCRIPTS.clear();
+            }
+            COMPILED_SCRIPTS.put(script, compiledScript);
+        }
+        return compiledScript;
+    }
+
+
+    /**
+     * Returns a new script context with its own global scope.
+     * @return a new script context
+     */
+    public static ScriptContext newScriptContext() {
+        ScriptContext context = new SimpleScriptContext();
+        context.setBindings(JS_ENGINE.createBindings(), ScriptContext.ENGINE_SCOPE);
+        return context;
+    }
+}
@@ -53,6 +53,9 @@ public class ScriptResourceService extends BaseService {
     @Inject
     Logger log;
 
+    @Inject
+    FmConfiguration fmConfiguration;
+
 
     /**
      * Saves the script resource
@@ -71,6 +74,9 @@ public class ScriptResourceService extends BaseService {
         // Save a ScriptResourceHistory entity for the resource
         saveScriptResourceHistory(resource);
 
+        // Evict cached Freemarker templates
+        fmConfiguration.clearTemplateCache();
+
         return resource;
     }
 
@@ -209,6 +215,8 @@ public class ScriptResourceService extends BaseService {
             getScriptResourceHistory(id).forEach(this::remove);
             // Delete the actual resource
             remove(resource);
+            // Evict cached Freemarker templates
+            fmConfiguration.clearTemplateCache();
             return true;
         }
         return false;
@@ -16,15 +16,10 @@
 
 package org.niord.core.script.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.script.vo.ScriptResourceVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads Script Resources, i.e. Freemarker templates and Javascript resource from a script-resources.json file.
@@ -52,43 +47,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchScriptResourceImportReader extends AbstractItemHandler {
-
-    List<ScriptResourceVo> resources;
-    int resourceNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the resources from the file
-        resources = JsonUtils.readJson(
-                new TypeReference<List<ScriptResourceVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            resourceNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + resources.size() + " resources from index " + resourceNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (resourceNo < resources.size()) {
-            getLog().info("Reading resource no " + resourceNo);
-            return resources.get(resourceNo++);
-        }
-        return null;
-    }
+public class BatchScriptResourceImportReader extends AbstractJsonItemReader<ScriptResourceVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return resourceNo;
+    protected Class<ScriptResourceVo> getElementType() {
+        return ScriptResourceVo.class;
     }
 }
@@ -23,6 +23,7 @@ import javax.persistence.EntityNotFoundException;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -34,6 +35,9 @@ import java.util.stream.Collectors;
 @SuppressWarnings("unused")
 public abstract class BaseService {
 
+    /** The max number of values to bind in a single SQL "in" clause **/
+    public static final int MAX_IN_CLAUSE_SIZE = 500;
+
     @Inject
     protected EntityManager em;
 
@@ -104,6 +108,24 @@ public abstract class BaseService {
         return (list == null || list.size() == 0) ? null : list.get(0);
     }
 
+    /**
+     * Splits the list into consecutive sub-lists of at most the given size.
+     * Can e.g. be used for limiting the number of values used in SQL "in" clauses.
+     *
+     * @param list the list to split
+     * @param size the max size of the sub-lists
+     * @return the list of sub-lists
+     */
+    public static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> result = new ArrayList<>();
+        if (list != null) {
+            for (int x = 0; x < list.size(); x += size) {
+                result.add(list.subList(x, Math.min(list.size(), x + size)));
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns all entities with the given class
      *
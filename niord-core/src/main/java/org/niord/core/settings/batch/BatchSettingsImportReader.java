@@ -15,15 +15,10 @@
  */
 package org.niord.core.settings.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.settings.Setting;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads settings from a settings.json file.
@@ -56,49 +51,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchSettingsImportReader extends AbstractItemHandler {
-
-    List<Setting> settings;
-    int settingNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the charts from the file
-        settings = JsonUtils.readJson(
-                new TypeReference<List<Setting>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            settingNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + settings.size() + " settings from index " + settingNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (settingNo < settings.size()) {
-
-            // Every now and then, update the progress
-            if (settingNo % 10 == 0) {
-                updateProgress((int)(100.0 * settingNo / settings.size()));
-            }
-
-            getLog().info("Reading setting no " + settingNo);
-            return settings.get(settingNo++);
-        }
-        return null;
-    }
+public class BatchSettingsImportReader extends AbstractJsonItemReader<Setting> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return settingNo;
+    protected Class<Setting> getElementType() {
+        return Setting.class;
     }
 }
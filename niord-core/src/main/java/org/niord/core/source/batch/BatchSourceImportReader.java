@@ -16,15 +16,10 @@
 
 package org.niord.core.source.batch;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import org.niord.core.batch.AbstractItemHandler;
+import org.niord.core.batch.AbstractJsonItemReader;
 import org.niord.core.source.vo.SourceVo;
-import org.niord.core.util.JsonUtils;
 
 import javax.inject.Named;
-import java.io.Serializable;
-import java.nio.file.Path;
-import java.util.List;
 
 /**
  * Reads sources from a source.json file.
@@ -59,43 +54,11 @@ import java.util.List;
  * </pre>
  */
 @Named
-public class BatchSourceImportReader extends AbstractItemHandler {
-
-    List<SourceVo> sources;
-    int sourceNo = 0;
-
-    /** {@inheritDoc} **/
-    @Override
-    public void open(Serializable prevCheckpointInfo) throws Exception {
-
-        // Get hold of the data file
-        Path path = batchService.getBatchJobDataFile(jobContext.getInstanceId());
-
-        // Load the sources from the file
-        sources = JsonUtils.readJson(
-                new TypeReference<List<SourceVo>>(){},
-                path);
-
-        if (prevCheckpointInfo != null) {
-            sourceNo = (Integer) prevCheckpointInfo;
-        }
-
-        getLog().info("Start processing " + sources.size() + " sources from index " + sourceNo);
-    }
-
-    /** {@inheritDoc} **/
-    @Override
-    public Object readItem() throws Exception {
-        if (sourceNo < sources.size()) {
-            getLog().info("Reading source no " + sourceNo);
-            return sources.get(sourceNo++);
-        }
-        return null;
-    }
+public class BatchSourceImportReader extends AbstractJsonItemReader<SourceVo> {
 
     /** {@inheritDoc} **/
     @Override
-    public Serializable checkpointInfo() throws Exception {
-        return sourceNo;
+    protected Class<SourceVo> getElementType() {
+        return SourceVo.class;
     }
 }
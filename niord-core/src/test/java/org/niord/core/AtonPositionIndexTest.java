@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.aton.AtonPositionIndex;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the packed AtoN position index against a brute-force search
+ */
+public class AtonPositionIndexTest {
+
+    @Test
+    public void testSearch() {
+        Random random = new Random(42);
+        int n = 10000;
+        int[] ids = new int[n];
+        double[] lons = new double[n];
+        double[] lats = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            lons[i] = 7.0 + 8.0 * random.nextDouble();
+            lats[i] = 54.0 + 4.0 * random.nextDouble();
+        }
+
+        AtonPositionIndex index = new AtonPositionIndex(ids, lons, lats);
+        assertEquals(n, index.size());
+
+        for (int q = 0; q < 100; q++) {
+            double minLon = 7.0 + 8.0 * random.nextDouble();
+            double minLat = 54.0 + 4.0 * random.nextDouble();
+            double maxLon = minLon + random.nextDouble();
+            double maxLat = minLat + random.nextDouble();
+
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                if (lons[i] >= minLon && lons[i] <= maxLon && lats[i] >= minLat && lats[i] <= maxLat) {
+                    expected.add(ids[i]);
+                }
+            }
+
+            Set<Integer> result = new HashSet<>();
+            index.search(minLon, minLat, maxLon, maxLat, i -> result.add(index.getId(i)));
+            assertEquals(expected, result);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Test;
 import org.niord.core.aton.AtonFilter;
+import org.niord.core.aton.batch.AtonOsmStreamReader;
 import org.niord.core.aton.vo.AtonNodeVo;
 import org.niord.core.aton.vo.AtonOsmVo;
 import org.niord.core.aton.vo.AtonTagVo;
@@ -31,6 +32,8 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -87,6 +90,32 @@ public class AtonTest {
     }
 
 
+    @Test
+    public void testAtonOsmStreamReader() throws Exception {
+
+        AtonOsmVo osm = new AtonOsmVo();
+        osm.setVersion(0.6f);
+        osm.setNodes(new AtonNodeVo[] { createAtonNode(), createAtonNode(), createAtonNode() });
+        osm.getNodes()[1].setId(2);
+        osm.getNodes()[2].setId(3);
+        osm.computeBounds();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JAXBContext.newInstance(AtonOsmVo.class).createMarshaller().marshal(osm, out);
+
+        try (AtonOsmStreamReader reader = new AtonOsmStreamReader(new ByteArrayInputStream(out.toByteArray()))) {
+            Assert.assertEquals(osm.getNodes()[0], reader.readNode());
+            Assert.assertEquals(1, reader.skipNodes(1));
+            Assert.assertEquals(osm.getNodes()[2], reader.readNode());
+            Assert.assertNull(reader.readNode());
+        }
+
+        try (AtonOsmStreamReader reader = new AtonOsmStreamReader(getClass().getResourceAsStream("/seamark-node.xml"))) {
+            Assert.assertEquals(createAtonNode(), reader.readNode());
+        }
+    }
+
+
     @Test
     public void testAtonJson() throws Exception {
         ObjectMapper mapper = new ObjectMapper();
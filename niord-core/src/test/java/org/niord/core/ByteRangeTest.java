@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.repo.ByteRange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests parsing HTTP "Range" headers
+ */
+public class ByteRangeTest {
+
+    @Test
+    public void testParseByteRange() {
+        long length = 1000;
+
+        ByteRange range = ByteRange.parse("bytes=0-99", length);
+        assertEquals(0, range.getStart());
+        assertEquals(99, range.getEnd());
+        assertEquals(100, range.getLength());
+        assertEquals("bytes 0-99/1000", range.toContentRange(length));
+
+        // Open-ended range
+        range = ByteRange.parse("bytes=900-", length);
+        assertEquals(900, range.getStart());
+        assertEquals(999, range.getEnd());
+
+        // Suffix range
+        range = ByteRange.parse("bytes=-100", length);
+        assertEquals(900, range.getStart());
+        assertEquals(999, range.getEnd());
+
+        // End beyond the content length
+        range = ByteRange.parse("bytes=500-5000", length);
+        assertEquals(999, range.getEnd());
+
+        // Unsatisfiable ranges
+        assertEquals(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", length));
+        assertEquals("bytes */1000", ByteRange.UNSATISFIABLE.toContentRange(length));
+
+        // Missing, invalid and multiple ranges result in the full content
+        assertNull(ByteRange.parse(null, length));
+        assertNull(ByteRange.parse("bytes=500-100", length));
+        assertNull(ByteRange.parse("items=0-99", length));
+        assertNull(ByteRange.parse("bytes=0-99,200-299", length));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.batch.JsonArrayStreamReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the streaming JSON array reader used by the batch import jobs
+ */
+public class JsonArrayStreamReaderTest {
+
+    @Test
+    public void testRootArray() throws IOException {
+        String json = "[ { \"name\": \"a\", \"value\": 1 }, null, { \"name\": \"b\", \"value\": 2 } ]";
+
+        try (JsonArrayStreamReader<Item> reader = reader(json, null)) {
+            List<Item> items = readAll(reader);
+            assertEquals(2, items.size());
+            assertEquals("a", items.get(0).getName());
+            assertEquals(2, items.get(1).getValue());
+            assertEquals(json.length(), reader.getBytesRead());
+        }
+    }
+
+
+    @Test
+    public void testArrayField() throws IOException {
+        String json = "{ \"total\": 2, \"nested\": { \"data\": [ 1 ] }, \"skipped\": [ { \"data\": [] } ], "
+                + "\"data\": [ { \"name\": \"a\" }, { \"name\": \"b\" } ], \"size\": 2 }";
+
+        try (JsonArrayStreamReader<Item> reader = reader(json, "data")) {
+            List<Item> items = readAll(reader);
+            assertEquals(2, items.size());
+            assertEquals("b", items.get(1).getName());
+        }
+
+        try (JsonArrayStreamReader<Item> reader = reader("{ \"total\": 0, \"data\": null }", "data")) {
+            assertTrue(readAll(reader).isEmpty());
+        }
+
+        try (JsonArrayStreamReader<Item> reader = reader("{ \"total\": 0 }", "data")) {
+            assertTrue(readAll(reader).isEmpty());
+        }
+    }
+
+
+    @Test(expected = IOException.class)
+    public void testInvalidRoot() throws IOException {
+        reader("{ \"data\": [] }", null);
+    }
+
+
+    private JsonArrayStreamReader<Item> reader(String json, String arrayField) throws IOException {
+        return new JsonArrayStreamReader<>(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                Item.class,
+                arrayField);
+    }
+
+
+    private List<Item> readAll(JsonArrayStreamReader<Item> reader) throws IOException {
+        List<Item> items = new ArrayList<>();
+        for (Item item = reader.read(); item != null; item = reader.read()) {
+            items.add(item);
+        }
+        return items;
+    }
+
+
+    /** Test item **/
+    public static class Item {
+        String name;
+        int value;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+}
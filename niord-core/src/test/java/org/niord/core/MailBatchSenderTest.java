@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.mail.MailAllowance;
+import org.niord.core.mail.MailBatchSender;
+import org.niord.core.mail.MailTransportPool;
+import org.niord.core.mail.ScheduledMail;
+
+import javax.mail.Session;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the batching and rate limiting of scheduled mails
+ */
+public class MailBatchSenderTest {
+
+    Session session = Session.getInstance(new Properties());
+    List<MailTransportPoolTest.TestTransport> transports = new ArrayList<>();
+
+    private MailTransportPool createPool() {
+        return new MailTransportPool(() -> {
+            MailTransportPoolTest.TestTransport transport = new MailTransportPoolTest.TestTransport(session);
+            transports.add(transport);
+            return transport;
+        });
+    }
+
+    private ScheduledMail scheduledMail(Integer id) {
+        ScheduledMail mail = new ScheduledMail();
+        mail.setId(id);
+        return mail;
+    }
+
+
+    @Test
+    public void testSplitIntoBatches() {
+        List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
+
+        assertEquals(
+                Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6), Collections.singletonList(7)),
+                MailBatchSender.splitIntoBatches(ids, 3));
+        assertEquals(
+                Collections.singletonList(ids),
+                MailBatchSender.splitIntoBatches(ids, 1));
+        assertEquals(
+                Arrays.asList(Collections.singletonList(1), Collections.singletonList(2)),
+                MailBatchSender.splitIntoBatches(Arrays.asList(1, 2), 5));
+        assertEquals(0, MailBatchSender.splitIntoBatches(Collections.emptyList(), 3).size());
+    }
+
+
+    @Test
+    public void testMailAllowance() {
+        MailAllowance allowance = new MailAllowance(6);
+
+        // Replenished by a sixth of the max mails per minute each time
+        assertEquals(2, allowance.replenish(12));
+        allowance.consume(2);
+        assertEquals(2, allowance.replenish(12));
+
+        // Unused allowance accumulates, but never beyond a minute's worth of mails
+        for (int x = 0; x < 10; x++) {
+            allowance.replenish(12);
+        }
+        assertEquals(12, allowance.replenish(12));
+        allowance.consume(12);
+
+        // Fractions accumulate as well
+        assertEquals(0, allowance.replenish(3));
+        assertEquals(1, allowance.replenish(3));
+    }
+
+
+    @Test
+    public void testBatchSharesTransport() throws Exception {
+        MailTransportPool pool = createPool();
+        List<MailTransportPool.PooledTransport> usedTransports = new ArrayList<>();
+        List<Integer> sentIds = new ArrayList<>();
+
+        MailBatchSender sender = new MailBatchSender(Arrays.asList(1, 2, 3), pool, true, (id, transport) -> {
+            usedTransports.add(transport);
+            sentIds.add(id);
+            return id == 2 ? null : scheduledMail(id); // Mail 2 is no longer pending
+        });
+
+        List<ScheduledMail> result = sender.call();
+
+        // Each mail is sent separately, but over the same transport
+        assertEquals(Arrays.asList(1, 2, 3), sentIds);
+        assertEquals(2, result.size());
+        assertEquals(1, transports.size());
+        assertNotNull(usedTransports.get(0));
+        assertSame(usedTransports.get(0), usedTransports.get(2));
+
+        // The transport is returned to the pool afterwards
+        assertEquals(1, pool.getIdleTransportCount());
+    }
+
+
+    @Test
+    public void testBrokenTransportReplaced() throws Exception {
+        MailTransportPool pool = createPool();
+        List<MailTransportPool.PooledTransport> usedTransports = new ArrayList<>();
+
+        MailBatchSender sender = new MailBatchSender(Arrays.asList(1, 2, 3), pool, true, (id, transport) -> {
+            usedTransports.add(transport);
+            if (id == 1) {
+                transport.markBroken();
+            }
+            return scheduledMail(id);
+        });
+
+        assertEquals(3, sender.call().size());
+
+        // The broken transport is closed and replaced for the remaining mails
+        assertEquals(2, transports.size());
+        assertFalse(transports.get(0).isConnected());
+        assertNotSame(usedTransports.get(0), usedTransports.get(1));
+        assertSame(usedTransports.get(1), usedTransports.get(2));
+        assertEquals(1, pool.getIdleTransportCount());
+    }
+
+
+    @Test
+    public void testSimulationDoesNotConnect() throws Exception {
+        MailTransportPool pool = createPool();
+        List<MailTransportPool.PooledTransport> usedTransports = new ArrayList<>();
+
+        MailBatchSender sender = new MailBatchSender(Arrays.asList(1, 2), pool, false, (id, transport) -> {
+            usedTransports.add(transport);
+            return scheduledMail(id);
+        });
+
+        assertEquals(2, sender.call().size());
+        assertEquals(0, transports.size());
+        assertNull(usedTransports.get(0));
+    }
+}
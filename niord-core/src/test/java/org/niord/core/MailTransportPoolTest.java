@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.mail.MailTransportPool;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the SMTP transport pool against a stand-in SMTP transport
+ */
+public class MailTransportPoolTest {
+
+    Session session = Session.getInstance(new Properties());
+    List<TestTransport> transports = new ArrayList<>();
+
+    private MailTransportPool createPool() {
+        return new MailTransportPool(() -> {
+            TestTransport transport = new TestTransport(session);
+            transports.add(transport);
+            return transport;
+        });
+    }
+
+    private Message createMessage(String recipient) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("niord@e-navigation.net"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+        message.setSubject("Test");
+        message.setText("Test");
+        return message;
+    }
+
+
+    @Test
+    public void testConnectionReuse() throws Exception {
+        MailTransportPool pool = createPool();
+
+        // Send several mails over the same connection
+        MailTransportPool.PooledTransport transport = pool.borrowTransport();
+        for (int x = 0; x < 10; x++) {
+            transport.sendMessage(createMessage("test" + x + "@e-navigation.net"));
+        }
+        pool.returnTransport(transport, true);
+        assertEquals(1, pool.getIdleTransportCount());
+
+        // The connection should be re-used
+        assertSame(transport, pool.borrowTransport());
+        assertEquals(1, transports.size());
+        assertEquals(10, transports.get(0).sent.size());
+        assertEquals(0, pool.getIdleTransportCount());
+
+        // Unhealthy connections are closed rather than re-used
+        pool.returnTransport(transport, false);
+        assertEquals(0, pool.getIdleTransportCount());
+        assertFalse(transports.get(0).isConnected());
+        assertNotSame(transport, pool.borrowTransport());
+        assertEquals(2, transports.size());
+    }
+
+
+    @Test
+    public void testMaxMailsPerConnection() throws Exception {
+        MailTransportPool pool = createPool();
+
+        MailTransportPool.PooledTransport transport = pool.borrowTransport();
+        while (!transport.isUsedUp()) {
+            transport.sendMessage(createMessage("test@e-navigation.net"));
+        }
+
+        // Used-up connections are closed when returned
+        pool.returnTransport(transport, true);
+        assertEquals(0, pool.getIdleTransportCount());
+        assertFalse(transports.get(0).isConnected());
+    }
+
+
+    @Test
+    public void testClosedConnectionsDiscarded() throws Exception {
+        MailTransportPool pool = createPool();
+
+        MailTransportPool.PooledTransport transport = pool.borrowTransport();
+        pool.returnTransport(transport, true);
+
+        // Simulate that the SMTP server has dropped the idle connection
+        transports.get(0).close();
+        assertNotSame(transport, pool.borrowTransport());
+
+        pool.closeAll();
+        assertEquals(0, pool.getIdleTransportCount());
+    }
+
+
+    /**
+     * Stand-in SMTP transport that records the sent messages
+     */
+    static class TestTransport extends Transport {
+        final List<Message> sent = new ArrayList<>();
+
+        TestTransport(Session session) {
+            super(session, new URLName("smtp://localhost"));
+            setConnected(true);
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            if (!isConnected()) {
+                throw new MessagingException("Not connected");
+            }
+            sent.add(message);
+        }
+
+        @Override
+        public synchronized void close() throws MessagingException {
+            setConnected(false);
+        }
+    }
+}
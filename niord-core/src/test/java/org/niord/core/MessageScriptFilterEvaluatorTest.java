@@ -25,9 +25,13 @@ import org.niord.core.promulgation.NavtexTransmitter;
 import org.niord.core.promulgation.PromulgationType;
 import org.niord.model.message.Status;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.niord.model.message.Type.TEMPORARY_NOTICE;
@@ -56,6 +60,31 @@ public class MessageScriptFilterEvaluatorTest {
     }
 
 
+    @Test
+    public void testFilterMessages() throws Exception {
+
+        Message msg1 = new Message();
+        msg1.setStatus(Status.PUBLISHED);
+        Message msg2 = new Message();
+        msg2.setStatus(Status.DRAFT);
+        Message msg3 = new Message();
+        msg3.setStatus(Status.PUBLISHED);
+
+        MessageScriptFilterEvaluator evaluator = new MessageScriptFilterEvaluator("msg.status == Status.PUBLISHED");
+        List<Message> messages = evaluator.filterMessages(Arrays.asList(msg1, msg2, msg3), null);
+
+        assertEquals(Arrays.asList(msg1, msg3), messages);
+
+        // The data passed on to the filter function is computed per message
+        evaluator = new MessageScriptFilterEvaluator("msg.status == Status.PUBLISHED && !data.isIncluded");
+        messages = evaluator.filterMessages(
+                Arrays.asList(msg1, msg2, msg3),
+                m -> Collections.singletonMap("isIncluded", m == msg1));
+
+        assertEquals(Collections.singletonList(msg3), messages);
+    }
+
+
     @Test
     public void testMessageFilter() throws Exception {
 
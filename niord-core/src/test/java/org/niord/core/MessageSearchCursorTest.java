@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.core;
+
+import org.junit.Test;
+import org.niord.core.message.InvalidCursorException;
+import org.niord.core.message.MessageSearchCursor;
+import org.niord.core.message.MessageSearchParams;
+import org.niord.model.search.PagedSearchParamsVo.SortOrder;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the keyset pagination message search cursor
+ */
+public class MessageSearchCursorTest {
+
+    @Test
+    public void encodeDecodeTest() throws Exception {
+        Date date = new Date(1476278482000L);
+        MessageSearchCursor cursor = new MessageSearchCursor(
+                "AREA",
+                SortOrder.DESC,
+                Arrays.asList(999999, -1.5, null, date, 42));
+
+        String encoded = cursor.encode();
+
+        MessageSearchCursor decoded = MessageSearchCursor.decode(encoded);
+        assertEquals("area", decoded.getSortBy());
+        assertEquals(SortOrder.DESC, decoded.getSortOrder());
+        assertEquals(Arrays.asList(999999, -1.5, null, date, 42), decoded.getValues());
+    }
+
+
+    @Test
+    public void matchesTest() throws Exception {
+        MessageSearchCursor cursor = new MessageSearchCursor("area", SortOrder.ASC, Arrays.asList(1, 2));
+
+        MessageSearchParams params = new MessageSearchParams();
+        params.sortBy("AREA").sortOrder(SortOrder.ASC);
+        assertTrue(cursor.matches(params));
+
+        params.sortOrder(SortOrder.DESC);
+        assertFalse(cursor.matches(params));
+    }
+
+
+    @Test(expected = InvalidCursorException.class)
+    public void invalidCursorTest() throws Exception {
+        MessageSearchCursor.decode("not-a-valid-cursor");
+    }
+}
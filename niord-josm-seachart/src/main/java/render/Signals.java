@@ -97,46 +97,54 @@ public class Signals {
 		fogSignals.put(CatFOG.FOG_HORN, "Horn");
 	}
 
-	static final DecimalFormat df = new DecimalFormat("#.#");
+	final DecimalFormat df = new DecimalFormat("#.#");
+
+	final Rules rules;
+	final Renderer renderer;
+
+	Signals(Rules rules) {
+		this.rules = rules;
+		this.renderer = rules.renderer;
+	}
 	
-	public static void addSignals() {
-	  if (Rules.feature.objs.containsKey(Obj.RADRFL)) reflectors();
-	  if (Rules.feature.objs.containsKey(Obj.FOGSIG)) fogSignals();
-	  if (Rules.feature.objs.containsKey(Obj.RTPBCN)) radarStations();
-	  if (Rules.feature.objs.containsKey(Obj.RADSTA)) radarStations();
-	  if (Rules.feature.objs.containsKey(Obj.RDOSTA)) radioStations();
-	  if (Rules.feature.objs.containsKey(Obj.LIGHTS)) lights();
+	public void addSignals() {
+	  if (rules.feature.objs.containsKey(Obj.RADRFL)) reflectors();
+	  if (rules.feature.objs.containsKey(Obj.FOGSIG)) fogSignals();
+	  if (rules.feature.objs.containsKey(Obj.RTPBCN)) radarStations();
+	  if (rules.feature.objs.containsKey(Obj.RADSTA)) radarStations();
+	  if (rules.feature.objs.containsKey(Obj.RDOSTA)) radioStations();
+	  if (rules.feature.objs.containsKey(Obj.LIGHTS)) lights();
 	}
 
-	public static void reflectors() {
-		if (Renderer.zoom >= 14) {
-			switch (Rules.feature.type) {
+	public void reflectors() {
+		if (renderer.zoom >= 14) {
+			switch (rules.feature.type) {
 			case BCNLAT:
 			case BCNCAR:
 			case BCNISD:
 			case BCNSAW:
 			case BCNSPP:
-				if ((Rules.feature.objs.containsKey(Obj.TOPMAR)) || (Rules.feature.objs.containsKey(Obj.DAYMAR))) {
-					Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -140)));
+				if ((rules.feature.objs.containsKey(Obj.TOPMAR)) || (rules.feature.objs.containsKey(Obj.DAYMAR))) {
+					renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -140)));
 				} else {
-					Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -80)));
+					renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -80)));
 				}
 				break;
 			case LITFLT:
 			case LITVES:
 			case BOYINB:
-				if ((Rules.feature.objs.containsKey(Obj.TOPMAR)) || (Rules.feature.objs.containsKey(Obj.DAYMAR))) {
-					Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -110)));
+				if ((rules.feature.objs.containsKey(Obj.TOPMAR)) || (rules.feature.objs.containsKey(Obj.DAYMAR))) {
+					renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -110)));
 				} else {
-					Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -60)));
+					renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -60)));
 				}
 				break;
 			case LITMAJ:
 			case LITMIN:
-				if ((Rules.feature.objs.containsKey(Obj.TOPMAR)) || (Rules.feature.objs.containsKey(Obj.DAYMAR))) {
-					Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -90)));
+				if ((rules.feature.objs.containsKey(Obj.TOPMAR)) || (rules.feature.objs.containsKey(Obj.DAYMAR))) {
+					renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -90)));
 				} else {
-					Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -30)));
+					renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -30)));
 				}
 				break;
 			case BOYLAT:
@@ -144,17 +152,17 @@ public class Signals {
 			case BOYISD:
 			case BOYSAW:
 			case BOYSPP:
-				if ((Rules.feature.objs.containsKey(Obj.TOPMAR)) || (Rules.feature.objs.containsKey(Obj.DAYMAR))) {
-					if (Rules.testAttribute(Rules.feature.type, Att.BOYSHP, BoySHP.BOY_PILR) || Rules.testAttribute(Rules.feature.type, Att.BOYSHP, BoySHP.BOY_SPAR)) {
-						Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(50, -160)));
+				if ((rules.feature.objs.containsKey(Obj.TOPMAR)) || (rules.feature.objs.containsKey(Obj.DAYMAR))) {
+					if (rules.testAttribute(rules.feature.type, Att.BOYSHP, BoySHP.BOY_PILR) || rules.testAttribute(rules.feature.type, Att.BOYSHP, BoySHP.BOY_SPAR)) {
+						renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(50, -160)));
 					} else {
-						Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(25, -80)));
+						renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(25, -80)));
 					}
 				} else {
-					if (Rules.testAttribute(Rules.feature.type, Att.BOYSHP, BoySHP.BOY_PILR) || Rules.testAttribute(Rules.feature.type, Att.BOYSHP, BoySHP.BOY_SPAR)) {
-						Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(30, -100)));
+					if (rules.testAttribute(rules.feature.type, Att.BOYSHP, BoySHP.BOY_PILR) || rules.testAttribute(rules.feature.type, Att.BOYSHP, BoySHP.BOY_SPAR)) {
+						renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(30, -100)));
 					} else {
-						Renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(10, -50)));
+						renderer.symbol(Topmarks.RadarReflector, new Delta(Handle.BC, AffineTransform.getTranslateInstance(10, -50)));
 					}
 				}
 				break;
@@ -164,11 +172,11 @@ public class Signals {
 		}
 	}
 	
-	public static void fogSignals() {
-		if (Renderer.zoom >= 11)
-			Renderer.symbol(Beacons.FogSignal);
-		if (Renderer.zoom >= 15) {
-			AttMap atts = Rules.feature.objs.get(Obj.FOGSIG).get(0);
+	public void fogSignals() {
+		if (renderer.zoom >= 11)
+			renderer.symbol(Beacons.FogSignal);
+		if (renderer.zoom >= 15) {
+			AttMap atts = rules.feature.objs.get(Obj.FOGSIG).get(0);
 			if (atts != null) {
 				String str = "";
 				if (atts.containsKey(Att.CATFOG)) {
@@ -186,31 +194,31 @@ public class Signals {
 					str += df.format(atts.get(Att.VALMXR).val) + "M";
 				}
 				if (!str.isEmpty()) {
-					Renderer.labelText(str, new Font("Arial", Font.PLAIN, 40), Color.black, new Delta(Handle.TR, AffineTransform.getTranslateInstance(-60, -30)));
+					renderer.labelText(str, new Font("Arial", Font.PLAIN, 40), Color.black, new Delta(Handle.TR, AffineTransform.getTranslateInstance(-60, -30)));
 				}
 			}
 		}
 	}
 
-	public static void radarStations() {
-		if (Renderer.zoom >= 11)
-			Renderer.symbol(Beacons.RadarStation);
-		if (Renderer.zoom >= 15) {
+	public void radarStations() {
+		if (renderer.zoom >= 11)
+			renderer.symbol(Beacons.RadarStation);
+		if (renderer.zoom >= 15) {
 			String bstr = "";
-			CatRTB cat = (CatRTB) Rules.getAttEnum(Obj.RTPBCN, Att.CATRTB);
-			String wal = Rules.getAttStr(Obj.RTPBCN, Att.RADWAL);
+			CatRTB cat = (CatRTB) rules.getAttEnum(Obj.RTPBCN, Att.CATRTB);
+			String wal = rules.getAttStr(Obj.RTPBCN, Att.RADWAL);
 			switch (cat) {
 			case RTB_RAMK:
 				bstr += " Ramark";
 				break;
 			case RTB_RACN:
 				bstr += " Racon";
-				String astr = Rules.getAttStr(Obj.RTPBCN, Att.SIGGRP);
+				String astr = rules.getAttStr(Obj.RTPBCN, Att.SIGGRP);
 				if (!astr.isEmpty()) {
 					bstr += "(" + astr + ")";
 				}
-				Double per = (Double) Rules.getAttVal(Obj.RTPBCN, Att.SIGPER);
-				Double mxr = (Double) Rules.getAttVal(Obj.RTPBCN, Att.VALMXR);
+				Double per = (Double) rules.getAttVal(Obj.RTPBCN, Att.SIGPER);
+				Double mxr = (Double) rules.getAttVal(Obj.RTPBCN, Att.VALMXR);
 				if ((per != null) || (mxr != null)) {
 					bstr += (astr.isEmpty() ? " " : "");
 					if (per != null)
@@ -233,17 +241,17 @@ public class Signals {
 				}
 			}
 			if (!bstr.isEmpty()) {
-				Renderer.labelText(bstr, new Font("Arial", Font.PLAIN, 40), Symbols.Msymb, new Delta(Handle.TR, AffineTransform.getTranslateInstance(-30, -70)));
+				renderer.labelText(bstr, new Font("Arial", Font.PLAIN, 40), Symbols.Msymb, new Delta(Handle.TR, AffineTransform.getTranslateInstance(-30, -70)));
 			}
 		}
 	}
 
 	@SuppressWarnings("unchecked")
-	public static void radioStations() {
+	public void radioStations() {
 		boolean vais = false;
 		String bstr = "";
-		if (Renderer.zoom >= 11) {
-			ArrayList<CatROS> cats = (ArrayList<CatROS>) Rules.getAttList(Obj.RDOSTA, Att.CATROS);
+		if (renderer.zoom >= 11) {
+			ArrayList<CatROS> cats = (ArrayList<CatROS>) rules.getAttList(Obj.RDOSTA, Att.CATROS);
 			for (CatROS ros : cats) {
 				switch (ros) {
 				case ROS_OMNI:
@@ -302,58 +310,58 @@ public class Signals {
 					break;
 				case ROS_VANC:
 					vais = true;
-					Renderer.symbol(Topmarks.TopNorth, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopNorth, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VASC:
 					vais = true;
-					Renderer.symbol(Topmarks.TopSouth, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopSouth, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VAEC:
 					vais = true;
-					Renderer.symbol(Topmarks.TopEast, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopEast, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VAWC:
 					vais = true;
-					Renderer.symbol(Topmarks.TopWest, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopWest, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VAPL:
 					vais = true;
-					Renderer.symbol(Topmarks.TopCan, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopCan, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VASL:
 					vais = true;
-					Renderer.symbol(Topmarks.TopCone, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopCone, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VAID:
 					vais = true;
-					Renderer.symbol(Topmarks.TopIsol, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopIsol, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VASW:
 					vais = true;
-					Renderer.symbol(Topmarks.TopSphere, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopSphere, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VASP:
 					vais = true;
-					Renderer.symbol(Topmarks.TopX, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopX, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				case ROS_VAWK:
 					vais = true;
-					Renderer.symbol(Topmarks.TopCross, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
+					renderer.symbol(Topmarks.TopCross, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, -25)));
 					break;
 				default:
 					break;
 				}
 			}
 			if (!vais) {
-				Renderer.symbol(Beacons.RadarStation);
+				renderer.symbol(Beacons.RadarStation);
 			}
 		}
-		if (Renderer.zoom >= 15) {
+		if (renderer.zoom >= 15) {
 			if (vais) {
-				Renderer.labelText("V-AIS", new Font("Arial", Font.PLAIN, 40), Symbols.Msymb, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, 70)));
+				renderer.labelText("V-AIS", new Font("Arial", Font.PLAIN, 40), Symbols.Msymb, new Delta(Handle.BC, AffineTransform.getTranslateInstance(0, 70)));
 			}
 			if (!bstr.isEmpty()) {
-				Renderer.labelText(bstr, new Font("Arial", Font.PLAIN, 40), Symbols.Msymb, new Delta(Handle.TR, AffineTransform.getTranslateInstance(-30, -110)));
+				renderer.labelText(bstr, new Font("Arial", Font.PLAIN, 40), Symbols.Msymb, new Delta(Handle.TR, AffineTransform.getTranslateInstance(-30, -110)));
 			}
 		}
 	}
@@ -369,10 +377,10 @@ public class Signals {
 	}
 	
 	@SuppressWarnings("unchecked")
-	public static void lights() {
+	public void lights() {
 		Enum<ColCOL> col = null;
 		Enum<ColCOL> tcol = null;
-		ObjTab lights = Rules.feature.objs.get(Obj.LIGHTS);
+		ObjTab lights = rules.feature.objs.get(Obj.LIGHTS);
 		for (AttMap atts : lights.values()) {
 			if (atts.containsKey(Att.COLOUR)) {
 				ArrayList<Enum<ColCOL>> cols = (ArrayList<Enum<ColCOL>>) atts.get(Att.COLOUR).val;
@@ -390,7 +398,7 @@ public class Signals {
 				}
 			}
 		}
-		Renderer.symbol(Beacons.LightFlare, new Scheme(LightColours.get(col)), new Delta(Handle.BC, AffineTransform.getRotateInstance(Math.toRadians(120))));
+		renderer.symbol(Beacons.LightFlare, new Scheme(LightColours.get(col)), new Delta(Handle.BC, AffineTransform.getRotateInstance(Math.toRadians(120))));
 			String str = "";
 			if (lights.get(1) != null) {
 				for (AttMap atts : lights.values()) {
@@ -493,9 +501,9 @@ public class Signals {
 						str += "." + df.format(atts.get(Att.SIGPER).val) + "s";
 					}
 					if ((s1 <= 360) && (s2 <= 360) && (s1 != s2))
-						Renderer.lightSector(LightColours.get(col1), LightColours.get(col2), radius, s1, s2, dir, (Renderer.zoom >= 15) ? str : "");
+						renderer.lightSector(LightColours.get(col1), LightColours.get(col2), radius, s1, s2, dir, (renderer.zoom >= 15) ? str : "");
 				}
-			if (Renderer.zoom >= 15) {
+			if (renderer.zoom >= 15) {
 				class LitSect {
 					boolean dir;
 					LitCHR chr;
@@ -618,13 +626,13 @@ public class Signals {
 						str += df.format(tmp.hgt) + "m";
 					if (colrng.get(0).rng > 0)
 						str += df.format(colrng.get(0).rng) + ((colrng.size() > 1) ? ((colrng.size() > 2) ? ("-" + df.format(colrng.get(colrng.size() - 1).rng)) : ("/" + df.format(colrng.get(1).rng))) : "") + "M";
-					Renderer.labelText(str, new Font("Arial", Font.PLAIN, 40), Color.black, new Delta(Handle.TL, AffineTransform.getTranslateInstance(60, y)));
+					renderer.labelText(str, new Font("Arial", Font.PLAIN, 40), Color.black, new Delta(Handle.TL, AffineTransform.getTranslateInstance(60, y)));
 					y += 40;
 					str = "";
 				}
 			}
 		} else {
-			if (Renderer.zoom >= 15) {
+			if (renderer.zoom >= 15) {
 				AttMap atts = lights.get(0);
 				ArrayList<CatLIT> cats = new ArrayList<>();
 				if (atts.containsKey(Att.CATLIT)) {
@@ -675,7 +683,7 @@ public class Signals {
 				str += (cats.contains(CatLIT.LIT_REAR)) ? "(Rear)" : "";
 				str += (cats.contains(CatLIT.LIT_UPPR)) ? "(Upper)" : "";
 				str += (cats.contains(CatLIT.LIT_LOWR)) ? "(Lower)" : "";
-				Renderer.labelText(str, new Font("Arial", Font.PLAIN, 40), Color.black, new Delta(Handle.TL, AffineTransform.getTranslateInstance(60, -30)));
+				renderer.labelText(str, new Font("Arial", Font.PLAIN, 40), Color.black, new Delta(Handle.TL, AffineTransform.getTranslateInstance(60, -30)));
 			}
 		}
 	}
@@ -143,16 +143,16 @@ public class S57dat { // S57 ENC file fields lookup tables & methods
 	}
 	
 	private static byte[] leader = {'0', '0', '0', '0', '0', ' ', 'D', ' ', ' ', ' ', ' ', ' ', '0', '0', '0', '0', '0', ' ', ' ', ' ', '0', '0', '0', '4'};
-	private static byte[] buffer;
-	private static int offset;
-	private static int maxoff;
-	private static int index;
-	private static S57field field;
-	private static String aall = "US-ASCII";
-	private static String nall = "US-ASCII";
-	public static int rnum;
+	private byte[] buffer;
+	private int offset;
+	private int maxoff;
+	private int index;
+	private S57field field;
+	private String aall = "US-ASCII";
+	private String nall = "US-ASCII";
+	public int rnum;
 	
-	private static S57conv findSubf(S57subf subf) {
+	private S57conv findSubf(S57subf subf) {
 		ArrayList<S57subf> subs = fields.get(field);
 		boolean wrap = false;
 		while (true) {
@@ -174,7 +174,7 @@ public class S57dat { // S57 ENC file fields lookup tables & methods
 		}
 	}
 	
-	public static void setField(byte[] buf, int off, S57field fld, int len) {
+	public void setField(byte[] buf, int off, S57field fld, int len) {
 		buffer = buf;
 		offset = off;
 		maxoff = off + len - 1;
@@ -182,24 +182,24 @@ public class S57dat { // S57 ENC file fields lookup tables & methods
 		index = 0;
 	}
 	
-	public static boolean more() {
+	public boolean more() {
 		return (offset < maxoff);
 	}
 	
-	public static Object decSubf(byte[] buf, int off, S57field fld, S57subf subf) {
+	public Object decSubf(byte[] buf, int off, S57field fld, S57subf subf) {
 		buffer = buf;
 		offset = off;
 		index = 0;
 		return decSubf(fld, subf);
 	}
 	
-	public static Object decSubf(S57field fld, S57subf subf) {
+	public Object decSubf(S57field fld, S57subf subf) {
 		field = fld;
 		index = 0;
 		return decSubf(subf);
 	}
 
-	public static Object decSubf(S57subf subf) {
+	public Object decSubf(S57subf subf) {
 		S57conv conv = findSubf(subf);
 		if (conv.bin == 0) {
 			String str = "";
@@ -262,7 +262,7 @@ public class S57dat { // S57 ENC file fields lookup tables & methods
 		}
 	}
 
-	public static byte[] encSubf(S57subf subf, Object val) {
+	public byte[] encSubf(S57subf subf, Object val) {
 		S57conv conv = convs.get(subf);
 		if ((conv.bin == 0) || asc) {
 			String sval = "";
@@ -331,14 +331,14 @@ public class S57dat { // S57 ENC file fields lookup tables & methods
 		}
 	};
 
-	static boolean asc = false;
+	boolean asc = false;
 	
-	public static byte[] encRecord(String i8rn, ArrayList<Fparams> fparams) {
+	public byte[] encRecord(String i8rn, ArrayList<Fparams> fparams) {
 		asc = true;
 		return encRecord(Integer.parseInt(i8rn), fparams);
 	}
 	
-	public static byte[] encRecord(int i8rn, ArrayList<Fparams> fparams) {
+	public byte[] encRecord(int i8rn, ArrayList<Fparams> fparams) {
 		ArrayList<Index> index = new ArrayList<>();
 		int offset = 3;
 		int maxlen = 3;
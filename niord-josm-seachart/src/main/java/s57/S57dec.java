@@ -19,7 +19,7 @@ import s57.S57map.*;
 public class S57dec { // S57 ENC file input & map conversion
 
 	public static void decodeChart(FileInputStream in, S57map map) throws IOException {
-		S57dat.rnum = 0;
+		S57dat dat = new S57dat();
 		byte[] leader = new byte[24];
 		boolean ddr = false;
 		int length = 0;
@@ -59,23 +59,23 @@ public class S57dec { // S57 ENC file input & map conversion
 				if (!ddr) {
 					switch (tag.toString()) {
 					case "0001":
-						int i8rn = ((Long) S57dat.decSubf(record, fields + pos, S57field.I8RI, S57subf.I8RN)).intValue();
-						if (i8rn != ++S57dat.rnum) {
+						int i8rn = ((Long) dat.decSubf(record, fields + pos, S57field.I8RI, S57subf.I8RN)).intValue();
+						if (i8rn != ++dat.rnum) {
 							in.close();
 							throw new SeachartException("Out of order record ID");
 						}
 						break;
 					case "DSSI":
-						S57dat.decSubf(record, fields + pos, S57field.DSSI, S57subf.AALL);
-						S57dat.decSubf(S57subf.NALL);
+						dat.decSubf(record, fields + pos, S57field.DSSI, S57subf.AALL);
+						dat.decSubf(S57subf.NALL);
 						break;
 					case "DSPM":
-						comf = (double) (Long) S57dat.decSubf(record, fields + pos, S57field.DSPM, S57subf.COMF);
-						somf = (double) (Long) S57dat.decSubf(S57subf.SOMF);
+						comf = (double) (Long) dat.decSubf(record, fields + pos, S57field.DSPM, S57subf.COMF);
+						somf = (double) (Long) dat.decSubf(S57subf.SOMF);
 						break;
 					case "FRID":
 						inFeature = true;
-						switch (((Long)S57dat.decSubf(record, fields + pos, S57field.FRID, S57subf.PRIM)).intValue()) {
+						switch (((Long)dat.decSubf(record, fields + pos, S57field.FRID, S57subf.PRIM)).intValue()) {
 						case 1:
 							pflag = S57map.Pflag.POINT;
 							break;
@@ -88,42 +88,42 @@ public class S57dec { // S57 ENC file input & map conversion
 						default:
 							pflag = S57map.Pflag.NOSP;
 						}
-						objl = (Long)S57dat.decSubf(S57subf.OBJL);
+						objl = (Long)dat.decSubf(S57subf.OBJL);
 						break;
 					case "FOID":
-						name = (Long) S57dat.decSubf(record, fields + pos, S57field.LNAM, S57subf.LNAM);
+						name = (Long) dat.decSubf(record, fields + pos, S57field.LNAM, S57subf.LNAM);
 						map.newFeature(name, pflag, objl);
 						break;
 					case "ATTF":
-						S57dat.setField(record, fields + pos, S57field.ATTF, len);
+						dat.setField(record, fields + pos, S57field.ATTF, len);
 						do {
-							long attl = (Long) S57dat.decSubf(S57subf.ATTL);
-							String atvl = ((String) S57dat.decSubf(S57subf.ATVL)).trim();
+							long attl = (Long) dat.decSubf(S57subf.ATTL);
+							String atvl = ((String) dat.decSubf(S57subf.ATVL)).trim();
 							if (!atvl.isEmpty()) {
 								map.newAtt(attl, atvl);
 							}
-						} while (S57dat.more());
+						} while (dat.more());
 						break;
 					case "FFPT":
-						S57dat.setField(record, fields + pos, S57field.FFPT, len);
+						dat.setField(record, fields + pos, S57field.FFPT, len);
 						do {
-							name = (Long) S57dat.decSubf(S57subf.LNAM);
-							int rind = ((Long) S57dat.decSubf(S57subf.RIND)).intValue();
-							S57dat.decSubf(S57subf.COMT);
+							name = (Long) dat.decSubf(S57subf.LNAM);
+							int rind = ((Long) dat.decSubf(S57subf.RIND)).intValue();
+							dat.decSubf(S57subf.COMT);
 							map.newObj(name, rind);
-						} while (S57dat.more());
+						} while (dat.more());
 						break;
 					case "FSPT":
-						S57dat.setField(record, fields + pos, S57field.FSPT, len);
+						dat.setField(record, fields + pos, S57field.FSPT, len);
 						do {
-							name = (Long) S57dat.decSubf(S57subf.NAME) << 16;
-							map.newPrim(name, (Long) S57dat.decSubf(S57subf.ORNT), (Long) S57dat.decSubf(S57subf.USAG));
-							S57dat.decSubf(S57subf.MASK);
-						} while (S57dat.more());
+							name = (Long) dat.decSubf(S57subf.NAME) << 16;
+							map.newPrim(name, (Long) dat.decSubf(S57subf.ORNT), (Long) dat.decSubf(S57subf.USAG));
+							dat.decSubf(S57subf.MASK);
+						} while (dat.more());
 						break;
 					case "VRID":
 						inFeature = false;
-						name = (long) (Long)S57dat.decSubf(record, fields + pos, S57field.VRID, S57subf.RCNM);
+						name = (long) (Long)dat.decSubf(record, fields + pos, S57field.VRID, S57subf.RCNM);
 						switch ((int) name) {
 						case 110:
 							nflag = Nflag.ISOL;
@@ -136,26 +136,26 @@ public class S57dec { // S57 ENC file input & map conversion
 							break;
 						}
 						name <<= 32;
-						name += (Long) S57dat.decSubf(S57subf.RCID);
+						name += (Long) dat.decSubf(S57subf.RCID);
 						name <<= 16;
 						if (nflag == Nflag.ANON) {
 							map.newEdge(name);
 						}
 						break;
 					case "VRPT":
-						S57dat.setField(record, fields + pos, S57field.VRPT, len);
+						dat.setField(record, fields + pos, S57field.VRPT, len);
 						do {
-							long conn = (Long) S57dat.decSubf(S57subf.NAME) << 16;
-							int topi = ((Long) S57dat.decSubf(S57subf.TOPI)).intValue();
+							long conn = (Long) dat.decSubf(S57subf.NAME) << 16;
+							int topi = ((Long) dat.decSubf(S57subf.TOPI)).intValue();
 							map.addConn(conn, topi);
-							S57dat.decSubf(S57subf.MASK);
-						} while (S57dat.more());
+							dat.decSubf(S57subf.MASK);
+						} while (dat.more());
 						break;
 					case "SG2D":
-						S57dat.setField(record, fields + pos, S57field.SG2D, len);
+						dat.setField(record, fields + pos, S57field.SG2D, len);
 						do {
-							double lat = (double) ((Long) S57dat.decSubf(S57subf.YCOO)) / comf;
-							double lon = (double) ((Long) S57dat.decSubf(S57subf.XCOO)) / comf;
+							double lat = (double) ((Long) dat.decSubf(S57subf.YCOO)) / comf;
+							double lon = (double) ((Long) dat.decSubf(S57subf.XCOO)) / comf;
 							if (nflag == Nflag.ANON) {
 								map.newNode(++name, lat, lon, nflag);
 							} else {
@@ -171,14 +171,14 @@ public class S57dec { // S57 ENC file input & map conversion
 								map.bounds.minlon = lon;
 							if (lon > map.bounds.maxlon)
 								map.bounds.maxlon = lon;
-						} while (S57dat.more());
+						} while (dat.more());
 						break;
 					case "SG3D":
-						S57dat.setField(record, fields + pos, S57field.SG3D, len);
+						dat.setField(record, fields + pos, S57field.SG3D, len);
 						do {
-							double lat = (double) ((Long) S57dat.decSubf(S57subf.YCOO)) / comf;
-							double lon = (double) ((Long) S57dat.decSubf(S57subf.XCOO)) / comf;
-							double depth = (double) ((Long) S57dat.decSubf(S57subf.VE3D)) / somf;
+							double lat = (double) ((Long) dat.decSubf(S57subf.YCOO)) / comf;
+							double lon = (double) ((Long) dat.decSubf(S57subf.XCOO)) / comf;
+							double depth = (double) ((Long) dat.decSubf(S57subf.VE3D)) / somf;
 							map.newNode(name++, lat, lon, depth);
 							lat = Math.toRadians(lat);
 							lon = Math.toRadians(lon);
@@ -190,7 +190,7 @@ public class S57dec { // S57 ENC file input & map conversion
 								map.bounds.minlon = lon;
 							if (lon > map.bounds.maxlon)
 								map.bounds.maxlon = lon;
-						} while (S57dat.more());
+						} while (dat.more());
 						break;
 					default:
 						break;
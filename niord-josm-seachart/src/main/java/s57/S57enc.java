@@ -174,6 +174,7 @@ public class S57enc { // S57 ENC file generation
 		
 		S57dat.S57geoms(map);
 
+		S57dat dat = new S57dat();
 		byte[] record;
 		ArrayList<Fparams> fields;
 
@@ -187,10 +188,10 @@ public class S57enc { // S57 ENC file generation
 
 		System.arraycopy(header, 0, buf, 0, header.length);
 		idx = header.length;
-		record = S57dat.encRecord(1, ds);
+		record = dat.encRecord(1, ds);
 		System.arraycopy(record, 0, buf, idx, record.length);
 		idx += record.length;
-		record = S57dat.encRecord(2, dp);
+		record = dat.encRecord(2, dp);
 		System.arraycopy(record, 0, buf, idx, record.length);
 		idx += record.length;
 		recs = 3;
@@ -209,7 +210,7 @@ public class S57enc { // S57 ENC file generation
 			fields = new ArrayList<>();
 			fields.add(new Fparams(S57field.VRID, new Object[] { 110, -2, 1, 1 }));
 			fields.add(new Fparams(S57field.SG3D, depths));
-			record = S57dat.encRecord(recs++, fields);
+			record = dat.encRecord(recs++, fields);
 			System.arraycopy(record, 0, buf, idx, record.length);
 			idx += record.length;
 			isols++;
@@ -222,7 +223,7 @@ public class S57enc { // S57 ENC file generation
 				fields = new ArrayList<>();
 				fields.add(new Fparams(S57field.VRID, new Object[] { 110, hash(entry.getKey()), 1, 1 }));
 				fields.add(new Fparams(S57field.SG2D, new Object[] { (Math.toDegrees(node.lat) * COMF), (Math.toDegrees(node.lon) * COMF) }));
-				record = S57dat.encRecord(recs++, fields);
+				record = dat.encRecord(recs++, fields);
 				System.arraycopy(record, 0, buf, idx, record.length);
 				idx += record.length;
 				isols++;
@@ -236,7 +237,7 @@ public class S57enc { // S57 ENC file generation
 				fields = new ArrayList<>();
 				fields.add(new Fparams(S57field.VRID, new Object[] { 120, hash(entry.getKey()), 1, 1 }));
 				fields.add(new Fparams(S57field.SG2D, new Object[] { (Math.toDegrees(node.lat) * COMF), (Math.toDegrees(node.lon) * COMF) }));
-				record = S57dat.encRecord(recs++, fields);
+				record = dat.encRecord(recs++, fields);
 				System.arraycopy(record, 0, buf, idx, record.length);
 				idx += record.length;
 				conns++;
@@ -258,7 +259,7 @@ public class S57enc { // S57 ENC file generation
 			if (nodes.length > 0) {
 				fields.add(new Fparams(S57field.SG2D, nodes));
 			}
-			record = S57dat.encRecord(recs++, fields);
+			record = dat.encRecord(recs++, fields);
 			System.arraycopy(record, 0, buf, idx, record.length);
 			idx += record.length;
 			edges++;
@@ -358,7 +359,7 @@ public class S57enc { // S57 ENC file generation
 
 				for (ArrayList<Fparams> object : objects) {
 					object.addAll(geom);
-					record = S57dat.encRecord(recs++, object);
+					record = dat.encRecord(recs++, object);
 					System.arraycopy(record, 0, buf, idx, record.length);
 					idx += record.length;
 					if ((obj == Obj.M_COVR) || (obj == Obj.M_NSYS)) {
@@ -374,7 +375,7 @@ public class S57enc { // S57 ENC file generation
 		ds = new ArrayList<>();
 		ds.add(new Fparams(S57field.DSID, new Object[] { 10, 1, 1, intu, file, "1", "0", date, date, "03.1", 1, "ENC", "2.0", 1, agen, "Generated by OpenSeaMap.org" }));
 		ds.add(new Fparams(S57field.DSSI, new Object[] { 2, 1, 2, metas, 0, geos, 0, isols, conns, edges, 0 }));
-		record = S57dat.encRecord(1, ds);
+		record = dat.encRecord(1, ds);
 		System.arraycopy(record, 0, buf, header.length, record.length);
 
 		return idx;
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.josm.seachart;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.niord.josm.seachart.RendererConcurrencyTest.renderConcurrently;
+import static org.niord.josm.seachart.RendererConcurrencyTest.renderSequentially;
+
+/**
+ * Measures the rendering throughput of the IALA buoyage symbol set for an increasing number of threads,
+ * which should scale roughly linearly with the number of threads, up to the number of cores.
+ * <p>
+ * Run with the "benchmark" profile.
+ */
+@Category(Benchmark.class)
+public class RendererBenchmarkTest {
+
+    @Test
+    public void testRenderingThroughput() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        assumeTrue(cores > 1);
+
+        // Warm up the JIT compiler
+        renderSequentially();
+        renderConcurrently(1);
+
+        double singleThreadRate = getRenderingRate(1);
+        for (int threads = 2; threads <= cores; threads *= 2) {
+            double rate = getRenderingRate(threads);
+            assertTrue(String.format("Rendering with %d threads: %.0f icons/s, single thread: %.0f icons/s",
+                            threads, rate, singleThreadRate),
+                    rate > singleThreadRate * threads / 2);
+        }
+    }
+
+
+    /** Returns the number of icons rendered per second with the given number of threads **/
+    private double getRenderingRate(int threads) throws Exception {
+        long t0 = System.nanoTime();
+        List<int[]> icons = renderConcurrently(threads);
+        return icons.size() / ((System.nanoTime() - t0) / 1e9);
+    }
+}
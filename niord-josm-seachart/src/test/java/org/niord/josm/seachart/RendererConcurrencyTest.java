@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.josm.seachart;
+
+import org.junit.Test;
+import render.ChartContext;
+import render.Renderer;
+import s57.S57map;
+import s57.S57map.Feature;
+import s57.S57map.Snode;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Renders the IALA buoyage symbol set concurrently, and checks that the icons are identical
+ * to the icons rendered sequentially.
+ */
+public class RendererConcurrencyTest {
+
+    static final int WIDTH = 100;
+    static final int HEIGHT = 100;
+    static final double SCALE = 0.3;
+    static final int ITERATIONS = 20;
+
+    // Always use a couple of threads, so that concurrency issues surface on single-core machines as well
+    static final int THREADS = 4;
+
+    static final String[][][] IALA_SYMBOLS = {
+            // Lateral marks, IALA A
+            { { "seamark:type", "buoy_lateral" }, { "seamark:buoy_lateral:category", "port" },
+              { "seamark:buoy_lateral:shape", "can" }, { "seamark:buoy_lateral:colour", "red" },
+              { "seamark:topmark:shape", "cylinder" }, { "seamark:topmark:colour", "red" },
+              { "seamark:light:colour", "red" }, { "seamark:light:character", "Fl" } },
+            { { "seamark:type", "buoy_lateral" }, { "seamark:buoy_lateral:category", "starboard" },
+              { "seamark:buoy_lateral:shape", "conical" }, { "seamark:buoy_lateral:colour", "green" },
+              { "seamark:topmark:shape", "cone, point up" }, { "seamark:topmark:colour", "green" },
+              { "seamark:light:colour", "green" }, { "seamark:light:character", "Fl" } },
+            { { "seamark:type", "beacon_lateral" }, { "seamark:beacon_lateral:category", "port" },
+              { "seamark:beacon_lateral:shape", "stake" }, { "seamark:beacon_lateral:colour", "red" } },
+            { { "seamark:type", "beacon_lateral" }, { "seamark:beacon_lateral:category", "starboard" },
+              { "seamark:beacon_lateral:shape", "stake" }, { "seamark:beacon_lateral:colour", "green" } },
+            // Cardinal marks
+            { { "seamark:type", "buoy_cardinal" }, { "seamark:buoy_cardinal:category", "north" },
+              { "seamark:buoy_cardinal:shape", "pillar" }, { "seamark:buoy_cardinal:colour", "black;yellow" },
+              { "seamark:buoy_cardinal:colour_pattern", "horizontal" },
+              { "seamark:topmark:shape", "2 cones up" }, { "seamark:topmark:colour", "black" },
+              { "seamark:light:colour", "white" }, { "seamark:light:character", "VQ" } },
+            { { "seamark:type", "buoy_cardinal" }, { "seamark:buoy_cardinal:category", "east" },
+              { "seamark:buoy_cardinal:shape", "pillar" }, { "seamark:buoy_cardinal:colour", "black;yellow;black" },
+              { "seamark:buoy_cardinal:colour_pattern", "horizontal" },
+              { "seamark:topmark:shape", "2 cones base together" }, { "seamark:topmark:colour", "black" },
+              { "seamark:light:colour", "white" }, { "seamark:light:character", "VQ" },
+              { "seamark:light:group", "3" } },
+            { { "seamark:type", "buoy_cardinal" }, { "seamark:buoy_cardinal:category", "south" },
+              { "seamark:buoy_cardinal:shape", "spar" }, { "seamark:buoy_cardinal:colour", "yellow;black" },
+              { "seamark:buoy_cardinal:colour_pattern", "horizontal" },
+              { "seamark:topmark:shape", "2 cones down" }, { "seamark:topmark:colour", "black" } },
+            { { "seamark:type", "beacon_cardinal" }, { "seamark:beacon_cardinal:category", "west" },
+              { "seamark:beacon_cardinal:shape", "tower" }, { "seamark:beacon_cardinal:colour", "yellow;black;yellow" },
+              { "seamark:beacon_cardinal:colour_pattern", "horizontal" },
+              { "seamark:topmark:shape", "2 cones point together" }, { "seamark:topmark:colour", "black" } },
+            // Isolated danger, safe water and special marks
+            { { "seamark:type", "buoy_isolated_danger" }, { "seamark:buoy_isolated_danger:shape", "pillar" },
+              { "seamark:buoy_isolated_danger:colour", "black;red;black" },
+              { "seamark:buoy_isolated_danger:colour_pattern", "horizontal" },
+              { "seamark:topmark:shape", "2 spheres" }, { "seamark:topmark:colour", "black" },
+              { "seamark:light:colour", "white" }, { "seamark:light:character", "Fl" },
+              { "seamark:light:group", "2" } },
+            { { "seamark:type", "buoy_safe_water" }, { "seamark:buoy_safe_water:shape", "spherical" },
+              { "seamark:buoy_safe_water:colour", "red;white" },
+              { "seamark:buoy_safe_water:colour_pattern", "vertical" },
+              { "seamark:topmark:shape", "sphere" }, { "seamark:topmark:colour", "red" },
+              { "seamark:light:colour", "white" }, { "seamark:light:character", "LFl" } },
+            { { "seamark:type", "buoy_special_purpose" }, { "seamark:buoy_special_purpose:shape", "barrel" },
+              { "seamark:buoy_special_purpose:colour", "yellow" },
+              { "seamark:topmark:shape", "x-shape" }, { "seamark:topmark:colour", "yellow" },
+              { "seamark:light:colour", "yellow" }, { "seamark:light:character", "Fl" } },
+            // Lights, light vessels and reflectors
+            { { "seamark:type", "light_major" }, { "seamark:light:colour", "white" },
+              { "seamark:light:character", "Oc" }, { "seamark:light:period", "10" },
+              { "seamark:light:range", "15" }, { "seamark:name", "Test" } },
+            { { "seamark:type", "light_vessel" }, { "seamark:light_vessel:colour", "red" },
+              { "seamark:light:colour", "white" }, { "seamark:light:character", "Fl" } },
+            { { "seamark:type", "buoy_lateral" }, { "seamark:buoy_lateral:category", "starboard" },
+              { "seamark:buoy_lateral:shape", "pillar" }, { "seamark:buoy_lateral:colour", "green" },
+              { "seamark:radar_reflector", "yes" }, { "seamark:fog_signal:category", "bell" } },
+    };
+
+
+    /** Renders the AtoN with the given tags as a PNG image and returns the pixel data **/
+    static int[] render(String[][] tags) {
+        S57map map = new S57map(true);
+        map.addNode(0, 0, 0);
+        Arrays.stream(tags).forEach(t -> map.addTag(t[0], t[1]));
+        map.tagsDone(0);
+
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = img.createGraphics();
+        new Renderer(g2, 16, SCALE / Renderer.symbolScale[16], map, new Context())
+                .render(new Rectangle(WIDTH / 2, HEIGHT / 2, WIDTH, HEIGHT));
+        g2.dispose();
+        return img.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+    }
+
+
+    /** Renders the IALA symbol set "ITERATIONS" times using the given number of threads **/
+    static List<int[]> renderConcurrently(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<int[]>> renders = new ArrayList<>();
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (String[][] tags : IALA_SYMBOLS) {
+                    renders.add(executor.submit(() -> render(tags)));
+                }
+            }
+            List<int[]> result = new ArrayList<>();
+            for (Future<int[]> render : renders) {
+                result.add(render.get());
+            }
+            return result;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    /** Renders the symbols sequentially for reference **/
+    static List<int[]> renderSequentially() {
+        List<int[]> icons = new ArrayList<>();
+        for (String[][] tags : IALA_SYMBOLS) {
+            icons.add(render(tags));
+        }
+        return icons;
+    }
+
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        List<int[]> expected = renderSequentially();
+        List<int[]> icons = renderConcurrently(THREADS);
+
+        // Concurrent renders must not corrupt each other
+        for (int x = 0; x < icons.size(); x++) {
+            assertArrayEquals("Icon " + x, expected.get(x % IALA_SYMBOLS.length), icons.get(x));
+        }
+    }
+
+
+    /** The chart context used for rendering icons **/
+    static class Context implements ChartContext {
+
+        public Point2D getPoint(Snode coord) {
+            return new Point2D.Double(WIDTH / 2, HEIGHT / 2);
+        }
+
+        public double mile(Feature feature) {
+            return Math.min(WIDTH, HEIGHT);
+        }
+
+        public boolean clip() {
+            return false;
+        }
+
+        public Color background(S57map map) {
+            return new Color(0, true);
+        }
+
+        public RuleSet ruleset() {
+            return RuleSet.SEAMARK;
+        }
+    }
+}
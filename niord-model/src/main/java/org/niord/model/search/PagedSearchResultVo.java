@@ -40,6 +40,9 @@ public class PagedSearchResultVo<T> implements IJsonSerializable {
     // Optionally, specify a description - e.g. textual description of the search criteria
     String description;
 
+    // Optionally, an opaque continuation token used for fetching the next page of a cursor-based search
+    String nextCursor;
+
     /**
      * Paginates a content list according to the page number and size specified by the search parameters
      * @param content the list to paginate
@@ -120,6 +123,7 @@ public class PagedSearchResultVo<T> implements IJsonSerializable {
         result.setSize(getSize());
         result.setTotal(getTotal());
         result.setDescription(getDescription());
+        result.setNextCursor(getNextCursor());
         result.setData(
                 getData() == null
                 ? null
@@ -168,4 +172,12 @@ public class PagedSearchResultVo<T> implements IJsonSerializable {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
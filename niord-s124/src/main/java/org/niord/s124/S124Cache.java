@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.s124;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionType;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.niord.core.cache.BaseCache;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Caches the generated S-124 GML of messages.
+ * <p>
+ * The cache is keyed by the message UID, language and whether the GML is a full document or just
+ * the data set members of the message. Each entry records the version of the message it was generated
+ * from, so stale entries are never returned, even if the cache has not yet been updated.
+ */
+@ApplicationScoped
+public class S124Cache extends BaseCache<String, S124Cache.CachedGml> {
+
+    final static long LIFESPAN = 24 * 60 * 60 * 1000;   // 24 hours
+    final static long MAX_ENTRIES = 10000;              // at most 10.000 documents
+
+    final static String CACHE_ID = "s124Cache";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCacheId() {
+        return CACHE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Configuration createCacheConfiguration() {
+        return new ConfigurationBuilder()
+                .clustering().cacheMode(CacheMode.LOCAL)
+                .locking().isolationLevel(IsolationLevel.REPEATABLE_READ)
+                .eviction().type(EvictionType.COUNT).size(MAX_ENTRIES).strategy(EvictionStrategy.LRU)
+                .expiration().lifespan(LIFESPAN)
+                .build();
+    }
+
+
+    /**
+     * Returns the cache key for the GML of the given message
+     * @param uid the message UID
+     * @param language the language
+     * @param members whether the GML is just the data set members or a full document
+     * @return the cache key
+     */
+    public static String getCacheKey(String uid, String language, boolean members) {
+        return uid + ":" + language + (members ? ":members" : ":document");
+    }
+
+
+    /**
+     * The generated GML of a specific version of a message
+     */
+    public static class CachedGml {
+        final int version;
+        final String gml;
+        final double[] bbox;
+
+        public CachedGml(int version, String gml, double[] bbox) {
+            this.version = version;
+            this.gml = gml;
+            this.bbox = bbox;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getGml() {
+            return gml;
+        }
+
+        public double[] getBbox() {
+            return bbox;
+        }
+    }
+}
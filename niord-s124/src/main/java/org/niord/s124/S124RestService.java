@@ -28,17 +28,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
 import java.io.InputStream;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A public REST API for accessing messages as S-124 GML.
@@ -87,11 +85,9 @@ public class S124RestService {
 
 
         try {
+            // NB: The cached GML is already pretty-printed
             String result = s124Service.generateGML(messageId, language);
 
-            // Pretty print the result
-            result = prettyPrint(result);
-
             log.info("Generated GML for message " + messageId + " in " + (System.currentTimeMillis() - t0) + " ms");
             return Response.ok(result)
                     .type("application/gml+xml;charset=UTF-8")
@@ -113,24 +109,50 @@ public class S124RestService {
     }
 
 
-    /** Arghh, for some insane reason, this function does not work properly :-( **/
+    /**
+     * Returns a single S-124 data set containing all published navigational warnings.
+     * The data set is streamed without being pretty-printed.
+     */
+    @ApiOperation(
+            value = "Returns a single S-124 GML data set containing all published navigational warnings. " +
+                    "NB: Only use this service for test purposes, not for production.",
+            response = String.class,
+            tags = {"S-124"}
+    )
+    @GET
+    @Path("/messages")
+    @Produces({"application/gml+xml;charset=UTF-8"})
+    public Response s124DataSet(
+            @ApiParam(value = "The ID of the domain to select messages from. Defaults to all published domains",
+                    example = "niord-nw")
+            @QueryParam("domain") String domainId,
+
+            @ApiParam(value = "Two-letter ISO 639-1 language code", example = "en")
+            @QueryParam("lang") @DefaultValue("en") String language
+
+    ) throws Exception {
+
+        StreamingOutput stream = os -> {
+            long t0 = System.currentTimeMillis();
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+                s124Service.generateDataSetGML(domainId, language, writer);
+                log.info("Generated S-124 data set in " + (System.currentTimeMillis() - t0) + " ms");
+            } catch (Exception e) {
+                log.error("Error generating S-124 data set: " + e);
+                throw new WebApplicationException("Error generating S-124 data set", e);
+            }
+        };
+
+        return Response.ok(stream)
+                .type("application/gml+xml;charset=UTF-8")
+                .build();
+    }
+
+
+    /** Pretty-prints the XML **/
     public static String prettyPrint(String input) {
-        try {
-            Source xmlInput = new StreamSource(new StringReader(input));
-            StringWriter stringWriter = new StringWriter();
-            StreamResult xmlOutput = new StreamResult(stringWriter);
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-            transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-            transformer.transform(xmlInput, xmlOutput);
-            return stringWriter.toString();
-        } catch (Exception e) {
-            throw new RuntimeException(e); // simple exception handling, please review it
-        }
+        return S124Service.prettyPrint(input);
     }
 
 
@@ -20,20 +20,38 @@ import freemarker.cache.ClassTemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import org.niord.core.NiordApp;
+import org.niord.core.domain.Domain;
+import org.niord.core.domain.DomainService;
 import org.niord.core.geojson.GeoJsonUtils;
 import org.niord.core.message.Message;
+import org.niord.core.message.MessageSearchParams;
+import org.niord.core.message.MessageSeries;
 import org.niord.core.message.MessageService;
 import org.niord.core.message.vo.SystemMessageVo;
 import org.niord.model.message.MainType;
 import org.niord.model.message.ReferenceVo;
+import org.niord.model.message.Status;
+import org.niord.s124.S124Cache.CachedGml;
+import org.slf4j.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
@@ -43,6 +61,9 @@ import java.util.Map;
  * <p>
  * The S-124 XSD area based on the format used by the STM-project at
  * http://stmvalidation.eu/schemas/ ("Area Exchange Format")
+ * <p>
+ * The generated GML is cached per message version and language, and the GML of published
+ * navigational warnings is re-generated whenever they are updated or change status.
  *
  * TODO: When a more mature version has been implemented, the Freemarker template execution should
  *       use the {@code FmTemplateService} for DB-backed template execution.
@@ -50,9 +71,24 @@ import java.util.Map;
 @Stateless
 public class S124Service {
 
+    /** The Freemarker configuration is thread-safe and caches the parsed template, so share it across calls **/
+    private static final Configuration FM_CONFIGURATION = new Configuration(Configuration.getVersion());
+    static {
+        FM_CONFIGURATION.setTemplateLoader(new ClassTemplateLoader(S124Service.class, "/templates/gml"));
+    }
+
+    @Inject
+    Logger log;
+
     @Inject
     MessageService messageService;
 
+    @Inject
+    DomainService domainService;
+
+    @Inject
+    S124Cache s124Cache;
+
     @Inject
     NiordApp app;
 
@@ -78,6 +114,161 @@ public class S124Service {
         // Ensure we use a valid language
         language = app.getLanguage(language);
 
+        return getGML(message, language, false).getGml();
+    }
+
+
+    /**
+     * Generates a single S-124 data set containing all published navigational warnings of the domain,
+     * and writes it to the given writer.
+     * <p>
+     * The data set is assembled from the cached GML of the individual messages.
+     *
+     * @param domainId the domain, or null for all published domains
+     * @param language the language
+     * @param writer the writer to write the data set to
+     */
+    public void generateDataSetGML(String domainId, String language, Writer writer) throws Exception {
+
+        // Ensure we use a valid language
+        language = app.getLanguage(language);
+
+        List<String> members = new ArrayList<>();
+        double[] bbox = null;
+        for (Message message : findPublishedMessages(domainId)) {
+            try {
+                CachedGml gml = getGML(message, language, true);
+                members.add(gml.getGml());
+                bbox = mergeBBox(bbox, gml.getBbox());
+            } catch (Exception e) {
+                log.error("Error generating S-124 GML for message " + message.getUid() + ": " + e);
+            }
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("dataSetId", "NW");
+        data.put("members", members);
+        if (bbox != null) {
+            data.put("bbox", bbox);
+        }
+
+        Template fmTemplate = FM_CONFIGURATION.getTemplate("generate-s124-dataset.ftl");
+        fmTemplate.process(data, writer);
+        writer.flush();
+    }
+
+
+    /**
+     * Returns the published, numbered navigational warnings of the domain, in the domain sort order
+     * @param domainId the domain, or null for all published domains
+     * @return the published navigational warnings
+     */
+    private List<Message> findPublishedMessages(String domainId) {
+        List<Domain> domains = domainId != null
+                ? Collections.singletonList(domainService.findByDomainId(domainId))
+                : domainService.getPublishedDomains();
+
+        Set<String> seriesIds = domains.stream()
+                .filter(d -> d != null)
+                .flatMap(d -> d.getMessageSeries().stream())
+                .map(MessageSeries::getSeriesId)
+                .collect(Collectors.toSet());
+        if (seriesIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        MessageSearchParams params = new MessageSearchParams();
+        params.statuses(Status.PUBLISHED)
+                .mainTypes(Collections.singleton(MainType.NW))
+                .seriesIds(seriesIds)
+                .checkSortByDomain(domains.size() == 1 ? domains.get(0) : null)
+                .maxSize(10000);
+
+        return messageService.search(params).getData().stream()
+                .filter(m -> m.getNumber() != null)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Called when a message has been updated or has changed status.
+     * Evicts the cached GML of the message, and re-generates it if the message is a published,
+     * numbered navigational warning.
+     * <p>
+     * The GML of a message includes the messages that it references, so the cached GML
+     * of the messages referencing the changed message is refreshed as well.
+     *
+     * @param messageId the ID of the message
+     */
+    public void messageChanged(Integer messageId) {
+        Message message = messageService.getByPrimaryKey(Message.class, messageId);
+        if (message == null) {
+            return;
+        }
+
+        refreshGML(message);
+        messageService.findReferencingMessages(message).stream()
+                .filter(m -> !m.getId().equals(message.getId()))
+                .forEach(this::refreshGML);
+    }
+
+
+    /**
+     * Evicts the cached GML of the message, and re-generates it if the message is a published,
+     * numbered navigational warning.
+     *
+     * @param message the message
+     */
+    private void refreshGML(Message message) {
+        boolean pregenerate = message.getStatus() == Status.PUBLISHED
+                && message.getMainType() == MainType.NW
+                && message.getNumber() != null;
+
+        for (String language : app.getLanguages()) {
+            for (boolean members : new boolean[] { false, true }) {
+                s124Cache.getCache().remove(S124Cache.getCacheKey(message.getUid(), language, members));
+                if (pregenerate) {
+                    try {
+                        getGML(message, language, members);
+                    } catch (Exception e) {
+                        log.error("Error generating S-124 GML for message " + message.getUid() + ": " + e);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the cached GML of the current version of the message, or generates and caches it
+     * if not already cached.
+     *
+     * @param message the message
+     * @param language the language
+     * @param members whether to generate just the data set members of the message or a full document
+     * @return the GML of the message
+     */
+    private CachedGml getGML(Message message, String language, boolean members) throws Exception {
+        String key = S124Cache.getCacheKey(message.getUid(), language, members);
+        CachedGml gml = s124Cache.getCache().get(key);
+        if (gml == null || gml.getVersion() != message.getVersion()) {
+            gml = renderGML(message, language, members);
+            s124Cache.getCache().put(key, gml);
+        }
+        return gml;
+    }
+
+
+    /**
+     * Renders the S-124 GML of the message
+     *
+     * @param message the message
+     * @param language the language
+     * @param members whether to generate just the data set members of the message or a full document
+     * @return the GML of the message
+     */
+    private CachedGml renderGML(Message message, String language, boolean members) throws Exception {
+
         SystemMessageVo msg = message.toVo(
                 SystemMessageVo.class,
                 Message.MESSAGE_DETAILS_FILTER);
@@ -86,6 +277,7 @@ public class S124Service {
         Map<String, Object> data = new HashMap<>();
         data.put("msg", msg);
         data.put("language", language);
+        data.put("membersOnly", members);
 
         double[] bbox = GeoJsonUtils.computeBBox(message.toGeoJson());
         if (bbox != null) {
@@ -94,15 +286,29 @@ public class S124Service {
 
         data.put("references", referencedMessages(msg, language));
 
-        Configuration cfg = new Configuration(Configuration.getVersion());
-        cfg.setTemplateLoader(new ClassTemplateLoader(getClass(), "/templates/gml"));
-
         StringWriter result = new StringWriter();
-        Template fmTemplate = cfg.getTemplate("generate-s124.ftl");
+        Template fmTemplate = FM_CONFIGURATION.getTemplate("generate-s124.ftl");
 
 
         fmTemplate.process(data, result);
-        return result.toString();
+
+        // Full documents are pretty-printed once, before being cached
+        String gml = members ? result.toString() : prettyPrint(result.toString());
+        return new CachedGml(message.getVersion(), gml, bbox);
+    }
+
+
+    /** Returns the bounding box containing both of the given bounding boxes, either of which may be null **/
+    private double[] mergeBBox(double[] bbox1, double[] bbox2) {
+        if (bbox1 == null || bbox2 == null) {
+            return bbox1 != null ? bbox1 : bbox2;
+        }
+        return new double[] {
+                Math.min(bbox1[0], bbox2[0]),
+                Math.min(bbox1[1], bbox2[1]),
+                Math.max(bbox1[2], bbox2[2]),
+                Math.max(bbox1[3], bbox2[3])
+        };
     }
 
 
@@ -132,6 +338,32 @@ public class S124Service {
     }
 
 
+    /**
+     * Pretty-prints the XML
+     * @param input the XML to pretty-print
+     * @return the pretty-printed XML
+     * @throws IllegalStateException if the XML cannot be parsed or transformed
+     */
+    public static String prettyPrint(String input) {
+        try {
+            Source xmlInput = new StreamSource(new StringReader(input));
+            StringWriter stringWriter = new StringWriter();
+            StreamResult xmlOutput = new StreamResult(stringWriter);
+            TransformerFactory transformerFactory = TransformerFactory.newInstance();
+            Transformer transformer = transformerFactory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+            transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+            transformer.transform(xmlInput, xmlOutput);
+            return stringWriter.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed pretty-printing XML", e);
+        }
+    }
+
+
     /**
      * Utility class used for message references, including the referenced message
      */
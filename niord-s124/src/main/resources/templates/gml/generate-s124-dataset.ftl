@@ -0,0 +1,25 @@
+<#-- Wraps the pre-generated data set members of a list of messages in a single S-124 data set -->
+<#assign id='DK.' + dataSetId/>
+<?xml version="1.0" encoding="UTF-8"?>
+
+<S124:DataSet xmlns:S124="http://www.iho.int/S124/gml/1.0"
+              xsi:schemaLocation="http://www.iho.int/S124/gml/1.0 S124.xsd"
+              xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+              xmlns:gml="http://www.opengis.net/gml/3.2"
+              xmlns:S100="http://www.iho.int/s100gml/1.0"
+              xmlns:xlink="http://www.w3.org/1999/xlink"
+              gml:id="${id}">
+
+    <#if bbox??>
+        <gml:boundedBy>
+            <gml:Envelope srsName="EPSG:4326">
+                <gml:lowerCorner>${bbox[1]} ${bbox[0]}</gml:lowerCorner>
+                <gml:upperCorner>${bbox[3]} ${bbox[2]}</gml:upperCorner>
+            </gml:Envelope>
+        </gml:boundedBy>
+    </#if>
+
+<#list members as member>
+${member}
+</#list>
+</S124:DataSet>
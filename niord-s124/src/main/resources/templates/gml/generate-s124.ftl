@@ -1,10 +1,12 @@
-<?xml version="1.0" encoding="UTF-8"?>
-
+<#-- If "membersOnly" is true, only the data set members of the message are generated, not a full document -->
 <#assign htmlToText = "org.niord.core.script.directive.HtmlToTextDirective"?new()>
 <#assign id='DK.' + msg.shortId!msg.id/>
 <#assign mrn='urn:mrn:iho:' + msg.mainType?lower_case + ':dk:' + (msg.shortId!msg.id)?lower_case/>
 <#assign geomId=0>
+<#assign membersOnly=membersOnly!false>
 <#setting time_zone="UTC">
+<#if !membersOnly>
+<?xml version="1.0" encoding="UTF-8"?>
 
 <S124:DataSet xmlns:S124="http://www.iho.int/S124/gml/1.0"
               xsi:schemaLocation="http://www.iho.int/S124/gml/1.0 S124.xsd"
@@ -22,6 +24,7 @@
             </gml:Envelope>
         </gml:boundedBy>
     </#if>
+</#if>
 
     <imember>
         <@generatePreamble msg=msg></@generatePreamble>
@@ -55,7 +58,9 @@
         </#list>
     </#if>
 
+<#if !membersOnly>
 </S124:DataSet>
+</#if>
 
 
 <#function descForLang entity lang=language >
@@ -15,12 +15,15 @@
  */
 package org.niord.web.api;
 
+import org.apache.commons.lang.StringUtils;
 import org.niord.core.NiordApp;
 import org.niord.core.area.Area;
 import org.niord.core.area.AreaService;
 import org.niord.core.domain.Domain;
 import org.niord.core.domain.DomainService;
+import org.niord.core.message.InvalidCursorException;
 import org.niord.core.message.Message;
+import org.niord.core.message.MessageSearchCursor;
 import org.niord.core.message.MessageSearchParams;
 import org.niord.core.message.MessageSeries;
 import org.niord.core.message.MessageService;
@@ -50,6 +53,10 @@ import static org.niord.core.publication.vo.PublicationStatus.ACTIVE;
  */
 public abstract class AbstractApiService {
 
+    /** The default and max page sizes used for keyset (cursor) pagination of messages **/
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     @Inject
     Logger log;
 
@@ -103,6 +110,30 @@ public abstract class AbstractApiService {
             Set<String> areaIds,
             Set<MainType> mainTypes,
             String wkt) throws Exception {
+        return searchMessages(language, domainIds, messageSeries, publicationIds, areaIds, mainTypes, wkt, null, null);
+    }
+
+
+    /**
+     * Returns the published messages.
+     * Optionally, filter by a geometry defined by the WKT (well-known text) parameter.
+     * <p>
+     * If a limit or a cursor is specified, keyset (cursor) pagination is used, and only a single page
+     * of messages is returned. The returned search result will contain a cursor for the next page, if any.
+     *
+     * @param limit if defined, the max number of messages to return
+     * @param cursor if defined, the cursor returned along with the previous page of messages
+     */
+    public PagedSearchResultVo<Message> searchMessages(
+            String language,
+            Set<String> domainIds,
+            Set<String> messageSeries,
+            Set<String> publicationIds,
+            Set<String> areaIds,
+            Set<MainType> mainTypes,
+            String wkt,
+            Integer limit,
+            String cursor) throws Exception {
 
         Domain sortDomain = null;
 
@@ -204,6 +235,19 @@ public abstract class AbstractApiService {
         // Apply domain sort order
         params.checkSortByDomain(sortDomain);
 
+        // Check if keyset (cursor) pagination is requested
+        if (limit != null || StringUtils.isNotBlank(cursor)) {
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+            params.cursorPaging(true)
+                    .cursor(cursor)
+                    .maxSize(pageSize);
+
+            // Validate the cursor
+            if (StringUtils.isNotBlank(cursor) && !MessageSearchCursor.decode(cursor).matches(params)) {
+                throw new InvalidCursorException("Invalid cursor " + cursor);
+            }
+        }
+
         // Perform the search
         long t0 = System.currentTimeMillis();
         PagedSearchResultVo<Message> searchResult = messageService.search(params);
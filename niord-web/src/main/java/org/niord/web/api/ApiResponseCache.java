@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.api;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionType;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.niord.core.cache.BaseCache;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Caches the responses of the public message and publication API.
+ * <p>
+ * The cache is keyed by the normalized request and the message change version, so entries are
+ * implicitly invalidated whenever a message or publication changes. The lifespan bounds the
+ * staleness of time-dependent responses, such as the currently active publications.
+ */
+@ApplicationScoped
+public class ApiResponseCache extends BaseCache<String, ApiResponseCache.CachedResponse> {
+
+    final static long LIFESPAN = 10 * 60 * 1000;       // 10 minutes
+    final static long MAX_ENTRIES = 1000;               // at most 1.000 responses
+
+    final static String CACHE_ID = "apiResponseCache";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCacheId() {
+        return CACHE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Configuration createCacheConfiguration() {
+        return new ConfigurationBuilder()
+                .clustering().cacheMode(CacheMode.LOCAL)
+                .locking().isolationLevel(IsolationLevel.REPEATABLE_READ)
+                .eviction().type(EvictionType.COUNT).size(MAX_ENTRIES).strategy(EvictionStrategy.LRU)
+                .expiration().lifespan(LIFESPAN)
+                .build();
+    }
+
+
+    /**
+     * A cached response, with both the plain and the gzip-compressed body
+     */
+    public static class CachedResponse {
+        final String etag;
+        final String contentType;
+        final String link;
+        final byte[] body;
+        final byte[] gzipBody;
+
+        public CachedResponse(String etag, String contentType, String link, byte[] body, byte[] gzipBody) {
+            this.etag = etag;
+            this.contentType = contentType;
+            this.link = link;
+            this.body = body;
+            this.gzipBody = gzipBody;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getLink() {
+            return link;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public byte[] getGzipBody() {
+            return gzipBody;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.api;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.core.message.MessageChangeTracker;
+import org.niord.web.api.ApiResponseCache.CachedResponse;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the responses of the public message and publication API, which are polled frequently
+ * by clients, whereas the underlying data only changes a few times a day.
+ * <p>
+ * Responses are cached by the normalized request URI and query parameters, along with the current
+ * {@linkplain MessageChangeTracker} version. The responses carry strong ETags computed from the
+ * response body, so polling clients will get a "304 Not Modified" response without the underlying
+ * search being executed.
+ * <p>
+ * Both the plain and the gzip-compressed response bodies are cached, and the filter takes over the
+ * gzip-compression from RESTEasy for the cached end-points.
+ */
+@WebFilter(urlPatterns = {
+        "/rest/public/v1/messages", "/rest/public/v1/message/*",
+        "/rest/public/v1/publications", "/rest/public/v1/publication/*"
+})
+public class ApiResponseCacheFilter implements Filter {
+
+    static final String HEADER_ACCEPT_ENCODING      = "Accept-Encoding";
+    static final String HEADER_CONTENT_ENCODING     = "Content-Encoding";
+    static final String HEADER_CONTENT_LENGTH       = "Content-Length";
+    static final String HEADER_IF_NONE_MATCH        = "If-None-Match";
+    static final String HEADER_ETAG                 = "ETag";
+    static final String HEADER_LINK                 = "Link";
+
+    static final int MAX_CACHED_BODY_SIZE = 10 * 1024 * 1024; // 10 MB
+
+    @Inject
+    Logger log;
+
+    @Inject
+    ApiResponseCache apiResponseCache;
+
+    @Inject
+    MessageChangeTracker messageChangeTracker;
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+    }
+
+
+    /**
+     * Main filter method
+     * @param req the request
+     * @param res the response
+     * @param chain the filter chain
+     */
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        if (!"GET".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // NB: Read the version before executing the request, so that concurrent changes will not be cached
+        String key = getCacheKey(request, messageChangeTracker.getVersion());
+        CachedResponse cachedResponse = apiResponseCache.getCache().get(key);
+
+        if (cachedResponse == null) {
+            // Execute the request with gzip-compression disabled, and capture the response
+            CapturingResponseWrapper capture = new CapturingResponseWrapper(response);
+            chain.doFilter(new IgnoreHeaderRequestWrapper(request, HEADER_ACCEPT_ENCODING), capture);
+            capture.flushBuffer();
+
+            byte[] body = capture.getBody();
+            if (capture.getStatus() != HttpServletResponse.SC_OK || capture.isError()
+                    || body.length > MAX_CACHED_BODY_SIZE) {
+                // Return the response as is
+                if (!capture.isError() && !response.isCommitted()) {
+                    response.setContentLength(body.length);
+                    response.getOutputStream().write(body);
+                }
+                return;
+            }
+
+            cachedResponse = new CachedResponse(
+                    "\"" + sha1(body) + "\"",
+                    capture.getContentType(),
+                    response.getHeader(HEADER_LINK),
+                    body,
+                    gzip(body));
+            apiResponseCache.getCache().put(key, cachedResponse);
+        }
+
+        writeResponse(cachedResponse, request, response);
+    }
+
+
+    /** Writes the cached response, or "304 Not Modified" if the client already has the response **/
+    private void writeResponse(CachedResponse cachedResponse, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HEADER_ETAG, cachedResponse.getEtag());
+        response.setHeader("Vary", HEADER_ACCEPT_ENCODING);
+        response.setHeader("Cache-Control", "no-cache");
+
+        if (etagMatches(request, cachedResponse.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cachedResponse.getContentType());
+        if (cachedResponse.getLink() != null) {
+            response.setHeader(HEADER_LINK, cachedResponse.getLink());
+        }
+
+        byte[] body = cachedResponse.getBody();
+        if (acceptsGzip(request)) {
+            response.setHeader(HEADER_CONTENT_ENCODING, "gzip");
+            body = cachedResponse.getGzipBody();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+
+    /**
+     * Returns the cache key for the request, consisting of the request URI and the sorted
+     * query parameters, along with the message change version
+     */
+    private String getCacheKey(HttpServletRequest request, long version) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+        char separator = '?';
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            String[] values = param.getValue().clone();
+            Arrays.sort(values);
+            for (String value : values) {
+                key.append(separator).append(param.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.append('#').append(version).toString();
+    }
+
+
+    /** Returns if any of the If-None-Match request header values match the etag **/
+    private boolean etagMatches(HttpServletRequest request, String etag) {
+        return Collections.list(request.getHeaders(HEADER_IF_NONE_MATCH)).stream()
+                .flatMap(h -> Arrays.stream(h.split(",")))
+                .map(String::trim)
+                .map(v -> v.startsWith("W/") ? v.substring(2) : v) // If-None-Match uses weak comparison
+                .anyMatch(v -> v.equals("*") || v.equals(etag));
+    }
+
+
+    /** Returns if the client accepts gzip-compressed responses **/
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HEADER_ACCEPT_ENCODING);
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.toLowerCase().split(","))
+                .map(e -> e.replaceAll("\\s", ""))
+                .anyMatch(e -> (e.equals("gzip") || e.startsWith("gzip;")) && !e.matches("gzip;q=0(\\.0*)?"));
+    }
+
+
+    /** Returns the gzip-compressed data **/
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+
+    /** Computes the SHA-1 hex digest of the data **/
+    private static String sha1(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /** Request wrapper that hides the given header **/
+    private static class IgnoreHeaderRequestWrapper extends HttpServletRequestWrapper {
+
+        final String ignoredHeader;
+
+        public IgnoreHeaderRequestWrapper(HttpServletRequest request, String ignoredHeader) {
+            super(request);
+            this.ignoredHeader = ignoredHeader;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return ignoredHeader.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return ignoredHeader.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(h -> !ignoredHeader.equalsIgnoreCase(h))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+
+    /**
+     * Response wrapper that captures the response body rather than writing it to the response.
+     * The Content-Length and Content-Encoding headers are ignored, since they are set when the
+     * captured body is written.
+     */
+    private static class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ServletOutputStream outputStream;
+        PrintWriter writer;
+        boolean error;
+
+        public CapturingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() already called");
+            }
+            if (outputStream == null) {
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        body.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        body.write(b, off, len);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() already called");
+            }
+            if (writer == null) {
+                String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.ISO_8859_1.name();
+                writer = new PrintWriter(new OutputStreamWriter(body, encoding));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            error = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            error = true;
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!isIgnoredHeader(name)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!isIgnoredHeader(name)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (!isIgnoredHeader(name)) {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (!isIgnoredHeader(name)) {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        private boolean isIgnoredHeader(String name) {
+            return HEADER_CONTENT_LENGTH.equalsIgnoreCase(name) || HEADER_CONTENT_ENCODING.equalsIgnoreCase(name);
+        }
+
+        public byte[] getBody() {
+            return body.toByteArray();
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+}
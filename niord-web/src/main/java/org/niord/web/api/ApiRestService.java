@@ -42,15 +42,18 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.SchemaOutputResolver;
 import javax.xml.transform.Result;
 import javax.xml.transform.stream.StreamResult;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -131,13 +134,29 @@ public class ApiRestService extends AbstractApiService {
             @QueryParam("externalize") @DefaultValue("true") boolean externalize,
 
             @ApiParam(value = "The date format to use for JSON date-time encoding. Either 'UNIX_EPOCH' or 'ISO_8601'", example = "UNIX_EPOCH")
-            @QueryParam("dateFormat") @DefaultValue("UNIX_EPOCH") JsonDateFormat dateFormat
+            @QueryParam("dateFormat") @DefaultValue("UNIX_EPOCH") JsonDateFormat dateFormat,
+
+            @ApiParam(value = "If specified, the max number of messages to return. The link to the next page is returned in the 'Link' header", example = "100")
+            @QueryParam("limit") Integer limit,
+
+            @ApiParam(value = "The cursor of the next page, as returned in the 'Link' header of the previous page")
+            @QueryParam("cursor") String cursor,
+
+            @Context UriInfo uriInfo
 
     ) throws Exception {
 
         // Perform the search
-        PagedSearchResultVo<Message> searchResult =
-                super.searchMessages(language, domainIds, messageSeries, publicationIds, areaIds, mainTypes, wkt);
+        PagedSearchResultVo<Message> searchResult;
+        try {
+            searchResult = super.searchMessages(language, domainIds, messageSeries, publicationIds, areaIds, mainTypes,
+                    wkt, limit, cursor);
+        } catch (IllegalArgumentException e) {
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        }
 
 
         // Convert messages to value objects and externalize message links, if requested
@@ -148,10 +167,18 @@ public class ApiRestService extends AbstractApiService {
         // Depending on the dateFormat param, either use UNIX epoch or ISO-8601
         StreamingOutput stream = os -> objectMapperForDateFormat(dateFormat).writeValue(os, messages);
 
-        return Response
-                .ok(stream, MediaType.APPLICATION_JSON_TYPE.withCharset("utf-8"))
-                .build();
+        Response.ResponseBuilder response = Response
+                .ok(stream, MediaType.APPLICATION_JSON_TYPE.withCharset("utf-8"));
+
+        // When using cursor-based pagination, return a link to the next page, if any
+        if (searchResult.getNextCursor() != null) {
+            URI next = uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("cursor", searchResult.getNextCursor())
+                    .build();
+            response.link(next, "next");
+        }
 
+        return response.build();
     }
 
 
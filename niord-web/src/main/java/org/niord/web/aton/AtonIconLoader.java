@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.aton;
+
+import org.apache.commons.lang.StringUtils;
+import org.niord.web.map.AbstractTileLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Loads AtoN icons via a memory- and disk-tiered, content-addressed icon cache.
+ * <p>
+ * Icons are cached by a key computed as a hash of the rendering-relevant AtoN tags, i.e. the "seamark:" tags,
+ * in sorted order, along with the format, size, position and scale of the icon. Since the key fully
+ * determines the rendered icon, the key also serves as a strong ETag for the icon.
+ * <p>
+ * An icon is looked up in the memory cache first, then in the disk cache, and only rendered
+ * if it is not cached.
+ * <p>
+ * The disk cache is bounded by size. When exceeded, the least recently used icons are evicted.
+ */
+public class AtonIconLoader extends AbstractTileLoader<byte[]> {
+
+    /** Update the version whenever the AtoN icon rendering changes, to invalidate cached icons **/
+    static final String VERSION = "1";
+
+    static final long TOUCH_INTERVAL    = 60L * 60L * 1000L;    // Update last-modified time at most once an hour
+
+    private final Map<String, byte[]> memoryCache;
+
+
+    /**
+     * Constructor
+     * @param cacheRoot the root folder of the disk cache
+     * @param maxDiskSize the max size of the disk cache in bytes
+     * @param memoryCache the memory cache
+     */
+    public AtonIconLoader(Path cacheRoot, long maxDiskSize, Map<String, byte[]> memoryCache) {
+        super("AtoN icon", cacheRoot, 0L, TOUCH_INTERVAL, maxDiskSize);
+        this.memoryCache = memoryCache;
+    }
+
+
+    /**
+     * Returns the rendering-relevant tags, i.e. the "seamark:" tags with non-blank values, in sorted order
+     *
+     * @param tags the AtoN tags
+     * @return the rendering-relevant tags
+     */
+    public static Map<String, String> getRenderingTags(Map<String, String> tags) {
+        Map<String, String> renderingTags = new TreeMap<>();
+        tags.forEach((k, v) -> {
+            if (k != null && k.startsWith("seamark:") && StringUtils.isNotBlank(v)) {
+                renderingTags.put(k, v.trim());
+            }
+        });
+        return renderingTags;
+    }
+
+
+    /**
+     * Returns the cache key for the icon of the given AtoN tags and icon specification
+     *
+     * @param tags the AtoN tags
+     * @param spec the icon specification
+     * @return the cache key
+     */
+    public static String getCacheKey(Map<String, String> tags, IconSpec spec) {
+        StringBuilder key = new StringBuilder(VERSION)
+                .append('|').append(spec);
+        getRenderingTags(tags).forEach((k, v) -> key.append('|').append(k).append('=').append(v));
+        return sha1(key.toString());
+    }
+
+
+    /**
+     * Returns the icon with the given cache key, either from the cache or by rendering it
+     *
+     * @param cacheKey the cache key of the icon
+     * @param spec the icon specification
+     * @param renderer renders the icon if it is not cached
+     * @return the icon bytes
+     */
+    public byte[] getIcon(String cacheKey, IconSpec spec, IconRenderer renderer) throws IOException {
+
+        // Check the memory cache
+        byte[] icon = memoryCache.get(cacheKey);
+        if (icon != null) {
+            return icon;
+        }
+
+        // Check the disk cache, or else render the icon
+        icon = loadTile(cacheKey, getIconPath(cacheKey, spec), () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            renderer.render(out);
+            return out.toByteArray();
+        });
+        memoryCache.put(cacheKey, icon);
+        return icon;
+    }
+
+
+    /** Returns the disk cache path of the icon with the given cache key **/
+    Path getIconPath(String cacheKey, IconSpec spec) {
+        return getCacheRoot()
+                .resolve(cacheKey.substring(0, 2))
+                .resolve(cacheKey + "." + spec.getFormat());
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected byte[] toBytes(byte[] icon) {
+        return icon;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected byte[] fromBytes(byte[] data) {
+        return data;
+    }
+
+
+    /** Computes the SHA-1 hex digest of the value **/
+    private static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Renders an icon
+     */
+    @FunctionalInterface
+    public interface IconRenderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+
+    /**
+     * Specifies the format, size, position and scale of an icon
+     */
+    public static class IconSpec {
+        final String format;
+        final int width, height, x, y;
+        final double scale;
+
+        /** Constructor **/
+        public IconSpec(String format, int width, int height, int x, int y, double scale) {
+            this.format = format.toLowerCase();
+            this.width = width;
+            this.height = height;
+            this.x = x;
+            this.y = y;
+            this.scale = scale;
+        }
+
+        /** {@inheritDoc} **/
+        @Override
+        public String toString() {
+            return format + ":" + width + "x" + height + "@" + x + "," + y + ":" + scale;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public double getScale() {
+            return scale;
+        }
+    }
+}
@@ -15,40 +15,76 @@
  */
 package org.niord.web.aton;
 
-import org.apache.commons.lang.StringUtils;
+import org.apache.commons.io.FileUtils;
 import org.jboss.resteasy.annotations.GZIP;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.niord.core.aton.AtonNode;
+import org.niord.core.aton.AtonService;
 import org.niord.core.aton.vo.AtonNodeVo;
 import org.niord.core.repo.RepositoryService;
+import org.niord.core.settings.annotation.Setting;
+import org.niord.web.aton.AtonIconLoader.IconSpec;
 import org.slf4j.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
-import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.niord.core.settings.Setting.Type.Long;
 
 /**
- * Creates and caches AtoN icons
+ * Creates and caches AtoN icons.
+ * <p>
+ * The icons are cached in memory and in the repository by the {@code AtonIconLoader}, keyed by
+ * the rendering-relevant AtoN tags and the icon specification. Upon startup, the cache is pre-warmed
+ * with the overview icons of the most common AtoN tag combinations.
+ * <p>
+ * Overview icons used to be stored in the "aton_icons" repository folder, which is deleted upon startup.
  */
 @javax.ws.rs.Path("/aton-icon")
 @Startup
 @Singleton
+@Lock(LockType.READ)
 public class AtonIconRestService {
 
-    static final String OVERVIEW_ICON_REPO = "aton_icons";
+    static final String ICON_CACHE_REPO = "aton_icon_cache";
+    static final String OBSOLETE_ICON_REPO = "aton_icons";
+    static final int ICON_EXPIRES_HOURS = 24; // Clients may cache an icon for 24 hours...
+    static final int PREWARM_MAX_ICONS = 200;
+
     static final int OVERVIEW_ICON_HEIGHT = 90;
     static final int OVERVIEW_ICON_WIDTH = 60;
     static final double OVERVIEW_ICON_SCALE = 0.3;
+    static final IconSpec OVERVIEW_ICON = new IconSpec(
+            "png",
+            OVERVIEW_ICON_WIDTH,            // width
+            OVERVIEW_ICON_HEIGHT,           // height
+            OVERVIEW_ICON_WIDTH / 3,        // x
+            2 * OVERVIEW_ICON_HEIGHT / 3,   // y
+            OVERVIEW_ICON_SCALE             // scale
+    );
 
     @Inject
     Logger log;
@@ -56,6 +92,37 @@ public class AtonIconRestService {
     @Inject
     RepositoryService repositoryService;
 
+    @Inject
+    AtonService atonService;
+
+    @Inject
+    AtonIconCache atonIconCache;
+
+    @Inject
+    @Setting(value="atonIconCacheMaxSize",
+            description="The max size in bytes of the AtoN icons cached in the repository",
+            defaultValue = "52428800", // 50 MB
+            type = Long)
+    Long atonIconCacheMaxSize;
+
+    @Resource
+    TimerService timerService;
+
+    AtonIconLoader iconLoader;
+
+
+    /** Initializes the AtoN icon loader **/
+    @PostConstruct
+    private void init() {
+        iconLoader = new AtonIconLoader(
+                repositoryService.getRepoRoot().resolve(ICON_CACHE_REPO),
+                atonIconCacheMaxSize,
+                atonIconCache.getCache());
+
+        // In order not to stall webapp deployment, wait 10 seconds before cleaning up and pre-warming the icon cache
+        timerService.createSingleActionTimer(10000, new TimerConfig(null, false));
+    }
+
 
     @POST
     @javax.ws.rs.Path("/svg")
@@ -69,24 +136,17 @@ public class AtonIconRestService {
             @QueryParam("scale") @DefaultValue("0.4") double scale,
             AtonNodeVo aton) throws Exception {
 
-        long t0 = System.currentTimeMillis();
-
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        AtonIconRenderer.renderIcon(
-                aton,
-                "svg",
-                out,
-                width,       // width
-                height,      // height
-                width/2,     // x
-                height/2,    // y
-                scale        // scale
-        );
+        IconSpec spec = new IconSpec("svg", width, height, width / 2, height / 2, scale);
+        Map<String, String> tags = aton.getTags() == null
+                ? new HashMap<>()
+                : Arrays.stream(aton.getTags())
+                    .filter(t -> t.getK() != null && t.getV() != null)
+                    .collect(Collectors.toMap(t -> t.getK(), t -> t.getV(), (v1, v2) -> v2));
 
-        log.trace("Generated AtoN SVG in " + (System.currentTimeMillis() - t0) + " ms");
+        byte[] icon = getIcon(AtonIconLoader.getCacheKey(tags, spec), spec, aton);
 
         return Response
-                .ok(out.toByteArray())
+                .ok(icon)
                 .build();
     }
 
@@ -94,100 +154,172 @@ public class AtonIconRestService {
 
     @GET
     @javax.ws.rs.Path("/overview")
-    @NoCache
-    public Response getAtonOverviewIcon(@Context HttpServletRequest request) throws Exception {
-
-        long t0 = System.currentTimeMillis();
+    @Produces("image/png")
+    public Response getAtonOverviewIcon(@Context HttpServletRequest request, @Context Request req) throws Exception {
+
+        // The rendering-relevant tags are passed on as request parameters
+        Map<String, String> tags = new HashMap<>();
+        request.getParameterMap().forEach((k, v) -> {
+            if (v != null && v.length > 0) {
+                tags.put(k, v[0]);
+            }
+        });
+        tags = AtonIconLoader.getRenderingTags(tags);
 
-        String type = request.getParameter("seamark:type");
-        if (StringUtils.isBlank(type)) {
+        if (!tags.containsKey("seamark:type")) {
             return Response
                     .temporaryRedirect(new URI("/img/aton/aton.png"))
                     .build();
         }
 
-        // Prepare an AtoN to use as a template for icon construction
-        AtonNode aton = new AtonNode();
+        String cacheKey = AtonIconLoader.getCacheKey(tags, OVERVIEW_ICON);
+        EntityTag etag = new EntityTag(cacheKey);
+        Date expirationDate = new Date(System.currentTimeMillis() + 1000L * 60L * 60L * ICON_EXPIRES_HOURS);
 
-        // Construct a repository path to the icon
-        Path path = repositoryService
-                .getRepoRoot()
-                .resolve(OVERVIEW_ICON_REPO);
-
-        path = addParam(aton, path, request, "seamark:type");
-        path = addParam(aton, path, request, "seamark:" + type + ":category");
-        path = addParam(aton, path, request, "seamark:" + type + ":shape");
-        path = addParam(aton, path, request, "seamark:" + type + ":colour");
-        path = addParam(aton, path, request, "seamark:" + type + ":colour_pattern");
-        path = addParam(aton, path, request, "seamark:topmark:shape");
-        path = addParam(aton, path, request, "seamark:topmark:colour");
-        path = addParam(aton, path, request, "seamark:light:character");
-        path = addParam(aton, path, request, "seamark:light:colour");
-
-        // And the actual icon file
-        path = path.resolve("aton_icon_" + OVERVIEW_ICON_WIDTH + "x" + OVERVIEW_ICON_HEIGHT + ".png");
-
-        if (!Files.isRegularFile(path)) {
-            checkCreateParentDirs(path);
-
-            try (FileOutputStream out = new FileOutputStream(path.toFile())) {
-                AtonIconRenderer.renderIcon(
-                        aton.toVo(),
-                        "png",
-                        out,
-                        OVERVIEW_ICON_WIDTH,            // width
-                        OVERVIEW_ICON_HEIGHT,           // height
-                        OVERVIEW_ICON_WIDTH / 3,        // x
-                        2 * OVERVIEW_ICON_HEIGHT / 3,   // y
-                        OVERVIEW_ICON_SCALE             // scale
-                );
-
-                log.trace("Generated AtoN PNG " + path + " in " + (System.currentTimeMillis() - t0) + " ms");
-            }
+        // Check for an ETag match
+        Response.ResponseBuilder responseBuilder = req.evaluatePreconditions(etag);
+        if (responseBuilder != null) {
+            return responseBuilder
+                    .expires(expirationDate)
+                    .build();
         }
 
-        // Redirect to the icon
-        String iconUri = repositoryService.getRepoUri(path);
+        byte[] icon = getIcon(cacheKey, OVERVIEW_ICON, toAton(tags));
+
         return Response
-                .temporaryRedirect(new URI("../" + iconUri))
+                .ok(icon, "image/png")
+                .expires(expirationDate)
+                .tag(etag)
                 .build();
     }
 
 
     /**
-     * If the parameter is well-defined, add a sub-folder to the path
+     * Returns the icon with the given cache key, either from the cache or by rendering it
+     *
+     * @param cacheKey the cache key of the icon
+     * @param spec the icon specification
+     * @param aton the AtoN to render the icon for
+     * @return the icon
+     */
+    private byte[] getIcon(String cacheKey, IconSpec spec, AtonNodeVo aton) throws Exception {
+        return iconLoader.getIcon(cacheKey, spec, out -> {
+            long t0 = System.currentTimeMillis();
+            AtonIconRenderer.renderIcon(
+                    aton,
+                    spec.getFormat(),
+                    out,
+                    spec.getWidth(),
+                    spec.getHeight(),
+                    spec.getX(),
+                    spec.getY(),
+                    spec.getScale()
+            );
+            log.trace("Generated AtoN " + spec + " in " + (System.currentTimeMillis() - t0) + " ms");
+        });
+    }
+
+
+    /** Returns an AtoN template with the given tags, to use for icon construction **/
+    private AtonNodeVo toAton(Map<String, String> tags) {
+        AtonNode aton = new AtonNode();
+        tags.forEach(aton::updateTag);
+        return aton.toVo();
+    }
+
+
+    /**
+     * Returns the tags that the AtoN web client uses for the overview icon of the AtoN with the given tags.
+     * Please refer to computeAtonIconUrl() of aton-service.js
      *
-     * @param aton an AtoN template to update with the parameter tags
-     * @param path the path to update
-     * @param request the servlet request
-     * @param param the param to check for
-     * @return the potentially updated path
+     * @param tags the AtoN tags
+     * @return the overview icon tags
      */
-    private Path addParam(AtonNode aton, Path path, HttpServletRequest request, String param) {
-        String val = request.getParameter(param);
-        if (StringUtils.isNotBlank(val)) {
-            aton.updateTag(param, val);
-            path = path.resolve(escape(val));
+    private Map<String, String> getOverviewTags(Map<String, String> tags) {
+        Map<String, String> overviewTags = new HashMap<>();
+        String type = tags.get("seamark:type");
+        if (type != null) {
+            for (String key : new String[]{
+                    "seamark:type",
+                    "seamark:" + type + ":category",
+                    "seamark:" + type + ":shape",
+                    "seamark:" + type + ":colour",
+                    "seamark:" + type + ":colour_pattern",
+                    "seamark:topmark:shape",
+                    "seamark:topmark:colour",
+                    "seamark:light:character",
+                    "seamark:light:colour" }) {
+                if (tags.containsKey(key)) {
+                    overviewTags.put(key, tags.get(key));
+                }
+            }
         }
-        return path;
+        return AtonIconLoader.getRenderingTags(overviewTags);
     }
 
 
-    /** Escape naughty file name characters **/
-    private String escape(String name) {
-        return name.replaceAll("[^a-zA-Z0-9.-]", "_");
+    /**
+     * Deletes the obsolete overview icon repository folder, and pre-warms the icon cache
+     */
+    @Timeout
+    private void startup() {
+        deleteObsoleteIcons();
+        prewarmIconCache();
     }
 
 
     /**
-     * Ensures that parent directories are created
-     * @param file the file whose parent directories will be created
+     * Deletes the "aton_icons" repository folder used for overview icons prior to the AtoN icon cache
      */
-    private void checkCreateParentDirs(Path file) throws IOException {
-        if (!Files.exists(file.getParent())) {
-            Files.createDirectories(file.getParent());
+    private void deleteObsoleteIcons() {
+        Path folder = repositoryService.getRepoRoot().resolve(OBSOLETE_ICON_REPO);
+        if (Files.isDirectory(folder)) {
+            try {
+                FileUtils.deleteDirectory(folder.toFile());
+                log.info("Deleted obsolete AtoN icon folder " + folder);
+            } catch (Exception e) {
+                log.error("Failed deleting obsolete AtoN icon folder " + folder, e);
+            }
         }
     }
 
-}
 
+    /**
+     * Pre-warms the icon cache with the overview icons of the most common AtoN tag combinations
+     */
+    private void prewarmIconCache() {
+        try {
+            long t0 = System.currentTimeMillis();
+
+            // Group the tags by AtoN
+            Map<Integer, Map<String, String>> atonTags = new HashMap<>();
+            for (Object[] tag : atonService.findAllSeamarkTags()) {
+                atonTags.computeIfAbsent((Integer) tag[0], id -> new HashMap<>())
+                        .put((String) tag[1], (String) tag[2]);
+            }
+
+            // Count the overview icon tag combinations and render the most common ones
+            Map<Map<String, String>, Long> combinations = atonTags.values().stream()
+                    .map(this::getOverviewTags)
+                    .filter(tags -> !tags.isEmpty())
+                    .collect(Collectors.groupingBy(tags -> tags, Collectors.counting()));
+
+            List<Map<String, String>> commonTags = combinations.entrySet().stream()
+                    .sorted(Map.Entry.<Map<String, String>, Long>comparingByValue().reversed())
+                    .limit(PREWARM_MAX_ICONS)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+
+            for (Map<String, String> tags : commonTags) {
+                getIcon(AtonIconLoader.getCacheKey(tags, OVERVIEW_ICON), OVERVIEW_ICON, toAton(tags));
+            }
+
+            log.info("Pre-warmed AtoN icon cache with " + commonTags.size() + " of " + combinations.size()
+                    + " tag combinations in " + (System.currentTimeMillis() - t0) + " ms");
+
+        } catch (Exception e) {
+            log.error("Failed pre-warming AtoN icon cache", e);
+        }
+    }
+
+}
@@ -23,11 +23,14 @@ import org.niord.core.aton.AtonNode;
 import org.niord.core.aton.AtonSearchParams;
 import org.niord.core.aton.AtonService;
 import org.niord.core.aton.vo.AtonNodeVo;
+import org.niord.core.batch.BatchService;
+import org.niord.core.user.Roles;
 import org.niord.model.IJsonSerializable;
 import org.niord.model.search.PagedSearchResultVo;
 import org.slf4j.Logger;
 
 import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.ws.rs.*;
@@ -54,6 +57,9 @@ public class AtonRestService {
     @Inject
     AtonDefaultsService atonDefaultsService;
 
+    @Inject
+    BatchService batchService;
+
 
     /** Returns the AtoN with the given comma-separated IDs */
     @GET
@@ -197,6 +203,19 @@ public class AtonRestService {
     }
 
 
+    /**
+     * Starts the batch job that pre-renders the AtoN tiles covering the areas of the current domain
+     */
+    @POST
+    @Path("/seed-tiles")
+    @RolesAllowed(Roles.SYSADMIN)
+    @NoCache
+    public void seedTiles() throws Exception {
+        log.info("Starting AtoN tile seeding batch job");
+        batchService.startBatchJobWithJsonData("aton-tile-seeder", null, null, null);
+    }
+
+
     /*************************/
     /** Helper classes      **/
     /*************************/
@@ -15,15 +15,9 @@
  */
 package org.niord.web.aton;
 
-import org.apache.commons.io.IOUtils;
-import org.niord.core.aton.AtonSearchParams;
-import org.niord.core.aton.AtonService;
-import org.niord.core.repo.RepositoryService;
-import org.niord.core.util.GlobalMercator;
-import org.niord.core.util.GraphicsUtils;
+import org.niord.core.aton.AtonTileService;
 import org.slf4j.Logger;
 
-import javax.imageio.ImageIO;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.GET;
@@ -32,10 +26,6 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
-import java.awt.*;
-import java.awt.geom.Ellipse2D;
-import java.awt.image.BufferedImage;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -46,6 +36,10 @@ import java.util.Date;
  * Can be used for servicing an OpenStreetMap Layer in Openlayers.
  * The layer should be configured to have the url "/rest/aton-tiles/${z}/${x}/${y}.png"
  * <p>
+ * Tiles are rendered by the {@code AtonTileService}, either upon the first request or in bulk by the
+ * "aton-tile-seeder" batch job, and remain valid until invalidated by changes to the AtoNs of the tile,
+ * or until they expire after 24 hours.
+ * <p>
  * The handling of blank tiles in particular is un-optimal. This is due to problems getting the service
  * to work with Microsoft IE and Edge:
  * <ul>
@@ -58,22 +52,13 @@ import java.util.Date;
 @javax.ws.rs.Path("/aton-tiles")
 public class AtonTileRestService {
 
-    static final int        TILE_SIZE           = 256;
-    static final int        TILE_TTL_HOURS      = 24; // A tile file is refreshed every 24 hours...
-    static final String     TILE_REPO_FOLDER    = "aton_tiles";
-    static final Color      ATON_COLOR          = new Color(200, 0, 0);
+    static final int        TILE_EXPIRES_HOURS  = 24; // Clients may cache a tile for 24 hours...
 
     @Inject
     Logger log;
 
     @Inject
-    AtonService atonService;
-
-    @Inject
-    AtonBlankTileCache blankTileCache;
-
-    @Inject
-    RepositoryService repositoryService;
+    AtonTileService atonTileService;
 
     /**
      * Streams the given tile
@@ -85,22 +70,17 @@ public class AtonTileRestService {
 
         try {
             // Next, check if the tile exists in the repository
-            Path file = repositoryService.getRepoRoot()
-                    .resolve(TILE_REPO_FOLDER)
-                    .resolve(String.valueOf(z))
-                    .resolve(String.valueOf(x))
-                    .resolve(String.valueOf(y) + ".png");
+            Path file = atonTileService.getTilePath(z, x, y);
 
-            long ttlMs = 1000L * 60L * 60L * TILE_TTL_HOURS;
+            long ttlMs = 1000L * 60L * 60L * TILE_EXPIRES_HOURS;
             Date expirationDate = new Date(System.currentTimeMillis() + ttlMs);
 
             // Check if the tile is a known blank tile
-            if (blankTileCache.getCache().containsKey(file.toString())) {
+            if (atonTileService.isBlankTile(file)) {
                 return streamBlankTile(expirationDate);
 
-            } else if (Files.exists(file) &&
-                    System.currentTimeMillis() < Files.getLastModifiedTime(file).toMillis() + ttlMs) {
-                // The tile exists and is not expired
+            } else if (atonTileService.isValidTile(file)) {
+                // The tile exists and has neither been invalidated nor expired
 
                 // Check for an ETag match
                 EntityTag etag = entityTagForFile(file);
@@ -117,33 +97,14 @@ public class AtonTileRestService {
                 }
             }
 
+            // Render the tile
+            file = atonTileService.renderTile(z, x, y);
 
-            // Search all messages in the bounds of the tile
-            long t0 = System.currentTimeMillis();
-            GlobalMercator mercator = new GlobalMercator();
-            double[] bounds = mercator.TileLatLonBounds(x, y, z);
-
-            // Convert to mapExtents search parameters
-            AtonSearchParams param = new AtonSearchParams()
-                .extent(-bounds[2], bounds[1], -bounds[0], bounds[3]);
-
-            // Compute the atons of the tile extent
-            java.util.List<double[]> atonLonLast = atonService.searchPositions(param);
-
-            // If the search result is empty, return blank and cache the result
-            if (atonLonLast.isEmpty()) {
-                blankTileCache.getCache().put(file.toString(), file.toString());
+            // If the tile contains no AtoNs, return blank
+            if (file == null) {
                 return streamBlankTile(expirationDate);
             }
 
-            // Generate an image
-            BufferedImage image = generateAtonTile(z, bounds, mercator, atonLonLast);
-
-            // Write the image to the repository
-            checkCreateParentDirs(file);
-            ImageIO.write(image, "png", file.toFile());
-            log.debug("Generated " + file + " in " + (System.currentTimeMillis() - t0) + " ms");
-
             return streamTile(file, expirationDate, null);
 
         } catch (Exception e) {
@@ -157,48 +118,6 @@ public class AtonTileRestService {
     }
 
 
-    /**
-     * Generates an AtoN tile
-     * @param z the zoom level
-     * @param bounds the tile bounds
-     * @param mercator the mercator calculator
-     * @param atonLonLats the aton positions
-     * @return the resulting image
-     */
-    private BufferedImage generateAtonTile(int z, double[] bounds, GlobalMercator mercator, java.util.List<double[]> atonLonLats) {
-
-        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = image.createGraphics();
-        GraphicsUtils.antialias(g2);
-
-        int xy0[] =  mercator.LatLonToPixels(-bounds[0], bounds[1], z);
-
-        atonLonLats.stream().forEach(lonLat -> {
-
-            int xy[] = mercator.LatLonToPixels(lonLat[1], lonLat[0], z);
-            double px = xy[0] - xy0[0];
-            double py = -(xy[1] - xy0[1]);
-            double radius = (z < 6) ? 0.5 : 1.0;
-
-            Shape theCircle = new Ellipse2D.Double(px - radius, py - radius, 2.0 * radius, 2.0 * radius);
-            g2.setColor(ATON_COLOR);
-            g2.fill(theCircle);
-        });
-
-        g2.dispose();
-        return image;
-    }
-
-    /**
-     * Ensures that parent directories are created
-     * @param file the file whose parent directories will be created
-     */
-    private void checkCreateParentDirs(Path file) throws IOException {
-        if (!Files.exists(file.getParent())) {
-            Files.createDirectories(file.getParent());
-        }
-    }
-
     /**
      * Streams a tile
      * @param file the tile to stream
@@ -223,17 +142,7 @@ public class AtonTileRestService {
      * @return the response
      */
     private Response streamBlankTile(Date expirationDate) throws IOException {
-        Path file = repositoryService.getRepoRoot()
-                .resolve(TILE_REPO_FOLDER)
-                .resolve("blank_256.png");
-
-        // Make sure the blank file is present in the repository
-        if (Files.notExists(file)) {
-            checkCreateParentDirs(file);
-            IOUtils.copy(
-                    getClass().getResourceAsStream("/blank_256.png"),
-                    new FileOutputStream(file.toFile()));
-        }
+        Path file = atonTileService.getBlankTilePath();
 
         log.trace("Streaming blank file: " + file);
         return Response
@@ -252,4 +161,3 @@ public class AtonTileRestService {
     }
 
 }
-
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Base class for tile loaders that cache tiles in a size-bounded disk cache.
+ * <p>
+ * A tile is looked up in the disk cache first, and only fetched if it is not cached or has expired.
+ * Concurrent requests for the same uncached tile share a single fetch.
+ * <p>
+ * The disk cache is pruned each time a tenth of its max size has been written. Expired tiles are
+ * deleted, and if the disk cache still exceeds the max size, the tiles with the oldest last-modified
+ * time are deleted until the disk cache is below 90% of the max size. If a touch interval is specified,
+ * the last-modified time of a cached tile is updated when the tile is used, i.e. the least recently
+ * used tiles are deleted first.
+ *
+ * @param <T> the type of the tiles
+ */
+public abstract class AbstractTileLoader<T> {
+
+    static final double PRUNE_TARGET    = 0.9;  // Prune the disk cache to 90% of the max size
+
+    /** Fetches a tile that is not cached **/
+    @FunctionalInterface
+    protected interface TileFetcher<T> {
+        T fetch() throws IOException;
+    }
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String tileName;
+    private final Path cacheRoot;
+    private final long ttlMs;
+    private final long touchIntervalMs;
+    private final long maxDiskSize;
+
+    // Pending fetches, used for coalescing concurrent requests for the same tile
+    private final Map<String, CompletableFuture<T>> pendingFetches = new ConcurrentHashMap<>();
+
+    // Number of bytes written to the disk cache since it was last pruned. Initialized to force an initial prune
+    private final AtomicLong bytesSincePrune;
+    private final AtomicBoolean pruning = new AtomicBoolean(false);
+
+
+    /**
+     * Constructor
+     * @param tileName the name of the tiles, used for logging
+     * @param cacheRoot the root folder of the disk cache
+     * @param ttlMs the time-to-live of cached tiles in milliseconds, or 0 if cached tiles do not expire
+     * @param touchIntervalMs the interval in milliseconds at which to update the last-modified time of used tiles,
+     *                        or 0 if the last-modified time should not be updated
+     * @param maxDiskSize the max size of the disk cache in bytes
+     */
+    protected AbstractTileLoader(String tileName, Path cacheRoot, long ttlMs, long touchIntervalMs, long maxDiskSize) {
+        this.tileName = tileName;
+        this.cacheRoot = cacheRoot;
+        this.ttlMs = ttlMs;
+        this.touchIntervalMs = touchIntervalMs;
+        this.maxDiskSize = maxDiskSize;
+        this.bytesSincePrune = new AtomicLong(getPruneThreshold());
+    }
+
+
+    /** Serializes the tile to the bytes stored in the disk cache **/
+    protected abstract byte[] toBytes(T tile);
+
+
+    /** De-serializes the tile from the bytes stored in the disk cache. Returns null if the bytes are invalid **/
+    protected abstract T fromBytes(byte[] data);
+
+
+    /** Returns the root folder of the disk cache **/
+    protected Path getCacheRoot() {
+        return cacheRoot;
+    }
+
+
+    /**
+     * Returns the tile with the given key, either from the disk cache or by calling the fetcher.
+     * Concurrent requests for the same tile share a single fetch.
+     *
+     * @param key the key of the tile
+     * @param file the disk cache file of the tile
+     * @param fetcher fetches the tile if it is not cached
+     * @return the tile
+     */
+    protected T loadTile(String key, Path file, TileFetcher<T> fetcher) throws IOException {
+
+        // Check the disk cache
+        T tile = readCachedTile(file);
+        if (tile != null) {
+            return tile;
+        }
+
+        // Fetch the tile. Concurrent requests share the same fetch
+        CompletableFuture<T> fetch = new CompletableFuture<>();
+        CompletableFuture<T> pendingFetch = pendingFetches.putIfAbsent(key, fetch);
+        if (pendingFetch != null) {
+            return awaitFetch(key, pendingFetch);
+        }
+
+        try {
+            // The tile may have been fetched by a request that completed after our cache look-up
+            tile = readCachedTile(file);
+            if (tile == null) {
+                tile = fetcher.fetch();
+                writeCachedTile(file, tile);
+            }
+            fetch.complete(tile);
+            return tile;
+        } catch (IOException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingFetches.remove(key);
+        }
+    }
+
+
+    /** Waits for a pending fetch initiated by another request **/
+    private T awaitFetch(String key, CompletableFuture<T> pendingFetch) throws IOException {
+        try {
+            return pendingFetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + tileName + " " + key, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed fetching " + tileName + " " + key, e.getCause());
+        }
+    }
+
+
+    /************************************/
+    /** Disk cache                     **/
+    /************************************/
+
+
+    /** Returns the cached tile of the given file, or null if not cached or expired **/
+    private T readCachedTile(Path file) {
+        try {
+            if (Files.isRegularFile(file)) {
+                long now = System.currentTimeMillis();
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                if (ttlMs > 0 && lastModified <= now - ttlMs) {
+                    return null;
+                }
+
+                T tile = fromBytes(Files.readAllBytes(file));
+
+                // Flag the tile as recently used
+                if (tile != null && touchIntervalMs > 0 && lastModified < now - touchIntervalMs) {
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+                }
+                return tile;
+            }
+        } catch (IOException e) {
+            log.debug("Failed reading cached " + tileName + " " + file + ": " + e);
+        }
+        return null;
+    }
+
+
+    /** Writes the tile to the disk cache. Errors are logged but otherwise ignored **/
+    private void writeCachedTile(Path file, T tile) {
+        byte[] data = toBytes(tile);
+        Path tmpFile = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tmpFile = Files.createTempFile(file.getParent(), "tile", ".tmp");
+            Files.write(tmpFile, data);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed caching " + tileName + " " + file + ": " + e);
+            return;
+        } finally {
+            deleteQuietly(tmpFile);
+        }
+
+        if (bytesSincePrune.addAndGet(data.length) >= getPruneThreshold()) {
+            pruneDiskCache();
+        }
+    }
+
+
+    /** Deletes the file, if it exists. Errors are ignored **/
+    private void deleteQuietly(Path file) {
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+
+    /** The disk cache is pruned each time a tenth of the max size has been written **/
+    private long getPruneThreshold() {
+        return Math.max(1, maxDiskSize / 10);
+    }
+
+
+    /**
+     * Deletes expired tiles from the disk cache, and if the disk cache still exceeds the max size,
+     * deletes the oldest tiles until the disk cache is below the prune target size.
+     */
+    void pruneDiskCache() {
+        // Only prune from one thread at a time
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            bytesSincePrune.set(0);
+            if (!Files.isDirectory(cacheRoot)) {
+                return;
+            }
+
+            long expiryTime = ttlMs > 0 ? System.currentTimeMillis() - ttlMs : Long.MIN_VALUE;
+            List<CachedFile> files = new ArrayList<>();
+            long size = 0;
+            int deleted = 0;
+            try (Stream<Path> paths = Files.walk(cacheRoot)) {
+                for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                    try {
+                        CachedFile file = new CachedFile(path);
+                        if (file.lastModified < expiryTime && Files.deleteIfExists(path)) {
+                            deleted++;
+                        } else {
+                            files.add(file);
+                            size += file.size;
+                        }
+                    } catch (IOException ignored) {
+                        // The file may have been replaced or deleted concurrently
+                    }
+                }
+            }
+
+            if (size > maxDiskSize) {
+                files.sort(Comparator.comparingLong(f -> f.lastModified));
+                long targetSize = (long) (maxDiskSize * PRUNE_TARGET);
+                for (CachedFile file : files) {
+                    if (size <= targetSize) {
+                        break;
+                    }
+                    try {
+                        if (Files.deleteIfExists(file.path)) {
+                            size -= file.size;
+                            deleted++;
+                        }
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+
+            if (deleted > 0) {
+                log.info("Pruned " + deleted + " " + tileName + "s from the disk cache. Current size: " + size + " bytes");
+            }
+        } catch (IOException e) {
+            log.warn("Failed pruning " + tileName + " disk cache: " + e);
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+
+    /** Size and last-modified time of a disk cache file **/
+    private static class CachedFile {
+        final Path path;
+        final long size;
+        final long lastModified;
+
+        CachedFile(Path path) throws IOException {
+            this.path = path;
+            this.size = Files.size(path);
+            this.lastModified = Files.getLastModifiedTime(path).toMillis();
+        }
+    }
+}
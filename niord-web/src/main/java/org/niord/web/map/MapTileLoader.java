@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.map;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads slippy map tiles, e.g. OpenStreetMap tiles, via a size-bounded disk cache.
+ * <p>
+ * The tile server URL template must contain the "{z}", "{x}" and "{y}" placeholders, e.g.
+ * "https://tile.example.com/{z}/{x}/{y}.png".
+ * <p>
+ * Public tile servers, such as the OpenStreetMap tile servers, require clients to send an identifying
+ * User-Agent and to not bulk-fetch tiles. So, the User-Agent must be specified, and the fetches from
+ * the tile server are throttled to the given max rate.
+ * <p>
+ * The last-modified time of a cached tile file is updated whenever the tile is used, and when the
+ * disk cache exceeds the max size, the least recently used tiles are evicted.
+ * Concurrent requests for the same uncached tile share a single tile server fetch.
+ */
+public class MapTileLoader extends AbstractTileLoader<byte[]> {
+
+    static final int CONNECT_TIMEOUT    = 5000;                 // 5 seconds
+    static final int READ_TIMEOUT       = 5000;                 // 5 seconds
+    static final long TOUCH_INTERVAL    = 60L * 60L * 1000L;    // Update last-modified time at most once an hour
+
+    private final String tileServer;
+    private final String userAgent;
+    private final long fetchIntervalNanos;
+
+    // The earliest time, in System.nanoTime(), at which the next tile server fetch may be started
+    private final AtomicLong nextFetchTime = new AtomicLong(System.nanoTime());
+
+
+    /**
+     * Constructor
+     * @param tileServer the tile server URL template
+     * @param userAgent the identifying User-Agent sent to the tile server
+     * @param maxFetchesPerSecond the max number of tile server fetches per second
+     * @param cacheRoot the root folder of the disk cache
+     * @param maxDiskSize the max size of the disk cache in bytes
+     */
+    public MapTileLoader(String tileServer, String userAgent, int maxFetchesPerSecond, Path cacheRoot, long maxDiskSize) {
+        super("map tile", cacheRoot, 0L, TOUCH_INTERVAL, maxDiskSize);
+        if (userAgent == null || userAgent.trim().isEmpty()) {
+            throw new IllegalArgumentException("An identifying User-Agent must be specified for the tile server");
+        }
+        this.tileServer = tileServer;
+        this.userAgent = userAgent.trim();
+        this.fetchIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxFetchesPerSecond);
+    }
+
+
+    /**
+     * Returns the tile image with the given XYZ tile coordinates, i.e. with the y axis pointing south.
+     * Returns null if the tile coordinates are outside the map.
+     *
+     * @param z the zoom level
+     * @param x the x tile coordinate
+     * @param y the y tile coordinate
+     * @return the tile image
+     */
+    public BufferedImage getTile(int z, int x, int y) throws IOException {
+        int tiles = 1 << z;
+        if (y < 0 || y >= tiles) {
+            return null;
+        }
+        // Wrap around the date line
+        int tx = ((x % tiles) + tiles) % tiles;
+
+        Path file = getCacheRoot()
+                .resolve(String.valueOf(z))
+                .resolve(String.valueOf(tx))
+                .resolve(y + ".png");
+
+        byte[] data = loadTile(z + "/" + tx + "/" + y, file, () -> fetchTile(z, tx, y));
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+
+
+    /** Fetches the tile from the tile server **/
+    private byte[] fetchTile(int z, int x, int y) throws IOException {
+        String url = tileServer
+                .replace("{z}", String.valueOf(z))
+                .replace("{x}", String.valueOf(x))
+                .replace("{y}", String.valueOf(y));
+
+        awaitFetchSlot();
+
+        HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+        con.setConnectTimeout(CONNECT_TIMEOUT);
+        con.setReadTimeout(READ_TIMEOUT);
+        con.setRequestProperty("User-Agent", userAgent);
+        try {
+            int status = con.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Tile server returned status " + status + " for " + url);
+            }
+            try (InputStream in = con.getInputStream()) {
+                return IOUtils.toByteArray(in);
+            }
+        } finally {
+            con.disconnect();
+        }
+    }
+
+
+    /** Reserves the next free tile server fetch slot, and waits until it starts **/
+    private void awaitFetchSlot() throws IOException {
+        long now = System.nanoTime();
+        long slot = nextFetchTime.getAndAccumulate(now, (next, t) -> Math.max(next, t) + fetchIntervalNanos);
+        long waitNanos = Math.max(slot, now) - now;
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting to fetch map tile", e);
+            }
+        }
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected byte[] toBytes(byte[] tile) {
+        return tile;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected byte[] fromBytes(byte[] data) {
+        return data;
+    }
+}
@@ -22,7 +22,9 @@ import org.niord.core.NiordApp;
 import org.niord.core.geojson.FeatureName;
 import org.niord.core.geojson.GeoJsonUtils;
 import org.niord.core.geojson.JtsConverter;
+import org.apache.commons.lang.StringUtils;
 import org.niord.core.message.Message;
+import org.niord.core.repo.RepositoryService;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.util.GlobalMercator;
 import org.niord.core.util.GraphicsUtils;
@@ -39,10 +41,13 @@ import org.niord.model.geojson.PointVo;
 import org.niord.model.geojson.PolygonVo;
 import org.slf4j.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.imageio.ImageIO;
 import javax.inject.Inject;
 import java.awt.*;
@@ -56,12 +61,24 @@ import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 import static org.niord.core.settings.Setting.Type.Integer;
+import static org.niord.core.settings.Setting.Type.Long;
 
 /**
  * Generates message map thumbnail images.
+ * <p>
+ * If the "mapTileServer" and "mapTileUserAgent" settings are defined, the map background is composed
+ * from slippy map tiles, which are cached in the repository by the {@code MapTileLoader}. Otherwise,
+ * a map background image is fetched from the static-map service defined by the "mapImageServer" setting.
  */
 @Singleton
 @Startup
@@ -80,12 +97,22 @@ public class MessageMapImageGenerator {
 
     static final GlobalMercator mercator = new GlobalMercator();
 
+    static final String TILE_REPO_FOLDER = "map_tiles";
+    static final int MAX_CONCURRENT_GENERATIONS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    static final int MAX_BULK_GENERATION_SIZE = 1000;
+
     @Inject
     Logger log;
 
     @Inject
     NiordApp app;
 
+    @Inject
+    RepositoryService repositoryService;
+
+    @Resource
+    ManagedExecutorService managedExecutorService;
+
     @Inject
     @Setting(value = "mapImageServer", defaultValue = "http://staticmap.openstreetmap.de/staticmap.php",
             description = "URL of static-map service used for generation map thumbnails")
@@ -106,9 +133,54 @@ public class MessageMapImageGenerator {
             description = "The map thumbnail zoom level used for single-position messages.")
     Integer zoomLevel;
 
+    @Inject
+    @Setting(value = "mapTileServer", defaultValue = "",
+            description = "URL template of the tile server used for generating map thumbnails, " +
+                    "e.g. 'https://tile.example.com/{z}/{x}/{y}.png'. " +
+                    "If blank, the mapImageServer static-map service is used instead.")
+    String mapTileServer;
+
+    @Inject
+    @Setting(value = "mapTileUserAgent", defaultValue = "",
+            description = "Identifying User-Agent sent to the tile server, e.g. 'Niord (contact@example.com)'. " +
+                    "Required for using the tile server, as mandated by e.g. the OpenStreetMap tile usage policy.")
+    String mapTileUserAgent;
+
+    @Inject
+    @Setting(value = "mapTileMaxFetchRate", defaultValue = "2", type = Integer,
+            description = "The max number of tiles fetched from the tile server per second")
+    Integer mapTileMaxFetchRate;
+
+    @Inject
+    @Setting(value = "mapTileCacheMaxSize", defaultValue = "209715200", type = Long,
+            description = "The max size in bytes of the map tiles cached in the repository")
+    Long mapTileCacheMaxSize;
+
     private Image nwImage;
     private Image nmImage;
 
+    private MapTileLoader tileLoader;
+    private final Semaphore bulkGeneration = new Semaphore(1);
+
+
+    /** Initializes the map tile loader **/
+    @PostConstruct
+    private void init() {
+        if (StringUtils.isNotBlank(mapTileServer)) {
+            if (StringUtils.isBlank(mapTileUserAgent)) {
+                log.error("The mapTileUserAgent setting must be defined in order to use the tile server " +
+                        mapTileServer + ". Using the static-map service instead.");
+            } else {
+                tileLoader = new MapTileLoader(
+                        mapTileServer,
+                        mapTileUserAgent,
+                        mapTileMaxFetchRate,
+                        repositoryService.getRepoRoot().resolve(TILE_REPO_FOLDER),
+                        mapTileCacheMaxSize);
+            }
+        }
+    }
+
 
     /** Returns the size of the map image */
     public java.lang.Integer getMapImageSize() {
@@ -117,7 +189,52 @@ public class MessageMapImageGenerator {
 
 
     /**
-     * Fetches the map image and crops it if specified
+     * Returns the map background image, either composed from cached map tiles,
+     * or fetched from the static-map service
+     * @param centerPt the center point
+     * @param zoom the zoom level
+     * @return the image
+     */
+    protected BufferedImage getMapImage(double[] centerPt, int zoom) throws IOException {
+        return tileLoader != null
+                ? composeMapImage(centerPt, zoom)
+                : fetchMapImage(centerPt, zoom);
+    }
+
+
+    /**
+     * Composes the map image from the map tiles covering the image
+     * @param centerPt the center point
+     * @param zoom the zoom level
+     * @return the image
+     */
+    protected BufferedImage composeMapImage(double[] centerPt, int zoom) throws IOException {
+        int tileSize = GlobalMercator.TILE_SIZE;
+
+        // Compute the top-left pixel of the image, with the y axis pointing south
+        int[] cxy = mercator.LatLonToPixels(centerPt[1], centerPt[0], zoom);
+        int[] raster = mercator.PixelsToRaster(cxy[0], cxy[1], zoom);
+        int x0 = raster[0] - mapImageSize / 2;
+        int y0 = raster[1] - mapImageSize / 2;
+
+        BufferedImage image = new BufferedImage(mapImageSize, mapImageSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        for (int tx = Math.floorDiv(x0, tileSize); tx <= Math.floorDiv(x0 + mapImageSize - 1, tileSize); tx++) {
+            for (int ty = Math.floorDiv(y0, tileSize); ty <= Math.floorDiv(y0 + mapImageSize - 1, tileSize); ty++) {
+                BufferedImage tile = tileLoader.getTile(zoom, tx, ty);
+                if (tile != null) {
+                    g2.drawImage(tile, tx * tileSize - x0, ty * tileSize - y0, null);
+                    tile.flush();
+                }
+            }
+        }
+        g2.dispose();
+        return image;
+    }
+
+
+    /**
+     * Fetches the map image from the static-map service and crops it if specified
      * @param centerPt the center point
      * @param zoom the zoom level
      * @return the image
@@ -163,8 +280,20 @@ public class MessageMapImageGenerator {
      * @return if the image file was properly created
      */
     public boolean generateMessageMapImage(Message message, FeatureCollectionVo[] fcs, Path imageRepoPath) throws IOException {
+        return generateMapImage(new MapImageData(message, fcs, imageRepoPath));
+    }
+
+
+    /**
+     * Attempts to create a map image for the plain message data, i.e. without accessing the message entity
+     * @param data the message data
+     * @return if the image file was properly created
+     */
+    private boolean generateMapImage(MapImageData data) throws IOException {
 
         long t0 = System.currentTimeMillis();
+        FeatureCollectionVo[] fcs = data.fcs;
+        Path imageRepoPath = data.imageRepoPath;
 
         // Compute the bounds of the feature geometry and compute the center
         double[] bbox = GeoJsonUtils.computeBBox(fcs);
@@ -184,7 +313,7 @@ public class MessageMapImageGenerator {
                     : computeZoomLevel(bbox, maxWH, maxWH, 12, 3);
 
             // Fetch the background OpenStreetMap image
-            BufferedImage image = fetchMapImage(center, zoom);
+            BufferedImage image = getMapImage(center, zoom);
 
             Graphics2D g2 = image.createGraphics();
             GraphicsUtils.antialias(g2);
@@ -205,7 +334,7 @@ public class MessageMapImageGenerator {
             Arrays.stream(fcs)
                     .filter(fc -> fc.getFeatures() != null)
                     .flatMap(g -> Arrays.stream(g.getFeatures()))
-                    .forEach(f -> drawGeometry(f, f.getGeometry(), g2, getMessageImage(message)));
+                    .forEach(f -> drawGeometry(f, f.getGeometry(), g2, data.pointIndicator));
 
             // Draw labels
             // Disabled for now - if enabled, we need to generate one image per language...
@@ -225,7 +354,7 @@ public class MessageMapImageGenerator {
             // Update the timestamp of the image file to match the change date of the message
             Files.setLastModifiedTime(
                     imageRepoPath,
-                    FileTime.fromMillis(message.getUpdated().getTime()));
+                    FileTime.fromMillis(data.updated));
 
             log.info("Saved image for to file " + imageRepoPath + " in " +
                     (System.currentTimeMillis() - t0) + " ms");
@@ -235,6 +364,87 @@ public class MessageMapImageGenerator {
         return false;
     }
 
+    /**
+     * Generates map images for the given messages in parallel, using the managed executor service.
+     * <p>
+     * Only one bulk generation may run at a time, at most {@code MAX_BULK_GENERATION_SIZE} images
+     * are generated per call, and at most {@code MAX_CONCURRENT_GENERATIONS} images are generated
+     * concurrently. Tile server fetches are additionally throttled by the {@code MapTileLoader}.
+     * <p>
+     * The data needed for generating the images, such as the GeoJson of the messages, is resolved
+     * in the calling thread, so this method must be called within the transaction that loaded the messages.
+     * The message entities are never accessed by the executor threads.
+     *
+     * @param messageImagePaths the messages and the corresponding paths of the images to generate
+     * @return the number of generated images
+     */
+    public int generateMessageMapImages(Map<Message, Path> messageImagePaths) {
+
+        if (messageImagePaths.size() > MAX_BULK_GENERATION_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_GENERATION_SIZE +
+                    " map images can be generated at a time");
+        }
+        if (!bulkGeneration.tryAcquire()) {
+            throw new IllegalStateException("A bulk generation of map images is already in progress");
+        }
+        try {
+            List<MapImageData> images = new ArrayList<>();
+            messageImagePaths.forEach((message, imageRepoPath) ->
+                    images.add(new MapImageData(message, message.toGeoJson(), imageRepoPath)));
+            return generateMapImages(images);
+        } finally {
+            bulkGeneration.release();
+        }
+    }
+
+
+    /** Generates the map images using the managed executor service, with a bounded number of concurrent tasks **/
+    private int generateMapImages(List<MapImageData> images) {
+
+        long t0 = System.currentTimeMillis();
+
+        Semaphore slots = new Semaphore(MAX_CONCURRENT_GENERATIONS);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (MapImageData image : images) {
+                slots.acquire();
+                try {
+                    results.add(managedExecutorService.submit(() -> {
+                        try {
+                            return generateMapImage(image);
+                        } finally {
+                            slots.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    log.warn("Failed scheduling map image generation for message " + image.uid + ": " + e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int generated = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) {
+                    generated++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Failed generating message map image: " + e.getCause());
+            }
+        }
+
+        log.info("Generated " + generated + " of " + images.size() + " message map images in " +
+                (System.currentTimeMillis() - t0) + " ms");
+        return generated;
+    }
+
+
     /**
      * Draws the geometry
      * @param f the parent GeoJson feature
@@ -508,4 +718,25 @@ public class MessageMapImageGenerator {
 
         return true;
     }
+
+
+    /**
+     * The plain data needed for generating the map image of a message.
+     * Resolved from the message entity up-front, so that images can be generated outside the persistence context.
+     */
+    private class MapImageData {
+        final String uid;
+        final FeatureCollectionVo[] fcs;
+        final Image pointIndicator;
+        final long updated;
+        final Path imageRepoPath;
+
+        MapImageData(Message message, FeatureCollectionVo[] fcs, Path imageRepoPath) {
+            this.uid = message.getUid();
+            this.fcs = fcs;
+            this.pointIndicator = getMessageImage(message);
+            this.updated = message.getUpdated().getTime();
+            this.imageRepoPath = imageRepoPath;
+        }
+    }
 }
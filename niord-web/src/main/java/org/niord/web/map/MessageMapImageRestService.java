@@ -49,7 +49,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Returns the map thumbnail image associated with a message.
@@ -115,8 +117,7 @@ public class MessageMapImageRestService {
             if (fcs.length > 0) {
 
                 // Construct the image file for the message
-                String imageName = String.format("map_%d.png", messageMapImageGenerator.getMapImageSize());
-                Path imageRepoPath = repositoryService.getRepoRoot().resolve(message.getRepoPath()).resolve(imageName);
+                Path imageRepoPath = getMessageMapImagePath(message);
 
                 // If the image file does not exist, or if the message has been updated after the image file,
                 // generate a new image file
@@ -147,6 +148,48 @@ public class MessageMapImageRestService {
     }
 
 
+    /**
+     * Re-generates the standard map thumbnail images of the messages with the given UIDs
+     * @param uids the UIDs of the messages
+     * @return the number of generated images
+     */
+    @POST
+    @javax.ws.rs.Path("/regenerate")
+    @Consumes("application/json;charset=UTF-8")
+    @Produces("text/plain")
+    @RolesAllowed(Roles.SYSADMIN)
+    public String regenerateMessageMapImages(List<String> uids) {
+
+        if (uids.size() > MessageMapImageGenerator.MAX_BULK_GENERATION_SIZE) {
+            throw new WebApplicationException("At most " + MessageMapImageGenerator.MAX_BULK_GENERATION_SIZE +
+                    " map images can be re-generated at a time", 400);
+        }
+
+        Map<Message, Path> messageImagePaths = new LinkedHashMap<>();
+        uids.stream()
+                .map(uid -> messageService.findByUid(uid))
+                .filter(message -> message != null)
+                .forEach(message -> messageImagePaths.put(message, getMessageMapImagePath(message)));
+
+        try {
+            return String.valueOf(messageMapImageGenerator.generateMessageMapImages(messageImagePaths));
+        } catch (IllegalStateException e) {
+            throw new WebApplicationException(e.getMessage(), 409);
+        }
+    }
+
+
+    /**
+     * Returns the path of the standard auto-generated map image file of the message
+     * @param message the message
+     * @return the path of the map image file
+     */
+    private Path getMessageMapImagePath(Message message) {
+        String imageName = String.format("map_%d.png", messageMapImageGenerator.getMapImageSize());
+        return repositoryService.getRepoRoot().resolve(message.getRepoPath()).resolve(imageName);
+    }
+
+
     /**
      * Returns a redirect to the actual repository image file
      **/
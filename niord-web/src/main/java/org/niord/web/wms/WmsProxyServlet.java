@@ -15,12 +15,12 @@
  */
 package org.niord.web.wms;
 
+import org.niord.core.repo.RepositoryService;
 import org.niord.core.settings.annotation.Setting;
 import org.niord.core.util.WebUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 
-import javax.imageio.ImageIO;
 import javax.inject.Inject;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -31,10 +31,12 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.niord.core.settings.Setting.Type.Boolean;
+import static org.niord.core.settings.Setting.Type.Long;
 import static org.niord.core.settings.Setting.Type.Password;
 
 /**
@@ -43,6 +45,9 @@ import static org.niord.core.settings.Setting.Type.Password;
  * This servlet will mask out a couple of colours that makes the current Danish WMS service unusable...
  *
  * Define the settings for the "wmsLogin", "wmsPassword", etc. in the "${niord.home}/niord.json" settings file.
+ *
+ * The tiles are cached in memory and in the repository by the {@code WmsTileLoader}, so that
+ * repeated requests for the same tile do not hit the WMS provider.
  */
 @WebServlet(value = "/wms/*")
 public class WmsProxyServlet extends HttpServlet {
@@ -52,6 +57,7 @@ public class WmsProxyServlet extends HttpServlet {
     final static int        COLOR_DIST      = 20;
     final static int        CACHE_TIMEOUT   =  24 * 60 * 60; // 24 hours
     static final String     BLANK_IMAGE     = "/img/blank.png";
+    static final String     TILE_REPO_FOLDER = "wms_tiles";
 
     @Inject
     Logger log;
@@ -84,6 +90,32 @@ public class WmsProxyServlet extends HttpServlet {
             type = Boolean)
     Boolean wmsProtected;
 
+    @Inject
+    @Setting(value="wmsTileCacheMaxSize",
+            description="The max size in bytes of the WMS tiles cached in the repository",
+            defaultValue = "524288000", // 500 MB
+            type = Long)
+    Long wmsTileCacheMaxSize;
+
+    @Inject
+    RepositoryService repositoryService;
+
+    @Inject
+    WmsTileCache wmsTileCache;
+
+    WmsTileLoader tileLoader;
+
+
+    /** Initializes the WMS tile loader **/
+    @Override
+    public void init() {
+        tileLoader = new WmsTileLoader(
+                repositoryService.getRepoRoot().resolve(TILE_REPO_FOLDER),
+                CACHE_TIMEOUT * 1000L,
+                wmsTileCacheMaxSize,
+                wmsTileCache.getCache());
+    }
+
     /**
      * Main GET method
      * @param request servlet request
@@ -114,31 +146,36 @@ public class WmsProxyServlet extends HttpServlet {
 
         @SuppressWarnings("unchecked")
         Map<String, String[]> paramMap = request.getParameterMap();
-        String params = paramMap
+        Map<String, String> wmsParams = new LinkedHashMap<>();
+        paramMap.entrySet().stream()
+                .filter(p -> StringUtils.isBlank(wmsLayers) || !"layers".equalsIgnoreCase(p.getKey()))
+                .forEach(p -> wmsParams.put(p.getKey(), p.getValue()[0]));
+        if (StringUtils.isNotBlank(wmsLayers)) {
+            wmsParams.put("LAYERS", wmsLayers);
+        }
+
+        // The cache key is computed before the WMS credentials are added
+        String cacheKey = WmsTileLoader.getCacheKey(wmsParams);
+
+        String params = wmsParams
                 .entrySet()
                 .stream()
-                .filter(p -> StringUtils.isBlank(wmsLayers) || !"layers".equalsIgnoreCase(p.getKey()))
-                .map(p -> String.format("%s=%s", p.getKey(), p.getValue()[0]))
+                .map(p -> String.format("%s=%s", p.getKey(), p.getValue()))
                 .collect(Collectors.joining("&"));
         params += String.format("&SERVICENAME=%s&LOGIN=%s&PASSWORD=%s", wmsServiceName, wmsLogin, wmsPassword);
-        if (StringUtils.isNotBlank(wmsLayers)) {
-            params += String.format("&LAYERS=%s", wmsLayers);
-        }
 
         String url = wmsProvider + "?" + params;
         log.trace("Loading image " + url);
 
         try {
-            BufferedImage image = ImageIO.read(new URL(url));
-            if (image != null) {
-                //image = transformWhiteToTransparent(image);
-
-                OutputStream out = response.getOutputStream();
-                ImageIO.write(image, "png", out);
-                image.flush();
-                out.close();
-                return;
-            }
+            // No image transformation is applied, so the tile bytes are streamed straight through
+            WmsTile tile = tileLoader.getTile(cacheKey, new URL(url));
+            response.setContentType(tile.getContentType());
+            response.setContentLength(tile.getData().length);
+            OutputStream out = response.getOutputStream();
+            out.write(tile.getData());
+            out.close();
+            return;
         } catch (Exception e) {
             log.trace("Failed loading WMS image for URL " + url + ": " + e);
         }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.wms;
+
+import java.io.Serializable;
+
+/**
+ * A cached WMS tile, i.e. the tile image bytes along with the content type returned by the WMS provider
+ */
+public class WmsTile implements Serializable {
+
+    private final String contentType;
+    private final byte[] data;
+
+    /** Constructor **/
+    public WmsTile(String contentType, byte[] data) {
+        this.contentType = contentType;
+        this.data = data;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
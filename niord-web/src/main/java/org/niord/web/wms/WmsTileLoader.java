@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web.wms;
+
+import org.apache.commons.io.IOUtils;
+import org.niord.web.map.AbstractTileLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Loads WMS tiles via a memory- and disk-tiered tile cache.
+ * <p>
+ * Tiles are cached by a key derived from the normalized WMS request parameters. A tile is looked up
+ * in the memory cache first, then in the disk cache, and only fetched from the upstream WMS provider
+ * if it is not cached or has expired. Concurrent requests for the same tile share a single upstream fetch.
+ * <p>
+ * The content type returned by the WMS provider is cached along with the tile. In the disk cache,
+ * the tile file starts with a line containing the content type, followed by the tile image bytes.
+ * <p>
+ * The disk cache is bounded by size. When exceeded, expired tiles and then the least recently
+ * fetched tiles are evicted.
+ */
+public class WmsTileLoader extends AbstractTileLoader<WmsTile> {
+
+    static final int CONNECT_TIMEOUT    = 10 * 1000;    // 10 seconds
+    static final int READ_TIMEOUT       = 30 * 1000;    // 30 seconds
+    static final int MAX_CONTENT_TYPE_LENGTH = 256;
+
+    private final Map<String, WmsTile> memoryCache;
+
+
+    /**
+     * Constructor
+     * @param cacheRoot the root folder of the disk cache
+     * @param ttlMs the time-to-live of cached tiles in milliseconds
+     * @param maxDiskSize the max size of the disk cache in bytes
+     * @param memoryCache the memory cache
+     */
+    public WmsTileLoader(Path cacheRoot, long ttlMs, long maxDiskSize, Map<String, WmsTile> memoryCache) {
+        super("WMS tile", cacheRoot, ttlMs, 0L, maxDiskSize);
+        this.memoryCache = memoryCache;
+    }
+
+
+    /**
+     * Returns a cache key for the given WMS request parameters.
+     * The parameter names are case-insensitive and the parameter order is insignificant in WMS requests,
+     * so, the key is computed from the upper-cased parameter names in sorted order.
+     *
+     * @param params the WMS request parameters
+     * @return the cache key
+     */
+    public static String getCacheKey(Map<String, String> params) {
+        Map<String, String> sortedParams = new TreeMap<>();
+        params.forEach((k, v) -> sortedParams.put(k.toUpperCase(), v == null ? "" : v.trim()));
+        return sortedParams.entrySet().stream()
+                .map(p -> p.getKey() + "=" + p.getValue())
+                .collect(Collectors.joining("&"));
+    }
+
+
+    /**
+     * Returns the tile with the given cache key, either from the cache or from the given upstream URL.
+     * The returned tile contains the unaltered tile image and content type returned by the upstream WMS provider.
+     *
+     * @param cacheKey the cache key of the tile
+     * @param url the upstream URL of the tile
+     * @return the tile
+     */
+    public WmsTile getTile(String cacheKey, URL url) throws IOException {
+
+        // Check the memory cache
+        WmsTile tile = memoryCache.get(cacheKey);
+        if (tile != null) {
+            return tile;
+        }
+
+        // Check the disk cache, or else fetch the tile from the upstream WMS provider
+        tile = loadTile(cacheKey, getTilePath(cacheKey), () -> fetchTile(url));
+        memoryCache.put(cacheKey, tile);
+        return tile;
+    }
+
+
+    /**
+     * Fetches the tile from the upstream WMS provider.
+     * WMS services report errors as XML documents, so, only image responses are accepted.
+     *
+     * @param url the upstream URL of the tile
+     * @return the tile
+     */
+    WmsTile fetchTile(URL url) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        con.setConnectTimeout(CONNECT_TIMEOUT);
+        con.setReadTimeout(READ_TIMEOUT);
+        try {
+            int status = con.getResponseCode();
+            String contentType = con.getContentType();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("WMS provider returned status " + status);
+            } else if (contentType == null || !contentType.toLowerCase().startsWith("image/")) {
+                throw new IOException("WMS provider returned content type " + contentType);
+            }
+
+            try (InputStream in = con.getInputStream()) {
+                return new WmsTile(contentType, IOUtils.toByteArray(in));
+            }
+        } finally {
+            con.disconnect();
+        }
+    }
+
+
+    /************************************/
+    /** Disk cache                     **/
+    /************************************/
+
+
+    /** Returns the disk cache path of the tile with the given cache key **/
+    Path getTilePath(String cacheKey) {
+        String hash = sha1(cacheKey);
+        return getCacheRoot()
+                .resolve(hash.substring(0, 2))
+                .resolve(hash + ".img");
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected byte[] toBytes(WmsTile tile) {
+        byte[] header = (tile.getContentType() + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] data = Arrays.copyOf(header, header.length + tile.getData().length);
+        System.arraycopy(tile.getData(), 0, data, header.length, tile.getData().length);
+        return data;
+    }
+
+
+    /** {@inheritDoc} **/
+    @Override
+    protected WmsTile fromBytes(byte[] data) {
+        // The file starts with a line containing the content type
+        for (int x = 0; x < data.length && x < MAX_CONTENT_TYPE_LENGTH; x++) {
+            if (data[x] == '\n') {
+                String contentType = new String(data, 0, x, StandardCharsets.UTF_8);
+                return contentType.startsWith("image/")
+                        ? new WmsTile(contentType, Arrays.copyOfRange(data, x + 1, data.length))
+                        : null;
+            }
+        }
+        return null;
+    }
+
+
+    /** Computes the SHA-1 hex digest of the value **/
+    private static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.niord.web.map.AbstractTileLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the coalescing, disk caching and pruning shared by the tile loaders
+ */
+public class AbstractTileLoaderTest {
+
+    static final byte[] TILE = "not-really-a-png".getBytes(StandardCharsets.UTF_8);
+
+    Path cacheRoot;
+    AtomicInteger fetches = new AtomicInteger();
+
+    @Before
+    public void createCacheRoot() throws IOException {
+        cacheRoot = Files.createTempDirectory("tiles");
+    }
+
+    @After
+    public void deleteCacheRoot() throws IOException {
+        FileUtils.deleteDirectory(cacheRoot.toFile());
+    }
+
+
+    /** A tile loader that caches the tiles returned by a fetch counter **/
+    class TestTileLoader extends AbstractTileLoader<byte[]> {
+
+        TestTileLoader(long ttlMs, long touchIntervalMs, long maxDiskSize) {
+            super("test tile", cacheRoot, ttlMs, touchIntervalMs, maxDiskSize);
+        }
+
+        byte[] getTile(String key, long fetchDelayMs) throws IOException {
+            return loadTile(key, getTilePath(key), () -> {
+                fetches.incrementAndGet();
+                try {
+                    Thread.sleep(fetchDelayMs);
+                } catch (InterruptedException ignored) {
+                }
+                if (key.startsWith("error")) {
+                    throw new IOException("Failed fetching " + key);
+                }
+                return TILE;
+            });
+        }
+
+        Path getTilePath(String key) {
+            return getCacheRoot().resolve(key + ".bin");
+        }
+
+        @Override
+        protected byte[] toBytes(byte[] tile) {
+            return tile;
+        }
+
+        @Override
+        protected byte[] fromBytes(byte[] data) {
+            return data;
+        }
+    }
+
+
+    @Test
+    public void testCoalescing() throws Exception {
+        TestTileLoader loader = new TestTileLoader(0L, 0L, 1024 * 1024);
+
+        // Concurrent requests for the same tile should share a single fetch
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<byte[]>> tiles = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tiles.add(executor.submit(() -> loader.getTile("tile-1", 200)));
+        }
+        for (Future<byte[]> tile : tiles) {
+            assertArrayEquals(TILE, tile.get());
+        }
+        executor.shutdown();
+        assertEquals(1, fetches.get());
+    }
+
+
+    @Test
+    public void testDiskCaching() throws Exception {
+        assertArrayEquals(TILE, new TestTileLoader(0L, 0L, 1024 * 1024).getTile("tile-1", 0));
+        assertEquals(1, fetches.get());
+
+        // Served from the disk cache, also by a new loader
+        assertArrayEquals(TILE, new TestTileLoader(0L, 0L, 1024 * 1024).getTile("tile-1", 0));
+        assertEquals(1, fetches.get());
+        try (Stream<Path> files = Files.walk(cacheRoot)) {
+            assertEquals(0, files.filter(f -> f.toString().endsWith(".tmp")).count());
+        }
+
+        // Failed fetches are not cached
+        TestTileLoader loader = new TestTileLoader(0L, 0L, 1024 * 1024);
+        for (int i = 1; i <= 2; i++) {
+            try {
+                loader.getTile("error", 0);
+                fail("Expected fetch error");
+            } catch (IOException ignored) {
+            }
+        }
+        assertEquals(3, fetches.get());
+    }
+
+
+    @Test
+    public void testExpiry() throws Exception {
+        TestTileLoader loader = new TestTileLoader(60000L, 0L, 1024 * 1024);
+        loader.getTile("tile-1", 0);
+        loader.getTile("tile-1", 0);
+        assertEquals(1, fetches.get());
+
+        // Expired tiles are re-fetched
+        Files.setLastModifiedTime(loader.getTilePath("tile-1"), FileTime.fromMillis(System.currentTimeMillis() - 120000L));
+        loader.getTile("tile-1", 0);
+        assertEquals(2, fetches.get());
+    }
+
+
+    @Test
+    public void testLeastRecentlyUsedPruning() throws Exception {
+        // Room for two tiles only. The cache is pruned upon every write
+        TestTileLoader loader = new TestTileLoader(0L, 1000L, 2 * TILE.length + 8);
+        long now = System.currentTimeMillis();
+
+        loader.getTile("tile-1", 0);
+        loader.getTile("tile-2", 0);
+        Files.setLastModifiedTime(loader.getTilePath("tile-1"), FileTime.fromMillis(now - 20000L));
+        Files.setLastModifiedTime(loader.getTilePath("tile-2"), FileTime.fromMillis(now - 10000L));
+
+        // Using tile 1 flags it as recently used, so tile 2 is pruned when tile 3 is cached
+        loader.getTile("tile-1", 0);
+        loader.getTile("tile-3", 0);
+        assertEquals(3, fetches.get());
+
+        assertTrue(Files.exists(loader.getTilePath("tile-1")));
+        assertFalse(Files.exists(loader.getTilePath("tile-2")));
+        assertTrue(Files.exists(loader.getTilePath("tile-3")));
+    }
+}
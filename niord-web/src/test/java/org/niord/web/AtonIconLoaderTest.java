@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web;
+
+import org.junit.Test;
+import org.niord.web.aton.AtonIconLoader;
+import org.niord.web.aton.AtonIconLoader.IconSpec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the AtoN icon loader
+ */
+public class AtonIconLoaderTest {
+
+    static final IconSpec SPEC = new IconSpec("png", 60, 90, 20, 60, 0.3);
+
+    @Test
+    public void testCacheKey() {
+        Map<String, String> tags1 = new LinkedHashMap<>();
+        tags1.put("seamark:type", "buoy_lateral");
+        tags1.put("seamark:buoy_lateral:colour", "red");
+        tags1.put("seamark:light:colour", "");
+        tags1.put("name", "Not rendered");
+
+        Map<String, String> tags2 = new LinkedHashMap<>();
+        tags2.put("seamark:buoy_lateral:colour", " red");
+        tags2.put("seamark:type", "buoy_lateral");
+
+        // Tag order, blank values and non-seamark tags are insignificant
+        assertEquals(AtonIconLoader.getCacheKey(tags1, SPEC), AtonIconLoader.getCacheKey(tags2, SPEC));
+
+        // Tag values and icon specifications are significant
+        tags2.put("seamark:buoy_lateral:colour", "green");
+        assertNotEquals(AtonIconLoader.getCacheKey(tags1, SPEC), AtonIconLoader.getCacheKey(tags2, SPEC));
+        assertNotEquals(AtonIconLoader.getCacheKey(tags1, SPEC),
+                AtonIconLoader.getCacheKey(tags1, new IconSpec("svg", 60, 90, 20, 60, 0.3)));
+    }
+}
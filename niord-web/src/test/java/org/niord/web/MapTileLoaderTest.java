@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.niord.web.map.MapTileLoader;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the map tile loader against a stand-in tile server
+ */
+public class MapTileLoaderTest {
+
+    static final String USER_AGENT = "Niord test (test@example.com)";
+
+    HttpServer server;
+    AtomicInteger tileRequests = new AtomicInteger();
+    List<String> userAgents = new CopyOnWriteArrayList<>();
+    List<Long> requestTimes = new CopyOnWriteArrayList<>();
+    Path cacheRoot;
+    byte[] tile;
+
+    @Before
+    public void startServer() throws IOException {
+        cacheRoot = Files.createTempDirectory("map-tiles");
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB), "png", png);
+        tile = png.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/tiles", exchange -> {
+            tileRequests.incrementAndGet();
+            requestTimes.add(System.currentTimeMillis());
+            userAgents.add(exchange.getRequestHeaders().getFirst("User-Agent"));
+            exchange.getResponseHeaders().add("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, tile.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(tile);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        server.stop(0);
+        FileUtils.deleteDirectory(cacheRoot.toFile());
+    }
+
+    private MapTileLoader loader(int maxFetchesPerSecond) {
+        String tileServer = "http://localhost:" + server.getAddress().getPort() + "/tiles/{z}/{x}/{y}.png";
+        return new MapTileLoader(tileServer, USER_AGENT, maxFetchesPerSecond, cacheRoot, 1024 * 1024);
+    }
+
+
+    @Test
+    public void testTileCoordinates() throws Exception {
+        MapTileLoader loader = loader(100);
+
+        // Cached by zoom and tile coordinates, also when wrapping around the date line
+        assertNotNull(loader.getTile(2, 1, 1));
+        assertNotNull(loader.getTile(2, 5, 1));
+        assertEquals(1, tileRequests.get());
+        assertTrue(Files.isRegularFile(cacheRoot.resolve("2").resolve("1").resolve("1.png")));
+
+        // Tiles outside the map are not fetched
+        assertNull(loader.getTile(2, 1, 4));
+        assertEquals(1, tileRequests.get());
+    }
+
+
+    @Test
+    public void testThrottling() throws Exception {
+        MapTileLoader loader = loader(5);
+
+        for (int x = 0; x < 4; x++) {
+            assertNotNull(loader.getTile(3, x, 0));
+        }
+        assertEquals(4, tileRequests.get());
+        assertTrue(userAgents.stream().allMatch(USER_AGENT::equals));
+
+        // At most 5 fetches per second, i.e. at least 200 ms between fetches (minus timer slack)
+        for (int x = 1; x < requestTimes.size(); x++) {
+            assertTrue(requestTimes.get(x) - requestTimes.get(x - 1) >= 180);
+        }
+    }
+
+
+    @Test
+    public void testUserAgentRequired() {
+        try {
+            new MapTileLoader("http://localhost/{z}/{x}/{y}.png", " ", 1, cacheRoot, 1024);
+            fail("Expected missing User-Agent to be rejected");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
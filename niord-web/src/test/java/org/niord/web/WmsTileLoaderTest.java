@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Danish Maritime Authority.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.niord.web;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.niord.web.wms.WmsTile;
+import org.niord.web.wms.WmsTileLoader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the WMS tile loader against a stand-in WMS provider
+ */
+public class WmsTileLoaderTest {
+
+    static final byte[] TILE = "not-really-a-png".getBytes(StandardCharsets.UTF_8);
+
+    HttpServer server;
+    AtomicInteger upstreamRequests = new AtomicInteger();
+    Path cacheRoot;
+
+    @Before
+    public void startServer() throws IOException {
+        cacheRoot = Files.createTempDirectory("wms-tiles");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/wms", exchange -> {
+            upstreamRequests.incrementAndGet();
+            boolean error = exchange.getRequestURI().getQuery().contains("error");
+            exchange.getResponseHeaders().add("Content-Type", error ? "application/vnd.ogc.se_xml" : "image/png");
+            byte[] body = error ? "<ServiceExceptionReport/>".getBytes(StandardCharsets.UTF_8) : TILE;
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        server.stop(0);
+        FileUtils.deleteDirectory(cacheRoot.toFile());
+    }
+
+    private URL url(String query) throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/wms?" + query);
+    }
+
+
+    @Test
+    public void testCacheKey() {
+        Map<String, String> params1 = new LinkedHashMap<>();
+        params1.put("bbox", "1,2,3,4");
+        params1.put("WIDTH", "256");
+
+        Map<String, String> params2 = new LinkedHashMap<>();
+        params2.put("width", " 256");
+        params2.put("BBOX", "1,2,3,4");
+
+        assertEquals(WmsTileLoader.getCacheKey(params1), WmsTileLoader.getCacheKey(params2));
+    }
+
+
+    @Test
+    public void testContentTypeCached() throws Exception {
+        Map<String, WmsTile> memoryCache = new HashMap<>();
+        WmsTileLoader loader = new WmsTileLoader(cacheRoot, 60000L, 1024 * 1024, memoryCache);
+
+        WmsTile tile = loader.getTile("tile-1", url("tile=1"));
+        assertArrayEquals(TILE, tile.getData());
+        assertEquals("image/png", tile.getContentType());
+        assertEquals(1, upstreamRequests.get());
+
+        // Served from the disk cache, along with the upstream content type
+        memoryCache.clear();
+        tile = loader.getTile("tile-1", url("tile=1"));
+        assertArrayEquals(TILE, tile.getData());
+        assertEquals("image/png", tile.getContentType());
+        assertEquals(1, upstreamRequests.get());
+    }
+
+
+    @Test
+    public void testErrorsNotCached() throws Exception {
+        Map<String, WmsTile> memoryCache = new HashMap<>();
+        WmsTileLoader loader = new WmsTileLoader(cacheRoot, 60000L, 1024 * 1024, memoryCache);
+
+        for (int i = 1; i <= 2; i++) {
+            try {
+                loader.getTile("error", url("error=1"));
+                fail("Expected WMS error");
+            } catch (IOException ignored) {
+            }
+            assertEquals(i, upstreamRequests.get());
+        }
+        assertEquals(0, memoryCache.size());
+    }
+}